@@ -5,7 +5,9 @@ import org.springframework.data.domain.Pageable;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.Serializable;
 import java.sql.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -14,12 +16,14 @@ import java.util.Objects;
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @EqualsAndHashCode
 @ToString
-public class ParamsHolder {
+public class ParamsHolder implements Serializable {
     private Pageable page;
     private Map<String, Long> longValues;
     private Map<String, Integer> integerValues;
     private Map<String, String> stringValues;
     private Map<String, Date> dateValues;
+    private Map<String, List<String>> stringListValues;
+    private Map<String, List<Long>> longListValues;
 
     public Pageable getPage() {
         return this.page;
@@ -56,4 +60,20 @@ public class ParamsHolder {
         }
         return null;
     }
+
+    @Nullable
+    public List<String> getStrings(@NonNull @Nonnull String key) {
+        if (Objects.nonNull(stringListValues)) {
+            return stringListValues.getOrDefault(key, null);
+        }
+        return null;
+    }
+
+    @Nullable
+    public List<Long> getLongs(@NonNull @Nonnull String key) {
+        if (Objects.nonNull(longListValues)) {
+            return longListValues.getOrDefault(key, null);
+        }
+        return null;
+    }
 }
@@ -9,9 +9,8 @@ import org.springframework.data.domain.PageRequest;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.sql.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @EqualsAndHashCode
 @ToString
@@ -23,6 +22,8 @@ public final class ParamsHolderBuilder {
     private Map<String, Integer> integerValues = new HashMap<>();
     private Map<String, String> stringValues = new HashMap<>();
     private Map<String, Date> dateValues = new HashMap<>();
+    private Map<String, List<String>> stringListValues = new HashMap<>();
+    private Map<String, List<Long>> longListValues = new HashMap<>();
 
     public ParamsHolderBuilder records(@Nullable Integer records) {
         this.records = Objects.nonNull(records) && records > 0 ? records : DEFAULT_RECORDS_NUMBER;
@@ -62,6 +63,26 @@ public final class ParamsHolderBuilder {
         return this;
     }
 
+    public ParamsHolderBuilder stringParams(@NonNull @Nonnull String key, @Nullable Collection<String> params) {
+        if (Objects.nonNull(params)) {
+            List<String> values = params.stream().filter(StringUtils::isNotBlank).distinct().collect(Collectors.toList());
+            if (!values.isEmpty()) {
+                stringListValues.put(key, values);
+            }
+        }
+        return this;
+    }
+
+    public ParamsHolderBuilder longParams(@NonNull @Nonnull String key, @Nullable Collection<Long> params) {
+        if (Objects.nonNull(params)) {
+            List<Long> values = params.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+            if (!values.isEmpty()) {
+                longListValues.put(key, values);
+            }
+        }
+        return this;
+    }
+
     public ParamsHolder build() {
         int pageNumber = getPage(page);
         int recordsPerPage = getAmount(records);
@@ -71,6 +92,8 @@ public final class ParamsHolderBuilder {
                            .integerValues(integerValues)
                            .stringValues(stringValues)
                            .dateValues(dateValues)
+                           .stringListValues(stringListValues)
+                           .longListValues(longListValues)
                            .build();
     }
 
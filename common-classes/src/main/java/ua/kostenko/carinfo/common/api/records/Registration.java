@@ -32,6 +32,27 @@ public class Registration implements Serializable, GenericRecord<String> {
     public static final String PERSON_TYPE = "personType";
     public static final String REGISTRATION_NUMBER = "registrationNumber";
     public static final String REGISTRATION_DATE = "registrationDate";
+    public static final String REGISTRATION_DATE_FROM = "registrationDateFrom";
+    public static final String REGISTRATION_DATE_TO = "registrationDateTo";
+    public static final String MAKE_YEAR_FROM = "makeYearFrom";
+    public static final String MAKE_YEAR_TO = "makeYearTo";
+    public static final String ENGINE_CAPACITY_MIN = "engineCapacityMin";
+    public static final String ENGINE_CAPACITY_MAX = "engineCapacityMax";
+    public static final String OWN_WEIGHT_MIN = "ownWeightMin";
+    public static final String OWN_WEIGHT_MAX = "ownWeightMax";
+    public static final String TOTAL_WEIGHT_MIN = "totalWeightMin";
+    public static final String TOTAL_WEIGHT_MAX = "totalWeightMax";
+    public static final String REGISTRATION_NUMBERS = "registrationNumbers";
+    public static final String BRANDS = "brandNames";
+    public static final String MODELS = "modelNames";
+    public static final String COLORS = "colorNames";
+    public static final String KINDS = "kindNames";
+    public static final String BODY_TYPES = "bodyTypeNames";
+    public static final String PURPOSES = "purposeNames";
+    public static final String FUEL_TYPES = "fuelTypeNames";
+    public static final String MAKE_YEARS = "makeYears";
+    public static final String OPERATION_CODES = "operationCodes";
+    public static final String DEPARTMENT_CODES = "departmentCodes";
 
     private Long id;
 
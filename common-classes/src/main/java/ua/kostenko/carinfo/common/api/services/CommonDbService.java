@@ -3,23 +3,38 @@ package ua.kostenko.carinfo.common.api.services;
 import com.google.common.collect.Lists;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import ua.kostenko.carinfo.common.api.ParamsHolder;
 import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
 import ua.kostenko.carinfo.common.database.repositories.DBRepository;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 abstract class CommonDbService<T extends GenericRecord<R>, R> implements DBService<T> {
     final DBRepository<T, R> repository;
+    private final Class<?> recordType;
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
 
     protected CommonDbService(@NonNull @Nonnull DBRepository<T, R> repository) {
         this.repository = repository;
+        Class<?>[] typeArguments = GenericTypeResolver.resolveTypeArguments(getClass(), CommonDbService.class);
+        this.recordType = Objects.nonNull(typeArguments) ? typeArguments[0] : null;
+    }
+
+    @Autowired(required = false)
+    void setCacheInvalidationPublisher(@Nullable CacheInvalidationPublisher cacheInvalidationPublisher) {
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
     }
 
     @Override
@@ -65,6 +80,7 @@ abstract class CommonDbService<T extends GenericRecord<R>, R> implements DBServi
                 if (exists(entity)) {
                     log.info("update: entity {} exists, will be updated", entity);
                     T updated = repository.update(entity);
+                    publishChange();
                     t = Optional.ofNullable(updated);
                 } else {
                     log.warn("update: entity: {} doesn't exist, nothing to update", entity);
@@ -82,6 +98,9 @@ abstract class CommonDbService<T extends GenericRecord<R>, R> implements DBServi
     @Override
     public boolean delete(long id) {
         boolean deleted = repository.delete(id);
+        if (deleted) {
+            publishChange();
+        }
         log.info("delete: Entity with id {} deleted = {}", id, deleted);
         return deleted;
     }
@@ -152,4 +171,24 @@ abstract class CommonDbService<T extends GenericRecord<R>, R> implements DBServi
         log.debug("countAll: count = {}", all);
         return all;
     }
+
+    @Override
+    public void stream(@Nonnull @NonNull ParamsHolderBuilder builder, @Nonnull @NonNull Consumer<T> consumer) {
+        ParamsHolder paramsHolder = builder.build();
+        log.debug("stream: Streaming entities with params: {}", paramsHolder);
+        repository.stream(paramsHolder, consumer);
+    }
+
+    @Override
+    public void streamProjection(@Nonnull @NonNull ParamsHolderBuilder builder, @Nonnull @NonNull List<String> fields, @Nonnull @NonNull RowCallbackHandler handler) {
+        ParamsHolder paramsHolder = builder.build();
+        log.debug("streamProjection: Streaming fields {} with params: {}", fields, paramsHolder);
+        repository.streamProjection(paramsHolder, fields, handler);
+    }
+
+    private void publishChange() {
+        if (Objects.nonNull(cacheInvalidationPublisher) && Objects.nonNull(recordType)) {
+            cacheInvalidationPublisher.entityChanged(recordType);
+        }
+    }
 }
@@ -2,11 +2,13 @@ package ua.kostenko.carinfo.common.api.services;
 
 import lombok.NonNull;
 import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
 
 import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface DBService<T> {
     Optional<T> create(@Nonnull @NonNull final T entity);
@@ -21,4 +23,6 @@ public interface DBService<T> {
     Page<T> getAll(@Nonnull @NonNull ParamsHolderBuilder builder);
     int countAll();
     int countAll(@Nonnull @NonNull ParamsHolderBuilder builder);
+    void stream(@Nonnull @NonNull ParamsHolderBuilder builder, @Nonnull @NonNull Consumer<T> consumer);
+    void streamProjection(@Nonnull @NonNull ParamsHolderBuilder builder, @Nonnull @NonNull List<String> fields, @Nonnull @NonNull RowCallbackHandler handler);
 }
@@ -0,0 +1,135 @@
+package ua.kostenko.carinfo.common.cache;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Listens to carinfo_cache on its own (not pooled) connection and evicts local cache regions named by notifications.
+ * After a reconnect every region is evicted, because notifications sent while disconnected are lost.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationListener {
+    private static final int POLL_TIMEOUT_MILLIS = 10_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+    private final ObjectProvider<CacheManager> cacheManagerProvider;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String url;
+    private final String username;
+    private final String password;
+    private volatile boolean running;
+    private Thread thread;
+
+    @Autowired
+    public CacheInvalidationListener(@NonNull @Nonnull ObjectProvider<CacheManager> cacheManagerProvider,
+                                     @NonNull @Nonnull ApplicationEventPublisher eventPublisher,
+                                     @Value("${app.cache.invalidation.enabled:true}") boolean enabled,
+                                     @Value("${spring.datasource.url:}") String url,
+                                     @Value("${spring.datasource.username:}") String username,
+                                     @Value("${spring.datasource.password:}") String password) {
+        this.cacheManagerProvider = cacheManagerProvider;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || url.isEmpty() || Objects.isNull(cacheManagerProvider.getIfAvailable())) {
+            log.info("start: Cache invalidation listener is disabled");
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (Objects.nonNull(thread)) {
+            thread.interrupt();
+        }
+    }
+
+    public void evict(@Nullable String payload) {
+        List<String> regions = CacheRegions.getRegions(payload);
+        if (Objects.isNull(regions)) {
+            eventPublisher.publishEvent(new DataChangedEvent(CacheRegions.getDataVersion(payload)));
+        } else {
+            eventPublisher.publishEvent(new EntityChangedEvent(CacheRegions.getEntity(payload)));
+        }
+        CacheManager cacheManager = cacheManagerProvider.getIfAvailable();
+        if (Objects.isNull(cacheManager)) {
+            return;
+        }
+        Collection<String> names = Objects.isNull(regions) ? cacheManager.getCacheNames() : regions;
+        names.stream()
+             .map(cacheManager::getCache)
+             .filter(Objects::nonNull)
+             .forEach(Cache::clear);
+        log.debug("evict: Payload: {}, evicted regions: {}", payload, names);
+    }
+
+    private void listen() {
+        boolean reconnected = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CacheRegions.CHANNEL);
+                }
+                log.info("listen: Listening to {}", CacheRegions.CHANNEL);
+                if (reconnected) {
+                    evict(null);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (Objects.nonNull(notifications)) {
+                        for (PGNotification notification : notifications) {
+                            evict(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                log.warn("listen: Connection for {} is lost, reconnecting in {} ms", CacheRegions.CHANNEL, RECONNECT_DELAY_MILLIS, ex);
+                reconnected = true;
+                sleep();
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ua.kostenko.carinfo.common.cache;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Evicts affected local cache regions right away and sends the same event through NOTIFY carinfo_cache to other nodes.
+ * Notifications of a surrounding transaction are delivered on commit only. Entity changes are also counted in
+ * carinfo.data_generation, files derived from the data (read index) are stale once the counter moves.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationPublisher {
+    private static final String COUNT_ENTITY_CHANGE_SQL = "update carinfo.data_generation set entity_changes = entity_changes + 1";
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationListener listener;
+
+    @Autowired
+    public CacheInvalidationPublisher(@NonNull @Nonnull JdbcTemplate jdbcTemplate, @NonNull @Nonnull CacheInvalidationListener listener) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listener = listener;
+    }
+
+    public void entityChanged(@NonNull @Nonnull Class<?> recordType) {
+        try {
+            jdbcTemplate.update(COUNT_ENTITY_CHANGE_SQL);
+        } catch (RuntimeException ex) {
+            log.warn("entityChanged: Problem with counting change of {}", recordType.getSimpleName(), ex);
+        }
+        publish(CacheRegions.entityPayload(recordType));
+    }
+
+    public void dataChanged(@Nullable Integer version) {
+        publish(CacheRegions.dataPayload(version));
+    }
+
+    private void publish(@NonNull @Nonnull String payload) {
+        listener.evict(payload);
+        try {
+            jdbcTemplate.queryForList("select pg_notify(?, ?)", CacheRegions.CHANNEL, payload);
+        } catch (RuntimeException ex) {
+            log.warn("publish: Problem with sending {} to {}", payload, CacheRegions.CHANNEL, ex);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ua.kostenko.carinfo.common.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Payloads of carinfo_cache notifications and the cache regions they invalidate.
+ * Registration and vehicle regions are evicted on every dictionary change because their views join dictionaries.
+ */
+public final class CacheRegions {
+    public static final String CHANNEL = "carinfo_cache";
+    static final String ENTITY_PREFIX = "entity:";
+    static final String DATA_PREFIX = "data:";
+    private static final List<String> REGISTRATION_REGIONS = ImmutableList.of("registration", "registrationCheck", "recordIndex");
+    private static final List<String> VEHICLE_REGIONS = ImmutableList.of("vehicle", "vehicleCheck", "vehicleIndex");
+    private static final Map<String, List<String>> ENTITY_REGIONS = ImmutableMap.<String, List<String>>builder()
+            .put("AdministrativeObject", ImmutableList.of("adminObj", "adminObjCheck", "adminObjIndex"))
+            .put("BodyType", ImmutableList.of("bodyType", "bodyTypeCheck", "bodyIndex"))
+            .put("Brand", ImmutableList.of("brand", "brandCheck", "brandIndex"))
+            .put("Color", ImmutableList.of("color", "colorCheck", "colorIndex"))
+            .put("Department", ImmutableList.of("department", "departmentCheck", "departmentIndex"))
+            .put("FuelType", ImmutableList.of("fuel", "fuelCheck", "fuelIndex"))
+            .put("Kind", ImmutableList.of("kind", "kindCheck", "kindIndex"))
+            .put("Model", ImmutableList.of("model", "modelCheck", "modelIndex"))
+            .put("Operation", ImmutableList.of("operation", "operationCheck", "operationIndex"))
+            .put("Purpose", ImmutableList.of("purpose", "purposeCheck", "purposeIndex"))
+            .put("Vehicle", VEHICLE_REGIONS)
+            .put("Registration", REGISTRATION_REGIONS)
+            .build();
+
+    private CacheRegions() {
+    }
+
+    public static String entityPayload(@NonNull @Nonnull Class<?> recordType) {
+        return ENTITY_PREFIX + recordType.getSimpleName();
+    }
+
+    public static String dataPayload(@Nullable Integer version) {
+        return DATA_PREFIX + (Objects.isNull(version) ? "" : version);
+    }
+
+    /**
+     * @return version of a data payload, null if the payload doesn't carry one.
+     */
+    @Nullable
+    public static Integer getDataVersion(@Nullable String payload) {
+        String version = StringUtils.removeStart(payload, DATA_PREFIX);
+        return StringUtils.isNumeric(version) && !version.equals(payload) ? Integer.valueOf(version) : null;
+    }
+
+    /**
+     * @return entity of an entity payload, null if the payload isn't one of a known entity.
+     */
+    @Nullable
+    public static String getEntity(@Nullable String payload) {
+        String entity = StringUtils.removeStart(payload, ENTITY_PREFIX);
+        return StringUtils.isBlank(payload) || entity.equals(payload) || !ENTITY_REGIONS.containsKey(entity) ? null : entity;
+    }
+
+    /**
+     * @return regions to evict, null means every region (data version change or unknown payload).
+     */
+    @Nullable
+    public static List<String> getRegions(@Nullable String payload) {
+        String entity = getEntity(payload);
+        if (Objects.isNull(entity)) {
+            return null;
+        }
+        List<String> regions = new ArrayList<>(ENTITY_REGIONS.get(entity));
+        if (!"Registration".equals(entity)) {
+            regions.addAll(REGISTRATION_REGIONS);
+            if (!"Vehicle".equals(entity)) {
+                regions.addAll(VEHICLE_REGIONS);
+            }
+        }
+        return regions;
+    }
+}
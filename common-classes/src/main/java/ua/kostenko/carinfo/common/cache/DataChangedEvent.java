@@ -0,0 +1,15 @@
+package ua.kostenko.carinfo.common.cache;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+
+/**
+ * Published by {@link CacheInvalidationListener} when registration data may have changed as a whole: a data version
+ * was published, an import finished or notifications were lost. Version is null if it isn't known.
+ */
+@Value
+public class DataChangedEvent {
+    @Nullable
+    private final Integer version;
+}
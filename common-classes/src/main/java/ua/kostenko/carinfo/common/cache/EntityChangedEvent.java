@@ -0,0 +1,12 @@
+package ua.kostenko.carinfo.common.cache;
+
+import lombok.Value;
+
+/**
+ * Published by {@link CacheInvalidationListener} when records of one entity type were created or updated, e.g. departments
+ * of service centers. Entity is the simple name of the record type.
+ */
+@Value
+public class EntityChangedEvent {
+    private final String entity;
+}
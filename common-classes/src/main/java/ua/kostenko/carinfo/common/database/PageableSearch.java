@@ -9,28 +9,69 @@ import ua.kostenko.carinfo.common.api.ParamsHolder;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.StringJoiner;
+import java.util.*;
 
 public interface PageableSearch<T extends GenericRecord> {
 
     Page<T> find(@Nonnull @NonNull final ParamsHolder searchParams);
 
     default WhereBuilder buildWhere() {
-        return new WhereBuilder();
+        return new WhereBuilder(null);
+    }
+
+    default WhereBuilder buildWhere(@NonNull @Nonnull WhereTemplate template) {
+        return new WhereBuilder(template);
     }
 
     class WhereBuilder {
-        private final Map<String, String> fields;
+        private static final String LIKE_ESCAPE_CHARS = "\\%_";
+        private final WhereTemplate template;
+        private final SortedMap<String, String> fields;
         private final MapSqlParameterSource sqlParameters;
+        private long templateMask;
 
-        private WhereBuilder() {
-            fields = new HashMap<>();
+        private WhereBuilder(WhereTemplate template) {
+            this.template = template;
+            fields = new TreeMap<>();
             sqlParameters = new MapSqlParameterSource();
         }
 
+        public WhereBuilder bind(@NonNull @Nonnull String paramName, Object value) {
+            if (Objects.isNull(template)) {
+                throw new IllegalStateException("Builder is not backed by template");
+            }
+            if (Objects.isNull(value) || (value instanceof String && StringUtils.isBlank((String) value))) {
+                return this;
+            }
+            int position = template.getPosition(paramName);
+            switch (template.getPredicate(position).getOperator()) {
+                case IN:
+                    if (!(value instanceof Collection) || ((Collection<?>) value).isEmpty()) {
+                        return this;
+                    }
+                    sqlParameters.addValue(paramName, SqlArrayValue.of((Collection<?>) value));
+                    break;
+                case LIKE_PREFIX:
+                    sqlParameters.addValue(paramName, escapeLike(value.toString()) + "%");
+                    break;
+                default:
+                    sqlParameters.addValue(paramName, value);
+            }
+            templateMask |= 1L << position;
+            return this;
+        }
+
+        private static String escapeLike(String value) {
+            StringBuilder builder = new StringBuilder(value.length() + 4);
+            for (char character : value.toCharArray()) {
+                if (LIKE_ESCAPE_CHARS.indexOf(character) >= 0) {
+                    builder.append('\\');
+                }
+                builder.append(character);
+            }
+            return builder.toString();
+        }
+
         public WhereBuilder addFieldParam(@NonNull @Nonnull String fieldName, @NonNull @Nonnull String paramName, Object value) {
             if (StringUtils.isBlank(fieldName) || StringUtils.isBlank(paramName) || Objects.isNull(value)) {
                 return this;
@@ -57,6 +98,9 @@ public interface PageableSearch<T extends GenericRecord> {
         }
 
         public BuildResult build() {
+            if (Objects.nonNull(template)) {
+                return new BuildResult(template.getWhereSql(templateMask), this.sqlParameters);
+            }
             StringJoiner stringJoiner = new StringJoiner(" and ", " where ", " ");
             stringJoiner.setEmptyValue("");
             fields.entrySet().stream()
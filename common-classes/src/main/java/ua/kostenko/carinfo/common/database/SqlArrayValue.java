@@ -0,0 +1,38 @@
+package ua.kostenko.carinfo.common.database;
+
+import lombok.NonNull;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import javax.annotation.Nonnull;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+
+public class SqlArrayValue extends AbstractSqlTypeValue {
+    private final String elementType;
+    private final Object[] values;
+
+    private SqlArrayValue(@NonNull @Nonnull String elementType, @NonNull @Nonnull Object[] values) {
+        this.elementType = elementType;
+        this.values = values;
+    }
+
+    public static SqlArrayValue of(@NonNull @Nonnull Collection<?> values) {
+        Object first = values.stream().findFirst().orElse(null);
+        return new SqlArrayValue(getElementType(first), values.toArray());
+    }
+
+    private static String getElementType(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return "int8";
+        } else if (value instanceof java.sql.Date) {
+            return "date";
+        }
+        return "varchar";
+    }
+
+    @Override
+    protected Object createTypeValue(@Nonnull Connection connection, int sqlType, String typeName) throws SQLException {
+        return connection.createArrayOf(elementType, values);
+    }
+}
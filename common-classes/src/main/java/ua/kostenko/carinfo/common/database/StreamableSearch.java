@@ -0,0 +1,17 @@
+package ua.kostenko.carinfo.common.database;
+
+import lombok.NonNull;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ua.kostenko.carinfo.common.api.ParamsHolder;
+import ua.kostenko.carinfo.common.api.records.GenericRecord;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface StreamableSearch<T extends GenericRecord> {
+
+    void stream(@Nonnull @NonNull final ParamsHolder searchParams, @Nonnull @NonNull final Consumer<T> consumer);
+
+    void streamProjection(@Nonnull @NonNull final ParamsHolder searchParams, @Nonnull @NonNull final List<String> fields, @Nonnull @NonNull final RowCallbackHandler handler);
+}
@@ -0,0 +1,134 @@
+package ua.kostenko.carinfo.common.database;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ordered predicates of one query. Bound predicates are described by a bitmask, so the same filter
+ * combination always produces the same (cached) sql text and hits the driver statement cache.
+ */
+public final class WhereTemplate {
+    private static final int MAX_PREDICATES = Long.SIZE;
+    private final List<Predicate> predicates;
+    private final Map<String, Integer> positions;
+    private final Map<Long, String> sqlCache = new ConcurrentHashMap<>();
+
+    private WhereTemplate(@NonNull @Nonnull List<Predicate> predicates) {
+        this.predicates = Collections.unmodifiableList(new ArrayList<>(predicates));
+        Map<String, Integer> positionsMap = new HashMap<>();
+        for (int i = 0; i < predicates.size(); i++) {
+            positionsMap.put(predicates.get(i).getParamName(), i);
+        }
+        this.positions = Collections.unmodifiableMap(positionsMap);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    Predicate getPredicate(int position) {
+        return predicates.get(position);
+    }
+
+    int getPosition(@NonNull @Nonnull String paramName) {
+        Integer position = positions.get(paramName);
+        if (Objects.isNull(position)) {
+            throw new IllegalArgumentException(String.format("Param %s is not declared in template", paramName));
+        }
+        return position;
+    }
+
+    String getWhereSql(long mask) {
+        return sqlCache.computeIfAbsent(mask, this::generateWhereSql);
+    }
+
+    private String generateWhereSql(long mask) {
+        StringJoiner stringJoiner = new StringJoiner(" and ", " where ", " ");
+        stringJoiner.setEmptyValue("");
+        for (int i = 0; i < predicates.size(); i++) {
+            if ((mask & (1L << i)) != 0) {
+                stringJoiner.add(predicates.get(i).toSql());
+            }
+        }
+        return stringJoiner.toString();
+    }
+
+    public enum Operator {
+        EQUAL("%s = :%s"),
+        GREATER_OR_EQUAL("%s >= :%s"),
+        LESS_OR_EQUAL("%s <= :%s"),
+        IN("%s = any(:%s)"),
+        LIKE_PREFIX("%s like :%s");
+
+        private final String sqlFormat;
+
+        Operator(String sqlFormat) {
+            this.sqlFormat = sqlFormat;
+        }
+    }
+
+    @Getter(AccessLevel.PACKAGE)
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    static class Predicate {
+        private final String fieldName;
+        private final String paramName;
+        private final Operator operator;
+
+        String toSql() {
+            return String.format(operator.sqlFormat, fieldName, paramName);
+        }
+    }
+
+    public static class Builder {
+        private final List<Predicate> predicates = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder equal(@NonNull @Nonnull String fieldName, @NonNull @Nonnull String paramName) {
+            return add(fieldName, paramName, Operator.EQUAL);
+        }
+
+        public Builder greaterOrEqual(@NonNull @Nonnull String fieldName, @NonNull @Nonnull String paramName) {
+            return add(fieldName, paramName, Operator.GREATER_OR_EQUAL);
+        }
+
+        public Builder lessOrEqual(@NonNull @Nonnull String fieldName, @NonNull @Nonnull String paramName) {
+            return add(fieldName, paramName, Operator.LESS_OR_EQUAL);
+        }
+
+        public Builder in(@NonNull @Nonnull String fieldName, @NonNull @Nonnull String paramName) {
+            return add(fieldName, paramName, Operator.IN);
+        }
+
+        public Builder likePrefix(@NonNull @Nonnull String fieldName, @NonNull @Nonnull String paramName) {
+            return add(fieldName, paramName, Operator.LIKE_PREFIX);
+        }
+
+        private Builder add(String fieldName, String paramName, Operator operator) {
+            if (StringUtils.isBlank(fieldName) || StringUtils.isBlank(paramName)) {
+                throw new IllegalArgumentException("Field name and param name can't be blank");
+            }
+            boolean duplicate = predicates.stream().anyMatch(predicate -> predicate.getParamName().equals(paramName));
+            if (duplicate) {
+                throw new IllegalArgumentException(String.format("Param %s is already declared", paramName));
+            }
+            if (predicates.size() == MAX_PREDICATES) {
+                throw new IllegalStateException(String.format("Template can't hold more than %d predicates", MAX_PREDICATES));
+            }
+            predicates.add(new Predicate(fieldName, paramName, operator));
+            return this;
+        }
+
+        public WhereTemplate build() {
+            return new WhereTemplate(predicates);
+        }
+    }
+}
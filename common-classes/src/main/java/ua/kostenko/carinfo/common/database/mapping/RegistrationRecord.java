@@ -17,7 +17,11 @@ import java.sql.Date;
 @Entity
 @Table(schema = Constants.SCHEMA, name = Constants.RegistrationRecord.TABLE,
         indexes = {@Index(columnList = Constants.RegistrationRecord.REGISTRATION_NUMBER, name = Constants.RegistrationRecord.REGISTRATION_NUMBER),
-                   @Index(columnList = Constants.RegistrationRecord.REGISTRATION_DATE, name = Constants.RegistrationRecord.REGISTRATION_DATE)})
+                   @Index(columnList = Constants.RegistrationRecord.REGISTRATION_DATE, name = Constants.RegistrationRecord.REGISTRATION_DATE),
+                   @Index(columnList = Constants.RegistrationRecord.VEHICLE_ID + ", " + Constants.RegistrationRecord.REGISTRATION_DATE, name = "vehicle_id_registration_date"),
+                   @Index(columnList = Constants.RegistrationRecord.MAKE_YEAR + ", " + Constants.RegistrationRecord.REGISTRATION_DATE, name = "make_year_registration_date"),
+                   @Index(columnList = Constants.RegistrationRecord.KIND + ", " + Constants.RegistrationRecord.REGISTRATION_DATE, name = "kind_id_registration_date"),
+                   @Index(columnList = Constants.RegistrationRecord.ENGINE_CAPACITY + ", " + Constants.RegistrationRecord.MAKE_YEAR, name = "engine_capacity_make_year")})
 class RegistrationRecord implements Serializable {
 
     @Id
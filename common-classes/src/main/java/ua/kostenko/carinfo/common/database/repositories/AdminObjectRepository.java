@@ -90,7 +90,7 @@ class AdminObjectRepository extends CommonDBRepository<AdministrativeObject, Str
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "adminObjCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "adminObjCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull AdministrativeObject entity) {
         String jdbcTemplateSelectCount = "select count(admin_obj_id) from carinfo.admin_object where admin_obj_name = :name;";
@@ -106,7 +106,7 @@ class AdminObjectRepository extends CommonDBRepository<AdministrativeObject, Str
         return findOne(jdbcTemplateSelect, params);
     }
 
-    @Cacheable(cacheNames = "adminObj", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "adminObj", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public AdministrativeObject findOne(@NonNull @Nonnull ParamsHolder searchParams) {
@@ -1,24 +1,33 @@
 package ua.kostenko.carinfo.common.database.repositories;
 
+import com.google.common.collect.Lists;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.annotation.Transactional;
 import ua.kostenko.carinfo.common.api.ParamsHolder;
 import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
 import ua.kostenko.carinfo.common.database.Constants;
 
 import javax.annotation.Nonnull;
+import javax.sql.DataSource;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 abstract class CommonDBRepository<T extends GenericRecord<R>, R> implements DBRepository<T, R> {
@@ -28,10 +37,23 @@ abstract class CommonDBRepository<T extends GenericRecord<R>, R> implements DBRe
     private static final RowMapper<Long> EXISTENCE_COUNT_MAPPER = (rs, rowNum) -> rs.getLong(1);
     private static final String LIMIT_PARAM = "lim";
     private static final String OFFSET_PARAM = "off";
+    private static final int STREAM_FETCH_SIZE = 1000;
     final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
 
     CommonDBRepository(@NonNull @Nonnull NamedParameterJdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = createStreamingTemplate(jdbcTemplate);
+    }
+
+    private static NamedParameterJdbcTemplate createStreamingTemplate(@NonNull @Nonnull NamedParameterJdbcTemplate jdbcTemplate) {
+        DataSource dataSource = jdbcTemplate.getJdbcTemplate().getDataSource();
+        if (Objects.isNull(dataSource)) {
+            return jdbcTemplate;
+        }
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(STREAM_FETCH_SIZE);
+        return new NamedParameterJdbcTemplate(template);
     }
 
     T create(@NonNull @Nonnull String sql, String idFieldName, SqlParameterSource sqlParams) {
@@ -94,6 +116,44 @@ abstract class CommonDBRepository<T extends GenericRecord<R>, R> implements DBRe
         return new PageImpl<>(result, page, total);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public void stream(@NonNull @Nonnull ParamsHolder searchParams, @NonNull @Nonnull Consumer<T> consumer) {
+        WhereBuilder.BuildResult result = getWhereFromParams(searchParams);
+        String query = String.format("select * from %s %s", formatTableNameWithSchema(getTableName()), result.getWhereSql());
+        RowMapper<T> rowMapper = getRowMapper();
+        streamingJdbcTemplate.query(query, result.getSqlParameters(), (RowCallbackHandler) resultSet -> consumer.accept(rowMapper.mapRow(resultSet, resultSet.getRow())));
+    }
+
+    @Override
+    public void streamProjection(@NonNull @Nonnull ParamsHolder searchParams, @NonNull @Nonnull List<String> fields, @NonNull @Nonnull RowCallbackHandler handler) {
+        Map<String, String> projectionColumns = getProjectionColumns();
+        List<String> selectedFields = fields.isEmpty() ? Lists.newArrayList(projectionColumns.keySet()) : fields;
+        String columns = selectedFields.stream()
+                                       .map(field -> {
+                                           String column = projectionColumns.get(field);
+                                           if (Objects.isNull(column)) {
+                                               throw new IllegalArgumentException("Field is not supported in projection: " + field);
+                                           }
+                                           return String.format("%s as \"%s\"", column, field);
+                                       })
+                                       .collect(Collectors.joining(", "));
+        WhereBuilder.BuildResult result = getWhereFromParams(searchParams);
+        MapSqlParameterSource sqlParameters = new MapSqlParameterSource();
+        SqlParameterSource whereParameters = result.getSqlParameters();
+        for (String parameterName : whereParameters.getParameterNames()) {
+            sqlParameters.addValue(parameterName, whereParameters.getValue(parameterName));
+        }
+        Pageable page = searchParams.getPage();
+        sqlParameters.addValue(LIMIT_PARAM, page.getPageSize()).addValue(OFFSET_PARAM, page.getOffset());
+        String query = String.format("select %s from %s %s limit :lim offset :off", columns, formatTableNameWithSchema(getTableName()), result.getWhereSql());
+        jdbcTemplate.query(query, sqlParameters, handler);
+    }
+
+    Map<String, String> getProjectionColumns() {
+        return Collections.emptyMap();
+    }
+
     ParamsHolderBuilder getParamsHolderBuilder() {
         return new ParamsHolderBuilder();
     }
@@ -4,12 +4,13 @@ import lombok.NonNull;
 import ua.kostenko.carinfo.common.api.ParamsHolder;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
 import ua.kostenko.carinfo.common.database.PageableSearch;
+import ua.kostenko.carinfo.common.database.StreamableSearch;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
 
-public interface DBRepository<T extends GenericRecord<R>, R> extends PageableSearch<T> {
+public interface DBRepository<T extends GenericRecord<R>, R> extends PageableSearch<T>, StreamableSearch<T> {
 
     @Nullable
     T create(@NonNull @Nonnull final T entity);
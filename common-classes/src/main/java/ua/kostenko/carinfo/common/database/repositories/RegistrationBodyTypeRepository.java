@@ -83,7 +83,7 @@ class RegistrationBodyTypeRepository extends CommonDBRepository<BodyType, String
         return exist(jdbcTemplateSelectCount, parameterSource);
     }
 
-    @Cacheable(cacheNames = "bodyTypeCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "bodyTypeCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull BodyType entity) {
         String jdbcTemplateSelectCount = "select count(body_type_id) from carinfo.body_type where body_type_name = :name;";
@@ -99,7 +99,7 @@ class RegistrationBodyTypeRepository extends CommonDBRepository<BodyType, String
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "bodyType", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "bodyType", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public BodyType findOne(@NonNull @Nonnull ParamsHolder searchParams) {
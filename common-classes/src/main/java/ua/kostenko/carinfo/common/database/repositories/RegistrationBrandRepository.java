@@ -82,7 +82,7 @@ class RegistrationBrandRepository extends CommonDBRepository<Brand, String> {
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "brandCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "brandCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Brand entity) {
         String jdbcTemplateSelectCount = "select count(brand_id) from carinfo.brand where brand_name = :name;";
@@ -98,7 +98,7 @@ class RegistrationBrandRepository extends CommonDBRepository<Brand, String> {
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "brand", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "brand", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Brand findOne(@NonNull @Nonnull ParamsHolder searchParams) {
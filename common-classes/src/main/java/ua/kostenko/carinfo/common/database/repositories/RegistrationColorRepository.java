@@ -82,7 +82,7 @@ class RegistrationColorRepository extends CommonDBRepository<Color, String> {
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "colorCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "colorCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Color entity) {
         String jdbcTemplateSelectCount = "select count(color_id) from carinfo.color where color_name = :name;";
@@ -98,7 +98,7 @@ class RegistrationColorRepository extends CommonDBRepository<Color, String> {
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "color", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "color", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Color findOne(@NonNull @Nonnull ParamsHolder searchParams) {
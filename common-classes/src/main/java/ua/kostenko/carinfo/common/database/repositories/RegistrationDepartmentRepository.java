@@ -94,7 +94,7 @@ class RegistrationDepartmentRepository extends CommonDBRepository<Department, Lo
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "departmentCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "departmentCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Department entity) {
         String jdbcTemplateSelectCount = "select count(dep_code) from carinfo.department where dep_code = :code;";
@@ -110,7 +110,7 @@ class RegistrationDepartmentRepository extends CommonDBRepository<Department, Lo
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "department", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "department", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Department findOne(@NonNull @Nonnull ParamsHolder searchParams) {
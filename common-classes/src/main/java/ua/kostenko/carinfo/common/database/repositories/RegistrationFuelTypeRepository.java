@@ -82,7 +82,7 @@ class RegistrationFuelTypeRepository extends CommonDBRepository<FuelType, String
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "fuelCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "fuelCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull FuelType entity) {
         String jdbcTemplateSelectCount = "select count(fuel_type_id) from carinfo.fuel_type where fuel_type_name = :name;";
@@ -98,7 +98,7 @@ class RegistrationFuelTypeRepository extends CommonDBRepository<FuelType, String
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "fuel", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "fuel", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public FuelType findOne(@NonNull @Nonnull ParamsHolder searchParams) {
@@ -81,7 +81,7 @@ class RegistrationKindRepository extends CommonDBRepository<Kind, String> {
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "kindCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "kindCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Kind entity) {
         String jdbcTemplateSelectCount = "select count(kind_id) from carinfo.kind where kind_name = :name;";
@@ -97,7 +97,7 @@ class RegistrationKindRepository extends CommonDBRepository<Kind, String> {
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "kind", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "kind", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Kind findOne(@NonNull @Nonnull ParamsHolder searchParams) {
@@ -81,7 +81,7 @@ class RegistrationModelRepository extends CommonDBRepository<Model, String> {
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "modelCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "modelCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Model entity) {
         String jdbcTemplateSelectCount = "select count(model_id) from carinfo.model where model_name = :name;";
@@ -97,7 +97,7 @@ class RegistrationModelRepository extends CommonDBRepository<Model, String> {
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "model", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "model", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Model findOne(@NonNull @Nonnull ParamsHolder searchParams) {
@@ -87,7 +87,7 @@ class RegistrationOperationRepository extends CommonDBRepository<Operation, Long
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "operationCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "operationCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Operation entity) {
         String jdbcTemplateSelectCount = "select count(op_code) from carinfo.operation where op_code = :code;";
@@ -103,7 +103,7 @@ class RegistrationOperationRepository extends CommonDBRepository<Operation, Long
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "operation", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "operation", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Operation findOne(@NonNull @Nonnull ParamsHolder searchParams) {
@@ -79,7 +79,7 @@ class RegistrationPurposeRepository extends CommonDBRepository<Purpose, String>
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "purposeCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "purposeCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Purpose entity) {
         String jdbcTemplateSelectCount = "select count(purpose_id) from carinfo.purpose where purpose_name = :name;";
@@ -95,7 +95,7 @@ class RegistrationPurposeRepository extends CommonDBRepository<Purpose, String>
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "purpose", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "purpose", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Purpose findOne(@NonNull @Nonnull ParamsHolder searchParams) {
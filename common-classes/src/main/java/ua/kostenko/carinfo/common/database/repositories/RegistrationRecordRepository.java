@@ -1,5 +1,6 @@
 package ua.kostenko.carinfo.common.database.repositories;
 
+import com.google.common.collect.ImmutableMap;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,11 +13,13 @@ import org.springframework.stereotype.Repository;
 import ua.kostenko.carinfo.common.api.ParamsHolder;
 import ua.kostenko.carinfo.common.api.records.*;
 import ua.kostenko.carinfo.common.database.Constants;
+import ua.kostenko.carinfo.common.database.WhereTemplate;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.sql.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static ua.kostenko.carinfo.common.api.records.Registration.*;
@@ -69,6 +72,74 @@ class RegistrationRecordRepository extends CommonDBRepository<Registration, Stri
                                                                                             .registrationDate(resultSet.getDate(Constants.RegistrationRecord.REGISTRATION_DATE))
                                                                                             .id(resultSet.getLong(Constants.RegistrationRecord.ID))
                                                                                             .build();
+    private static final WhereTemplate FIND_TEMPLATE = WhereTemplate.builder()
+                                                                    .equal(REGISTRATION_NUMBER_PARAM, REGISTRATION_NUMBER)
+                                                                    .equal(REGISTRATION_DATE_PARAM, REGISTRATION_DATE)
+                                                                    .equal(BRAND_NAME_PARAM, BRAND)
+                                                                    .equal(MODEL_NAME_PARAM, MODEL)
+                                                                    .equal(MAKE_YEAR_PARAM, MAKE_YEAR)
+                                                                    .equal(ADMIN_OBJ_NAME_PARAM, ADMIN_OBJ_NAME)
+                                                                    .equal(ADMIN_OBJ_TYPE_PARAM, ADMIN_OBJ_TYPE)
+                                                                    .equal(OP_CODE_PARAM, OPERATION_CODE)
+                                                                    .equal(OP_NAME_PARAM, OPERATION_NAME)
+                                                                    .equal(DEP_CODE_PARAM, DEPARTMENT_CODE)
+                                                                    .equal(DEP_ADDR_PARAM, DEPARTMENT_ADDRESS)
+                                                                    .equal(DEP_EMAIL_PARAM, DEPARTMENT_EMAIL)
+                                                                    .equal(KIND_NAME_PARAM, KIND)
+                                                                    .equal(COLOR_NAME_PARAM, COLOR)
+                                                                    .equal(BODY_TYPE_NAME_PARAM, BODY_TYPE)
+                                                                    .equal(PURPOSE_NAME_PARAM, PURPOSE)
+                                                                    .equal(FUEL_TYPE_NAME_PARAM, FUEL_TYPE)
+                                                                    .equal(ENGINE_CAPACITY_PARAM, ENGINE_CAPACITY)
+                                                                    .equal(OWN_WEIGHT_PARAM, OWN_WEIGHT)
+                                                                    .equal(TOTAL_WEIGHT_PARAM, TOTAL_WEIGHT)
+                                                                    .equal(PERSON_TYPE_PARAM, PERSON_TYPE)
+                                                                    .greaterOrEqual(REGISTRATION_DATE_PARAM, REGISTRATION_DATE_FROM)
+                                                                    .lessOrEqual(REGISTRATION_DATE_PARAM, REGISTRATION_DATE_TO)
+                                                                    .greaterOrEqual(MAKE_YEAR_PARAM, MAKE_YEAR_FROM)
+                                                                    .lessOrEqual(MAKE_YEAR_PARAM, MAKE_YEAR_TO)
+                                                                    .greaterOrEqual(ENGINE_CAPACITY_PARAM, ENGINE_CAPACITY_MIN)
+                                                                    .lessOrEqual(ENGINE_CAPACITY_PARAM, ENGINE_CAPACITY_MAX)
+                                                                    .greaterOrEqual(OWN_WEIGHT_PARAM, OWN_WEIGHT_MIN)
+                                                                    .lessOrEqual(OWN_WEIGHT_PARAM, OWN_WEIGHT_MAX)
+                                                                    .greaterOrEqual(TOTAL_WEIGHT_PARAM, TOTAL_WEIGHT_MIN)
+                                                                    .lessOrEqual(TOTAL_WEIGHT_PARAM, TOTAL_WEIGHT_MAX)
+                                                                    .in(REGISTRATION_NUMBER_PARAM, REGISTRATION_NUMBERS)
+                                                                    .in(BRAND_NAME_PARAM, BRANDS)
+                                                                    .in(MODEL_NAME_PARAM, MODELS)
+                                                                    .in(MAKE_YEAR_PARAM, MAKE_YEARS)
+                                                                    .in(COLOR_NAME_PARAM, COLORS)
+                                                                    .in(KIND_NAME_PARAM, KINDS)
+                                                                    .in(BODY_TYPE_NAME_PARAM, BODY_TYPES)
+                                                                    .in(PURPOSE_NAME_PARAM, PURPOSES)
+                                                                    .in(FUEL_TYPE_NAME_PARAM, FUEL_TYPES)
+                                                                    .in(OP_CODE_PARAM, OPERATION_CODES)
+                                                                    .in(DEP_CODE_PARAM, DEPARTMENT_CODES)
+                                                                    .build();
+    private static final Map<String, String> PROJECTION_COLUMNS = ImmutableMap.<String, String>builder()
+            .put(ID_PARAM, Constants.RegistrationRecord.ID)
+            .put(REGISTRATION_NUMBER, REGISTRATION_NUMBER_PARAM)
+            .put(REGISTRATION_DATE, REGISTRATION_DATE_PARAM)
+            .put(BRAND, BRAND_NAME_PARAM)
+            .put(MODEL, MODEL_NAME_PARAM)
+            .put(MAKE_YEAR, MAKE_YEAR_PARAM)
+            .put(COLOR, COLOR_NAME_PARAM)
+            .put(KIND, KIND_NAME_PARAM)
+            .put(BODY_TYPE, BODY_TYPE_NAME_PARAM)
+            .put(PURPOSE, PURPOSE_NAME_PARAM)
+            .put(FUEL_TYPE, FUEL_TYPE_NAME_PARAM)
+            .put(ENGINE_CAPACITY, ENGINE_CAPACITY_PARAM)
+            .put(OWN_WEIGHT, OWN_WEIGHT_PARAM)
+            .put(TOTAL_WEIGHT, TOTAL_WEIGHT_PARAM)
+            .put(PERSON_TYPE, PERSON_TYPE_PARAM)
+            .put(OPERATION_CODE, OP_CODE_PARAM)
+            .put(OPERATION_NAME, OP_NAME_PARAM)
+            .put(DEPARTMENT_CODE, DEP_CODE_PARAM)
+            .put(DEPARTMENT_ADDRESS, DEP_ADDR_PARAM)
+            .put(DEPARTMENT_EMAIL, DEP_EMAIL_PARAM)
+            .put(ADMIN_OBJ_NAME, ADMIN_OBJ_NAME_PARAM)
+            .put(ADMIN_OBJ_TYPE, ADMIN_OBJ_TYPE_PARAM)
+            .build();
     private final DBRepository<AdministrativeObject, String> administrativeObjectDBRepository;
     private final DBRepository<BodyType, String> bodyTypeDBRepository;
     private final DBRepository<Color, String> colorDBRepository;
@@ -201,33 +272,33 @@ class RegistrationRecordRepository extends CommonDBRepository<Registration, Stri
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "registrationCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "registrationCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Registration entity) {
         String select = "select count(id) ";
         String from = "from carinfo.record_view  ";
-        WhereBuilder.BuildResult buildResult = buildWhere()
-                .addFieldParam(ADMIN_OBJ_NAME_PARAM, ADMIN_OBJ_NAME, entity.getAdminObjName())
-                .addFieldParam(ADMIN_OBJ_TYPE_PARAM, ADMIN_OBJ_TYPE, entity.getAdminObjType())
-                .addFieldParam(OP_CODE_PARAM, OPERATION_CODE, entity.getOperationCode())
-                .addFieldParam(OP_NAME_PARAM, OPERATION_NAME, entity.getOperationName())
-                .addFieldParam(DEP_CODE_PARAM, DEPARTMENT_CODE, entity.getDepartmentCode())
-                .addFieldParam(DEP_ADDR_PARAM, DEPARTMENT_ADDRESS, entity.getDepartmentAddress())
-                .addFieldParam(DEP_EMAIL_PARAM, DEPARTMENT_EMAIL, entity.getDepartmentEmail())
-                .addFieldParam(KIND_NAME_PARAM, KIND, entity.getKindName())
-                .addFieldParam(COLOR_NAME_PARAM, COLOR, entity.getColorName())
-                .addFieldParam(BODY_TYPE_NAME_PARAM, BODY_TYPE, entity.getBodyTypeName())
-                .addFieldParam(PURPOSE_NAME_PARAM, PURPOSE, entity.getPurposeName())
-                .addFieldParam(BRAND_NAME_PARAM, BRAND, entity.getBrandName())
-                .addFieldParam(MODEL_NAME_PARAM, MODEL, entity.getModelName())
-                .addFieldParam(FUEL_TYPE_NAME_PARAM, FUEL_TYPE, entity.getFuelTypeName())
-                .addFieldParam(ENGINE_CAPACITY_PARAM, ENGINE_CAPACITY, entity.getEngineCapacity())
-                .addFieldParam(MAKE_YEAR_PARAM, MAKE_YEAR, entity.getMakeYear())
-                .addFieldParam(OWN_WEIGHT_PARAM, OWN_WEIGHT, entity.getOwnWeight())
-                .addFieldParam(TOTAL_WEIGHT_PARAM, TOTAL_WEIGHT, entity.getTotalWeight())
-                .addFieldParam(PERSON_TYPE_PARAM, PERSON_TYPE, entity.getPersonType())
-                .addFieldParam(REGISTRATION_NUMBER_PARAM, REGISTRATION_NUMBER, entity.getRegistrationNumber())
-                .addFieldParam(REGISTRATION_DATE_PARAM, REGISTRATION_DATE, entity.getRegistrationDate())
+        WhereBuilder.BuildResult buildResult = buildWhere(FIND_TEMPLATE)
+                .bind(ADMIN_OBJ_NAME, entity.getAdminObjName())
+                .bind(ADMIN_OBJ_TYPE, entity.getAdminObjType())
+                .bind(OPERATION_CODE, entity.getOperationCode())
+                .bind(OPERATION_NAME, entity.getOperationName())
+                .bind(DEPARTMENT_CODE, entity.getDepartmentCode())
+                .bind(DEPARTMENT_ADDRESS, entity.getDepartmentAddress())
+                .bind(DEPARTMENT_EMAIL, entity.getDepartmentEmail())
+                .bind(KIND, entity.getKindName())
+                .bind(COLOR, entity.getColorName())
+                .bind(BODY_TYPE, entity.getBodyTypeName())
+                .bind(PURPOSE, entity.getPurposeName())
+                .bind(BRAND, entity.getBrandName())
+                .bind(MODEL, entity.getModelName())
+                .bind(FUEL_TYPE, entity.getFuelTypeName())
+                .bind(ENGINE_CAPACITY, entity.getEngineCapacity())
+                .bind(MAKE_YEAR, entity.getMakeYear())
+                .bind(OWN_WEIGHT, entity.getOwnWeight())
+                .bind(TOTAL_WEIGHT, entity.getTotalWeight())
+                .bind(PERSON_TYPE, entity.getPersonType())
+                .bind(REGISTRATION_NUMBER, entity.getRegistrationNumber())
+                .bind(REGISTRATION_DATE, entity.getRegistrationDate())
                 .build();
         String where = buildResult.getWhereSql();
         String selectSqlQuery = String.format("%s %s %s", select, from, where);
@@ -242,7 +313,7 @@ class RegistrationRecordRepository extends CommonDBRepository<Registration, Stri
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "registration", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "registration", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Registration findOne(@NonNull @Nonnull ParamsHolder searchParams) {
@@ -263,8 +334,8 @@ class RegistrationRecordRepository extends CommonDBRepository<Registration, Stri
     public boolean existsByIndex(@Nonnull @NonNull String indexField) {
         String select = "select count(id) ";
         String from = "from carinfo.record_view  ";
-        WhereBuilder.BuildResult buildResult = buildWhere()
-                .addFieldParam(REGISTRATION_NUMBER_PARAM, REGISTRATION_NUMBER, indexField)
+        WhereBuilder.BuildResult buildResult = buildWhere(FIND_TEMPLATE)
+                .bind(REGISTRATION_NUMBER, indexField)
                 .build();
         String where = buildResult.getWhereSql();
         String selectSqlQuery = String.format("%s %s %s", select, from, where);
@@ -293,28 +364,49 @@ class RegistrationRecordRepository extends CommonDBRepository<Registration, Stri
         Long ownWeight = searchParams.getLong(Registration.OWN_WEIGHT);
         Long totalWeight = searchParams.getLong(Registration.TOTAL_WEIGHT);
         String regNumber = searchParams.getString(Registration.REGISTRATION_NUMBER);
-        return buildWhere()
-                .addFieldParam(ADMIN_OBJ_NAME_PARAM, ADMIN_OBJ_NAME, admObjName)
-                .addFieldParam(ADMIN_OBJ_TYPE_PARAM, ADMIN_OBJ_TYPE, admObjType)
-                .addFieldParam(OP_CODE_PARAM, OPERATION_CODE, opCode)
-                .addFieldParam(OP_NAME_PARAM, OPERATION_NAME, opName)
-                .addFieldParam(DEP_CODE_PARAM, DEPARTMENT_CODE, depCode)
-                .addFieldParam(DEP_ADDR_PARAM, DEPARTMENT_ADDRESS, depAddress)
-                .addFieldParam(DEP_EMAIL_PARAM, DEPARTMENT_EMAIL, depEmail)
-                .addFieldParam(KIND_NAME_PARAM, KIND, kind)
-                .addFieldParam(COLOR_NAME_PARAM, COLOR, color)
-                .addFieldParam(BODY_TYPE_NAME_PARAM, BODY_TYPE, bodyType)
-                .addFieldParam(PURPOSE_NAME_PARAM, PURPOSE, purpose)
-                .addFieldParam(BRAND_NAME_PARAM, BRAND, brand)
-                .addFieldParam(MODEL_NAME_PARAM, MODEL, model)
-                .addFieldParam(FUEL_TYPE_NAME_PARAM, FUEL_TYPE, fuelType)
-                .addFieldParam(ENGINE_CAPACITY_PARAM, ENGINE_CAPACITY, engineCapacity)
-                .addFieldParam(MAKE_YEAR_PARAM, MAKE_YEAR, makeYear)
-                .addFieldParam(OWN_WEIGHT_PARAM, OWN_WEIGHT, ownWeight)
-                .addFieldParam(TOTAL_WEIGHT_PARAM, TOTAL_WEIGHT, totalWeight)
-                .addFieldParam(PERSON_TYPE_PARAM, PERSON_TYPE, personType)
-                .addFieldParam(REGISTRATION_NUMBER_PARAM, REGISTRATION_NUMBER, regNumber)
-                .addFieldParam(REGISTRATION_DATE_PARAM, REGISTRATION_DATE, regDate);
+        return buildWhere(FIND_TEMPLATE)
+                .bind(ADMIN_OBJ_NAME, admObjName)
+                .bind(ADMIN_OBJ_TYPE, admObjType)
+                .bind(OPERATION_CODE, opCode)
+                .bind(OPERATION_NAME, opName)
+                .bind(DEPARTMENT_CODE, depCode)
+                .bind(DEPARTMENT_ADDRESS, depAddress)
+                .bind(DEPARTMENT_EMAIL, depEmail)
+                .bind(KIND, kind)
+                .bind(COLOR, color)
+                .bind(BODY_TYPE, bodyType)
+                .bind(PURPOSE, purpose)
+                .bind(BRAND, brand)
+                .bind(MODEL, model)
+                .bind(FUEL_TYPE, fuelType)
+                .bind(ENGINE_CAPACITY, engineCapacity)
+                .bind(MAKE_YEAR, makeYear)
+                .bind(OWN_WEIGHT, ownWeight)
+                .bind(TOTAL_WEIGHT, totalWeight)
+                .bind(PERSON_TYPE, personType)
+                .bind(REGISTRATION_NUMBER, regNumber)
+                .bind(REGISTRATION_DATE, regDate)
+                .bind(REGISTRATION_DATE_FROM, searchParams.getDate(REGISTRATION_DATE_FROM))
+                .bind(REGISTRATION_DATE_TO, searchParams.getDate(REGISTRATION_DATE_TO))
+                .bind(MAKE_YEAR_FROM, searchParams.getLong(MAKE_YEAR_FROM))
+                .bind(MAKE_YEAR_TO, searchParams.getLong(MAKE_YEAR_TO))
+                .bind(ENGINE_CAPACITY_MIN, searchParams.getLong(ENGINE_CAPACITY_MIN))
+                .bind(ENGINE_CAPACITY_MAX, searchParams.getLong(ENGINE_CAPACITY_MAX))
+                .bind(OWN_WEIGHT_MIN, searchParams.getLong(OWN_WEIGHT_MIN))
+                .bind(OWN_WEIGHT_MAX, searchParams.getLong(OWN_WEIGHT_MAX))
+                .bind(TOTAL_WEIGHT_MIN, searchParams.getLong(TOTAL_WEIGHT_MIN))
+                .bind(TOTAL_WEIGHT_MAX, searchParams.getLong(TOTAL_WEIGHT_MAX))
+                .bind(REGISTRATION_NUMBERS, searchParams.getStrings(REGISTRATION_NUMBERS))
+                .bind(BRANDS, searchParams.getStrings(BRANDS))
+                .bind(MODELS, searchParams.getStrings(MODELS))
+                .bind(MAKE_YEARS, searchParams.getLongs(MAKE_YEARS))
+                .bind(COLORS, searchParams.getStrings(COLORS))
+                .bind(KINDS, searchParams.getStrings(KINDS))
+                .bind(BODY_TYPES, searchParams.getStrings(BODY_TYPES))
+                .bind(PURPOSES, searchParams.getStrings(PURPOSES))
+                .bind(FUEL_TYPES, searchParams.getStrings(FUEL_TYPES))
+                .bind(OPERATION_CODES, searchParams.getLongs(OPERATION_CODES))
+                .bind(DEPARTMENT_CODES, searchParams.getLongs(DEPARTMENT_CODES));
     }
 
     @Override
@@ -335,6 +427,11 @@ class RegistrationRecordRepository extends CommonDBRepository<Registration, Stri
         return buildWhereForFind(params).build();
     }
 
+    @Override
+    Map<String, String> getProjectionColumns() {
+        return PROJECTION_COLUMNS;
+    }
+
     @Override
     String getTableName() {
         return Constants.RegistrationRecord.TABLE_VIEW;
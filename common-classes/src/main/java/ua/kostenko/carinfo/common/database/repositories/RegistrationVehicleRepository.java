@@ -105,7 +105,7 @@ class RegistrationVehicleRepository extends CommonDBRepository<Vehicle, String>
         return exist(jdbcTemplateSelectCount, params);
     }
 
-    @Cacheable(cacheNames = "vehicleCheck", unless = "#result == false ", key = "#entity.hashCode()")
+    @Cacheable(cacheNames = "vehicleCheck", unless = "#result == false ", key = "#entity")
     @Override
     public boolean exist(@NonNull @Nonnull Vehicle entity) {
         String jdbcTemplateSelectCount = "select count(vehicle_id) from carinfo.vehicle_view where model_name = :model and brand_name = :brand;";
@@ -124,7 +124,7 @@ class RegistrationVehicleRepository extends CommonDBRepository<Vehicle, String>
         return findOne(jdbcTemplateSelect, parameterSource);
     }
 
-    @Cacheable(cacheNames = "vehicle", unless = "#result == null", key = "#searchParams.hashCode()")
+    @Cacheable(cacheNames = "vehicle", unless = "#result == null", key = "#searchParams")
     @Nullable
     @Override
     public Vehicle findOne(@NonNull @Nonnull ParamsHolder searchParams) {
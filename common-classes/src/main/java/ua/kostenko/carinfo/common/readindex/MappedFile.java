@@ -0,0 +1,134 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only mapping of a whole file in chunks of up to 1G, values crossing a chunk boundary are assembled byte by byte.
+ * Absolute reads only, so the mapping is shared between threads without locking. Blocks after the header are checked
+ * against their CRC32 on first access; a block may be checked twice by racing threads, which is harmless.
+ */
+class MappedFile {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private final long size;
+    private final MappedByteBuffer[] chunks;
+    private final int[] checksums;
+    private final boolean[] verified;
+    private final long checksummedEnd;
+
+    MappedFile(@NonNull @Nonnull FileChannel channel) throws IOException {
+        this.size = channel.size();
+        this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long position = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+        }
+        this.checksums = new int[0];
+        this.verified = new boolean[0];
+        this.checksummedEnd = ReadIndexWriter.HEADER_SIZE;
+    }
+
+    private MappedFile(@NonNull @Nonnull MappedFile file, @NonNull @Nonnull int[] checksums, long checksummedEnd) {
+        this.size = file.size;
+        this.chunks = file.chunks;
+        this.checksums = checksums;
+        this.verified = new boolean[checksums.length];
+        this.checksummedEnd = checksummedEnd;
+    }
+
+    /**
+     * @return the same mapping verifying blocks of [header end, checksummedEnd) against the given checksums.
+     */
+    MappedFile withChecksums(@NonNull @Nonnull int[] checksums, long checksummedEnd) {
+        return new MappedFile(this, checksums, checksummedEnd);
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    int getInt(long position) {
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        if (offset + Integer.BYTES <= chunk.limit()) {
+            return chunk.getInt(offset);
+        }
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    long getLong(long position) {
+        return ((long) getInt(position) << 32) | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+    }
+
+    int getUnsignedShort(long position) {
+        return ((get(position) & 0xFF) << 8) | (get(position + 1) & 0xFF);
+    }
+
+    void get(long position, @NonNull @Nonnull byte[] bytes) {
+        int copied = 0;
+        while (copied < bytes.length) {
+            long current = position + copied;
+            ByteBuffer chunk = chunks[(int) (current >>> CHUNK_SHIFT)].duplicate();
+            chunk.position((int) (current & (CHUNK_SIZE - 1)));
+            int length = Math.min(bytes.length - copied, chunk.remaining());
+            chunk.get(bytes, copied, length);
+            copied += length;
+        }
+    }
+
+    /**
+     * Checks blocks overlapping [position, position + length) that weren't checked yet.
+     *
+     * @throws IllegalStateException if a block doesn't match its checksum.
+     */
+    void verify(long position, long length) {
+        if (length <= 0) {
+            return;
+        }
+        int first = getBlock(position);
+        int last = getBlock(position + length - 1);
+        for (int block = first; block <= last; block++) {
+            if (!verified[block]) {
+                verifyBlock(block);
+                verified[block] = true;
+            }
+        }
+    }
+
+    private int getBlock(long position) {
+        if (position < ReadIndexWriter.HEADER_SIZE) {
+            throw new IllegalArgumentException("Header has no block checksum, position: " + position);
+        }
+        int block = (int) ((position - ReadIndexWriter.HEADER_SIZE) / ReadIndexWriter.BLOCK_SIZE);
+        if (position >= checksummedEnd || block >= checksums.length) {
+            throw new IllegalArgumentException(String.format("Position %d is beyond checksummed blocks", position));
+        }
+        return block;
+    }
+
+    private void verifyBlock(int block) {
+        long start = ReadIndexWriter.HEADER_SIZE + (long) block * ReadIndexWriter.BLOCK_SIZE;
+        byte[] bytes = new byte[(int) Math.min(ReadIndexWriter.BLOCK_SIZE, checksummedEnd - start)];
+        get(start, bytes);
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        if ((int) checksum.getValue() != checksums[block]) {
+            throw new IllegalStateException(String.format("Block %d of read index file is damaged", block));
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import lombok.NonNull;
+import ua.kostenko.carinfo.common.api.records.Registration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Read index file written by {@link ReadIndexWriter}, mapped into memory. Opening reads only the header, block checksums and
+ * dictionaries; plates and rows are paged in by the OS when a lookup touches them and checked against their block checksum
+ * on first access. Damaged blocks make lookups fail with {@link IllegalStateException}.
+ */
+public class ReadIndex implements Closeable {
+    private static final String FILE_PREFIX = "carinfo-v";
+    private static final String FILE_SUFFIX = ".cri";
+    private final FileChannel channel;
+    private final MappedFile file;
+    private final ReadIndexGeneration generation;
+    private final Instant created;
+    private final int rowCount;
+    private final int plateCount;
+    private final long poolOffset;
+    private final long platesOffset;
+    private final long rowsOffset;
+    private final Map<ReadIndexDictionary, List<ReadIndexEntry>> dictionaries;
+
+    private ReadIndex(@NonNull @Nonnull FileChannel channel) throws IOException {
+        this.channel = channel;
+        MappedFile mapped = new MappedFile(channel);
+        if (mapped.size() < ReadIndexWriter.HEADER_SIZE) {
+            throw new IOException("Read index file is truncated");
+        }
+        byte[] headerBytes = new byte[ReadIndexWriter.HEADER_SIZE];
+        mapped.get(0, headerBytes);
+        ByteBuffer header = ByteBuffer.wrap(headerBytes);
+        byte[] magic = new byte[ReadIndexWriter.MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, ReadIndexWriter.MAGIC)) {
+            throw new IOException("File is not a read index file");
+        }
+        CRC32 headerChecksum = new CRC32();
+        headerChecksum.update(headerBytes, 0, ReadIndexWriter.HEADER_CHECKSUM_OFFSET);
+        if ((int) headerChecksum.getValue() != header.getInt(ReadIndexWriter.HEADER_CHECKSUM_OFFSET)) {
+            throw new IOException("Header of read index file is damaged");
+        }
+        int formatVersion = header.getInt();
+        if (formatVersion != ReadIndexWriter.FORMAT_VERSION) {
+            throw new IOException("Read index format version is not supported: " + formatVersion);
+        }
+        int version = header.getInt();
+        this.created = Instant.ofEpochMilli(header.getLong());
+        this.rowCount = header.getInt();
+        this.plateCount = header.getInt();
+        long dictionariesOffset = header.getLong();
+        this.poolOffset = header.getLong();
+        this.platesOffset = header.getLong();
+        this.rowsOffset = header.getLong();
+        long checksumsOffset = header.getLong();
+        this.generation = new ReadIndexGeneration(version == ReadIndexWriter.NO_VERSION ? null : version, header.getLong(), header.getLong());
+        if (dictionariesOffset != ReadIndexWriter.HEADER_SIZE || poolOffset < dictionariesOffset || platesOffset < poolOffset
+                || rowsOffset - platesOffset != (long) plateCount * ReadIndexWriter.PLATE_ENTRY_SIZE
+                || checksumsOffset - rowsOffset != (long) rowCount * ReadIndexWriter.ROW_SIZE || checksumsOffset + 8 > mapped.size()) {
+            throw new IOException("Sections of read index file are inconsistent");
+        }
+        this.file = mapped.withChecksums(readChecksums(mapped, checksumsOffset), checksumsOffset);
+        this.dictionaries = readDictionaries(dictionariesOffset, poolOffset);
+    }
+
+    public static ReadIndex open(@NonNull @Nonnull File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ReadIndex(channel);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            if (ex instanceof IllegalStateException) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * @return name of the file with the given generation, a file is never rewritten under the same name.
+     */
+    public static String getFileName(@NonNull @Nonnull ReadIndexGeneration generation) {
+        return FILE_PREFIX + generation.getDataVersion() + "-" + generation.getChangeSeq() + "-" + generation.getEntityChanges() + FILE_SUFFIX;
+    }
+
+    public static boolean isIndexFile(@NonNull @Nonnull String fileName) {
+        return fileName.startsWith(FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX);
+    }
+
+    @Nullable
+    public Integer getDataVersion() {
+        return generation.getDataVersion();
+    }
+
+    public ReadIndexGeneration getGeneration() {
+        return generation;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getSize() {
+        return file.size();
+    }
+
+    public List<ReadIndexEntry> getEntries(@NonNull @Nonnull ReadIndexDictionary dictionary) {
+        return dictionaries.get(dictionary);
+    }
+
+    /**
+     * @return registrations with exactly the given plate in row order.
+     */
+    public List<Registration> findByPlate(@NonNull @Nonnull String plate) {
+        byte[] key = plate.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = plateCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ReadIndexWriter.compare(getPlate(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<Registration> result = new ArrayList<>();
+        for (int entry = low; entry < plateCount && Arrays.equals(getPlate(entry), key); entry++) {
+            result.add(getRegistration(getPlateRow(entry)));
+        }
+        return result;
+    }
+
+    public Registration getRegistration(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException(String.format("Row %d, rows: %d", row, rowCount));
+        }
+        long position = rowsOffset + (long) row * ReadIndexWriter.ROW_SIZE;
+        file.verify(position, ReadIndexWriter.ROW_SIZE);
+        int plateRef = file.getInt(position + ReadIndexWriter.ROW_PLATE_OFFSET);
+        ReadIndexEntry operation = getEntry(position, ReadIndexDictionary.OPERATION);
+        ReadIndexEntry department = getEntry(position, ReadIndexDictionary.DEPARTMENT);
+        ReadIndexEntry adminObject = getEntry(position, ReadIndexDictionary.ADMIN_OBJECT);
+        long values = position + ReadIndexWriter.ROW_VALUES_OFFSET;
+        int registrationDate = file.getInt(values + 16);
+        return Registration.builder()
+                           .adminObjName(getField(adminObject, 0))
+                           .adminObjType(getField(adminObject, 1))
+                           .operationCode(Objects.isNull(operation) ? 0L : operation.getId())
+                           .operationName(getField(operation, 0))
+                           .departmentCode(Objects.isNull(department) ? 0L : department.getId())
+                           .departmentAddress(getField(department, 0))
+                           .departmentEmail(getField(department, 1))
+                           .kindName(getField(getEntry(position, ReadIndexDictionary.KIND), 0))
+                           .colorName(getField(getEntry(position, ReadIndexDictionary.COLOR), 0))
+                           .bodyTypeName(getField(getEntry(position, ReadIndexDictionary.BODY_TYPE), 0))
+                           .purposeName(getField(getEntry(position, ReadIndexDictionary.PURPOSE), 0))
+                           .brandName(getField(getEntry(position, ReadIndexDictionary.BRAND), 0))
+                           .modelName(getField(getEntry(position, ReadIndexDictionary.MODEL), 0))
+                           .fuelTypeName(getField(getEntry(position, ReadIndexDictionary.FUEL_TYPE), 0))
+                           .engineCapacity(getValue(values))
+                           .makeYear(getValue(values + 4))
+                           .ownWeight(getValue(values + 8))
+                           .totalWeight(getValue(values + 12))
+                           .personType(getField(getEntry(position, ReadIndexDictionary.PERSON_TYPE), 0))
+                           .registrationNumber(plateRef == ReadIndexWriter.NULL ? null : readString(poolOffset + plateRef))
+                           .registrationDate(registrationDate == ReadIndexWriter.NULL ? null : Date.valueOf(
+                                   LocalDate.of(registrationDate / 10000, registrationDate / 100 % 100, registrationDate % 100)))
+                           .id(file.getLong(position))
+                           .build();
+    }
+
+    /**
+     * Closes the file, the mapping stays valid for readers still holding this index until it is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int[] readChecksums(MappedFile mapped, long checksumsOffset) throws IOException {
+        int blockCount = mapped.getInt(checksumsOffset);
+        long expectedBlocks = (checksumsOffset - ReadIndexWriter.HEADER_SIZE + ReadIndexWriter.BLOCK_SIZE - 1) / ReadIndexWriter.BLOCK_SIZE;
+        if (blockCount != expectedBlocks || mapped.size() != checksumsOffset + 4 + blockCount * 4L + 4) {
+            throw new IOException("Read index file is truncated");
+        }
+        byte[] section = new byte[4 + blockCount * 4];
+        mapped.get(checksumsOffset, section);
+        CRC32 checksum = new CRC32();
+        checksum.update(section);
+        if ((int) checksum.getValue() != mapped.getInt(checksumsOffset + section.length)) {
+            throw new IOException("Block checksums of read index file are damaged");
+        }
+        int[] checksums = new int[blockCount];
+        ByteBuffer.wrap(section, 4, section.length - 4).asIntBuffer().get(checksums);
+        return checksums;
+    }
+
+    private Map<ReadIndexDictionary, List<ReadIndexEntry>> readDictionaries(long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("Dictionaries of read index file are too large");
+        }
+        file.verify(from, to - from);
+        byte[] bytes = new byte[(int) (to - from)];
+        file.get(from, bytes);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        Map<ReadIndexDictionary, List<ReadIndexEntry>> result = new EnumMap<>(ReadIndexDictionary.class);
+        for (ReadIndexDictionary dictionary : ReadIndexDictionary.values()) {
+            int size = input.readInt();
+            List<ReadIndexEntry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                long id = input.readLong();
+                List<String> fields = new ArrayList<>(dictionary.getFieldCount());
+                for (int field = 0; field < dictionary.getFieldCount(); field++) {
+                    fields.add(input.readBoolean() ? input.readUTF() : null);
+                }
+                entries.add(new ReadIndexEntry(id, Collections.unmodifiableList(fields)));
+            }
+            result.put(dictionary, Collections.unmodifiableList(entries));
+        }
+        if (input.available() > 0) {
+            throw new IOException("Dictionaries of read index file have trailing bytes");
+        }
+        return result;
+    }
+
+    private byte[] getPlate(int entry) {
+        return readBytes(poolOffset + getPlateRef(entry));
+    }
+
+    private int getPlateRef(int entry) {
+        long position = platesOffset + (long) entry * ReadIndexWriter.PLATE_ENTRY_SIZE;
+        file.verify(position, ReadIndexWriter.PLATE_ENTRY_SIZE);
+        return file.getInt(position);
+    }
+
+    private int getPlateRow(int entry) {
+        return file.getInt(platesOffset + (long) entry * ReadIndexWriter.PLATE_ENTRY_SIZE + 4);
+    }
+
+    private String readString(long position) {
+        return new String(readBytes(position), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(long position) {
+        file.verify(position, 2);
+        byte[] bytes = new byte[file.getUnsignedShort(position)];
+        file.verify(position + 2, bytes.length);
+        file.get(position + 2, bytes);
+        return bytes;
+    }
+
+    @Nullable
+    private ReadIndexEntry getEntry(long rowPosition, ReadIndexDictionary dictionary) {
+        int entry = file.getInt(rowPosition + ReadIndexWriter.ROW_DICTIONARIES_OFFSET + dictionary.ordinal() * 4);
+        return entry == ReadIndexWriter.NULL ? null : dictionaries.get(dictionary).get(entry);
+    }
+
+    @Nullable
+    private static String getField(@Nullable ReadIndexEntry entry, int field) {
+        return Objects.isNull(entry) ? null : entry.getField(field);
+    }
+
+    private long getValue(long position) {
+        int value = file.getInt(position);
+        return value == ReadIndexWriter.NULL ? 0L : value;
+    }
+}
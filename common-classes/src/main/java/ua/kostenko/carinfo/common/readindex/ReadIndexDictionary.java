@@ -0,0 +1,36 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import lombok.Getter;
+
+/**
+ * Dictionaries of a read index file in file order. Entries keep the database id and the given number of text fields.
+ */
+@Getter
+public enum ReadIndexDictionary {
+    BRAND(1),
+    MODEL(1),
+    COLOR(1),
+    KIND(1),
+    FUEL_TYPE(1),
+    PURPOSE(1),
+    BODY_TYPE(1),
+    PERSON_TYPE(1),
+    /**
+     * Operation code as id, name.
+     */
+    OPERATION(1),
+    /**
+     * Department code as id, address and email.
+     */
+    DEPARTMENT(2),
+    /**
+     * Name and type.
+     */
+    ADMIN_OBJECT(2);
+
+    private final int fieldCount;
+
+    ReadIndexDictionary(int fieldCount) {
+        this.fieldCount = fieldCount;
+    }
+}
@@ -0,0 +1,17 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+@Value
+public class ReadIndexEntry {
+    long id;
+    List<String> fields;
+
+    @Nullable
+    public String getField(int index) {
+        return fields.get(index);
+    }
+}
@@ -0,0 +1,35 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import lombok.NonNull;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Content generation of the data a read index file is written from: the current data version, the last entry of the record
+ * change log and the number of entity changes. Live writes of records and dictionaries change one of them without a new data
+ * version, so a file is stale as soon as its generation differs from the generation of the database.
+ */
+@Value
+public class ReadIndexGeneration {
+    private static final String GENERATION_SQL = "select (select max(version) from carinfo.data_version where status = 'CURRENT'), " +
+            "(select coalesce(max(seq), 0) from carinfo.record_change), " +
+            "(select coalesce(max(entity_changes), 0) from carinfo.data_generation)";
+    @Nullable
+    Integer dataVersion;
+    long changeSeq;
+    long entityChanges;
+
+    /**
+     * Reads the generation of the database, in a repeatable read transaction it matches the data read by the same transaction.
+     */
+    public static ReadIndexGeneration read(@NonNull @Nonnull JdbcTemplate jdbcTemplate) {
+        return Objects.requireNonNull(jdbcTemplate.queryForObject(GENERATION_SQL, (resultSet, rowNum) -> {
+            int version = resultSet.getInt(1);
+            return new ReadIndexGeneration(resultSet.wasNull() ? null : version, resultSet.getLong(2), resultSet.getLong(3));
+        }));
+    }
+}
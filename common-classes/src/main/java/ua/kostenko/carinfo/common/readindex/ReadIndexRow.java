@@ -0,0 +1,31 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Registration as written by {@link ReadIndexWriter}: dictionary values by database id, null if absent.
+ */
+@Value
+@Builder
+public class ReadIndexRow {
+    long id;
+    Long brandId;
+    Long modelId;
+    Long colorId;
+    Long kindId;
+    Long fuelTypeId;
+    Long purposeId;
+    Long bodyTypeId;
+    Long personTypeId;
+    Long operationCode;
+    Long departmentCode;
+    Long adminObjId;
+    Integer engineCapacity;
+    Integer makeYear;
+    Integer ownWeight;
+    Integer totalWeight;
+    LocalDate registrationDate;
+}
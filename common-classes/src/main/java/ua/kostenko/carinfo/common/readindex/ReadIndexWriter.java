@@ -0,0 +1,355 @@
+package ua.kostenko.carinfo.common.readindex;
+
+import com.google.common.io.CountingOutputStream;
+import lombok.NonNull;
+import ua.kostenko.carinfo.common.collections.LongIntHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a read index file in three stages: dictionaries in {@link ReadIndexDictionary} order, plates in ascending byte order
+ * with their row numbers, then registration rows in row number order. Every 64K block after the header carries a CRC32,
+ * so {@link ReadIndex} verifies the blocks it touches without reading the whole file.
+ */
+public class ReadIndexWriter implements Closeable {
+    static final byte[] MAGIC = "CARRIDX1".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 96;
+    static final int HEADER_CHECKSUM_OFFSET = HEADER_SIZE - 4;
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int NO_VERSION = -1;
+    static final int NULL = -1;
+    static final int PLATE_ENTRY_SIZE = 8;
+    static final int ROW_SIZE = 8 + 4 + ReadIndexDictionary.values().length * 4 + 5 * 4;
+    static final int ROW_PLATE_OFFSET = 8;
+    static final int ROW_DICTIONARIES_OFFSET = 12;
+    static final int ROW_VALUES_OFFSET = ROW_DICTIONARIES_OFFSET + ReadIndexDictionary.values().length * 4;
+    private final File file;
+    private final ReadIndexGeneration generation;
+    private final BlockChecksumOutputStream blocks;
+    private final CountingOutputStream counting;
+    private final DataOutputStream output;
+    private final Map<ReadIndexDictionary, LongIntHashMap> positions = new EnumMap<>(ReadIndexDictionary.class);
+    private final long[] offsets = new long[Section.values().length];
+    private Section section = Section.DICTIONARIES;
+    private int nextDictionary;
+    private byte[] lastPlate;
+    private int lastPlateOffset = NULL;
+    private int[] plateEntries = new int[1024];
+    private int plateCount;
+    private int[] rowPlates = new int[1024];
+    private int rowCount;
+
+    public ReadIndexWriter(@NonNull @Nonnull File file, @NonNull @Nonnull ReadIndexGeneration generation) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.blocks = new BlockChecksumOutputStream(new FileOutputStream(file));
+        this.counting = new CountingOutputStream(new BufferedOutputStream(blocks, BLOCK_SIZE));
+        this.output = new DataOutputStream(counting);
+        output.write(new byte[HEADER_SIZE]);
+        offsets[Section.DICTIONARIES.ordinal()] = HEADER_SIZE;
+        Arrays.fill(rowPlates, NULL);
+    }
+
+    /**
+     * Writes entries of the dictionary, dictionaries skipped before it are written empty.
+     */
+    public void writeDictionary(@NonNull @Nonnull ReadIndexDictionary dictionary, @NonNull @Nonnull List<ReadIndexEntry> entries) throws IOException {
+        checkSection(Section.DICTIONARIES);
+        if (dictionary.ordinal() < nextDictionary) {
+            throw new IllegalStateException("Dictionary is already written or comes in wrong order: " + dictionary);
+        }
+        while (nextDictionary < dictionary.ordinal()) {
+            writeEntries(ReadIndexDictionary.values()[nextDictionary++], Collections.emptyList());
+        }
+        writeEntries(dictionary, entries);
+        nextDictionary++;
+    }
+
+    /**
+     * Adds a plate of the given row, plates must come in ascending order of their UTF-8 bytes.
+     */
+    public void addPlate(@NonNull @Nonnull String plate, int row) throws IOException {
+        if (section == Section.DICTIONARIES) {
+            finishDictionaries();
+        }
+        checkSection(Section.POOL);
+        if (row < 0) {
+            throw new IllegalArgumentException("Row can't be negative: " + row);
+        }
+        byte[] bytes = plate.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("Plate is too long: " + plate);
+        }
+        int order = Objects.isNull(lastPlate) ? 1 : compare(bytes, lastPlate);
+        if (order < 0) {
+            throw new IllegalArgumentException(String.format("Plates must be added in ascending order, %s after %s", plate,
+                                                             new String(lastPlate, StandardCharsets.UTF_8)));
+        }
+        if (order > 0) {
+            long offset = counting.getCount() - offsets[Section.POOL.ordinal()];
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Plates don't fit into a read index file");
+            }
+            lastPlateOffset = (int) offset;
+            lastPlate = bytes;
+            output.writeShort(bytes.length);
+            output.write(bytes);
+        }
+        if (plateCount * 2 + 2 > plateEntries.length) {
+            plateEntries = Arrays.copyOf(plateEntries, plateEntries.length * 2);
+        }
+        plateEntries[plateCount * 2] = lastPlateOffset;
+        plateEntries[plateCount * 2 + 1] = row;
+        plateCount++;
+        if (row >= rowPlates.length) {
+            int length = rowPlates.length;
+            rowPlates = Arrays.copyOf(rowPlates, Math.max(row + 1, length * 2));
+            Arrays.fill(rowPlates, length, rowPlates.length, NULL);
+        }
+        rowPlates[row] = lastPlateOffset;
+    }
+
+    /**
+     * Adds the next row, its number is the number of rows added before.
+     */
+    public void addRow(@NonNull @Nonnull ReadIndexRow row) throws IOException {
+        if (section == Section.DICTIONARIES) {
+            finishDictionaries();
+        }
+        if (section == Section.POOL) {
+            finishPlates();
+        }
+        checkSection(Section.ROWS);
+        output.writeLong(row.getId());
+        output.writeInt(rowCount < rowPlates.length ? rowPlates[rowCount] : NULL);
+        output.writeInt(getPosition(ReadIndexDictionary.BRAND, row.getBrandId()));
+        output.writeInt(getPosition(ReadIndexDictionary.MODEL, row.getModelId()));
+        output.writeInt(getPosition(ReadIndexDictionary.COLOR, row.getColorId()));
+        output.writeInt(getPosition(ReadIndexDictionary.KIND, row.getKindId()));
+        output.writeInt(getPosition(ReadIndexDictionary.FUEL_TYPE, row.getFuelTypeId()));
+        output.writeInt(getPosition(ReadIndexDictionary.PURPOSE, row.getPurposeId()));
+        output.writeInt(getPosition(ReadIndexDictionary.BODY_TYPE, row.getBodyTypeId()));
+        output.writeInt(getPosition(ReadIndexDictionary.PERSON_TYPE, row.getPersonTypeId()));
+        output.writeInt(getPosition(ReadIndexDictionary.OPERATION, row.getOperationCode()));
+        output.writeInt(getPosition(ReadIndexDictionary.DEPARTMENT, row.getDepartmentCode()));
+        output.writeInt(getPosition(ReadIndexDictionary.ADMIN_OBJECT, row.getAdminObjId()));
+        output.writeInt(getValue(row.getEngineCapacity()));
+        output.writeInt(getValue(row.getMakeYear()));
+        output.writeInt(getValue(row.getOwnWeight()));
+        output.writeInt(getValue(row.getTotalWeight()));
+        output.writeInt(packDate(row.getRegistrationDate()));
+        rowCount++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (section == Section.DICTIONARIES) {
+                finishDictionaries();
+            }
+            if (section == Section.POOL) {
+                finishPlates();
+            }
+            if (section == Section.ROWS) {
+                finishRows();
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    static int packDate(@Nullable LocalDate date) {
+        return Objects.isNull(date) ? NULL : date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    static int compare(@NonNull @Nonnull byte[] first, @NonNull @Nonnull byte[] second) {
+        int length = Math.min(first.length, second.length);
+        for (int i = 0; i < length; i++) {
+            int result = Integer.compare(first[i] & 0xFF, second[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(first.length, second.length);
+    }
+
+    private void writeEntries(ReadIndexDictionary dictionary, List<ReadIndexEntry> entries) throws IOException {
+        LongIntHashMap dictionaryPositions = new LongIntHashMap(entries.size(), NULL);
+        output.writeInt(entries.size());
+        for (int position = 0; position < entries.size(); position++) {
+            ReadIndexEntry entry = entries.get(position);
+            if (entry.getFields().size() != dictionary.getFieldCount()) {
+                throw new IllegalArgumentException(String.format("Entry %d of %s has %d fields instead of %d", entry.getId(), dictionary,
+                                                                 entry.getFields().size(), dictionary.getFieldCount()));
+            }
+            output.writeLong(entry.getId());
+            for (String field : entry.getFields()) {
+                output.writeBoolean(Objects.nonNull(field));
+                if (Objects.nonNull(field)) {
+                    output.writeUTF(field);
+                }
+            }
+            dictionaryPositions.put(entry.getId(), position);
+        }
+        positions.put(dictionary, dictionaryPositions);
+    }
+
+    private int getPosition(ReadIndexDictionary dictionary, @Nullable Long id) {
+        return Objects.isNull(id) ? NULL : positions.get(dictionary).get(id);
+    }
+
+    private static int getValue(@Nullable Integer value) {
+        return Objects.isNull(value) || value < 0 ? NULL : value;
+    }
+
+    private void finishDictionaries() throws IOException {
+        while (nextDictionary < ReadIndexDictionary.values().length) {
+            writeEntries(ReadIndexDictionary.values()[nextDictionary++], Collections.emptyList());
+        }
+        startSection(Section.POOL);
+    }
+
+    private void finishPlates() throws IOException {
+        startSection(Section.PLATES);
+        for (int i = 0; i < plateCount * 2; i++) {
+            output.writeInt(plateEntries[i]);
+        }
+        plateEntries = null;
+        startSection(Section.ROWS);
+    }
+
+    private void finishRows() throws IOException {
+        for (int i = rowCount; i < rowPlates.length; i++) {
+            if (rowPlates[i] != NULL) {
+                throw new IllegalStateException(String.format("Plate refers to row %d, but there are %d rows", i, rowCount));
+            }
+        }
+        startSection(Section.CHECKSUMS);
+        output.flush();
+        int[] checksums = blocks.finish();
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + checksums.length * 4);
+        buffer.putInt(checksums.length);
+        for (int value : checksums) {
+            buffer.putInt(value);
+        }
+        checksum.update(buffer.array());
+        output.write(buffer.array());
+        output.writeInt((int) checksum.getValue());
+        output.flush();
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(Objects.isNull(generation.getDataVersion()) ? NO_VERSION : generation.getDataVersion());
+        header.putLong(System.currentTimeMillis());
+        header.putInt(rowCount);
+        header.putInt(plateCount);
+        for (long offset : offsets) {
+            header.putLong(offset);
+        }
+        header.putLong(generation.getChangeSeq());
+        header.putLong(generation.getEntityChanges());
+        CRC32 checksum = new CRC32();
+        checksum.update(header.array(), 0, HEADER_CHECKSUM_OFFSET);
+        header.putInt(HEADER_CHECKSUM_OFFSET, (int) checksum.getValue());
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.write(header.array());
+        }
+    }
+
+    private void startSection(Section next) {
+        offsets[next.ordinal()] = counting.getCount();
+        section = next;
+    }
+
+    private void checkSection(Section expected) {
+        if (section != expected) {
+            throw new IllegalStateException(String.format("Can't write %s after %s", expected, section));
+        }
+    }
+
+    enum Section {
+        DICTIONARIES,
+        POOL,
+        PLATES,
+        ROWS,
+        CHECKSUMS
+    }
+
+    /**
+     * Computes CRC32 of every block after the header while writing.
+     */
+    private static class BlockChecksumOutputStream extends FilterOutputStream {
+        private final CRC32 checksum = new CRC32();
+        private int[] checksums = new int[64];
+        private int blockCount;
+        private long position;
+
+        private BlockChecksumOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            while (length > 0) {
+                if (position < HEADER_SIZE) {
+                    int skipped = (int) Math.min(length, HEADER_SIZE - position);
+                    position += skipped;
+                    offset += skipped;
+                    length -= skipped;
+                    continue;
+                }
+                int inBlock = (int) ((position - HEADER_SIZE) % BLOCK_SIZE);
+                int chunk = Math.min(length, BLOCK_SIZE - inBlock);
+                checksum.update(bytes, offset, chunk);
+                position += chunk;
+                offset += chunk;
+                length -= chunk;
+                if (inBlock + chunk == BLOCK_SIZE) {
+                    addBlock();
+                }
+            }
+        }
+
+        /**
+         * @return checksums of all blocks written so far, the last one may be partial.
+         */
+        private int[] finish() {
+            if ((position - HEADER_SIZE) % BLOCK_SIZE != 0) {
+                addBlock();
+            }
+            return Arrays.copyOf(checksums, blockCount);
+        }
+
+        private void addBlock() {
+            if (blockCount == checksums.length) {
+                checksums = Arrays.copyOf(checksums, blockCount * 2);
+            }
+            checksums[blockCount++] = (int) checksum.getValue();
+            checksum.reset();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+CREATE SCHEMA IF NOT EXISTS carinfo;
+
+CREATE OR REPLACE VIEW carinfo.vehicle_view AS
+SELECT vehicle_id, b.brand_name, m.model_name
+FROM carinfo.vehicle v
+         LEFT JOIN carinfo.model m ON m.model_id = v.model_id
+         LEFT JOIN carinfo.brand b ON b.brand_id = v.brand_id;
+
+CREATE OR REPLACE VIEW carinfo.record_view AS
+SELECT id,
+       registration_date,
+       registration_number,
+       brand_name,
+       model_name,
+       engine_capacity,
+       fuel_type_name,
+       make_year,
+       own_weight,
+       total_weight,
+       color_name,
+       body_type_name,
+       kind_name,
+       purpose_name,
+       admin_obj_name,
+       admin_obj_type,
+       r.op_code,
+       op_name,
+       r.dep_code,
+       dep_addr,
+       dep_email,
+       person_type
+FROM carinfo.record r
+         LEFT JOIN carinfo.admin_object ao ON ao.admin_obj_id = r.admin_obj_id
+         LEFT JOIN carinfo.operation o ON o.op_code = r.op_code
+         LEFT JOIN carinfo.department d ON d.dep_code = r.dep_code
+         LEFT JOIN carinfo.kind k ON k.kind_id = r.kind_id
+         LEFT JOIN carinfo.vehicle v ON v.vehicle_id = r.vehicle_id
+         LEFT JOIN carinfo.color c ON c.color_id = r.color_id
+         LEFT JOIN carinfo.body_type bt ON bt.body_type_id = r.body_type_id
+         LEFT JOIN carinfo.purpose p ON p.purpose_id = r.purpose_id
+         LEFT JOIN carinfo.fuel_type ft ON ft.fuel_type_id = r.fuel_type_id
+         LEFT JOIN carinfo.brand b ON b.brand_id = v.brand_id
+         LEFT JOIN carinfo.model m ON m.model_id = v.model_id;
+
+CREATE UNLOGGED TABLE IF NOT EXISTS carinfo.record_staging
+(
+    batch_id            varchar(64) NOT NULL,
+    admin_obj_id        bigint,
+    op_code             bigint,
+    op_name             text,
+    dep_code            bigint,
+    kind_name           text,
+    color_name          text,
+    body_type_name      text,
+    purpose_name        text,
+    brand_name          text,
+    model_name          text,
+    fuel_type_name      text,
+    engine_capacity     bigint,
+    own_weight          bigint,
+    total_weight        bigint,
+    make_year           bigint,
+    registration_date   date,
+    registration_number text,
+    person_type         text
+);
+
+CREATE INDEX IF NOT EXISTS record_staging_batch_id ON carinfo.record_staging (batch_id);
+
+CREATE TABLE IF NOT EXISTS carinfo.data_version
+(
+    version      serial PRIMARY KEY,
+    status       varchar(16) NOT NULL,
+    created_at   timestamp   NOT NULL DEFAULT now(),
+    published_at timestamp,
+    records      bigint
+);
+
+CREATE OR REPLACE VIEW carinfo.current_version AS
+SELECT version, published_at, records
+FROM carinfo.data_version
+WHERE status = 'CURRENT';
+
+CREATE TABLE IF NOT EXISTS carinfo.import_run
+(
+    run_id      serial PRIMARY KEY,
+    version     integer,
+    status      varchar(16) NOT NULL,
+    created_at  timestamp   NOT NULL DEFAULT now(),
+    finished_at timestamp
+);
+
+CREATE TABLE IF NOT EXISTS carinfo.import_work
+(
+    id          bigserial PRIMARY KEY,
+    run_id      integer     NOT NULL REFERENCES carinfo.import_run (run_id),
+    resource    text        NOT NULL,
+    hash        text,
+    status      varchar(16) NOT NULL DEFAULT 'PENDING',
+    owner       varchar(128),
+    lease_until timestamp,
+    attempts    integer     NOT NULL DEFAULT 0,
+    updated_at  timestamp   NOT NULL DEFAULT now(),
+    UNIQUE (run_id, resource)
+);
+
+CREATE INDEX IF NOT EXISTS import_work_run_id_status ON carinfo.import_work (run_id, status);
+
+ALTER TABLE carinfo.import_work ADD COLUMN IF NOT EXISTS year integer;
+ALTER TABLE carinfo.import_work ADD COLUMN IF NOT EXISTS bytes bigint;
+ALTER TABLE carinfo.import_work ADD COLUMN IF NOT EXISTS priority integer NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS carinfo.data_version_year
+(
+    version      integer   NOT NULL REFERENCES carinfo.data_version (version),
+    year         integer   NOT NULL,
+    published_at timestamp NOT NULL DEFAULT now(),
+    PRIMARY KEY (version, year)
+);
+
+ALTER TABLE carinfo.import_run ADD COLUMN IF NOT EXISTS write_mode varchar(16);
+
+ALTER TABLE carinfo.record_staging ADD COLUMN IF NOT EXISTS row_fingerprint bigint;
+ALTER TABLE carinfo.record ADD COLUMN IF NOT EXISTS row_fingerprint bigint;
+CREATE INDEX IF NOT EXISTS record_row_fingerprint ON carinfo.record (row_fingerprint);
+
+CREATE TABLE IF NOT EXISTS carinfo.import_fingerprint
+(
+    resource     text      NOT NULL,
+    file_name    text      NOT NULL,
+    hash         text,
+    version      integer,
+    row_count    bigint    NOT NULL,
+    fingerprints bytea     NOT NULL,
+    updated_at   timestamp NOT NULL DEFAULT now(),
+    PRIMARY KEY (resource, file_name)
+);
+
+CREATE TABLE IF NOT EXISTS carinfo.record_change
+(
+    seq        bigserial PRIMARY KEY,
+    version    integer,
+    operation  varchar(16) NOT NULL,
+    year       integer,
+    record_ids bigint[],
+    created_at timestamp   NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS carinfo.data_generation
+(
+    id             integer PRIMARY KEY CHECK (id = 1),
+    entity_changes bigint NOT NULL DEFAULT 0
+);
+
+INSERT INTO carinfo.data_generation (id) VALUES (1) ON CONFLICT DO NOTHING;
@@ -0,0 +1,91 @@
+package ua.kostenko.carinfo.common;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationListener;
+import ua.kostenko.carinfo.common.cache.CacheRegions;
+import ua.kostenko.carinfo.common.cache.DataChangedEvent;
+import ua.kostenko.carinfo.common.cache.EntityChangedEvent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Notifications sent by other nodes through carinfo_cache reach the listener and evict local regions.
+ */
+public class CacheInvalidationListenerTest {
+    private static final String LISTENER_SQL = "select count(*) from pg_stat_activity where datname = current_database() and query = 'LISTEN " +
+            CacheRegions.CHANNEL + "'";
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    private CacheManager cacheManager;
+    private CacheInvalidationListener listener;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        cacheManager = new ConcurrentMapCacheManager("brand", "color");
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("cacheManager", cacheManager);
+        listener = new CacheInvalidationListener(beanFactory.getBeanProvider(CacheManager.class), events::add, true, database.getJdbcUrl(), "postgres", "");
+        listener.start();
+        await(() -> jdbcTemplate.queryForObject(LISTENER_SQL, Long.class) == 1);
+    }
+
+    @After
+    public void tearDown() {
+        listener.stop();
+    }
+
+    @Test
+    public void notificationOfOtherNodeEvictsNamedRegions() throws InterruptedException {
+        cacheManager.getCache("brand").put(1L, "BMW");
+        cacheManager.getCache("color").put(1L, "BLACK");
+
+        notify("entity:Brand");
+        Assert.assertEquals(new EntityChangedEvent("Brand"), events.poll(10, TimeUnit.SECONDS));
+        await(() -> cacheManager.getCache("brand").get(1L) == null);
+        Assert.assertNotNull(cacheManager.getCache("color").get(1L));
+
+        notify("data:7");
+        Assert.assertEquals(new DataChangedEvent(7), events.poll(10, TimeUnit.SECONDS));
+        await(() -> cacheManager.getCache("color").get(1L) == null);
+    }
+
+    @Test
+    public void reconnectEvictsEveryRegion() throws InterruptedException {
+        cacheManager.getCache("brand").put(1L, "BMW");
+        cacheManager.getCache("color").put(1L, "BLACK");
+
+        jdbcTemplate.queryForList("select pg_terminate_backend(pid) from pg_stat_activity where datname = current_database() and query = 'LISTEN " +
+                                          CacheRegions.CHANNEL + "'");
+        Assert.assertEquals(new DataChangedEvent(null), events.poll(30, TimeUnit.SECONDS));
+        await(() -> cacheManager.getCache("brand").get(1L) == null && cacheManager.getCache("color").get(1L) == null);
+    }
+
+    private void notify(String payload) {
+        jdbcTemplate.queryForList("select pg_notify(?, ?)", CacheRegions.CHANNEL, payload);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.yield();
+        }
+        throw new AssertionError("Condition is not met in time");
+    }
+}
@@ -0,0 +1,54 @@
+package ua.kostenko.carinfo.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ua.kostenko.carinfo.common.api.records.Brand;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.cache.CacheRegions;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class CacheRegionsTest {
+
+    @Test
+    public void dictionaryChangeEvictsDependentRegions() {
+        List<String> regions = CacheRegions.getRegions(CacheRegions.entityPayload(Brand.class));
+        Assert.assertNotNull(regions);
+        Assert.assertTrue(regions.containsAll(Arrays.asList("brand", "brandCheck", "brandIndex", "vehicle", "registration", "recordIndex")));
+        Assert.assertFalse(regions.contains("color"));
+    }
+
+    @Test
+    public void registrationChangeEvictsRegistrationRegionsOnly() {
+        List<String> regions = CacheRegions.getRegions(CacheRegions.entityPayload(Registration.class));
+        Assert.assertNotNull(regions);
+        Assert.assertEquals(3, regions.size());
+        Assert.assertTrue(regions.contains("registrationCheck"));
+    }
+
+    @Test
+    public void dataChangeAndUnknownPayloadEvictEverything() {
+        Assert.assertNull(CacheRegions.getRegions(CacheRegions.dataPayload(7)));
+        Assert.assertNull(CacheRegions.getRegions(CacheRegions.dataPayload(null)));
+        Assert.assertNull(CacheRegions.getRegions("entity:Unknown"));
+        Assert.assertNull(CacheRegions.getRegions(null));
+    }
+
+    @Test
+    public void entityIsReadFromEntityPayloadOnly() {
+        Assert.assertEquals("Brand", CacheRegions.getEntity(CacheRegions.entityPayload(Brand.class)));
+        Assert.assertNull(CacheRegions.getEntity("entity:Unknown"));
+        Assert.assertNull(CacheRegions.getEntity(CacheRegions.dataPayload(7)));
+        Assert.assertNull(CacheRegions.getEntity(null));
+    }
+
+    @Test
+    public void dataVersionIsReadFromDataPayloadOnly() {
+        Assert.assertEquals(Integer.valueOf(7), CacheRegions.getDataVersion(CacheRegions.dataPayload(7)));
+        Assert.assertNull(CacheRegions.getDataVersion(CacheRegions.dataPayload(null)));
+        Assert.assertNull(CacheRegions.getDataVersion(CacheRegions.entityPayload(Brand.class)));
+        Assert.assertNull(CacheRegions.getDataVersion("7"));
+        Assert.assertNull(CacheRegions.getDataVersion(null));
+    }
+}
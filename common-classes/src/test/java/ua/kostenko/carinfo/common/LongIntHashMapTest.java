@@ -0,0 +1,38 @@
+package ua.kostenko.carinfo.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ua.kostenko.carinfo.common.collections.LongIntHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void behavesLikeHashMap() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(30_000) * 100_000_000L + random.nextInt(100);
+            Integer previous = expected.put(key, i);
+            Assert.assertEquals(previous == null ? -1 : previous, map.put(key, i));
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> Assert.assertEquals((int) value, map.get(key)));
+        Assert.assertEquals(-1, map.get(-5L));
+        Assert.assertFalse(map.containsKey(-5L));
+    }
+
+    @Test
+    public void zeroAndNegativeKeys() {
+        LongIntHashMap map = new LongIntHashMap(-1);
+        map.put(0L, 10);
+        map.put(Long.MIN_VALUE, 20);
+        Assert.assertEquals(10, map.get(0L));
+        Assert.assertEquals(20, map.get(Long.MIN_VALUE));
+        Assert.assertTrue(map.containsKey(0L));
+    }
+}
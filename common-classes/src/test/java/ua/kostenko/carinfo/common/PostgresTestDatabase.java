@@ -0,0 +1,140 @@
+package ua.kostenko.carinfo.common;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.junit.rules.ExternalResource;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded PostgreSQL for integration tests: one server per JVM and a fresh database per rule. The carinfo schema is
+ * created once the way the services create it, Hibernate updates it from the mapping entities and data.sql runs
+ * afterwards, and every test database is copied from it.
+ */
+public class PostgresTestDatabase extends ExternalResource {
+    private static final String TEMPLATE = "carinfo_template";
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static EmbeddedPostgres server;
+    private String name;
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    protected void before() throws Throwable {
+        name = "carinfo_test_" + DATABASES.incrementAndGet();
+        try (Connection connection = getServer().getPostgresDatabase().getConnection()) {
+            connection.createStatement().execute("create database " + name + " template " + TEMPLATE);
+        }
+        dataSource = getServer().getDatabase("postgres", name);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Starts the server and prepares the template database all test databases are copied from.
+     */
+    private static synchronized EmbeddedPostgres getServer() throws IOException, SQLException {
+        if (Objects.isNull(server)) {
+            EmbeddedPostgres postgres = EmbeddedPostgres.start();
+            try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+                connection.createStatement().execute("create database " + TEMPLATE);
+            }
+            DataSource template = postgres.getDatabase("postgres", TEMPLATE);
+            new JdbcTemplate(template).execute("create schema if not exists carinfo");
+            createTables(template);
+            executeScript(template, "data.sql");
+            server = postgres;
+        }
+        return server;
+    }
+
+    private static void createTables(DataSource dataSource) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.dialect", PostgreSQLDialect.class.getName());
+        properties.put("hibernate.hbm2ddl.auto", "update");
+        properties.put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+        properties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+        properties.put("hibernate.jdbc.lob.non_contextual_creation", "true");
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("ua.kostenko.carinfo.common.database.mapping");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(properties);
+        factory.afterPropertiesSet();
+        factory.destroy();
+    }
+
+    private static void executeScript(DataSource dataSource, String resource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource(resource));
+        }
+    }
+
+    /**
+     * Runs a classpath script the way Spring Boot runs data.sql.
+     */
+    public void executeScript(String resource) throws SQLException {
+        executeScript(dataSource, resource);
+    }
+
+    /**
+     * Inserts a registration, its dictionary values are created on first use and shared between calls.
+     *
+     * @return id of the record.
+     */
+    public long insertRegistration(String plate, String brand, String model, String color, long makeYear, String registrationDate, long engineCapacity) {
+        jdbcTemplate.update("insert into carinfo.operation (op_code, op_name) values (100, 'REGISTRATION') on conflict do nothing");
+        jdbcTemplate.update("insert into carinfo.department (dep_code, dep_addr, dep_email) values (1, 'KYIV', 'kyiv@example.com') on conflict do nothing");
+        long brandId = getDictionaryId("brand", brand);
+        long modelId = getDictionaryId("model", model);
+        List<Long> vehicles = jdbcTemplate.queryForList("select vehicle_id from carinfo.vehicle where brand_id = ? and model_id = ?", Long.class, brandId, modelId);
+        long vehicleId = vehicles.isEmpty()
+                ? jdbcTemplate.queryForObject("insert into carinfo.vehicle (brand_id, model_id) values (?, ?) returning vehicle_id", Long.class, brandId, modelId)
+                : vehicles.get(0);
+        return jdbcTemplate.queryForObject("insert into carinfo.record (op_code, dep_code, kind_id, vehicle_id, color_id, body_type_id, purpose_id, " +
+                                                   "fuel_type_id, engine_capacity, make_year, own_weight, total_weight, registration_date, registration_number, person_type) " +
+                                                   "values (100, 1, ?, ?, ?, ?, ?, ?, ?, ?, 1200, 1800, ?::date, ?, 'P') returning id", Long.class,
+                                           getDictionaryId("kind", "LEGKOVYI"), vehicleId, getDictionaryId("color", color),
+                                           getDictionaryId("body_type", "SEDAN"), getDictionaryId("purpose", "ZAGALNYI"),
+                                           getDictionaryId("fuel_type", "BENZYN"), engineCapacity, makeYear, registrationDate, plate);
+    }
+
+    private long getDictionaryId(String table, String name) {
+        String select = String.format("select %1$s_id from carinfo.%1$s where %1$s_name = ?", table);
+        List<Long> ids = jdbcTemplate.queryForList(select, Long.class, name);
+        if (!ids.isEmpty()) {
+            return ids.get(0);
+        }
+        String insert = String.format("insert into carinfo.%1$s (%1$s_name) values (?) returning %1$s_id", table);
+        return jdbcTemplate.queryForObject(insert, Long.class, name);
+    }
+
+    /**
+     * JDBC url of the test database for code which opens its own connections, user is postgres without password.
+     */
+    public String getJdbcUrl() {
+        return server.getJdbcUrl("postgres", name);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+}
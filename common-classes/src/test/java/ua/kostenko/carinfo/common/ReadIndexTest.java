@@ -0,0 +1,136 @@
+package ua.kostenko.carinfo.common;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.readindex.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ReadIndexTest {
+    private static final int ROWS = 20000;
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void registrationsAreFoundByPlate() throws IOException {
+        File file = writeIndex();
+        try (ReadIndex index = ReadIndex.open(file)) {
+            Assert.assertEquals(Integer.valueOf(12), index.getDataVersion());
+            Assert.assertEquals(new ReadIndexGeneration(12, 40, 3), index.getGeneration());
+            Assert.assertEquals("carinfo-v12-40-3.cri", ReadIndex.getFileName(index.getGeneration()));
+            Assert.assertEquals(ROWS, index.getRowCount());
+            Assert.assertEquals(2, index.getEntries(ReadIndexDictionary.BRAND).size());
+            Assert.assertEquals("Kyiv", index.getEntries(ReadIndexDictionary.ADMIN_OBJECT).get(0).getField(0));
+            Assert.assertTrue(index.getEntries(ReadIndexDictionary.BODY_TYPE).isEmpty());
+
+            List<Registration> registrations = index.findByPlate(getPlate(1234));
+            Assert.assertEquals(2, registrations.size());
+            Registration registration = registrations.get(0);
+            Assert.assertEquals(getPlate(1234), registration.getRegistrationNumber());
+            Assert.assertEquals(Long.valueOf(1000 + 1234 * 2), registration.getId());
+            Assert.assertEquals("AUDI", registration.getBrandName());
+            Assert.assertEquals("A6", registration.getModelName());
+            Assert.assertNull(registration.getBodyTypeName());
+            Assert.assertEquals("registration", registration.getOperationName());
+            Assert.assertEquals("Kyiv", registration.getAdminObjName());
+            Assert.assertEquals("city", registration.getAdminObjType());
+            Assert.assertEquals(Long.valueOf(2000 + 1234 * 2 % 3), registration.getMakeYear());
+            Assert.assertEquals(Long.valueOf(0), registration.getEngineCapacity());
+            Assert.assertEquals(Long.valueOf(12345), registration.getDepartmentCode());
+            Assert.assertEquals(LocalDate.of(2019, 2, 28), registration.getRegistrationDate().toLocalDate());
+
+            Assert.assertTrue(index.findByPlate("AA0000AA").isEmpty());
+            Assert.assertTrue(index.findByPlate("ZZ9999ZZ").isEmpty());
+            Assert.assertEquals(2, index.findByPlate(getPlate(0)).size());
+            Assert.assertEquals(1, index.findByPlate(getPlate(ROWS / 2 - 1)).size());
+            Assert.assertNull(index.getRegistration(ROWS - 1).getRegistrationNumber());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void damagedBlockIsDetectedOnAccess() throws IOException {
+        File file = writeIndex();
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            long position = file.length() - 20000;
+            output.seek(position);
+            int value = output.read();
+            output.seek(position);
+            output.write(value ^ 0xFF);
+        }
+        try (ReadIndex index = ReadIndex.open(file)) {
+            for (int row = 0; row < index.getRowCount(); row++) {
+                index.getRegistration(row);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        File file = writeIndex();
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(output.length() - 3);
+        }
+        ReadIndex.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void platesMustBeSorted() throws IOException {
+        try (ReadIndexWriter writer = new ReadIndexWriter(temporaryFolder.newFile(), new ReadIndexGeneration(1, 0, 0))) {
+            writer.addPlate("BB1111BB", 0);
+            writer.addPlate("AA1111AA", 1);
+        }
+    }
+
+    private File writeIndex() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (ReadIndexWriter writer = new ReadIndexWriter(file, new ReadIndexGeneration(12, 40, 3))) {
+            writer.writeDictionary(ReadIndexDictionary.BRAND, Arrays.asList(entry(7, "BMW"), entry(9, "AUDI")));
+            writer.writeDictionary(ReadIndexDictionary.MODEL, Collections.singletonList(entry(3, "A6")));
+            writer.writeDictionary(ReadIndexDictionary.COLOR, Collections.singletonList(entry(1, "black")));
+            writer.writeDictionary(ReadIndexDictionary.KIND, Collections.singletonList(entry(1, "car")));
+            writer.writeDictionary(ReadIndexDictionary.PURPOSE, Collections.singletonList(entry(1, "private")));
+            writer.writeDictionary(ReadIndexDictionary.PERSON_TYPE, Collections.singletonList(entry(1, "P")));
+            writer.writeDictionary(ReadIndexDictionary.OPERATION, Collections.singletonList(entry(100, "registration")));
+            writer.writeDictionary(ReadIndexDictionary.DEPARTMENT, Collections.singletonList(entry(12345, "Kyiv, 1", null)));
+            writer.writeDictionary(ReadIndexDictionary.ADMIN_OBJECT, Collections.singletonList(entry(80, "Kyiv", "city")));
+            // two rows per plate, the last row has no plate
+            for (int row = 0; row < ROWS - 1; row++) {
+                writer.addPlate(getPlate(row / 2), row);
+            }
+            for (int row = 0; row < ROWS; row++) {
+                writer.addRow(ReadIndexRow.builder()
+                                          .id(1000 + row)
+                                          .brandId(row % 2 == 0 ? 9L : 7L)
+                                          .modelId(3L)
+                                          .colorId(1L)
+                                          .kindId(1L)
+                                          .purposeId(1L)
+                                          .personTypeId(1L)
+                                          .operationCode(100L)
+                                          .departmentCode(12345L)
+                                          .adminObjId(80L)
+                                          .makeYear(2000 + row % 3)
+                                          .registrationDate(LocalDate.of(2019, 2, 28))
+                                          .build());
+            }
+        }
+        return file;
+    }
+
+    private static String getPlate(int number) {
+        return String.format("AA%05dBB", number);
+    }
+
+    private static ReadIndexEntry entry(long id, String... fields) {
+        return new ReadIndexEntry(id, Arrays.asList(fields));
+    }
+}
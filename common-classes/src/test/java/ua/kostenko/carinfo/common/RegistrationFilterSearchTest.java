@@ -0,0 +1,97 @@
+package ua.kostenko.carinfo.common;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ua.kostenko.carinfo.common.api.ParamsHolder;
+import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.database.repositories.DBRepository;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Range and IN filters of the registration repository against a real carinfo schema.
+ */
+public class RegistrationFilterSearchTest {
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    private AnnotationConfigApplicationContext context;
+    private DBRepository<Registration, String> repository;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        database.insertRegistration("AA0001AA", "BMW", "X5", "BLACK", 2010, "2018-12-31", 3000);
+        database.insertRegistration("AA0002AA", "BMW", "X3", "WHITE", 2015, "2019-01-01", 2000);
+        database.insertRegistration("AA0003AA", "AUDI", "A4", "BLACK", 2016, "2019-06-15", 1800);
+        database.insertRegistration("AA0004AA", "AUDI", "A6", "RED", 2018, "2019-12-31", 2500);
+        database.insertRegistration("AA0005AA", "SKODA", "OCTAVIA", "WHITE", 2019, "2020-01-01", 1400);
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(NamedParameterJdbcTemplate.class, () -> new NamedParameterJdbcTemplate(database.getDataSource()));
+        context.scan("ua.kostenko.carinfo.common.database.repositories");
+        context.refresh();
+        ResolvableType type = ResolvableType.forClassWithGenerics(DBRepository.class, Registration.class, String.class);
+        repository = (DBRepository<Registration, String>) context.getBeanProvider(type).getObject();
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void rangeBoundsAreInclusive() {
+        ParamsHolder params = new ParamsHolderBuilder().records(100)
+                                                       .param(Registration.REGISTRATION_DATE_FROM, Date.valueOf("2019-01-01"))
+                                                       .param(Registration.REGISTRATION_DATE_TO, Date.valueOf("2019-12-31"))
+                                                       .build();
+        Assert.assertEquals(Arrays.asList("AA0002AA", "AA0003AA", "AA0004AA"), findPlates(params));
+        Assert.assertEquals(3, repository.countAll(params));
+
+        params = new ParamsHolderBuilder().records(100)
+                                          .param(Registration.MAKE_YEAR_FROM, 2015L)
+                                          .param(Registration.MAKE_YEAR_TO, 2018L)
+                                          .param(Registration.ENGINE_CAPACITY_MIN, 2000L)
+                                          .build();
+        Assert.assertEquals(Arrays.asList("AA0002AA", "AA0004AA"), findPlates(params));
+    }
+
+    @Test
+    public void listFiltersMatchAnyValue() {
+        ParamsHolder params = new ParamsHolderBuilder().records(100)
+                                                       .stringParams(Registration.BRANDS, Arrays.asList("AUDI", "SKODA"))
+                                                       .stringParams(Registration.COLORS, Arrays.asList("BLACK", "WHITE"))
+                                                       .build();
+        Assert.assertEquals(Arrays.asList("AA0003AA", "AA0005AA"), findPlates(params));
+        Assert.assertEquals(2, repository.countAll(params));
+
+        params = new ParamsHolderBuilder().records(100)
+                                          .longParams(Registration.MAKE_YEARS, Arrays.asList(2010L, 2019L))
+                                          .stringParams(Registration.REGISTRATION_NUMBERS, Arrays.asList("AA0001AA", "AA0002AA", "AA0005AA"))
+                                          .build();
+        Assert.assertEquals(Arrays.asList("AA0001AA", "AA0005AA"), findPlates(params));
+    }
+
+    @Test
+    public void rangeAndListFiltersAreCombined() {
+        ParamsHolder params = new ParamsHolderBuilder().records(100)
+                                                       .stringParams(Registration.BRANDS, Arrays.asList("BMW", "AUDI"))
+                                                       .param(Registration.REGISTRATION_DATE_FROM, Date.valueOf("2019-06-15"))
+                                                       .param(Registration.BRAND, "AUDI")
+                                                       .build();
+        Assert.assertEquals(Arrays.asList("AA0003AA", "AA0004AA"), findPlates(params));
+    }
+
+    private List<String> findPlates(ParamsHolder params) {
+        return repository.find(params).getContent().stream().map(Registration::getRegistrationNumber).sorted().collect(Collectors.toList());
+    }
+}
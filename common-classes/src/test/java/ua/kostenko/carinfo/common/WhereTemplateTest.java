@@ -0,0 +1,57 @@
+package ua.kostenko.carinfo.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import ua.kostenko.carinfo.common.api.ParamsHolder;
+import ua.kostenko.carinfo.common.api.records.Brand;
+import ua.kostenko.carinfo.common.database.PageableSearch;
+import ua.kostenko.carinfo.common.database.WhereTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class WhereTemplateTest {
+    private static final WhereTemplate TEMPLATE = WhereTemplate.builder()
+                                                               .equal("brand_name", "brand")
+                                                               .greaterOrEqual("make_year", "yearFrom")
+                                                               .lessOrEqual("make_year", "yearTo")
+                                                               .in("color_name", "colors")
+                                                               .likePrefix("registration_number", "number")
+                                                               .build();
+    private static final PageableSearch<Brand> SEARCH = (ParamsHolder params) -> Page.empty();
+
+    @Test
+    public void sameFiltersProduceSameSql() {
+        PageableSearch.WhereBuilder.BuildResult first = SEARCH.buildWhere(TEMPLATE).bind("yearTo", 2019L).bind("brand", "BMW").build();
+        PageableSearch.WhereBuilder.BuildResult second = SEARCH.buildWhere(TEMPLATE).bind("brand", "BMW").bind("yearTo", 2019L).build();
+        Assert.assertEquals(" where brand_name = :brand and make_year <= :yearTo ", first.getWhereSql());
+        Assert.assertSame(first.getWhereSql(), second.getWhereSql());
+    }
+
+    @Test
+    public void emptyValuesAreSkipped() {
+        PageableSearch.WhereBuilder.BuildResult result = SEARCH.buildWhere(TEMPLATE)
+                                                               .bind("brand", " ")
+                                                               .bind("colors", Collections.emptyList())
+                                                               .bind("yearFrom", null)
+                                                               .build();
+        Assert.assertEquals("", result.getWhereSql());
+    }
+
+    @Test
+    public void rangeInAndPrefixPredicates() {
+        PageableSearch.WhereBuilder.BuildResult result = SEARCH.buildWhere(TEMPLATE)
+                                                               .bind("number", "AA_1%")
+                                                               .bind("colors", Arrays.asList("RED", "BLACK"))
+                                                               .bind("yearFrom", 2018L)
+                                                               .build();
+        Assert.assertEquals(" where make_year >= :yearFrom and color_name = any(:colors) and registration_number like :number ", result.getWhereSql());
+        Assert.assertEquals("AA\\_1\\%%", result.getSqlParameters().getValue("number"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownParamIsRejected() {
+        SEARCH.buildWhere(TEMPLATE).bind("unknown", 1L);
+    }
+}
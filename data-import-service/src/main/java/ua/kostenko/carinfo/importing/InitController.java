@@ -7,14 +7,19 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+import ua.kostenko.carinfo.importing.importing.ImportScheduler;
 import ua.kostenko.carinfo.importing.importing.Initializer;
+import ua.kostenko.carinfo.importing.importing.InitializerGraph;
 import ua.kostenko.carinfo.importing.importing.administrative.AdminObjImportInitializer;
 import ua.kostenko.carinfo.importing.importing.centers.ServiceCenterInitializer;
 import ua.kostenko.carinfo.importing.importing.registration.RegistrationImportInitializer;
+import ua.kostenko.carinfo.importing.readindex.ReadIndexPublisher;
+import ua.kostenko.carinfo.importing.snapshot.SnapshotService;
 
 import javax.annotation.Nonnull;
 import java.time.Duration;
-import java.time.LocalTime;
+import java.time.Instant;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -22,12 +27,26 @@ import java.util.List;
 @Slf4j
 public class InitController {
     private final List<Initializer> initializers;
+    private final ImportScheduler importScheduler;
+    private final InitializerGraph initializerGraph;
+    private final ApplicationProperties properties;
+    private final SnapshotService snapshotService;
+    private final ReadIndexPublisher readIndexPublisher;
 
     @Autowired
-    public InitController(@NonNull @Nonnull ServiceCenterInitializer serviceCenterInitializer,
+    public InitController(@NonNull @Nonnull ImportScheduler importScheduler,
+                          @NonNull @Nonnull InitializerGraph initializerGraph,
+                          @NonNull @Nonnull ApplicationProperties properties,
+                          @NonNull @Nonnull SnapshotService snapshotService,
+                          @NonNull @Nonnull ReadIndexPublisher readIndexPublisher,
+                          @NonNull @Nonnull ServiceCenterInitializer serviceCenterInitializer,
                           @NonNull @Nonnull AdminObjImportInitializer adminObjImportInitializer,
                           @NonNull @Nonnull RegistrationImportInitializer registrationImportInitializer) {
-
+        this.importScheduler = importScheduler;
+        this.initializerGraph = initializerGraph;
+        this.properties = properties;
+        this.snapshotService = snapshotService;
+        this.readIndexPublisher = readIndexPublisher;
         initializers = new LinkedList<>();
         initializers.add(adminObjImportInitializer);
         initializers.add(serviceCenterInitializer);
@@ -37,15 +56,28 @@ public class InitController {
     @Scheduled(cron = "0 0 0,12 1,14 * *")//twice per month on 1st and 14th of month on 12 o'clock
     @EventListener(ApplicationReadyEvent.class)
     public void initDatabase() {
-        initializers.forEach(InitController::initialize);
+        importScheduler.runExclusively("initDatabase", () -> {
+            if (snapshotService.restoreIfEmpty()) {
+                log.info("initDatabase: Database is restored from snapshot, import is skipped");
+                readIndexPublisher.publishIfEnabled();
+                return;
+            }
+            int failed = initializerGraph.run(initializers, InitController::initialize, Duration.ofHours(properties.APP_IMPORT_TIMEOUT_HOURS));
+            log.info("initDatabase: Initializers finished, failed or skipped: {}", failed);
+            if (failed == 0) {
+                snapshotService.exportIfEnabled();
+            }
+            // files are named by content generation, so runs that changed data get a new one even if some initializers failed
+            readIndexPublisher.publishIfEnabled();
+        });
     }
 
     private static void initialize(Initializer initializer) {
         String className = initializer.getClass().getSimpleName();
-        LocalTime before = LocalTime.now();
+        Instant before = Instant.now();
         log.info("Initializing of {}. Start time: {}", className, before.toString());
         initializer.init();
-        LocalTime after = LocalTime.now();
+        Instant after = Instant.now();
         log.info("Initialization of {} finished. Finish Time: {}, duration: in minutes {}, in seconds {}, in millis {}", className,
                  after.toString(),
                  Duration.between(before, after).toMinutes(),
@@ -23,4 +23,58 @@ public class ApplicationProperties {
     public String APP_REGION_CODES_FILE_PATH;
     @Value("${app.region.codes.absent}")
     public String APP_REGION_CODES_ABSENT;
+    @Value("${app.download.segments:4}")
+    public int APP_DOWNLOAD_SEGMENTS;
+    @Value("${app.download.min.segment.size:8388608}")
+    public long APP_DOWNLOAD_MIN_SEGMENT_SIZE;
+    @Value("${app.download.max.retries:3}")
+    public int APP_DOWNLOAD_MAX_RETRIES;
+    @Value("${app.download.retry.backoff.millis:1000}")
+    public long APP_DOWNLOAD_RETRY_BACKOFF_MILLIS;
+    @Value("${app.download.connect.timeout.millis:30000}")
+    public int APP_DOWNLOAD_CONNECT_TIMEOUT_MILLIS;
+    @Value("${app.download.read.timeout.millis:60000}")
+    public int APP_DOWNLOAD_READ_TIMEOUT_MILLIS;
+    @Value("${app.csv.engine:commons}")
+    public String APP_CSV_ENGINE;
+    @Value("${app.import.write.mode:staging}")
+    public String APP_IMPORT_WRITE_MODE;
+    @Value("${app.record.partition.first.year:2013}")
+    public int APP_RECORD_PARTITION_FIRST_YEAR;
+    @Value("${app.import.workers:0}")
+    public int APP_IMPORT_WORKERS;
+    @Value("${app.import.limit.initial:4}")
+    public int APP_IMPORT_LIMIT_INITIAL;
+    @Value("${app.import.limit.min:1}")
+    public int APP_IMPORT_LIMIT_MIN;
+    @Value("${app.import.limit.max:0}")
+    public int APP_IMPORT_LIMIT_MAX;
+    @Value("${app.import.limit.latency.tolerance:2.0}")
+    public double APP_IMPORT_LIMIT_LATENCY_TOLERANCE;
+    @Value("${app.import.prefetch.resources:2}")
+    public int APP_IMPORT_PREFETCH_RESOURCES;
+    @Value("${app.import.timeout.hours:12}")
+    public long APP_IMPORT_TIMEOUT_HOURS;
+    @Value("${app.import.lease.seconds:300}")
+    public long APP_IMPORT_LEASE_SECONDS;
+    @Value("${app.import.max.attempts:3}")
+    public int APP_IMPORT_MAX_ATTEMPTS;
+    @Value("${app.import.poll.seconds:15}")
+    public long APP_IMPORT_POLL_SECONDS;
+    @Value("${app.import.item.timeout.minutes:180}")
+    public long APP_IMPORT_ITEM_TIMEOUT_MINUTES;
+    @Value("${app.changes.retention.days:30}")
+    public int APP_CHANGES_RETENTION_DAYS;
+    @Value("${app.snapshot.export.dir:}")
+    public String APP_SNAPSHOT_EXPORT_DIR;
+    @Value("${app.snapshot.keep:2}")
+    public int APP_SNAPSHOT_KEEP;
+    @Value("${app.snapshot.restore.file:}")
+    public String APP_SNAPSHOT_RESTORE_FILE;
+    @Value("${app.snapshot.restore.threads:0}")
+    public int APP_SNAPSHOT_RESTORE_THREADS;
+    @Value("${app.read-index.dir:}")
+    public String APP_READ_INDEX_DIR;
+    @Value("${app.read-index.keep:2}")
+    public int APP_READ_INDEX_KEEP;
 }
@@ -1,17 +1,17 @@
 package ua.kostenko.carinfo.importing.csv.mappers;
 
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.StringUtils;
+import ua.kostenko.carinfo.importing.csv.reader.CsvRow;
 
 import javax.annotation.Nullable;
 import java.nio.charset.Charset;
 
 public interface CsvMapper<T> {
-    T map(CSVRecord csvRecord);
+    T map(CsvRow csvRow);
 
     @Nullable
-    default Long getLong(CSVRecord csvRecord, String key) {
-        return getLong(csvRecord.get(key));
+    default Long getLong(CsvRow csvRow, String key) {
+        return csvRow.getLong(key);
     }
 
     @Nullable
@@ -26,14 +26,19 @@ public interface CsvMapper<T> {
     }
 
     @Nullable
-    default String getStringValueInUpperCase(CSVRecord csvRecord, String header) {
-        String value = getString(csvRecord, header);
+    default String getStringValueInUpperCase(CsvRow csvRow, String header) {
+        return toUpperCase(csvRow.get(header));
+    }
+
+    @Nullable
+    default String toUpperCase(@Nullable String rawValue) {
+        String value = getString(rawValue);
         return StringUtils.isNotBlank(value) ? value.toUpperCase() : null;
     }
 
     @Nullable
-    default String getString(CSVRecord csvRecord, String key) {
-        return getString(csvRecord.get(key));
+    default String getString(CsvRow csvRow, String key) {
+        return getString(csvRow.get(key));
     }
 
     @Nullable
@@ -45,8 +50,12 @@ public interface CsvMapper<T> {
         return null;
     }
 
-    default String getStringValueInUpperCaseOrDash(CSVRecord csvRecord, String header) {
-        String value = getString(csvRecord, header);
+    default String getStringValueInUpperCaseOrDash(CsvRow csvRow, String header) {
+        return toUpperCaseOrDash(csvRow.get(header));
+    }
+
+    default String toUpperCaseOrDash(@Nullable String rawValue) {
+        String value = getString(rawValue);
         return StringUtils.isNotBlank(value) ? value.toUpperCase() : "—";
     }
 }
@@ -1,9 +1,9 @@
 package ua.kostenko.carinfo.importing.csv.mappers.administrative;
 
 import lombok.NonNull;
-import org.apache.commons.csv.CSVRecord;
 import ua.kostenko.carinfo.importing.csv.mappers.CsvMapper;
 import ua.kostenko.carinfo.importing.csv.pojo.AdministrativeObjectCsvRecord;
+import ua.kostenko.carinfo.importing.csv.reader.CsvRow;
 import ua.kostenko.carinfo.importing.csv.structure.headers.administrative.AdministrativeHeaders;
 
 import javax.annotation.Nonnull;
@@ -16,11 +16,11 @@ public class AdministrativeObjectCsvMapper implements CsvMapper<AdministrativeOb
     }
 
     @Override
-    public AdministrativeObjectCsvRecord map(CSVRecord csvRecord) {
+    public AdministrativeObjectCsvRecord map(CsvRow csvRow) {
         return AdministrativeObjectCsvRecord.builder()
-                                            .id(getLong(csvRecord, headers.getId()))
-                                            .type(getStringValueInUpperCase(csvRecord, headers.getType()))
-                                            .name(getStringValueInUpperCase(csvRecord, headers.getName()))
+                                            .id(getLong(csvRow, headers.getId()))
+                                            .type(getStringValueInUpperCase(csvRow, headers.getType()))
+                                            .name(getStringValueInUpperCase(csvRow, headers.getName()))
                                             .build();
     }
 }
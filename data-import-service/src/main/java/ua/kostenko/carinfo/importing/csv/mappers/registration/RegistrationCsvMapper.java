@@ -1,45 +1,54 @@
 package ua.kostenko.carinfo.importing.csv.mappers.registration;
 
 import lombok.NonNull;
-import org.apache.commons.csv.CSVRecord;
 import ua.kostenko.carinfo.importing.csv.mappers.CsvMapper;
 import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
+import ua.kostenko.carinfo.importing.csv.reader.CsvRow;
+import ua.kostenko.carinfo.importing.csv.reader.bytes.ByteSliceDictionary;
 import ua.kostenko.carinfo.importing.csv.structure.headers.registration.RegistrationHeaders;
 
 import javax.annotation.Nonnull;
 
 public class RegistrationCsvMapper implements CsvMapper<RegistrationCsvRecord> {
     private final RegistrationHeaders headers;
+    private final ByteSliceDictionary personTypes = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary operationNames = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary registrationDates = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary departmentNames = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary brands = new ByteSliceDictionary(this::toUpperCaseOrDash);
+    private final ByteSliceDictionary models = new ByteSliceDictionary(this::toUpperCaseOrDash);
+    private final ByteSliceDictionary colors = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary kinds = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary bodyTypes = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary purposes = new ByteSliceDictionary(this::toUpperCase);
+    private final ByteSliceDictionary fuelTypes = new ByteSliceDictionary(this::toUpperCaseOrDash);
 
     public RegistrationCsvMapper(@NonNull @Nonnull RegistrationHeaders headers) {
         this.headers = headers;
     }
 
     @Override
-    public RegistrationCsvRecord map(CSVRecord csvRecord) {
-        String model = getStringValueInUpperCaseOrDash(csvRecord, headers.getVehicleModel());
-        String fuel = getStringValueInUpperCaseOrDash(csvRecord, headers.getVehicleFuelType());
-        String brand = getStringValueInUpperCaseOrDash(csvRecord, headers.getVehicleBrand());
+    public RegistrationCsvRecord map(CsvRow csvRow) {
         return RegistrationCsvRecord.builder()
-                                    .personType(getStringValueInUpperCase(csvRecord, headers.getPersonType()))
-                                    .administrativeObject(getLong(csvRecord, headers.getAdministrativeObject()))
-                                    .operationCode(getLong(csvRecord, headers.getOperationCode()))
-                                    .operationName(getStringValueInUpperCase(csvRecord, headers.getOperationName()))
-                                    .registrationDate(getStringValueInUpperCase(csvRecord, headers.getRegistrationDate()))
-                                    .departmentCode(getLong(csvRecord, headers.getDepartmentCode()))
-                                    .departmentName(getStringValueInUpperCase(csvRecord, headers.getDepartmentName()))
-                                    .vehicleBrand(brand)
-                                    .vehicleModel(model)
-                                    .vehicleMakeYear(getLong(csvRecord, headers.getVehicleMakeYear()))
-                                    .vehicleColor(getStringValueInUpperCase(csvRecord, headers.getVehicleColor()))
-                                    .vehicleKind(getStringValueInUpperCase(csvRecord, headers.getVehicleKind()))
-                                    .vehicleBodyType(getStringValueInUpperCase(csvRecord, headers.getVehicleBodyType()))
-                                    .vehiclePurpose(getStringValueInUpperCase(csvRecord, headers.getVehiclePurpose()))
-                                    .vehicleFuelType(fuel)
-                                    .vehicleEngineCapacity(getLong(csvRecord, headers.getVehicleEngineCapacity()))
-                                    .vehicleOwnWeight(getLong(csvRecord, headers.getVehicleOwnWeight()))
-                                    .vehicleTotalWeight(getLong(csvRecord, headers.getVehicleTotalWeight()))
-                                    .vehicleRegistrationNumber(getStringValueInUpperCase(csvRecord, headers.getVehicleRegistrationNumber()))
+                                    .personType(csvRow.get(headers.getPersonType(), personTypes))
+                                    .administrativeObject(getLong(csvRow, headers.getAdministrativeObject()))
+                                    .operationCode(getLong(csvRow, headers.getOperationCode()))
+                                    .operationName(csvRow.get(headers.getOperationName(), operationNames))
+                                    .registrationDate(csvRow.get(headers.getRegistrationDate(), registrationDates))
+                                    .departmentCode(getLong(csvRow, headers.getDepartmentCode()))
+                                    .departmentName(csvRow.get(headers.getDepartmentName(), departmentNames))
+                                    .vehicleBrand(csvRow.get(headers.getVehicleBrand(), brands))
+                                    .vehicleModel(csvRow.get(headers.getVehicleModel(), models))
+                                    .vehicleMakeYear(getLong(csvRow, headers.getVehicleMakeYear()))
+                                    .vehicleColor(csvRow.get(headers.getVehicleColor(), colors))
+                                    .vehicleKind(csvRow.get(headers.getVehicleKind(), kinds))
+                                    .vehicleBodyType(csvRow.get(headers.getVehicleBodyType(), bodyTypes))
+                                    .vehiclePurpose(csvRow.get(headers.getVehiclePurpose(), purposes))
+                                    .vehicleFuelType(csvRow.get(headers.getVehicleFuelType(), fuelTypes))
+                                    .vehicleEngineCapacity(getLong(csvRow, headers.getVehicleEngineCapacity()))
+                                    .vehicleOwnWeight(getLong(csvRow, headers.getVehicleOwnWeight()))
+                                    .vehicleTotalWeight(getLong(csvRow, headers.getVehicleTotalWeight()))
+                                    .vehicleRegistrationNumber(getStringValueInUpperCase(csvRow, headers.getVehicleRegistrationNumber()))
                                     .build();
     }
 }
@@ -0,0 +1,21 @@
+package ua.kostenko.carinfo.importing.csv.reader;
+
+import lombok.NonNull;
+import org.apache.commons.csv.CSVRecord;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+class CommonsCsvRow implements CsvRow {
+    private final CSVRecord csvRecord;
+
+    CommonsCsvRow(@NonNull @Nonnull CSVRecord csvRecord) {
+        this.csvRecord = csvRecord;
+    }
+
+    @Nullable
+    @Override
+    public String get(@NonNull @Nonnull String header) {
+        return csvRecord.isSet(header) ? csvRecord.get(header) : null;
+    }
+}
@@ -0,0 +1,23 @@
+package ua.kostenko.carinfo.importing.csv.reader;
+
+import java.util.stream.Stream;
+
+public enum CsvEngine {
+    COMMONS("commons"),
+    DIRECT("direct"),
+    MAPPED("mapped");
+
+    private final String name;
+
+    CsvEngine(String name) {
+        this.name = name;
+    }
+
+    public static CsvEngine of(String name) {
+        return Stream.of(values()).filter(engine -> engine.name.equalsIgnoreCase(name)).findFirst().orElse(COMMONS);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -5,30 +5,48 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
 import ua.kostenko.carinfo.importing.csv.mappers.CsvMapper;
+import ua.kostenko.carinfo.importing.csv.reader.bytes.ByteCsvTokenizer;
 import ua.kostenko.carinfo.importing.csv.reader.options.ReaderOptions;
 import ua.kostenko.carinfo.importing.importing.Persist;
 
 import javax.annotation.Nonnull;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.Objects;
 
 @Slf4j
 public class CsvReader<T> {
+    private final CsvEngine engine;
+
+    public CsvReader() {
+        this(CsvEngine.COMMONS);
+    }
+
+    public CsvReader(@NonNull @Nonnull CsvEngine engine) {
+        this.engine = engine;
+    }
 
     public void readCsvFile(@NonNull @Nonnull ReaderOptions options, @NonNull @Nonnull CsvMapper<T> csvMapper, @NonNull @Nonnull Persist<T> persist) {
-        log.info("readCsvFile: Going to parse csv file with options: {}", options.toString());
+        log.info("readCsvFile: Going to parse csv file with options: {}, engine: {}", options.toString(), engine.getName());
         File csvFile = options.getFile();
         if (Objects.nonNull(csvFile) && csvFile.exists()) {
             LocalTime before = LocalTime.now();
             log.info("readCsvFile: Starting mapping of csv records to objects, time: {}", before.toString());
             log.info("readCsvFile: Csv file path: {}", csvFile.getAbsolutePath());
-            try (Reader input = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), options.getEncoding()))) {
-                read(options.getDelimiter(), csvMapper, persist, input);
+            try {
+                Charset charset = Charset.forName(options.getEncoding());
+                if (engine != CsvEngine.COMMONS && ByteCsvTokenizer.isSupported(charset, options.getDelimiter())) {
+                    readBytes(options, charset, csvMapper, persist);
+                } else {
+                    try (Reader input = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), charset))) {
+                        read(options.getDelimiter(), csvMapper, persist, input);
+                    }
+                }
                 log.info("readCsvFile: Finished mapping csv records");
-            } catch (IOException ex) {
-                log.warn("readCsvFile: IOException happened", ex);
+            } catch (IOException | IllegalArgumentException ex) {
+                log.warn("readCsvFile: Problem with reading csv file", ex);
             }
             Duration duration = Duration.between(before, LocalTime.now());
             log.info("readCsvFile: Finished mapping all csv files from all files in zip. Time spent: {} ms, {} min", duration.toMillis(), duration.toMinutes());
@@ -40,9 +58,20 @@ public class CsvReader<T> {
     private void read(char delimiter, @NonNull @Nonnull CsvMapper<T> csvMapper, @NonNull @Nonnull Persist<T> persist, @NonNull @Nonnull Reader input) throws IOException {
         Iterable<CSVRecord> records = CSVFormat.DEFAULT.withDelimiter(delimiter).withFirstRecordAsHeader().parse(input);
         for (CSVRecord record : records) {
-            T obj = csvMapper.map(record);
+            T obj = csvMapper.map(new CommonsCsvRow(record));
             persist.persist(obj);
         }
     }
 
+    private void readBytes(@NonNull @Nonnull ReaderOptions options, @NonNull @Nonnull Charset charset, @NonNull @Nonnull CsvMapper<T> csvMapper,
+                           @NonNull @Nonnull Persist<T> persist) throws IOException {
+        boolean mapped = engine == CsvEngine.MAPPED;
+        int windowSize = mapped ? ByteCsvTokenizer.DEFAULT_MAPPED_WINDOW_SIZE : ByteCsvTokenizer.DEFAULT_DIRECT_WINDOW_SIZE;
+        try (ByteCsvTokenizer tokenizer = new ByteCsvTokenizer(options.getFile(), charset, options.getDelimiter(), mapped, windowSize)) {
+            while (tokenizer.next()) {
+                T obj = csvMapper.map(tokenizer.getRow());
+                persist.persist(obj);
+            }
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package ua.kostenko.carinfo.importing.csv.reader;
+
+import org.apache.commons.lang3.StringUtils;
+import ua.kostenko.carinfo.importing.csv.reader.bytes.ByteSliceDictionary;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+public interface CsvRow {
+
+    @Nullable
+    String get(@Nonnull String header);
+
+    @Nullable
+    default String get(@Nonnull String header, @Nonnull ByteSliceDictionary dictionary) {
+        return dictionary.normalize(get(header));
+    }
+
+    @Nullable
+    default Long getLong(@Nonnull String header) {
+        try {
+            return Long.valueOf(StringUtils.trim(get(header)));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
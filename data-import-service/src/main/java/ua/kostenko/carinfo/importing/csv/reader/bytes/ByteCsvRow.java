@@ -0,0 +1,149 @@
+package ua.kostenko.carinfo.importing.csv.reader.bytes;
+
+import lombok.NonNull;
+import ua.kostenko.carinfo.importing.csv.reader.CsvRow;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Current row of {@link ByteCsvTokenizer}. Slices are valid only until the next call of {@link ByteCsvTokenizer#next()}.
+ */
+public class ByteCsvRow implements CsvRow {
+    private static final byte QUOTE = '"';
+    private static final int MAX_LONG_DIGITS = 18;
+    private final ByteCsvTokenizer tokenizer;
+    private final Charset charset;
+    private Map<String, Integer> headerIndexes = Collections.emptyMap();
+    private byte[] scratch = new byte[256];
+
+    ByteCsvRow(@NonNull @Nonnull ByteCsvTokenizer tokenizer, @NonNull @Nonnull Charset charset) {
+        this.tokenizer = tokenizer;
+        this.charset = charset;
+    }
+
+    void setHeaderIndexes(@NonNull @Nonnull Map<String, Integer> headerIndexes) {
+        this.headerIndexes = Collections.unmodifiableMap(headerIndexes);
+    }
+
+    public Map<String, Integer> getHeaderIndexes() {
+        return headerIndexes;
+    }
+
+    public int indexOf(@NonNull @Nonnull String header) {
+        Integer index = headerIndexes.get(header);
+        return Objects.isNull(index) ? -1 : index;
+    }
+
+    public int getFieldCount() {
+        return tokenizer.getFieldCount();
+    }
+
+    public boolean isSet(int index) {
+        return index >= 0 && index < tokenizer.getFieldCount();
+    }
+
+    public ByteBuffer getBuffer() {
+        return tokenizer.getWindow();
+    }
+
+    public int getStart(int index) {
+        return tokenizer.getStart(index);
+    }
+
+    public int getLength(int index) {
+        return tokenizer.getEnd(index) - tokenizer.getStart(index);
+    }
+
+    public boolean hasEscapedQuotes(int index) {
+        return tokenizer.isEscaped(index);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Nullable
+    @Override
+    public String get(@NonNull @Nonnull String header) {
+        return getString(indexOf(header));
+    }
+
+    @Nullable
+    @Override
+    public String get(@NonNull @Nonnull String header, @NonNull @Nonnull ByteSliceDictionary dictionary) {
+        int index = indexOf(header);
+        if (isSet(index) && !hasEscapedQuotes(index)) {
+            int id = dictionary.resolve(tokenizer.getWindow(), tokenizer.getStart(index), tokenizer.getEnd(index), charset);
+            if (id != ByteSliceDictionary.NOT_RESOLVED) {
+                return dictionary.getValue(id);
+            }
+        }
+        return dictionary.normalize(getString(index));
+    }
+
+    @Nullable
+    @Override
+    public Long getLong(@NonNull @Nonnull String header) {
+        int index = indexOf(header);
+        if (!isSet(index)) {
+            return null;
+        }
+        ByteBuffer buffer = tokenizer.getWindow();
+        int start = tokenizer.getStart(index);
+        int end = tokenizer.getEnd(index);
+        while (start < end && buffer.get(start) >= 0 && buffer.get(start) <= ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) >= 0 && buffer.get(end - 1) <= ' ') {
+            end--;
+        }
+        boolean negative = start < end && buffer.get(start) == '-';
+        int digitsStart = negative || (start < end && buffer.get(start) == '+') ? start + 1 : start;
+        if (digitsStart == end || end - digitsStart > MAX_LONG_DIGITS) {
+            return CsvRow.super.getLong(header);
+        }
+        long result = 0;
+        for (int i = digitsStart; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    @Nullable
+    public String getString(int index) {
+        if (!isSet(index)) {
+            return null;
+        }
+        int length = copy(index);
+        return new String(scratch, 0, length, charset);
+    }
+
+    private int copy(int index) {
+        ByteBuffer buffer = tokenizer.getWindow();
+        int start = tokenizer.getStart(index);
+        int end = tokenizer.getEnd(index);
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        boolean unescape = tokenizer.isEscaped(index);
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte value = buffer.get(i);
+            scratch[length++] = value;
+            if (unescape && value == QUOTE && i + 1 < end && buffer.get(i + 1) == QUOTE) {
+                i++;
+            }
+        }
+        return length;
+    }
+}
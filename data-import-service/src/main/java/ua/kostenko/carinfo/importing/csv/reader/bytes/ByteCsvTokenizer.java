@@ -0,0 +1,266 @@
+package ua.kostenko.carinfo.importing.csv.reader.bytes;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits a delimited file into field slices directly on bytes of a window (direct buffer or mapped region) of the file.
+ * Works for any charset where quote, delimiter and line breaks are single ASCII bytes (UTF-8, windows-1251, ...).
+ * Strings are created only when {@link ByteCsvRow} is asked for a field value.
+ */
+@Slf4j
+public class ByteCsvTokenizer implements Closeable {
+    public static final int DEFAULT_DIRECT_WINDOW_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAPPED_WINDOW_SIZE = 128 * 1024 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] UTF_8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private final FileChannel channel;
+    private final long fileSize;
+    private final byte delimiter;
+    private final boolean mapped;
+    private final ByteCsvRow row;
+    private int windowSize;
+    private ByteBuffer window;
+    private long windowOffset;
+    private int limit;
+    private int position;
+    private boolean lastWindow;
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private boolean[] escaped = new boolean[32];
+    private int fieldCount;
+
+    public ByteCsvTokenizer(@NonNull @Nonnull File file, @NonNull @Nonnull Charset charset, char delimiter, boolean mapped, int windowSize) throws IOException {
+        if (!isSupported(charset, delimiter)) {
+            throw new IllegalArgumentException(String.format("Charset %s with delimiter %s is not supported", charset, delimiter));
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.delimiter = (byte) delimiter;
+        this.mapped = mapped;
+        this.windowSize = Math.max(windowSize, 16);
+        this.row = new ByteCsvRow(this, charset);
+        loadWindow(0);
+        if (startsWith(UTF_8_BOM) && StandardCharsets.UTF_8.equals(charset)) {
+            position = UTF_8_BOM.length;
+        }
+        readHeader();
+    }
+
+    public static boolean isSupported(@NonNull @Nonnull Charset charset, char delimiter) {
+        if (delimiter > 0x7F || delimiter == QUOTE || delimiter == CR || delimiter == LF || !charset.canEncode()) {
+            return false;
+        }
+        String probe = "\"\r\n" + delimiter;
+        byte[] expected = probe.getBytes(StandardCharsets.US_ASCII);
+        return Arrays.equals(expected, probe.getBytes(charset));
+    }
+
+    public boolean next() throws IOException {
+        while (true) {
+            if (!nextRow()) {
+                return false;
+            }
+            if (fieldCount > 1 || ends[0] > starts[0] || escaped[0]) {
+                return true;
+            }
+        }
+    }
+
+    public ByteCsvRow getRow() {
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    int getStart(int index) {
+        return starts[index];
+    }
+
+    int getEnd(int index) {
+        return ends[index];
+    }
+
+    boolean isEscaped(int index) {
+        return escaped[index];
+    }
+
+    ByteBuffer getWindow() {
+        return window;
+    }
+
+    private void readHeader() throws IOException {
+        Map<String, Integer> headerIndexes = new HashMap<>();
+        if (nextRow()) {
+            for (int i = 0; i < fieldCount; i++) {
+                String header = row.getString(i);
+                if (header != null) {
+                    headerIndexes.putIfAbsent(header.trim(), i);
+                }
+            }
+        }
+        row.setHeaderIndexes(headerIndexes);
+    }
+
+    private boolean nextRow() throws IOException {
+        while (true) {
+            if (position >= limit && lastWindow) {
+                return false;
+            }
+            int rowStart = position;
+            if (parseRow()) {
+                return true;
+            }
+            if (rowStart == 0) {
+                windowSize = (int) Math.min(Integer.MAX_VALUE - 8, (long) windowSize * 2);
+                log.debug("nextRow: Row doesn't fit into window, window size is increased to {}", windowSize);
+            }
+            loadWindow(windowOffset + rowStart);
+        }
+    }
+
+    private boolean parseRow() {
+        int p = position;
+        fieldCount = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean hasEscapedQuotes = false;
+            if (p < limit && window.get(p) == QUOTE) {
+                p++;
+                start = p;
+                while (true) {
+                    if (p >= limit) {
+                        if (!lastWindow) {
+                            return false;
+                        }
+                        end = limit;
+                        break;
+                    }
+                    if (window.get(p) == QUOTE) {
+                        if (p + 1 >= limit && !lastWindow) {
+                            return false;
+                        }
+                        if (p + 1 < limit && window.get(p + 1) == QUOTE) {
+                            hasEscapedQuotes = true;
+                            p += 2;
+                            continue;
+                        }
+                        end = p;
+                        p++;
+                        break;
+                    }
+                    p++;
+                }
+                while (p < limit && !isFieldEnd(window.get(p))) {
+                    p++;
+                }
+            } else {
+                start = p;
+                while (p < limit && !isFieldEnd(window.get(p))) {
+                    p++;
+                }
+                end = p;
+            }
+            if (p >= limit && !lastWindow) {
+                return false;
+            }
+            addField(start, end, hasEscapedQuotes);
+            if (p >= limit) {
+                position = p;
+                return true;
+            }
+            byte current = window.get(p);
+            if (current == delimiter) {
+                p++;
+                continue;
+            }
+            if (current == CR) {
+                if (p + 1 >= limit && !lastWindow) {
+                    return false;
+                }
+                p++;
+                if (p < limit && window.get(p) == LF) {
+                    p++;
+                }
+            } else {
+                p++;
+            }
+            position = p;
+            return true;
+        }
+    }
+
+    private boolean isFieldEnd(byte value) {
+        return value == delimiter || value == LF || value == CR;
+    }
+
+    private void addField(int start, int end, boolean hasEscapedQuotes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapedQuotes;
+        fieldCount++;
+    }
+
+    private boolean startsWith(byte[] prefix) {
+        if (limit < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (window.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void loadWindow(long offset) throws IOException {
+        long length = Math.min(windowSize, fileSize - offset);
+        if (mapped) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } else {
+            if (window == null || window.capacity() < windowSize) {
+                window = ByteBuffer.allocateDirect(windowSize);
+            }
+            window.clear();
+            window.limit((int) length);
+            while (window.hasRemaining()) {
+                if (channel.read(window, offset + window.position()) < 0) {
+                    break;
+                }
+            }
+            window.flip();
+        }
+        windowOffset = offset;
+        limit = window.limit();
+        position = 0;
+        lastWindow = offset + limit >= fileSize;
+    }
+}
@@ -0,0 +1,153 @@
+package ua.kostenko.carinfo.importing.csv.reader.bytes;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Resolves trimmed (ASCII case-folded) byte slices of a csv column to dictionary ids without decoding them.
+ * A String is created and normalized only the first time a value is seen; later rows get the same instance back.
+ * Not thread-safe: one dictionary per mapper/file.
+ */
+public final class ByteSliceDictionary {
+    public static final int NOT_RESOLVED = -1;
+    private static final int DEFAULT_MAX_ENTRIES = 64 * 1024;
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    private final Function<String, String> normalizer;
+    private final int maxEntries;
+    private int[] slots = new int[64];
+    private int[] hashes = new int[32];
+    private int[] offsets = new int[32];
+    private int[] lengths = new int[32];
+    private String[] values = new String[32];
+    private byte[] arena = new byte[1024];
+    private int arenaSize;
+    private int size;
+    private byte[] scratch = new byte[256];
+
+    public ByteSliceDictionary(@NonNull @Nonnull Function<String, String> normalizer) {
+        this(normalizer, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ByteSliceDictionary(@NonNull @Nonnull Function<String, String> normalizer, int maxEntries) {
+        this.normalizer = normalizer;
+        this.maxEntries = maxEntries;
+    }
+
+    public int resolve(@NonNull @Nonnull ByteBuffer buffer, int start, int end, @NonNull @Nonnull Charset charset) {
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        int hash = hash(buffer, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(id, buffer, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == maxEntries) {
+            return NOT_RESOLVED;
+        }
+        return add(slot, hash, buffer, start, end, charset);
+    }
+
+    @Nullable
+    public String getValue(int id) {
+        return values[id];
+    }
+
+    @Nullable
+    public String normalize(@Nullable String value) {
+        return normalizer.apply(value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(int slot, int hash, ByteBuffer buffer, int start, int end, Charset charset) {
+        int length = end - start;
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            byte value = buffer.get(start + i);
+            scratch[i] = value;
+            arena[arenaSize + i] = fold(value);
+        }
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int id = size++;
+        hashes[id] = hash;
+        offsets[id] = arenaSize;
+        lengths[id] = length;
+        values[id] = normalizer.apply(new String(scratch, 0, length, charset));
+        arenaSize += length;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private boolean matches(int id, ByteBuffer buffer, int start, int end) {
+        if (lengths[id] != end - start) {
+            return false;
+        }
+        int offset = offsets[id];
+        for (int i = start; i < end; i++) {
+            if (arena[offset++] != fold(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        int hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ (fold(buffer.get(i)) & 0xFF)) * FNV_PRIME;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte fold(byte value) {
+        return value >= 'a' && value <= 'z' ? (byte) (value - ('a' - 'A')) : value;
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value >= 0 && value <= ' ';
+    }
+}
@@ -18,15 +18,17 @@ import java.util.Objects;
 @Slf4j
 public abstract class CsvUtils <T extends CsvHeaders> {
     private final File file;
+    private final EncodingUtils encodingUtils;
 
-    protected CsvUtils(@NonNull @Nonnull File file) {
+    protected CsvUtils(@NonNull @Nonnull File file, @NonNull @Nonnull EncodingUtils encodingUtils) {
         this.file = file;
+        this.encodingUtils = encodingUtils;
     }
 
     @Nullable
     public Options<T> getOptions() {
         log.info("getOptions: checking encoding");
-        String encoding = EncodingUtils.getEncoding(file);
+        String encoding = encodingUtils.getEncoding(file);
         if (Objects.isNull(encoding)) {
             log.warn("getOptions: Encoding is null");
             return null;
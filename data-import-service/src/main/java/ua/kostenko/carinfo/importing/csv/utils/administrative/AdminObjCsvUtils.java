@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import ua.kostenko.carinfo.importing.csv.structure.enums.AdminObjCsvRecord;
 import ua.kostenko.carinfo.importing.csv.structure.headers.administrative.AdministrativeHeaders;
 import ua.kostenko.carinfo.importing.csv.utils.CsvUtils;
+import ua.kostenko.carinfo.importing.io.EncodingUtils;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -11,8 +12,8 @@ import java.io.File;
 @Slf4j
 public class AdminObjCsvUtils extends CsvUtils<AdministrativeHeaders> {
 
-    public AdminObjCsvUtils(File file) {
-        super(file);
+    public AdminObjCsvUtils(File file, EncodingUtils encodingUtils) {
+        super(file, encodingUtils);
     }
 
     @Override
@@ -6,6 +6,7 @@ import ua.kostenko.carinfo.importing.csv.structure.enums.RegistrationCsvRecord;
 import ua.kostenko.carinfo.importing.csv.structure.headers.registration.RegistrationHeaders;
 import ua.kostenko.carinfo.importing.csv.structure.headers.registration.UpperCaseRegistrationHeaders;
 import ua.kostenko.carinfo.importing.csv.utils.CsvUtils;
+import ua.kostenko.carinfo.importing.io.EncodingUtils;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -13,8 +14,8 @@ import java.io.File;
 @Slf4j
 public class RegistrationCsvUtils extends CsvUtils<RegistrationHeaders> {
 
-    public RegistrationCsvUtils(File file) {
-        super(file);
+    public RegistrationCsvUtils(File file, EncodingUtils encodingUtils) {
+        super(file, encodingUtils);
     }
 
     protected RegistrationHeaders getCorrectHeaders(@Nonnull String headerString) {
@@ -0,0 +1,171 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * AIMD limit of database writes in flight. The limit grows by one while writes are as fast as the observed baseline
+ * and the limit is used, and is cut by {@link #BACKOFF_RATIO} on errors or when latency exceeds the baseline by the tolerance.
+ * Current limit is exported over JMX. The maximum is app.import.limit.max or {@link #MAX_LIMIT_PER_CORE} writes per core,
+ * independent of the number of import workers.
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "ua.kostenko.carinfo:type=Import,name=ConcurrencyLimiter")
+public class ConcurrencyLimiter {
+    static final double BACKOFF_RATIO = 0.9;
+    static final int MAX_LIMIT_PER_CORE = 4;
+    private static final double BASELINE_SMOOTHING = 0.001;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private double limit;
+    private int inFlight;
+    private double baselineNanos;
+    private long accepted;
+    private long rejected;
+
+    @Autowired
+    public ConcurrencyLimiter(@NonNull @Nonnull ApplicationProperties properties) {
+        this(properties.APP_IMPORT_LIMIT_INITIAL, properties.APP_IMPORT_LIMIT_MIN,
+             properties.APP_IMPORT_LIMIT_MAX > 0 ? properties.APP_IMPORT_LIMIT_MAX : Runtime.getRuntime().availableProcessors() * MAX_LIMIT_PER_CORE,
+             properties.APP_IMPORT_LIMIT_LATENCY_TOLERANCE);
+    }
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.tolerance = tolerance;
+    }
+
+    public <T> T call(@NonNull @Nonnull Supplier<T> write) {
+        acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = write.get();
+            success = true;
+            return result;
+        } finally {
+            release(System.nanoTime() - start, success);
+        }
+    }
+
+    public void run(@NonNull @Nonnull Runnable write) {
+        call(() -> {
+            write.run();
+            return null;
+        });
+    }
+
+    @ManagedAttribute(description = "Current limit of database writes in flight")
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Upper bound of the limit")
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @ManagedAttribute(description = "Database writes in flight")
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Baseline latency of database writes in millis")
+    public long getBaselineMillis() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis((long) baselineNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Writes which kept or increased the limit")
+    public long getAccepted() {
+        lock.lock();
+        try {
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Writes which decreased the limit")
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                released.awaitUninterruptibly();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long latencyNanos, boolean success) {
+        lock.lock();
+        try {
+            int usedLimit = inFlight;
+            inFlight--;
+            double previous = limit;
+            if (!success || (baselineNanos > 0 && latencyNanos > baselineNanos * tolerance)) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                rejected++;
+            } else {
+                if (usedLimit * 2 >= (int) limit) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+                accepted++;
+            }
+            if (success) {
+                baselineNanos = baselineNanos == 0 || latencyNanos < baselineNanos
+                        ? latencyNanos
+                        : baselineNanos + (latencyNanos - baselineNanos) * BASELINE_SMOOTHING;
+            }
+            if ((int) previous != (int) limit) {
+                log.debug("release: Limit changed from {} to {}, latency: {} ms, success: {}", (int) previous, (int) limit,
+                          TimeUnit.NANOSECONDS.toMillis(latencyNanos), success);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
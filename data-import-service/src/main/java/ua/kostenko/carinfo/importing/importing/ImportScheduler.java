@@ -0,0 +1,97 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Runs imports without overlapping and executes their tasks on an executor created for one run only,
+ * so scheduled runs never reuse a terminated pool and the reported wall time covers the whole run.
+ */
+@Slf4j
+@Component
+public class ImportScheduler {
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /**
+     * @return false if another run is in progress, the run is skipped then.
+     */
+    public boolean runExclusively(@NonNull @Nonnull String name, @NonNull @Nonnull Runnable run) {
+        if (!runLock.tryLock()) {
+            log.warn("runExclusively: {} is skipped, previous run is still in progress", name);
+            return false;
+        }
+        try {
+            run.run();
+            return true;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Executes tasks returning the number of processed records on a bounded pool and waits for all of them until
+     * the timeout, unfinished tasks are cancelled.
+     */
+    public ImportStatistics execute(@NonNull @Nonnull String name, int threads, @NonNull @Nonnull List<? extends Callable<Long>> tasks,
+                                    @NonNull @Nonnull Duration timeout) {
+        long started = System.nanoTime();
+        long deadline = started + timeout.toNanos();
+        int poolSize = Math.max(1, Math.min(threads, tasks.size()));
+        ExecutorService executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                                                          new ArrayBlockingQueue<>(Math.max(1, tasks.size())),
+                                                          new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+        int failed = 0;
+        int timedOut = 0;
+        long records = 0;
+        try {
+            List<Future<Long>> futures = tasks.stream().map(executor::submit).collect(Collectors.toList());
+            for (Future<Long> future : futures) {
+                try {
+                    Long processed = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    records += Objects.isNull(processed) ? 0 : processed;
+                } catch (ExecutionException ex) {
+                    log.error("execute: Task of {} failed", name, ex.getCause());
+                    failed++;
+                } catch (TimeoutException ex) {
+                    future.cancel(true);
+                    timedOut++;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    future.cancel(true);
+                    timedOut++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        ImportStatistics statistics = ImportStatistics.builder()
+                                                      .name(name)
+                                                      .tasks(tasks.size())
+                                                      .failedTasks(failed)
+                                                      .timedOutTasks(timedOut)
+                                                      .records(records)
+                                                      .wallTime(Duration.ofNanos(System.nanoTime() - started))
+                                                      .build();
+        log.info("execute: {} finished, tasks: {}, failed: {}, timed out: {}, records: {}, wall time: {} s, records per second: {}",
+                 name, statistics.getTasks(), failed, timedOut, records, statistics.getWallTime().getSeconds(),
+                 String.format("%.1f", statistics.getRecordsPerSecond()));
+        return statistics;
+    }
+}
@@ -0,0 +1,26 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+@Value
+@Builder
+public class ImportStatistics {
+    private final String name;
+    private final int tasks;
+    private final int failedTasks;
+    private final int timedOutTasks;
+    private final long records;
+    private final Duration wallTime;
+
+    public boolean isCompleted() {
+        return failedTasks == 0 && timedOutTasks == 0;
+    }
+
+    public double getRecordsPerSecond() {
+        long millis = wallTime.toMillis();
+        return millis > 0 ? records * 1000.0 / millis : 0;
+    }
+}
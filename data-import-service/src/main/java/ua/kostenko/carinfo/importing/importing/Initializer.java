@@ -1,5 +1,22 @@
 package ua.kostenko.carinfo.importing.importing;
 
+import java.util.Collections;
+import java.util.Set;
+
 public interface Initializer {
     void init();
+
+    /**
+     * Initializers whose {@link #init()} must be finished before this one starts.
+     */
+    default Set<Class<? extends Initializer>> getDependencies() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Work which doesn't need the output of dependencies (e.g. downloads), started as soon as the run starts.
+     * {@link #init()} is called after prefetch is finished, a failed prefetch doesn't stop the initializer.
+     */
+    default void prefetch() {
+    }
 }
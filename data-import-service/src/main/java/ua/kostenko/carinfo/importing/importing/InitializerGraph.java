@@ -0,0 +1,118 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs initializers as a dependency graph: prefetch of every initializer starts immediately, init starts when
+ * its own prefetch and the init of all its dependencies are finished. Initializers depending on a failed one are skipped.
+ */
+@Slf4j
+@Component
+public class InitializerGraph {
+
+    /**
+     * @return number of initializers which failed, were skipped or didn't finish in time.
+     */
+    public int run(@NonNull @Nonnull List<Initializer> initializers, @NonNull @Nonnull Consumer<Initializer> init, @NonNull @Nonnull Duration timeout) {
+        Map<Initializer, List<Initializer>> dependencies = getDependencies(initializers);
+        List<Initializer> order = sort(initializers, dependencies);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, initializers.size() * 2),
+                                                                new ThreadFactoryBuilder().setNameFormat("initializer-%d").setDaemon(true).build());
+        try {
+            Map<Initializer, CompletableFuture<Void>> inits = new HashMap<>();
+            for (Initializer initializer : order) {
+                CompletableFuture<Void> prefetch = CompletableFuture.runAsync(() -> prefetch(initializer), executor);
+                List<CompletableFuture<Void>> required = dependencies.get(initializer).stream().map(inits::get).collect(Collectors.toList());
+                required.add(prefetch);
+                inits.put(initializer, CompletableFuture.allOf(required.toArray(new CompletableFuture[0]))
+                                                        .thenRunAsync(() -> init.accept(initializer), executor));
+            }
+            return await(order, inits, timeout);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void prefetch(@NonNull @Nonnull Initializer initializer) {
+        try {
+            initializer.prefetch();
+        } catch (RuntimeException ex) {
+            log.warn("prefetch: Prefetch of {} failed, init will do the work", getName(initializer), ex);
+        }
+    }
+
+    private static int await(@NonNull @Nonnull List<Initializer> order, @NonNull @Nonnull Map<Initializer, CompletableFuture<Void>> inits,
+                             @NonNull @Nonnull Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int failed = 0;
+        for (Initializer initializer : order) {
+            try {
+                inits.get(initializer).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException ex) {
+                log.error("await: {} failed or was skipped because of failed dependency", getName(initializer), ex.getCause());
+                failed++;
+            } catch (TimeoutException ex) {
+                log.error("await: {} didn't finish in {}", getName(initializer), timeout);
+                failed++;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return order.size();
+            }
+        }
+        return failed;
+    }
+
+    private static Map<Initializer, List<Initializer>> getDependencies(@NonNull @Nonnull List<Initializer> initializers) {
+        Map<Initializer, List<Initializer>> dependencies = new HashMap<>();
+        for (Initializer initializer : initializers) {
+            List<Initializer> required = new ArrayList<>();
+            for (Class<? extends Initializer> type : initializer.getDependencies()) {
+                List<Initializer> matching = initializers.stream().filter(type::isInstance).collect(Collectors.toList());
+                if (matching.isEmpty()) {
+                    throw new IllegalStateException(String.format("Dependency %s of %s is not registered", type.getSimpleName(), getName(initializer)));
+                }
+                required.addAll(matching);
+            }
+            dependencies.put(initializer, required);
+        }
+        return dependencies;
+    }
+
+    private static List<Initializer> sort(@NonNull @Nonnull List<Initializer> initializers, @NonNull @Nonnull Map<Initializer, List<Initializer>> dependencies) {
+        List<Initializer> order = new ArrayList<>();
+        List<Initializer> remaining = new ArrayList<>(initializers);
+        while (!remaining.isEmpty()) {
+            List<Initializer> ready = remaining.stream().filter(initializer -> order.containsAll(dependencies.get(initializer))).collect(Collectors.toList());
+            if (ready.isEmpty()) {
+                throw new IllegalStateException(String.format("Initializers have cyclic dependencies: %s",
+                                                              remaining.stream().map(InitializerGraph::getName).collect(Collectors.toList())));
+            }
+            order.addAll(ready);
+            remaining.removeAll(ready);
+        }
+        return order;
+    }
+
+    private static String getName(@NonNull @Nonnull Initializer initializer) {
+        return StringUtils.defaultIfEmpty(initializer.getClass().getSimpleName(), initializer.getClass().getName());
+    }
+}
@@ -0,0 +1,27 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import java.util.stream.Stream;
+
+/**
+ * How registration records are written. Only {@link #STAGING} loads into a data version that readers see once it is published,
+ * {@link #ROWS} and {@link #DELTA} change carinfo.record while the import is running.
+ */
+public enum WriteMode {
+    ROWS("rows"),
+    STAGING("staging"),
+    DELTA("delta");
+
+    private final String name;
+
+    WriteMode(String name) {
+        this.name = name;
+    }
+
+    public static WriteMode of(String name) {
+        return Stream.of(values()).filter(mode -> mode.name.equalsIgnoreCase(name)).findFirst().orElse(STAGING);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -8,12 +8,14 @@ import org.springframework.stereotype.Component;
 import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
 import ua.kostenko.carinfo.importing.csv.mappers.administrative.AdministrativeObjectCsvMapper;
 import ua.kostenko.carinfo.importing.csv.pojo.AdministrativeObjectCsvRecord;
+import ua.kostenko.carinfo.importing.csv.reader.CsvEngine;
 import ua.kostenko.carinfo.importing.csv.reader.CsvReader;
 import ua.kostenko.carinfo.importing.csv.reader.options.Options;
 import ua.kostenko.carinfo.importing.csv.structure.headers.administrative.AdministrativeHeaders;
 import ua.kostenko.carinfo.importing.csv.utils.CsvUtils;
 import ua.kostenko.carinfo.importing.csv.utils.administrative.AdminObjCsvUtils;
 import ua.kostenko.carinfo.importing.importing.Initializer;
+import ua.kostenko.carinfo.importing.io.EncodingUtils;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -30,11 +32,14 @@ import static java.util.Objects.nonNull;
 public class AdminObjImportInitializer implements Initializer {
     private final ApplicationProperties properties;
     private final AdminObjPersist persist;
+    private final EncodingUtils encodingUtils;
 
     @Autowired
-    public AdminObjImportInitializer(@NonNull @Nonnull ApplicationProperties properties, @NonNull @Nonnull AdminObjPersist persist) {
+    public AdminObjImportInitializer(@NonNull @Nonnull ApplicationProperties properties, @NonNull @Nonnull AdminObjPersist persist,
+                                     @NonNull @Nonnull EncodingUtils encodingUtils) {
         this.properties = properties;
         this.persist = persist;
+        this.encodingUtils = encodingUtils;
     }
 
     @Override
@@ -51,12 +56,12 @@ public class AdminObjImportInitializer implements Initializer {
             log.info("init: AdministrativeObjects file path: {}", administrativeObjectsFilePath.toAbsolutePath().toString());
             log.info("init: Starting mapping of csv AdministrativeObjectEntity records to object");
 
-            CsvUtils<AdministrativeHeaders> csvUtils = new AdminObjCsvUtils(administrativeObjectsFilePath.toFile());
+            CsvUtils<AdministrativeHeaders> csvUtils = new AdminObjCsvUtils(administrativeObjectsFilePath.toFile(), encodingUtils);
             Options<AdministrativeHeaders> options = csvUtils.getOptions();
 
             if (Objects.nonNull(options)) {
                 AdministrativeObjectCsvMapper mapper = new AdministrativeObjectCsvMapper(options.getHeaders());
-                CsvReader<AdministrativeObjectCsvRecord> csvReader = new CsvReader<>();
+                CsvReader<AdministrativeObjectCsvRecord> csvReader = new CsvReader<>(CsvEngine.of(properties.APP_CSV_ENGINE));
                 csvReader.readCsvFile(options.getReaderOptions(), mapper, persist);
             } else {
                 log.error("processExtractedFiles: Options is null");
@@ -0,0 +1,62 @@
+package ua.kostenko.carinfo.importing.importing.administrative;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
+import ua.kostenko.carinfo.common.api.records.AdministrativeObject;
+import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.collections.LongIntHashMap;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Component
+@Slf4j
+public class AdminObjIndex {
+    private static final int EXPECTED_SIZE = 32 * 1024;
+    private static final int MISSING = -1;
+    private final DBService<AdministrativeObject> service;
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public AdminObjIndex(@NonNull @Nonnull DBService<AdministrativeObject> service) {
+        this.service = service;
+    }
+
+    public void load() {
+        LongIntHashMap positions = new LongIntHashMap(EXPECTED_SIZE, MISSING);
+        List<AdministrativeObject> objects = new ArrayList<>(EXPECTED_SIZE);
+        service.stream(new ParamsHolderBuilder(), object -> {
+            if (Objects.nonNull(object.getAdminObjId())) {
+                positions.put(object.getAdminObjId(), objects.size());
+                objects.add(object);
+            }
+        });
+        snapshot = new Snapshot(positions, objects.toArray(new AdministrativeObject[0]));
+        log.info("load: Loaded {} administrative objects", objects.size());
+    }
+
+    public Optional<AdministrativeObject> get(long adminObjId) {
+        Snapshot current = snapshot;
+        if (Objects.isNull(current)) {
+            return service.get(adminObjId);
+        }
+        int position = current.positions.get(adminObjId);
+        return position == MISSING ? Optional.empty() : Optional.of(current.objects[position]);
+    }
+
+    private static class Snapshot {
+        private final LongIntHashMap positions;
+        private final AdministrativeObject[] objects;
+
+        private Snapshot(LongIntHashMap positions, AdministrativeObject[] objects) {
+            this.positions = positions;
+            this.objects = objects;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Blue/green switch of registration data. An import writes into its own version table, readers keep using
+ * the partitions of carinfo.record until {@link #publish(int)} swaps them and marks the version as current.
+ * Swapped years are logged to {@link RecordChangeLog} in the same transaction.
+ */
+@Slf4j
+@Component
+class DataVersionManager {
+    private static final String LOADING = "LOADING";
+    private static final String CURRENT = "CURRENT";
+    private static final String RETIRED = "RETIRED";
+    private static final String FAILED = "FAILED";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecordPartitionManager partitionManager;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final RecordChangeLog changeLog;
+
+    @Autowired
+    DataVersionManager(@NonNull @Nonnull JdbcTemplate jdbcTemplate,
+                       @NonNull @Nonnull PlatformTransactionManager transactionManager,
+                       @NonNull @Nonnull RecordPartitionManager partitionManager,
+                       @NonNull @Nonnull CacheInvalidationPublisher cacheInvalidationPublisher,
+                       @NonNull @Nonnull RecordChangeLog changeLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitionManager = partitionManager;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
+        this.changeLog = changeLog;
+    }
+
+    int begin() {
+        Integer version = jdbcTemplate.queryForObject("insert into carinfo.data_version (status) values (?) returning version", Integer.class, LOADING);
+        Objects.requireNonNull(version, "version can't be null");
+        partitionManager.createVersionTable(version);
+        log.info("begin: Data version {} is loading into {}", version, getTable(version));
+        return version;
+    }
+
+    String getTable(int version) {
+        return partitionManager.getVersionTableName(version);
+    }
+
+    void publish(int version) {
+        String table = getTable(version);
+        jdbcTemplate.execute("analyze carinfo." + table);
+        Set<Integer> publishedYears = new HashSet<>(jdbcTemplate.queryForList("select year from carinfo.data_version_year where version = ?", Integer.class, version));
+        long records = count(table);
+        for (int year : publishedYears) {
+            records += count(RecordPartitionManager.getPartitionName(year));
+        }
+        long total = records;
+        List<Integer> years = transactionTemplate.execute(status -> {
+            List<Integer> published = partitionManager.publishVersionTable(table, publishedYears);
+            changeLog.replaced(version, published);
+            jdbcTemplate.update("update carinfo.data_version set status = ? where status = ?", RETIRED, CURRENT);
+            jdbcTemplate.update("update carinfo.data_version set status = ?, published_at = now(), records = ? where version = ?", CURRENT, total, version);
+            return published;
+        });
+        cacheInvalidationPublisher.dataChanged(version);
+        log.info("publish: Data version {} is current, records: {}, years: {}", version, records, years);
+    }
+
+    private long count(@NonNull @Nonnull String table) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from carinfo." + table, Long.class);
+        return Objects.isNull(count) ? 0 : count;
+    }
+
+    /**
+     * Makes one finished year of a loading version visible, at most once per version and year across nodes.
+     */
+    void publishYear(int version, int year) {
+        String table = getTable(version);
+        Boolean published = transactionTemplate.execute(status -> {
+            int claimed = jdbcTemplate.update("insert into carinfo.data_version_year (version, year) values (?, ?) on conflict do nothing", version, year);
+            if (claimed == 0 || !partitionManager.publishVersionPartition(table, year)) {
+                return false;
+            }
+            changeLog.replaced(version, Collections.singletonList(year));
+            return true;
+        });
+        if (Boolean.TRUE.equals(published)) {
+            cacheInvalidationPublisher.dataChanged(version);
+            log.info("publishYear: Year {} of data version {} is published", year, version);
+        }
+    }
+
+    void abort(int version) {
+        partitionManager.dropVersionTable(getTable(version));
+        jdbcTemplate.update("update carinfo.data_version set status = ? where version = ?", FAILED, version);
+        log.warn("abort: Data version {} is dropped", version);
+    }
+}
@@ -6,28 +6,47 @@ import ua.kostenko.carinfo.common.api.records.*;
 import ua.kostenko.carinfo.common.api.services.DBService;
 import ua.kostenko.carinfo.importing.csv.mappers.registration.RegistrationCsvMapper;
 import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
+import ua.kostenko.carinfo.importing.csv.reader.CsvEngine;
 import ua.kostenko.carinfo.importing.csv.reader.CsvReader;
 import ua.kostenko.carinfo.importing.csv.reader.options.Options;
 import ua.kostenko.carinfo.importing.csv.structure.headers.registration.RegistrationHeaders;
 import ua.kostenko.carinfo.importing.csv.utils.CsvUtils;
 import ua.kostenko.carinfo.importing.csv.utils.registration.RegistrationCsvUtils;
-import ua.kostenko.carinfo.importing.importing.Persist;
+import ua.kostenko.carinfo.importing.importing.ConcurrencyLimiter;
+import ua.kostenko.carinfo.importing.importing.WriteMode;
+import ua.kostenko.carinfo.importing.importing.administrative.AdminObjIndex;
 import ua.kostenko.carinfo.importing.io.ArchiveUtils;
+import ua.kostenko.carinfo.importing.io.EncodingUtils;
 import ua.kostenko.carinfo.importing.io.FileDownloader;
 import ua.kostenko.carinfo.importing.io.FileUtil;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
 import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.concurrent.Callable;
 
 @Slf4j
-class FileProcessingTask implements Runnable {
+class FileProcessingTask implements Callable<Long> {
     private final String link;
-    private final File tempDirectory;
+    private final String hash;
+    private final CsvEngine csvEngine;
+    private final WriteMode writeMode;
+    private final String targetTable;
+    private final Integer version;
+    private final FileDownloader fileDownloader;
+    private final ArchiveUtils archiveUtils;
+    private final EncodingUtils encodingUtils;
+    private final FileUtil fileUtil;
     private final DBService<Registration> registrationDBService;
-    private final DBService<AdministrativeObject> administrativeObjectDBService;
+    private final AdminObjIndex adminObjIndex;
+    private final RegistrationStagingRepository stagingRepository;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final FingerprintRepository fingerprintRepository;
+    private final RecordChangeLog changeLog;
     private final DBService<BodyType> bodyTypeDBService;
     private final DBService<Brand> brandDBService;
     private final DBService<Color> colorDBService;
@@ -39,9 +58,20 @@ class FileProcessingTask implements Runnable {
     private final DBService<Purpose> purposeDBService;
     private final DBService<Vehicle> vehicleDBService;
 
-    FileProcessingTask(@NonNull @Nonnull String link, @NonNull @Nonnull File tempDirectory,
+    FileProcessingTask(@NonNull @Nonnull String link, @Nullable String hash, @NonNull @Nonnull CsvEngine csvEngine,
+                       @NonNull @Nonnull WriteMode writeMode,
+                       @NonNull @Nonnull String targetTable,
+                       @Nullable Integer version,
+                       @NonNull @Nonnull FileDownloader fileDownloader,
+                       @NonNull @Nonnull ArchiveUtils archiveUtils,
+                       @NonNull @Nonnull EncodingUtils encodingUtils,
+                       @NonNull @Nonnull FileUtil fileUtil,
                        @NonNull @Nonnull DBService<Registration> registrationDBService,
-                       @NonNull @Nonnull DBService<AdministrativeObject> administrativeObjectDBService,
+                       @NonNull @Nonnull AdminObjIndex adminObjIndex,
+                       @NonNull @Nonnull RegistrationStagingRepository stagingRepository,
+                       @NonNull @Nonnull ConcurrencyLimiter concurrencyLimiter,
+                       @NonNull @Nonnull FingerprintRepository fingerprintRepository,
+                       @NonNull @Nonnull RecordChangeLog changeLog,
                        @NonNull @Nonnull DBService<BodyType> bodyTypeDBService,
                        @NonNull @Nonnull DBService<Brand> brandDBService,
                        @NonNull @Nonnull DBService<Color> colorDBService,
@@ -53,9 +83,21 @@ class FileProcessingTask implements Runnable {
                        @NonNull @Nonnull DBService<Purpose> purposeDBService,
                        @NonNull @Nonnull DBService<Vehicle> vehicleDBService) {
         this.link = link;
-        this.tempDirectory = tempDirectory;
+        this.hash = hash;
+        this.csvEngine = csvEngine;
+        this.writeMode = writeMode;
+        this.targetTable = targetTable;
+        this.version = version;
+        this.fileDownloader = fileDownloader;
+        this.archiveUtils = archiveUtils;
+        this.encodingUtils = encodingUtils;
+        this.fileUtil = fileUtil;
         this.registrationDBService = registrationDBService;
-        this.administrativeObjectDBService = administrativeObjectDBService;
+        this.adminObjIndex = adminObjIndex;
+        this.stagingRepository = stagingRepository;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.fingerprintRepository = fingerprintRepository;
+        this.changeLog = changeLog;
         this.bodyTypeDBService = bodyTypeDBService;
         this.brandDBService = brandDBService;
         this.colorDBService = colorDBService;
@@ -68,70 +110,157 @@ class FileProcessingTask implements Runnable {
         this.vehicleDBService = vehicleDBService;
     }
 
+    /**
+     * @return number of records written to the target table.
+     */
     @Override
-    public void run() {
-        doInBackground(tempDirectory, link);
+    public Long call() {
+        if (writeMode == WriteMode.DELTA && fingerprintRepository.isCurrent(link, hash)) {
+            log.info("call: Archive {} is not changed since the last import, hash: {}", link, hash);
+            return 0L;
+        }
+        String fileName = getFileName(link);
+        File workingDirectory = fileUtil.createWorkingDirectory(fileName);
+        if (Objects.isNull(workingDirectory)) {
+            throw new RuntimeException("run: Working directory is null. Download can't be performed");
+        }
+        try {
+            return doInBackground(workingDirectory, fileName);
+        } finally {
+            fileUtil.deleteFiles(workingDirectory);
+        }
     }
 
-    private void doInBackground(@NonNull @Nonnull File tempDirectory, @NonNull @Nonnull String link) {
-        String fileName = getFileName(link);
-        String downloadFilePath = tempDirectory.getAbsoluteFile() + File.separator + fileName;
-        File file = FileDownloader.downloadFile(link, downloadFilePath);
+    private long doInBackground(@NonNull @Nonnull File workingDirectory, @NonNull @Nonnull String fileName) {
+        File downloadDirectory = fileUtil.getDownloadDirectory();
+        if (Objects.isNull(downloadDirectory)) {
+            throw new RuntimeException("doInBackground: Download directory is null. Download can't be performed");
+        }
+        String downloadFilePath = downloadDirectory.getAbsolutePath() + File.separator + fileName;
+        File file = fileDownloader.downloadFile(link, downloadFilePath, hash);
         if (Objects.nonNull(file) && file.exists()) {
-            extractArchive(file, fileName);
+            return extractArchive(file, workingDirectory, fileName);
         } else {
-            log.warn("doInBackground: File is not downloaded successfully, file: {}", downloadFilePath);
+            throw new IllegalStateException(String.format("doInBackground: File is not downloaded successfully, file: %s", downloadFilePath));
         }
     }
 
-    private String getFileName(@NonNull @Nonnull String link) {
-        return link.substring(link.lastIndexOf("/"));
+    /**
+     * Loads every row of the file and stores its fingerprints as the baseline of the next delta import.
+     */
+    private long load(@NonNull @Nonnull File csvFile, @NonNull @Nonnull File workingDirectory, @NonNull @Nonnull Options<RegistrationHeaders> options,
+                      @NonNull @Nonnull RegistrationCsvMapper mapper, @NonNull @Nonnull CsvReader<RegistrationCsvRecord> csvReader) {
+        try (FingerprintSorter sorter = new FingerprintSorter(workingDirectory)) {
+            RegistrationStagingPersist persist = new RegistrationStagingPersist(stagingRepository, csvFile.getName(), targetTable,
+                                                                                RegistrationStagingPersist.DEFAULT_BUFFER_SIZE, sorter::add, fingerprint -> true);
+            csvReader.readCsvFile(options.getReaderOptions(), mapper, persist);
+            int inserted = persist.publish();
+            saveFingerprints(csvFile, workingDirectory, sorter);
+            return inserted;
+        }
     }
 
-    private void extractArchive(@NonNull @Nonnull File file, @NonNull @Nonnull String fileName) {
-        File tempDirectory = FileUtil.getTempDirectory();
-        if (Objects.nonNull(tempDirectory)) {
-            String name = fileName.substring(0, fileName.lastIndexOf("."));
-            File destinationDirectory = ArchiveUtils.extractZipArchive(file, Paths.get(tempDirectory.getAbsolutePath() + File.separator + name).toFile());
-            if (Objects.isNull(destinationDirectory)) {
-                throw new NullPointerException("destinationDirectory is null. Problem with extracting zip archive");
+    /**
+     * Applies only rows added to or removed from the file since the stored baseline; without a baseline the file is loaded.
+     * The file is read twice: first for fingerprints, then to stage the inserted rows.
+     */
+    private long applyDelta(@NonNull @Nonnull File csvFile, @NonNull @Nonnull File workingDirectory, @NonNull @Nonnull Options<RegistrationHeaders> options,
+                            @NonNull @Nonnull RegistrationCsvMapper mapper, @NonNull @Nonnull CsvReader<RegistrationCsvRecord> csvReader) {
+        File previous = new File(workingDirectory, csvFile.getName() + ".previous");
+        if (!fingerprintRepository.load(link, csvFile.getName(), previous)) {
+            log.info("applyDelta: There is no baseline of {}, file is loaded completely", csvFile.getName());
+            return load(csvFile, workingDirectory, options, mapper, csvReader);
+        }
+        try (FingerprintSorter sorter = new FingerprintSorter(workingDirectory)) {
+            RegistrationStagingPersist fingerprints = new RegistrationStagingPersist(stagingRepository, csvFile.getName(), targetTable,
+                                                                                     RegistrationStagingPersist.DEFAULT_BUFFER_SIZE, sorter::add, fingerprint -> false);
+            csvReader.readCsvFile(options.getReaderOptions(), mapper, fingerprints);
+            File current = new File(workingDirectory, csvFile.getName() + ".current");
+            long rows = sorter.sortTo(current);
+            FingerprintDelta delta;
+            try (FingerprintReader previousReader = new FingerprintReader(previous); FingerprintReader currentReader = new FingerprintReader(current)) {
+                delta = FingerprintDelta.of(previousReader, currentReader);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
             }
-            processExtractedFiles(destinationDirectory);
-        } else {
-            throw new RuntimeException("extractArchive: Temp directory is null");
+            log.info("applyDelta: File: {}, rows: {}, inserted: {}, removed: {}", csvFile.getName(), rows, delta.getInserted().length, delta.getRemoved().length);
+            int inserted = 0;
+            if (!delta.isEmpty()) {
+                RegistrationStagingPersist persist = new RegistrationStagingPersist(stagingRepository, csvFile.getName(), targetTable,
+                                                                                    RegistrationStagingPersist.DEFAULT_BUFFER_SIZE, fingerprint -> {
+                }, delta::isInserted);
+                csvReader.readCsvFile(options.getReaderOptions(), mapper, persist);
+                inserted = persist.publish(fingerprintRepository.retainUnshared(link, csvFile.getName(), delta.getRemoved()));
+            }
+            fingerprintRepository.save(link, csvFile.getName(), hash, version, current, rows);
+            return inserted;
+        }
+    }
+
+    private void saveFingerprints(@NonNull @Nonnull File csvFile, @NonNull @Nonnull File workingDirectory, @NonNull @Nonnull FingerprintSorter sorter) {
+        File sorted = new File(workingDirectory, csvFile.getName() + ".fingerprints");
+        long rows = sorter.sortTo(sorted);
+        fingerprintRepository.save(link, csvFile.getName(), hash, version, sorted, rows);
+    }
+
+    static String getFileName(@NonNull @Nonnull String link) {
+        return link.substring(link.lastIndexOf("/") + 1);
+    }
+
+    private long extractArchive(@NonNull @Nonnull File file, @NonNull @Nonnull File workingDirectory, @NonNull @Nonnull String fileName) {
+        int extensionIndex = fileName.lastIndexOf(".");
+        String name = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName + "_extracted";
+        File destinationDirectory = archiveUtils.extractZipArchive(file, Paths.get(workingDirectory.getAbsolutePath(), name).toFile());
+        if (Objects.isNull(destinationDirectory)) {
+            throw new NullPointerException("destinationDirectory is null. Problem with extracting zip archive");
         }
+        return processExtractedFiles(destinationDirectory, workingDirectory);
     }
 
-    private void processExtractedFiles(@NonNull @Nonnull File destinationDirectory) {
+    private long processExtractedFiles(@NonNull @Nonnull File destinationDirectory, @NonNull @Nonnull File workingDirectory) {
         File[] listFiles = destinationDirectory.listFiles();
         if (Objects.isNull(listFiles)) {
             throw new IllegalArgumentException("List of files in destination directory is null");
         }
-        Stream.of(listFiles).forEach(fileInDirectory -> {
-            CsvUtils<RegistrationHeaders> csvUtils = new RegistrationCsvUtils(fileInDirectory);
+        long records = 0;
+        for (File fileInDirectory : listFiles) {
+            CsvUtils<RegistrationHeaders> csvUtils = new RegistrationCsvUtils(fileInDirectory, encodingUtils);
             Options<RegistrationHeaders> options = csvUtils.getOptions();
             if (Objects.nonNull(options)) {
                 RegistrationCsvMapper mapper = new RegistrationCsvMapper(options.getHeaders());
-                Persist<RegistrationCsvRecord> persist = new RegistrationPersist(registrationDBService,
-                                                                                 administrativeObjectDBService,
-                                                                                 bodyTypeDBService,
-                                                                                 brandDBService,
-                                                                                 colorDBService,
-                                                                                 departmentDBService,
-                                                                                 fuelTypeDBService,
-                                                                                 kindDBService,
-                                                                                 modelDBService,
-                                                                                 operationDBService,
-                                                                                 purposeDBService,
-                                                                                 vehicleDBService,
-                                                                                 fileInDirectory.getName()
-                                                                                 );
-                CsvReader<RegistrationCsvRecord> csvReader = new CsvReader<>();
-                csvReader.readCsvFile(options.getReaderOptions(), mapper, persist);
+                CsvReader<RegistrationCsvRecord> csvReader = new CsvReader<>(csvEngine);
+                if (writeMode == WriteMode.DELTA) {
+                    records += applyDelta(fileInDirectory, workingDirectory, options, mapper, csvReader);
+                } else if (writeMode == WriteMode.STAGING) {
+                    records += load(fileInDirectory, workingDirectory, options, mapper, csvReader);
+                } else {
+                    RegistrationPersist persist = new RegistrationPersist(registrationDBService,
+                                                                          adminObjIndex,
+                                                                          bodyTypeDBService,
+                                                                          brandDBService,
+                                                                          colorDBService,
+                                                                          departmentDBService,
+                                                                          fuelTypeDBService,
+                                                                          kindDBService,
+                                                                          modelDBService,
+                                                                          operationDBService,
+                                                                          purposeDBService,
+                                                                          vehicleDBService,
+                                                                          changeLog,
+                                                                          fileInDirectory.getName()
+                                                                          );
+                    try {
+                        csvReader.readCsvFile(options.getReaderOptions(), mapper, record -> concurrencyLimiter.run(() -> persist.persist(record)));
+                    } finally {
+                        persist.flush();
+                    }
+                    records += persist.getPersisted();
+                }
             } else {
                 log.error("processExtractedFiles: Options is null");
             }
-            FileUtil.deleteFiles(fileInDirectory);
-        });
+            fileUtil.deleteFiles(fileInDirectory);
+        }
+        return records;
     }
 }
@@ -0,0 +1,59 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Rows inserted into and removed from a file between two imports, found by a streaming merge of sorted fingerprint runs.
+ */
+@Getter
+class FingerprintDelta {
+    private final long[] inserted;
+    private final long[] removed;
+
+    private FingerprintDelta(@NonNull @Nonnull long[] inserted, @NonNull @Nonnull long[] removed) {
+        this.inserted = inserted;
+        this.removed = removed;
+    }
+
+    static FingerprintDelta of(@NonNull @Nonnull FingerprintReader previous, @NonNull @Nonnull FingerprintReader current) {
+        LongStream.Builder inserted = LongStream.builder();
+        LongStream.Builder removed = LongStream.builder();
+        boolean hasPrevious = previous.hasNext();
+        boolean hasCurrent = current.hasNext();
+        long previousValue = hasPrevious ? previous.next() : 0;
+        long currentValue = hasCurrent ? current.next() : 0;
+        while (hasPrevious || hasCurrent) {
+            if (hasPrevious && (!hasCurrent || previousValue < currentValue)) {
+                removed.add(previousValue);
+                hasPrevious = previous.hasNext();
+                previousValue = hasPrevious ? previous.next() : 0;
+            } else if (!hasPrevious || currentValue < previousValue) {
+                inserted.add(currentValue);
+                hasCurrent = current.hasNext();
+                currentValue = hasCurrent ? current.next() : 0;
+            } else {
+                hasPrevious = previous.hasNext();
+                previousValue = hasPrevious ? previous.next() : 0;
+                hasCurrent = current.hasNext();
+                currentValue = hasCurrent ? current.next() : 0;
+            }
+        }
+        return new FingerprintDelta(inserted.build().toArray(), removed.build().toArray());
+    }
+
+    boolean isEmpty() {
+        return inserted.length == 0 && removed.length == 0;
+    }
+
+    /**
+     * Inserted fingerprints are sorted, so a lookup is a binary search.
+     */
+    boolean isInserted(long fingerprint) {
+        return Arrays.binarySearch(inserted, fingerprint) >= 0;
+    }
+}
@@ -0,0 +1,56 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads a run of sorted fingerprints written as big-endian longs.
+ */
+class FingerprintReader implements Closeable {
+    private final DataInputStream input;
+    private long remaining;
+
+    FingerprintReader(@NonNull @Nonnull File file) {
+        this(open(file), file.length() / Long.BYTES);
+    }
+
+    FingerprintReader(@NonNull @Nonnull InputStream input, long count) {
+        this.input = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+        this.remaining = count;
+    }
+
+    private static InputStream open(@NonNull @Nonnull File file) {
+        try {
+            return new FileInputStream(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    boolean hasNext() {
+        return remaining > 0;
+    }
+
+    long next() {
+        try {
+            remaining--;
+            return input.readLong();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
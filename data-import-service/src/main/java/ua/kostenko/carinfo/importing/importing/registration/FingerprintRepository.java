@@ -0,0 +1,137 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Types;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Sorted row fingerprints of every imported csv file, the baseline of the next delta import of the same resource.
+ * Fingerprints written by a versioned import are used only while that version is current.
+ */
+@Slf4j
+@Repository
+class FingerprintRepository {
+    private static final String USABLE = "(f.version is null or exists (select 1 from carinfo.current_version cv where cv.version = f.version))";
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    FingerprintRepository(@NonNull @Nonnull JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return true if every file of the resource was imported from the archive with the same hash.
+     */
+    boolean isCurrent(@NonNull @Nonnull String resource, @Nullable String hash) {
+        if (Objects.isNull(hash)) {
+            return false;
+        }
+        Boolean current = jdbcTemplate.queryForObject("select count(*) > 0 and bool_and(f.hash = ? and " + USABLE + ") " +
+                                                              "from carinfo.import_fingerprint f where f.resource = ?", Boolean.class, hash, resource);
+        return Boolean.TRUE.equals(current);
+    }
+
+    /**
+     * Copies the stored fingerprints of the file to the target file.
+     *
+     * @return false if there is no usable baseline.
+     */
+    boolean load(@NonNull @Nonnull String resource, @NonNull @Nonnull String fileName, @NonNull @Nonnull File target) {
+        Boolean loaded = jdbcTemplate.query("select f.fingerprints from carinfo.import_fingerprint f where f.resource = ? and f.file_name = ? and " + USABLE,
+                                            resultSet -> {
+                                                if (!resultSet.next()) {
+                                                    return false;
+                                                }
+                                                try (InputStream input = resultSet.getBinaryStream(1)) {
+                                                    FileUtils.copyInputStreamToFile(input, target);
+                                                } catch (IOException ex) {
+                                                    throw new UncheckedIOException(ex);
+                                                }
+                                                return true;
+                                            }, resource, fileName);
+        return Boolean.TRUE.equals(loaded);
+    }
+
+    /**
+     * Staging keeps one record for equal rows of different files, so a row removed from one file may still be a row of another.
+     *
+     * @param removed sorted fingerprints removed from the file.
+     * @return removed fingerprints which no other usable baseline contains.
+     */
+    long[] retainUnshared(@NonNull @Nonnull String resource, @NonNull @Nonnull String fileName, @NonNull @Nonnull long[] removed) {
+        if (removed.length == 0) {
+            return removed;
+        }
+        List<Map<String, Object>> baselines = jdbcTemplate.queryForList("select f.resource, f.file_name from carinfo.import_fingerprint f " +
+                                                                                "where not (f.resource = ? and f.file_name = ?) and " + USABLE,
+                                                                        resource, fileName);
+        BitSet shared = new BitSet(removed.length);
+        for (Map<String, Object> baseline : baselines) {
+            jdbcTemplate.query("select f.row_count, f.fingerprints from carinfo.import_fingerprint f where f.resource = ? and f.file_name = ?",
+                               (RowCallbackHandler) resultSet -> {
+                                   try (FingerprintReader reader = new FingerprintReader(resultSet.getBinaryStream(2), resultSet.getLong(1))) {
+                                       markShared(reader, removed, shared);
+                                   } catch (IOException ex) {
+                                       throw new UncheckedIOException(ex);
+                                   }
+                               }, baseline.get("resource"), baseline.get("file_name"));
+        }
+        if (shared.isEmpty()) {
+            return removed;
+        }
+        log.info("retainUnshared: {} of {} rows removed from {} are kept for other files", shared.cardinality(), removed.length, fileName);
+        return IntStream.range(0, removed.length).filter(index -> !shared.get(index)).mapToLong(index -> removed[index]).toArray();
+    }
+
+    private static void markShared(@NonNull @Nonnull FingerprintReader reader, @NonNull @Nonnull long[] removed, @NonNull @Nonnull BitSet shared) {
+        int index = 0;
+        while (reader.hasNext() && index < removed.length) {
+            long fingerprint = reader.next();
+            while (index < removed.length && removed[index] < fingerprint) {
+                index++;
+            }
+            if (index < removed.length && removed[index] == fingerprint) {
+                shared.set(index++);
+            }
+        }
+    }
+
+    void save(@NonNull @Nonnull String resource, @NonNull @Nonnull String fileName, @Nullable String hash, @Nullable Integer version,
+              @NonNull @Nonnull File fingerprints, long rows) {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(fingerprints))) {
+            jdbcTemplate.update("insert into carinfo.import_fingerprint (resource, file_name, hash, version, row_count, fingerprints) values (?, ?, ?, ?, ?, ?) " +
+                                        "on conflict (resource, file_name) do update set hash = excluded.hash, version = excluded.version, " +
+                                        "row_count = excluded.row_count, fingerprints = excluded.fingerprints, updated_at = now()",
+                                ps -> {
+                                    ps.setString(1, resource);
+                                    ps.setString(2, fileName);
+                                    ps.setString(3, hash);
+                                    ps.setObject(4, version, Types.INTEGER);
+                                    ps.setLong(5, rows);
+                                    ps.setBinaryStream(6, input, fingerprints.length());
+                                });
+            log.info("save: Stored {} fingerprints of {} from {}", rows, fileName, resource);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
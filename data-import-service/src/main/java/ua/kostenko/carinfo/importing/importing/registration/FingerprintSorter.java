@@ -0,0 +1,147 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External sort of row fingerprints: chunks are sorted in memory and spilled to run files, {@link #sortTo(File)}
+ * merges the runs into one file of distinct fingerprints in ascending order.
+ */
+@Slf4j
+class FingerprintSorter implements Closeable {
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private final File directory;
+    private final long[] chunk;
+    private final List<File> runs = new ArrayList<>();
+    private int size;
+
+    FingerprintSorter(@NonNull @Nonnull File directory) {
+        this(directory, DEFAULT_CHUNK_SIZE);
+    }
+
+    FingerprintSorter(@NonNull @Nonnull File directory, int chunkSize) {
+        this.directory = directory;
+        this.chunk = new long[chunkSize];
+    }
+
+    void add(long fingerprint) {
+        if (size == chunk.length) {
+            spill();
+        }
+        chunk[size++] = fingerprint;
+    }
+
+    /**
+     * @return number of distinct fingerprints written to the target file.
+     */
+    long sortTo(@NonNull @Nonnull File target) {
+        Arrays.sort(chunk, 0, size);
+        try (DataOutputStream output = open(target)) {
+            if (runs.isEmpty()) {
+                return writeDistinct(output, chunk, size);
+            }
+            spill();
+            return merge(output);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        runs.forEach(run -> {
+            if (run.exists() && !run.delete()) {
+                log.warn("close: Run file {} is not deleted", run.getAbsolutePath());
+            }
+        });
+        runs.clear();
+    }
+
+    private void spill() {
+        Arrays.sort(chunk, 0, size);
+        try {
+            File run = File.createTempFile("fingerprints", ".run", directory);
+            runs.add(run);
+            try (DataOutputStream output = open(run)) {
+                writeDistinct(output, chunk, size);
+            }
+            size = 0;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private long merge(@NonNull @Nonnull DataOutputStream output) throws IOException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparingLong(head -> head.value));
+        List<FingerprintReader> readers = new ArrayList<>();
+        try {
+            for (File run : runs) {
+                FingerprintReader reader = new FingerprintReader(run);
+                readers.add(reader);
+                if (reader.hasNext()) {
+                    heads.add(new Head(reader, reader.next()));
+                }
+            }
+            long written = 0;
+            boolean first = true;
+            long previous = 0;
+            while (!heads.isEmpty()) {
+                Head head = heads.poll();
+                if (first || head.value != previous) {
+                    output.writeLong(head.value);
+                    previous = head.value;
+                    first = false;
+                    written++;
+                }
+                if (head.reader.hasNext()) {
+                    head.value = head.reader.next();
+                    heads.add(head);
+                }
+            }
+            return written;
+        } finally {
+            for (FingerprintReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static long writeDistinct(@NonNull @Nonnull DataOutputStream output, @NonNull @Nonnull long[] sorted, int length) throws IOException {
+        long written = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                output.writeLong(sorted[i]);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static DataOutputStream open(@NonNull @Nonnull File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+    }
+
+    private static class Head {
+        private final FingerprintReader reader;
+        private long value;
+
+        private Head(FingerprintReader reader, long value) {
+            this.reader = reader;
+            this.value = value;
+        }
+    }
+}
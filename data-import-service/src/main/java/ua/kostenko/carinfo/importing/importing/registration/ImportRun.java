@@ -0,0 +1,25 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+class ImportRun {
+    private int runId;
+    private Integer version;
+    private String writeMode;
+    private boolean created;
+    private long pending;
+    private long claimed;
+    private long done;
+    private long failed;
+
+    long getOpen() {
+        return pending + claimed;
+    }
+}
@@ -0,0 +1,19 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+class ImportWork {
+    private long id;
+    private int runId;
+    private String resource;
+    private String hash;
+    private int attempts;
+    private Integer year;
+}
@@ -0,0 +1,120 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Claims work items of one import run until the run has no open items. A node leaves the loop only when every
+ * item is done or failed, so items of a crashed node are taken over after their lease expires. The loop exposes
+ * the item it holds through {@link #getLeasedWork()}, only that item's lease is extended, and only until the item
+ * timeout, so an item of a hung worker expires as well.
+ */
+@Slf4j
+class ImportWorkLoop implements Callable<Long> {
+    private final ImportWorkRepository repository;
+    private final int runId;
+    private final String owner;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration pollInterval;
+    private final Duration itemTimeout;
+    private final ToLongFunction<ImportWork> processor;
+    private final Consumer<ImportWork> completed;
+    private volatile ImportWork held;
+    private volatile long heldSince;
+
+    ImportWorkLoop(@NonNull @Nonnull ImportWorkRepository repository, int runId, @NonNull @Nonnull String owner, @NonNull @Nonnull Duration lease,
+                   int maxAttempts, @NonNull @Nonnull Duration pollInterval, @NonNull @Nonnull Duration itemTimeout,
+                   @NonNull @Nonnull ToLongFunction<ImportWork> processor, @NonNull @Nonnull Consumer<ImportWork> completed) {
+        this.repository = repository;
+        this.runId = runId;
+        this.owner = owner;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.pollInterval = pollInterval;
+        this.itemTimeout = itemTimeout;
+        this.processor = processor;
+        this.completed = completed;
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return item whose lease has to be extended, empty when the loop is idle or processes its item longer than the item timeout.
+     */
+    Optional<ImportWork> getLeasedWork() {
+        ImportWork work = held;
+        if (Objects.isNull(work)) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - heldSince > itemTimeout.toNanos()) {
+            log.warn("getLeasedWork: {} processes {} longer than {}, lease is not extended", owner, work.getResource(), itemTimeout);
+            return Optional.empty();
+        }
+        return Optional.of(work);
+    }
+
+    /**
+     * @return number of records written by the work items processed in this loop.
+     */
+    @Override
+    public Long call() {
+        long records = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Optional<ImportWork> claimed = repository.claim(runId, owner, lease, maxAttempts);
+            if (claimed.isPresent()) {
+                records += process(claimed.get());
+                continue;
+            }
+            repository.expire(runId, maxAttempts);
+            ImportRun progress = repository.getProgress(runId);
+            if (progress.getOpen() == 0) {
+                log.info("call: Run {} has no open work, done: {}, failed: {}", runId, progress.getDone(), progress.getFailed());
+                return records;
+            }
+            log.debug("call: Waiting for {} work items of run {} claimed by other workers", progress.getOpen(), runId);
+            try {
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return records;
+    }
+
+    private long process(@NonNull @Nonnull ImportWork work) {
+        log.info("process: {} claimed {}, attempt {}", owner, work.getResource(), work.getAttempts());
+        long records;
+        heldSince = System.nanoTime();
+        held = work;
+        try {
+            records = processor.applyAsLong(work);
+            repository.complete(work.getId(), owner);
+        } catch (Throwable ex) {
+            log.error("process: Problem with processing {}, attempt {} of {}", work.getResource(), work.getAttempts(), maxAttempts, ex);
+            repository.fail(work.getId(), owner, work.getAttempts(), maxAttempts);
+            if (ex instanceof Error) {
+                throw (Error) ex;
+            }
+            return 0;
+        } finally {
+            held = null;
+        }
+        try {
+            completed.accept(work);
+        } catch (RuntimeException ex) {
+            log.warn("process: Problem with handling completion of {}", work.getResource(), ex);
+        }
+        return records;
+    }
+}
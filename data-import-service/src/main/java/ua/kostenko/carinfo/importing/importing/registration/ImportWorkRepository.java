@@ -0,0 +1,201 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ua.kostenko.carinfo.importing.importing.WriteMode;
+import ua.kostenko.carinfo.importing.json.registration.ResourceDataPackage;
+
+import javax.annotation.Nonnull;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Work queue of an import run shared by all data-import-service nodes. A resource is claimed with a lease
+ * (FOR UPDATE SKIP LOCKED), the owning worker extends the lease of its item while processing, expired leases can be claimed
+ * by any node.
+ */
+@Slf4j
+@Repository
+class ImportWorkRepository {
+    static final String PENDING = "PENDING";
+    static final String CLAIMED = "CLAIMED";
+    static final String DONE = "DONE";
+    static final String FAILED = "FAILED";
+    private static final String LOADING = "LOADING";
+    private static final RowMapper<ImportWork> WORK_MAPPER = (resultSet, i) -> ImportWork.builder()
+                                                                                         .id(resultSet.getLong("id"))
+                                                                                         .runId(resultSet.getInt("run_id"))
+                                                                                         .resource(resultSet.getString("resource"))
+                                                                                         .hash(resultSet.getString("hash"))
+                                                                                         .attempts(resultSet.getInt("attempts"))
+                                                                                         .year((Integer) resultSet.getObject("year"))
+                                                                                         .build();
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ImportWorkRepository(@NonNull @Nonnull NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Joins the run which is still loading or starts a new one with the given write mode, the version supplier is
+     * called only for a new run.
+     */
+    @Transactional
+    public ImportRun openRun(@NonNull @Nonnull WriteMode writeMode, @NonNull @Nonnull Supplier<Integer> versionSupplier) {
+        jdbcTemplate.getJdbcTemplate().execute("select pg_advisory_xact_lock(hashtext('carinfo.import_run'))");
+        List<ImportRun> runs = jdbcTemplate.query("select run_id, version, write_mode from carinfo.import_run where status = :status order by run_id desc limit 1",
+                                                  new MapSqlParameterSource("status", LOADING),
+                                                  (resultSet, i) -> ImportRun.builder()
+                                                                             .runId(resultSet.getInt("run_id"))
+                                                                             .version((Integer) resultSet.getObject("version"))
+                                                                             .writeMode(resultSet.getString("write_mode"))
+                                                                             .build());
+        if (!runs.isEmpty()) {
+            return runs.get(0);
+        }
+        Integer version = versionSupplier.get();
+        MapSqlParameterSource params = new MapSqlParameterSource("version", version)
+                .addValue("status", LOADING)
+                .addValue("writeMode", writeMode.getName());
+        Integer runId = jdbcTemplate.queryForObject("insert into carinfo.import_run (version, status, write_mode) values (:version, :status, :writeMode) returning run_id",
+                                                    params, Integer.class);
+        return ImportRun.builder().runId(runId == null ? 0 : runId).version(version).writeMode(writeMode.getName()).created(true).build();
+    }
+
+    /**
+     * Adds resources of the run in {@link ResourceOrder#NEWEST_LARGEST_FIRST} order, items are claimed by priority.
+     */
+    void addWork(int runId, @NonNull @Nonnull List<ResourceDataPackage> resources) {
+        List<ResourceDataPackage> ordered = resources.stream().sorted(ResourceOrder.NEWEST_LARGEST_FIRST).collect(Collectors.toList());
+        MapSqlParameterSource[] params = IntStream.range(0, ordered.size())
+                                                  .mapToObj(index -> new MapSqlParameterSource("run", runId)
+                                                          .addValue("resource", ordered.get(index).getPath())
+                                                          .addValue("hash", ordered.get(index).getHash())
+                                                          .addValue("year", ResourceOrder.getYear(ordered.get(index)), Types.INTEGER)
+                                                          .addValue("bytes", ordered.get(index).getBytes(), Types.BIGINT)
+                                                          .addValue("priority", ordered.size() - index))
+                                                  .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("insert into carinfo.import_work (run_id, resource, hash, year, bytes, priority) " +
+                                         "values (:run, :resource, :hash, :year, :bytes, :priority) on conflict do nothing", params);
+    }
+
+    Optional<ImportWork> claim(int runId, @NonNull @Nonnull String owner, @NonNull @Nonnull Duration lease, int maxAttempts) {
+        String sql = "update carinfo.import_work w set status = :claimed, owner = :owner, attempts = w.attempts + 1, " +
+                "lease_until = now() + make_interval(secs => :lease), updated_at = now() " +
+                "where w.id = (select id from carinfo.import_work " +
+                "where run_id = :run and attempts < :maxAttempts " +
+                "and (status = :pending or (status = :claimed and lease_until < now())) " +
+                "order by priority desc, id limit 1 for update skip locked) " +
+                "returning w.id, w.run_id, w.resource, w.hash, w.attempts, w.year";
+        MapSqlParameterSource params = new MapSqlParameterSource("run", runId)
+                .addValue("owner", owner)
+                .addValue("lease", lease.getSeconds())
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("pending", PENDING)
+                .addValue("claimed", CLAIMED);
+        return jdbcTemplate.query(sql, params, WORK_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Extends leases of the given items (id to owner), an item is extended only while it is still claimed by that owner.
+     *
+     * @return number of extended leases.
+     */
+    int heartbeat(@NonNull @Nonnull Map<Long, String> owners, @NonNull @Nonnull Duration lease) {
+        if (owners.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource[] params = owners.entrySet()
+                                               .stream()
+                                               .map(entry -> new MapSqlParameterSource("id", entry.getKey())
+                                                       .addValue("owner", entry.getValue())
+                                                       .addValue("lease", lease.getSeconds())
+                                                       .addValue("claimed", CLAIMED))
+                                               .toArray(MapSqlParameterSource[]::new);
+        int[] updated = jdbcTemplate.batchUpdate("update carinfo.import_work set lease_until = now() + make_interval(secs => :lease), updated_at = now() " +
+                                                         "where id = :id and owner = :owner and status = :claimed", params);
+        return IntStream.of(updated).sum();
+    }
+
+    void complete(long id, @NonNull @Nonnull String owner) {
+        finish(id, owner, DONE);
+    }
+
+    void fail(long id, @NonNull @Nonnull String owner, int attempts, int maxAttempts) {
+        finish(id, owner, attempts < maxAttempts ? PENDING : FAILED);
+    }
+
+    /**
+     * Fails items whose lease expired on the last allowed attempt, nobody is going to claim them again.
+     */
+    int expire(int runId, int maxAttempts) {
+        return jdbcTemplate.update("update carinfo.import_work set status = :failed, updated_at = now() " +
+                                           "where run_id = :run and status = :claimed and lease_until < now() and attempts >= :maxAttempts",
+                                   new MapSqlParameterSource("run", runId)
+                                           .addValue("maxAttempts", maxAttempts)
+                                           .addValue("failed", FAILED)
+                                           .addValue("claimed", CLAIMED));
+    }
+
+    ImportRun getProgress(int runId) {
+        String sql = "select count(*) filter (where status = :pending) as pending, count(*) filter (where status = :claimed) as claimed, " +
+                "count(*) filter (where status = :done) as done, count(*) filter (where status = :failed) as failed " +
+                "from carinfo.import_work where run_id = :run";
+        MapSqlParameterSource params = new MapSqlParameterSource("run", runId)
+                .addValue("pending", PENDING)
+                .addValue("claimed", CLAIMED)
+                .addValue("done", DONE)
+                .addValue("failed", FAILED);
+        return jdbcTemplate.queryForObject(sql, params, (resultSet, i) -> ImportRun.builder()
+                                                                                   .runId(runId)
+                                                                                   .pending(resultSet.getLong("pending"))
+                                                                                   .claimed(resultSet.getLong("claimed"))
+                                                                                   .done(resultSet.getLong("done"))
+                                                                                   .failed(resultSet.getLong("failed"))
+                                                                                   .build());
+    }
+
+    /**
+     * @return years whose items are all done, while items of unknown year are open no year is complete.
+     */
+    List<Integer> getCompletedYears(int runId) {
+        String sql = "select year from carinfo.import_work where run_id = :run and year is not null group by year " +
+                "having bool_and(status = :done) " +
+                "and not exists (select 1 from carinfo.import_work where run_id = :run and year is null and status in (:pending, :claimed)) " +
+                "order by year desc";
+        MapSqlParameterSource params = new MapSqlParameterSource("run", runId)
+                .addValue("done", DONE)
+                .addValue("pending", PENDING)
+                .addValue("claimed", CLAIMED);
+        return jdbcTemplate.queryForList(sql, params, Integer.class);
+    }
+
+    /**
+     * @return true only for the node whose call moved the run out of loading state, that node publishes the run.
+     */
+    boolean finishRun(int runId, @NonNull @Nonnull String status) {
+        return jdbcTemplate.update("update carinfo.import_run set status = :status, finished_at = now() where run_id = :run and status = :loading",
+                                   new MapSqlParameterSource("run", runId).addValue("status", status).addValue("loading", LOADING)) > 0;
+    }
+
+    private void finish(long id, @NonNull @Nonnull String owner, @NonNull @Nonnull String status) {
+        int updated = jdbcTemplate.update("update carinfo.import_work set status = :status, updated_at = now() where id = :id and owner = :owner and status = :claimed",
+                                          new MapSqlParameterSource("id", id).addValue("owner", owner).addValue("status", status).addValue("claimed", CLAIMED));
+        if (updated == 0) {
+            log.warn("finish: Lease of work {} was lost by {}, status {} is not saved", id, owner, status);
+        }
+    }
+}
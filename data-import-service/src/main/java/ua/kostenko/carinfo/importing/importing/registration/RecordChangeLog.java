@@ -0,0 +1,113 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.stream.LongStream;
+
+/**
+ * Change feed of carinfo.record for downstream mirrors. Batches written to the live table are logged with their record ids
+ * (at most {@link #IDS_PER_ENTRY} per entry), swapped partitions of a data version are logged as replaced years. Every writer takes {@link #LOCK_SQL} before logging,
+ * so sequence numbers are committed in order and a reader's cursor never skips an entry. The lock is held until commit, so writers collect
+ * changed ids first and take it only for the insert of the entries.
+ */
+@Slf4j
+@Repository
+public class RecordChangeLog {
+    static final String INSERT = "INSERT";
+    static final String DELETE = "DELETE";
+    static final String REPLACE = "REPLACE";
+    static final String RESET = "RESET";
+    static final String LOCK_SQL = "select pg_advisory_xact_lock(hashtext('carinfo.record_staging'));";
+    private static final String CURRENT_VERSION_SQL = "(select max(version) from carinfo.data_version where status = 'CURRENT')";
+    /**
+     * Maximal number of record ids in one entry, a batch changing more records is logged as several entries.
+     */
+    static final int IDS_PER_ENTRY = 10000;
+    /**
+     * Ids changed by the current transaction, dropped on commit.
+     */
+    static final String COLLECT_TABLE_SQL = "create temp table if not exists changed_record (seq bigserial, operation text not null, id bigint not null) " +
+            "on commit drop;";
+    private static final String COLLECTED_SQL = "with changed as (%s returning id) insert into pg_temp.changed_record (operation, id) select '%s', id from changed;";
+    private static final String LOG_COLLECTED_SQL = "insert into carinfo.record_change (version, operation, record_ids) " +
+            "select " + CURRENT_VERSION_SQL + ", operation, array_agg(id order by id) " +
+            "from (select operation, id, min(seq) over (partition by operation) as first_seq, " +
+            "(row_number() over (partition by operation order by id) - 1) / " + IDS_PER_ENTRY + " as chunk from pg_temp.changed_record) chunks " +
+            "group by operation, first_seq, chunk order by first_seq, chunk;";
+    private static final String LOG_IDS_SQL = "insert into carinfo.record_change (version, operation, record_ids) values (" + CURRENT_VERSION_SQL + ", ?, ?);";
+    private static final String LOG_SQL = "insert into carinfo.record_change (version, operation, year) values (?, ?, ?);";
+    private static final String PURGE_SQL = "delete from carinfo.record_change where created_at < now() - ? * interval '1 day' " +
+            "and seq < (select max(seq) from carinfo.record_change);";
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    RecordChangeLog(@NonNull @Nonnull JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Wraps an insert or delete of carinfo.record into a statement that collects the ids of changed records in {@link #COLLECT_TABLE_SQL},
+     * its update count is the number of changed records.
+     */
+    static String collected(@NonNull @Nonnull String operation, @NonNull @Nonnull String sql) {
+        return String.format(COLLECTED_SQL, StringUtils.removeEnd(sql.trim(), ";"), operation);
+    }
+
+    /**
+     * Logs the collected ids in the order of their operations, must be called in the transaction which collected them.
+     */
+    void logCollected() {
+        jdbcTemplate.execute(LOCK_SQL);
+        jdbcTemplate.update(LOG_COLLECTED_SQL);
+    }
+
+    /**
+     * Logs records inserted by statements of their own (rows write mode), called once they are committed.
+     */
+    @Transactional
+    public void inserted(@NonNull @Nonnull long[] ids) {
+        jdbcTemplate.execute(LOCK_SQL);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOG_IDS_SQL);
+            statement.setString(1, INSERT);
+            statement.setArray(2, connection.createArrayOf("bigint", LongStream.of(ids).boxed().toArray(Long[]::new)));
+            return statement;
+        });
+    }
+
+    /**
+     * Logs years of carinfo.record replaced by a data version, must be called in the transaction of the swap.
+     */
+    void replaced(int version, @NonNull @Nonnull Collection<Integer> years) {
+        jdbcTemplate.execute(LOCK_SQL);
+        years.forEach(year -> jdbcTemplate.update(LOG_SQL, version, REPLACE, year));
+    }
+
+    /**
+     * Logs that records were changed without ids, mirrors have to be rebuilt.
+     */
+    @Transactional
+    public void reset(@Nullable Integer version) {
+        jdbcTemplate.execute(LOCK_SQL);
+        jdbcTemplate.update(LOG_SQL, version, RESET, null);
+    }
+
+    /**
+     * Removes entries older than the retention, the newest entry is kept so the oldest available sequence stays known.
+     */
+    int purge(int retentionDays) {
+        int purged = jdbcTemplate.update(PURGE_SQL, retentionDays);
+        log.info("purge: Removed {} change log entries older than {} days", purged, retentionDays);
+        return purged;
+    }
+}
@@ -0,0 +1,222 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Nonnull;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps carinfo.record range-partitioned by year of registration_date (one carinfo.record_yYYYY table per year).
+ * The table is created by hibernate as an ordinary heap, {@link #ensurePartitioned()} converts it once, keeping
+ * the hibernate named indexes and foreign keys, so schema update doesn't recreate them.
+ */
+@Slf4j
+@Component
+public class RecordPartitionManager {
+    private static final String SCHEMA = "carinfo";
+    private static final String TABLE = "record";
+    private static final String HEAP_TABLE = "record_heap";
+    private static final String VIEWS_SCRIPT = "data.sql";
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final Set<String> partitions = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    RecordPartitionManager(@NonNull @Nonnull JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = Objects.requireNonNull(jdbcTemplate.getDataSource(), "dataSource can't be null");
+    }
+
+    static String getPartitionName(int year) {
+        return getPartitionName(TABLE, year);
+    }
+
+    static String getPartitionName(@NonNull @Nonnull String table, int year) {
+        return String.format("%s_y%d", table, year);
+    }
+
+    static boolean isLiveTable(@NonNull @Nonnull String table) {
+        return TABLE.equals(table);
+    }
+
+    String getVersionTableName(int version) {
+        return String.format("%s_v%d", TABLE, version);
+    }
+
+    @Transactional
+    public void ensurePartitioned() {
+        String relationKind = getRelationKind(TABLE);
+        if (Objects.isNull(relationKind)) {
+            log.warn("ensurePartitioned: Table {}.{} doesn't exist", SCHEMA, TABLE);
+            return;
+        }
+        if ("p".equals(relationKind)) {
+            return;
+        }
+        log.info("ensurePartitioned: Converting {}.{} to partitioned table", SCHEMA, TABLE);
+        jdbcTemplate.execute("lock table carinfo.record in access exclusive mode");
+        List<String> indexes = jdbcTemplate.queryForList("select indexdef from pg_indexes where schemaname = ? and tablename = ? " +
+                                                                 "and indexname <> 'record_pkey'", String.class, SCHEMA, TABLE);
+        List<String> foreignKeys = jdbcTemplate.queryForList("select format('alter table carinfo.record add constraint %I %s', conname, pg_get_constraintdef(oid)) " +
+                                                                     "from pg_constraint where conrelid = 'carinfo.record'::regclass and contype = 'f'", String.class);
+        List<String> sequences = jdbcTemplate.queryForList("select format('alter sequence %s owned by carinfo.record.%I', d.objid::regclass, a.attname) " +
+                                                                   "from pg_depend d join pg_class s on s.oid = d.objid and s.relkind = 'S' " +
+                                                                   "join pg_attribute a on a.attrelid = d.refobjid and a.attnum = d.refobjsubid " +
+                                                                   "where d.classid = 'pg_class'::regclass and d.refobjid = 'carinfo.record'::regclass " +
+                                                                   "and d.deptype in ('a', 'i')", String.class);
+
+        jdbcTemplate.execute("drop view if exists carinfo.record_view");
+        jdbcTemplate.execute("alter table carinfo.record rename to " + HEAP_TABLE);
+        jdbcTemplate.execute("create table carinfo.record (like carinfo.record_heap including defaults) partition by range (registration_date)");
+        sequences.forEach(jdbcTemplate::execute);
+        List<Integer> years = jdbcTemplate.queryForList("select distinct extract(year from registration_date)::int from carinfo.record_heap", Integer.class);
+        years.forEach(year -> createPartition(TABLE, year));
+        int moved = jdbcTemplate.update("insert into carinfo.record select * from carinfo.record_heap");
+        jdbcTemplate.execute("drop table carinfo.record_heap");
+        jdbcTemplate.execute("alter table carinfo.record add constraint record_pkey primary key (id, registration_date)");
+        indexes.forEach(jdbcTemplate::execute);
+        foreignKeys.forEach(jdbcTemplate::execute);
+        ScriptUtils.executeSqlScript(DataSourceUtils.getConnection(dataSource), new ClassPathResource(VIEWS_SCRIPT));
+        log.info("ensurePartitioned: Moved {} records into {} yearly partitions", moved, years.size());
+    }
+
+    public void ensurePartitions(int fromYear, int toYear) {
+        for (int year = fromYear; year <= toYear; year++) {
+            ensurePartition(year);
+        }
+    }
+
+    public void ensurePartition(int year) {
+        ensurePartition(TABLE, year);
+    }
+
+    public void ensurePartition(@NonNull @Nonnull String table, int year) {
+        String partition = getPartitionName(table, year);
+        if (partitions.contains(partition)) {
+            return;
+        }
+        synchronized (partitions) {
+            if (!partitions.contains(partition)) {
+                if (Objects.isNull(getRelationKind(partition))) {
+                    createPartition(table, year);
+                }
+                partitions.add(partition);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty partitioned copy of carinfo.record (same defaults, indexes and foreign keys) for a data version.
+     */
+    public String createVersionTable(int version) {
+        String table = getVersionTableName(version);
+        dropVersionTable(table);
+        jdbcTemplate.execute(String.format("create table %s.%s (like %s.%s including defaults including indexes) partition by range (registration_date)",
+                                           SCHEMA, table, SCHEMA, TABLE));
+        jdbcTemplate.queryForList("select pg_get_constraintdef(oid) from pg_constraint where conrelid = 'carinfo.record'::regclass and contype = 'f'", String.class)
+                    .forEach(definition -> jdbcTemplate.execute(String.format("alter table %s.%s add %s", SCHEMA, table, definition)));
+        return table;
+    }
+
+    /**
+     * Moves every year partition of the version table into carinfo.record in one transaction, replacing the partition
+     * of the same year. Readers see either the old or the new year set, partitions of years absent in the version stay.
+     * Years published earlier by {@link #publishVersionPartition(String, int)} are merged: rows loaded after that
+     * publication are appended to the live partition.
+     */
+    @Transactional
+    public List<Integer> publishVersionTable(@NonNull @Nonnull String table, @NonNull @Nonnull Set<Integer> publishedYears) {
+        List<Integer> years = getVersionYears(table);
+        for (int year : years) {
+            if (publishedYears.contains(year)) {
+                mergePartition(table, year);
+            } else {
+                swapPartition(table, year);
+            }
+        }
+        jdbcTemplate.execute(String.format("drop table %s.%s", SCHEMA, table));
+        partitions.removeIf(partition -> partition.startsWith(table + "_y"));
+        log.info("publishVersionTable: Partitions of years {} are replaced by partitions of {}", years, table);
+        return years;
+    }
+
+    /**
+     * Publishes one finished year of the version table before the rest of the version is loaded.
+     */
+    @Transactional
+    public boolean publishVersionPartition(@NonNull @Nonnull String table, int year) {
+        if (!getVersionYears(table).contains(year)) {
+            return false;
+        }
+        swapPartition(table, year);
+        log.info("publishVersionPartition: Partition of year {} is replaced by partition of {}", year, table);
+        return true;
+    }
+
+    public void dropVersionTable(@NonNull @Nonnull String table) {
+        jdbcTemplate.execute(String.format("drop table if exists %s.%s", SCHEMA, table));
+        partitions.removeIf(partition -> partition.startsWith(table + "_y"));
+    }
+
+    private List<Integer> getVersionYears(@NonNull @Nonnull String table) {
+        return jdbcTemplate.queryForList("select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                                                 "where i.inhparent = ?::regclass", String.class, SCHEMA + "." + table)
+                           .stream()
+                           .map(name -> Integer.parseInt(name.substring(name.lastIndexOf("_y") + 2)))
+                           .sorted()
+                           .collect(Collectors.toList());
+    }
+
+    private void swapPartition(@NonNull @Nonnull String table, int year) {
+        String partition = getPartitionName(year);
+        String versionPartition = getPartitionName(table, year);
+        if (Objects.nonNull(getRelationKind(partition))) {
+            jdbcTemplate.execute(String.format("alter table %s.%s detach partition %s.%s", SCHEMA, TABLE, SCHEMA, partition));
+            jdbcTemplate.execute(String.format("drop table %s.%s", SCHEMA, partition));
+        }
+        jdbcTemplate.execute(String.format("alter table %s.%s detach partition %s.%s", SCHEMA, table, SCHEMA, versionPartition));
+        jdbcTemplate.execute(String.format("alter table %s.%s rename to %s", SCHEMA, versionPartition, partition));
+        jdbcTemplate.execute(String.format("alter table %s.%s attach partition %s.%s for values from ('%s') to ('%s')",
+                                           SCHEMA, TABLE, SCHEMA, partition, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1)));
+        partitions.add(partition);
+        partitions.remove(versionPartition);
+    }
+
+    private void mergePartition(@NonNull @Nonnull String table, int year) {
+        String versionPartition = getPartitionName(table, year);
+        ensurePartition(year);
+        int merged = jdbcTemplate.update(String.format("insert into %s.%s select * from %s.%s", SCHEMA, getPartitionName(year), SCHEMA, versionPartition));
+        log.info("mergePartition: {} rows of {} loaded after early publication are appended", merged, versionPartition);
+    }
+
+    private void createPartition(@NonNull @Nonnull String table, int year) {
+        String partition = getPartitionName(table, year);
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = LocalDate.of(year + 1, 1, 1);
+        jdbcTemplate.execute(String.format("create table if not exists %s.%s partition of %s.%s for values from ('%s') to ('%s')",
+                                           SCHEMA, partition, SCHEMA, table, from, to));
+        jdbcTemplate.execute(String.format("alter table %s.%s add constraint %s_range check (registration_date >= date '%s' and registration_date < date '%s')",
+                                           SCHEMA, partition, partition, from, to));
+        log.info("createPartition: Partition {} is ready", partition);
+    }
+
+    private String getRelationKind(@NonNull @Nonnull String table) {
+        List<String> kinds = jdbcTemplate.queryForList("select c.relkind::text from pg_class c join pg_namespace n on n.oid = c.relnamespace " +
+                                                               "where n.nspname = ? and c.relname = ?", String.class, SCHEMA, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+}
@@ -2,6 +2,7 @@ package ua.kostenko.carinfo.importing.importing.registration;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -9,8 +10,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ua.kostenko.carinfo.common.api.records.*;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
 import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+import ua.kostenko.carinfo.importing.csv.reader.CsvEngine;
+import ua.kostenko.carinfo.importing.importing.ConcurrencyLimiter;
+import ua.kostenko.carinfo.importing.importing.ImportScheduler;
 import ua.kostenko.carinfo.importing.importing.Initializer;
+import ua.kostenko.carinfo.importing.importing.WriteMode;
+import ua.kostenko.carinfo.importing.importing.administrative.AdminObjImportInitializer;
+import ua.kostenko.carinfo.importing.importing.administrative.AdminObjIndex;
+import ua.kostenko.carinfo.importing.importing.centers.ServiceCenterInitializer;
+import ua.kostenko.carinfo.importing.io.ArchiveUtils;
+import ua.kostenko.carinfo.importing.io.EncodingUtils;
 import ua.kostenko.carinfo.importing.io.FileDownloader;
 import ua.kostenko.carinfo.importing.io.FileUtil;
 import ua.kostenko.carinfo.importing.json.registration.RegistrationDataPackage;
@@ -19,21 +30,48 @@ import ua.kostenko.carinfo.importing.json.registration.ResourceDataPackage;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Component
 public class RegistrationImportInitializer implements Initializer {
     private static final String METADATA_JSON_FILE_NAME = "metadata.json";
-    private final ExecutorService executorService;
+    private static final String RECORD_TABLE = "record";
+    private final ImportScheduler importScheduler;
+    private final String nodeId;
+    private final AtomicReference<List<ResourceDataPackage>> prefetchedResources = new AtomicReference<>();
+    private final int workers;
     private final ApplicationProperties properties;
+    private final FileDownloader fileDownloader;
+    private final ArchiveUtils archiveUtils;
+    private final EncodingUtils encodingUtils;
+    private final FileUtil fileUtil;
     private final DBService<Registration> service;
-    private final DBService<AdministrativeObject> administrativeObjectDBService;
+    private final AdminObjIndex adminObjIndex;
+    private final RegistrationStagingRepository stagingRepository;
+    private final ImportWorkRepository workRepository;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final FingerprintRepository fingerprintRepository;
+    private final RecordPartitionManager partitionManager;
+    private final DataVersionManager dataVersionManager;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final RecordChangeLog changeLog;
     private final DBService<BodyType> bodyTypeDBService;
     private final DBService<Brand> brandDBService;
     private final DBService<Color> colorDBService;
@@ -47,8 +85,21 @@ public class RegistrationImportInitializer implements Initializer {
 
     @Autowired
     public RegistrationImportInitializer(@NonNull @Nonnull ApplicationProperties properties,
+                                         @NonNull @Nonnull ImportScheduler importScheduler,
+                                         @NonNull @Nonnull FileDownloader fileDownloader,
+                                         @NonNull @Nonnull ArchiveUtils archiveUtils,
+                                         @NonNull @Nonnull EncodingUtils encodingUtils,
+                                         @NonNull @Nonnull FileUtil fileUtil,
                                          @NonNull @Nonnull DBService<Registration> service,
-                                         @NonNull @Nonnull DBService<AdministrativeObject> administrativeObjectDBService,
+                                         @NonNull @Nonnull AdminObjIndex adminObjIndex,
+                                         @NonNull @Nonnull RegistrationStagingRepository stagingRepository,
+                                         @NonNull @Nonnull ImportWorkRepository workRepository,
+                                         @NonNull @Nonnull ConcurrencyLimiter concurrencyLimiter,
+                                         @NonNull @Nonnull FingerprintRepository fingerprintRepository,
+                                         @NonNull @Nonnull RecordPartitionManager partitionManager,
+                                         @NonNull @Nonnull DataVersionManager dataVersionManager,
+                                         @NonNull @Nonnull CacheInvalidationPublisher cacheInvalidationPublisher,
+                                         @NonNull @Nonnull RecordChangeLog changeLog,
                                          @NonNull @Nonnull DBService<BodyType> bodyTypeDBService,
                                          @NonNull @Nonnull DBService<Brand> brandDBService,
                                          @NonNull @Nonnull DBService<Color> colorDBService,
@@ -60,8 +111,21 @@ public class RegistrationImportInitializer implements Initializer {
                                          @NonNull @Nonnull DBService<Purpose> purposeDBService,
                                          @NonNull @Nonnull DBService<Vehicle> vehicleDBService) {
         this.properties = properties;
+        this.importScheduler = importScheduler;
+        this.fileDownloader = fileDownloader;
+        this.archiveUtils = archiveUtils;
+        this.encodingUtils = encodingUtils;
+        this.fileUtil = fileUtil;
         this.service = service;
-        this.administrativeObjectDBService = administrativeObjectDBService;
+        this.adminObjIndex = adminObjIndex;
+        this.stagingRepository = stagingRepository;
+        this.workRepository = workRepository;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.fingerprintRepository = fingerprintRepository;
+        this.partitionManager = partitionManager;
+        this.dataVersionManager = dataVersionManager;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
+        this.changeLog = changeLog;
         this.bodyTypeDBService = bodyTypeDBService;
         this.brandDBService = brandDBService;
         this.colorDBService = colorDBService;
@@ -72,53 +136,172 @@ public class RegistrationImportInitializer implements Initializer {
         this.operationDBService = operationDBService;
         this.purposeDBService = purposeDBService;
         this.vehicleDBService = vehicleDBService;
-        int coresNumber = Runtime.getRuntime().availableProcessors();
-        executorService = Executors.newFixedThreadPool(coresNumber);
+        // every worker has at most one write in flight, the pool is as large as the limit may grow unless it is configured
+        workers = properties.APP_IMPORT_WORKERS > 0 ? properties.APP_IMPORT_WORKERS : concurrencyLimiter.getMaxLimit();
+        nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    }
+
+    @Override
+    public Set<Class<? extends Initializer>> getDependencies() {
+        return Sets.newHashSet(AdminObjImportInitializer.class, ServiceCenterInitializer.class);
+    }
+
+    /**
+     * Downloads metadata and the first archives of the data package while reference data is loading.
+     * Archives are downloaded to the same paths as by {@link FileProcessingTask}, which then reuses them.
+     */
+    @Override
+    public void prefetch() {
+        List<ResourceDataPackage> resources = loadResources();
+        prefetchedResources.set(resources);
+        File downloadDirectory = fileUtil.getDownloadDirectory();
+        if (Objects.isNull(downloadDirectory) || properties.APP_IMPORT_PREFETCH_RESOURCES <= 0) {
+            return;
+        }
+        List<Callable<Long>> downloads = resources.stream()
+                                                  .sorted(ResourceOrder.NEWEST_LARGEST_FIRST)
+                                                  .limit(properties.APP_IMPORT_PREFETCH_RESOURCES)
+                                                  .map(resource -> (Callable<Long>) () -> {
+                                                      String path = downloadDirectory.getAbsolutePath() + File.separator + FileProcessingTask.getFileName(resource.getPath());
+                                                      return Objects.nonNull(fileDownloader.downloadFile(resource.getPath(), path, resource.getHash())) ? 1L : 0L;
+                                                  })
+                                                  .collect(Collectors.toList());
+        importScheduler.execute("registration-prefetch", properties.APP_DOWNLOAD_SEGMENTS, downloads, Duration.ofHours(properties.APP_IMPORT_TIMEOUT_HOURS));
     }
 
     @Override
     public void init() {
-        File metadataJson = Objects.requireNonNull(downloadMetadataJson(properties.APP_STRUCTURE_DATA_PACKAGE_JSON_URL), "metadataJson can't be null");
-        String metadataJsonText = Objects.requireNonNull(FileUtil.getTextFromFile(metadataJson), "metadataJsonText can't be null");
-        List<String> downloadLinks = getDownloadLinks(metadataJsonText);
-        File tempDirectory = FileUtil.getTempDirectory();
+        List<ResourceDataPackage> prefetched = prefetchedResources.getAndSet(null);
+        List<ResourceDataPackage> resources = Objects.nonNull(prefetched) ? prefetched : loadResources();
+        File tempDirectory = fileUtil.getTempDirectory();
         if (Objects.nonNull(tempDirectory)) {
-            downloadLinks.forEach(link -> executorService.execute(new FileProcessingTask(link, tempDirectory, service,
-                                                                                         administrativeObjectDBService,
-                                                                                         bodyTypeDBService,
-                                                                                         brandDBService,
-                                                                                         colorDBService,
-                                                                                         departmentDBService,
-                                                                                         fuelTypeDBService,
-                                                                                         kindDBService,
-                                                                                         modelDBService,
-                                                                                         operationDBService,
-                                                                                         purposeDBService,
-                                                                                         vehicleDBService)));
+            adminObjIndex.load();
+            partitionManager.ensurePartitioned();
+            partitionManager.ensurePartitions(properties.APP_RECORD_PARTITION_FIRST_YEAR, LocalDate.now().getYear());
+            CsvEngine csvEngine = CsvEngine.of(properties.APP_CSV_ENGINE);
+            WriteMode configuredWriteMode = WriteMode.of(properties.APP_IMPORT_WRITE_MODE);
+            ImportRun run = workRepository.openRun(configuredWriteMode, () -> configuredWriteMode == WriteMode.STAGING ? dataVersionManager.begin() : null);
+            if (run.isCreated()) {
+                workRepository.addWork(run.getRunId(), resources);
+            }
+            Integer version = run.getVersion();
+            WriteMode writeMode = Objects.nonNull(run.getWriteMode()) ? WriteMode.of(run.getWriteMode()) : Objects.nonNull(version) ? WriteMode.STAGING : WriteMode.ROWS;
+            String targetTable = Objects.nonNull(version) ? dataVersionManager.getTable(version) : RECORD_TABLE;
+            log.info("init: Node {} joined import run {}, write mode: {}, target table: {}", nodeId, run.getRunId(), writeMode, targetTable);
+            if (Objects.isNull(version)) {
+                log.warn("init: Run {} writes into live {}, readers see records of files which are not imported completely", run.getRunId(), targetTable);
+            }
+            Duration lease = Duration.ofSeconds(properties.APP_IMPORT_LEASE_SECONDS);
+            long heartbeatPeriod = Math.max(1, lease.getSeconds() / 3);
+            List<ImportWorkLoop> loops = IntStream.range(0, workers)
+                                                  .mapToObj(worker -> new ImportWorkLoop(workRepository, run.getRunId(), nodeId + "#" + worker, lease,
+                                                                                         properties.APP_IMPORT_MAX_ATTEMPTS,
+                                                                                         Duration.ofSeconds(properties.APP_IMPORT_POLL_SECONDS),
+                                                                                         Duration.ofMinutes(properties.APP_IMPORT_ITEM_TIMEOUT_MINUTES),
+                                                                                         work -> createTask(work, csvEngine, writeMode, targetTable, version).call(),
+                                                                                         work -> publishCompletedYears(run.getRunId(), version)))
+                                                  .collect(Collectors.toList());
+            ScheduledExecutorService heartbeatService = Executors.newSingleThreadScheduledExecutor();
+            boolean completed;
+            try {
+                heartbeatService.scheduleAtFixedRate(() -> heartbeat(loops, lease), heartbeatPeriod, heartbeatPeriod, TimeUnit.SECONDS);
+                completed = importScheduler.execute("registration-import", workers, loops, Duration.ofHours(properties.APP_IMPORT_TIMEOUT_HOURS)).isCompleted();
+            } finally {
+                heartbeatService.shutdownNow();
+            }
+            if (completed) {
+                finishRun(run.getRunId(), version);
+            } else {
+                log.warn("init: Workers of node {} stopped before run {} is finished, open work is left to other nodes", nodeId, run.getRunId());
+            }
         } else {
             throw new RuntimeException("importRegistrations: Temp directory is null. Download can't be performed");
         }
-        executorService.shutdown();
+    }
+
+    private void finishRun(int runId, @Nullable Integer version) {
+        ImportRun progress = workRepository.getProgress(runId);
+        boolean completed = progress.getOpen() == 0 && progress.getFailed() == 0;
+        if (!workRepository.finishRun(runId, completed ? ImportWorkRepository.DONE : ImportWorkRepository.FAILED)) {
+            log.info("finishRun: Run {} is finished by another node", runId);
+            return;
+        }
+        log.info("finishRun: Run {} is finished by {}, done: {}, failed: {}", runId, nodeId, progress.getDone(), progress.getFailed());
+        if (Objects.nonNull(version)) {
+            if (completed) {
+                dataVersionManager.publish(version);
+            } else {
+                dataVersionManager.abort(version);
+            }
+        } else {
+            cacheInvalidationPublisher.dataChanged(null);
+        }
+        changeLog.purge(properties.APP_CHANGES_RETENTION_DAYS);
+    }
+
+    private void publishCompletedYears(int runId, @Nullable Integer version) {
+        if (Objects.isNull(version)) {
+            return;
+        }
+        workRepository.getCompletedYears(runId).forEach(year -> dataVersionManager.publishYear(version, year));
+    }
+
+    private void heartbeat(@NonNull @Nonnull List<ImportWorkLoop> loops, @NonNull @Nonnull Duration lease) {
+        try {
+            Map<Long, String> owners = new HashMap<>();
+            loops.forEach(loop -> loop.getLeasedWork().ifPresent(work -> owners.put(work.getId(), loop.getOwner())));
+            int extended = workRepository.heartbeat(owners, lease);
+            log.debug("heartbeat: Node {} extended {} leases", nodeId, extended);
+        } catch (RuntimeException ex) {
+            log.warn("heartbeat: Problem with extending leases of node {}", nodeId, ex);
+        }
+    }
+
+    private FileProcessingTask createTask(@NonNull @Nonnull ImportWork work, @NonNull @Nonnull CsvEngine csvEngine, @NonNull @Nonnull WriteMode writeMode,
+                                          @NonNull @Nonnull String targetTable, @Nullable Integer version) {
+        return new FileProcessingTask(work.getResource(), work.getHash(), csvEngine, writeMode, targetTable, version,
+                                      fileDownloader, archiveUtils, encodingUtils, fileUtil, service,
+                                      adminObjIndex,
+                                      stagingRepository,
+                                      concurrencyLimiter,
+                                      fingerprintRepository,
+                                      changeLog,
+                                      bodyTypeDBService,
+                                      brandDBService,
+                                      colorDBService,
+                                      departmentDBService,
+                                      fuelTypeDBService,
+                                      kindDBService,
+                                      modelDBService,
+                                      operationDBService,
+                                      purposeDBService,
+                                      vehicleDBService);
+    }
+
+    private List<ResourceDataPackage> loadResources() {
+        File metadataJson = Objects.requireNonNull(downloadMetadataJson(properties.APP_STRUCTURE_DATA_PACKAGE_JSON_URL), "metadataJson can't be null");
+        String metadataJsonText = Objects.requireNonNull(fileUtil.getTextFromFile(metadataJson), "metadataJsonText can't be null");
+        return getResources(metadataJsonText);
     }
 
     @Nullable
     private File downloadMetadataJson(@NonNull @Nonnull String metadataJsonUrl) {
-        File tempDirectory = FileUtil.getTempDirectory();
+        File tempDirectory = fileUtil.getTempDirectory();
         if (Objects.nonNull(tempDirectory)) {
-            File metadataJsonFile = new File(tempDirectory.getAbsoluteFile() + File.pathSeparator + METADATA_JSON_FILE_NAME);
-            return FileDownloader.downloadFile(metadataJsonUrl, metadataJsonFile.getAbsolutePath());
+            File metadataJsonFile = new File(tempDirectory, METADATA_JSON_FILE_NAME);
+            return fileDownloader.downloadFile(metadataJsonUrl, metadataJsonFile.getAbsolutePath());
         }
         return null;
     }
 
-    private List<String> getDownloadLinks(@NonNull @Nonnull String metadataJson) {
+    private List<ResourceDataPackage> getResources(@NonNull @Nonnull String metadataJson) {
         Gson gson = new Gson();
         RegistrationDataPackage pojo = gson.fromJson(metadataJson, RegistrationDataPackage.class);
         try {
-            log.info("getDownloadLinks: StructureDataPackage JSON content:\n{}", new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(pojo));
+            log.info("getResources: StructureDataPackage JSON content:\n{}", new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(pojo));
         } catch (JsonProcessingException e) {
-            log.warn("getDownloadLinks: Problem with writing StructureDataPackage JSON for logging", e);
+            log.warn("getResources: Problem with writing StructureDataPackage JSON for logging", e);
         }
-        return Objects.nonNull(pojo) ? pojo.getResources().stream().map(ResourceDataPackage::getPath).collect(Collectors.toList()) : Collections.emptyList();
+        return Objects.nonNull(pojo) ? pojo.getResources().stream().filter(resource -> Objects.nonNull(resource.getPath())).collect(Collectors.toList()) : Collections.emptyList();
     }
 }
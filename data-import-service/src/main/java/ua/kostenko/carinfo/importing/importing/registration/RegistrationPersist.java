@@ -7,6 +7,7 @@ import ua.kostenko.carinfo.common.api.records.*;
 import ua.kostenko.carinfo.common.api.services.DBService;
 import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
 import ua.kostenko.carinfo.importing.importing.Persist;
+import ua.kostenko.carinfo.importing.importing.administrative.AdminObjIndex;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -14,6 +15,7 @@ import java.sql.Date;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Executors;
@@ -34,7 +36,7 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
     }
 
     private final DBService<Registration> registrationDBService;
-    private final DBService<AdministrativeObject> administrativeObjectDBService;
+    private final AdminObjIndex adminObjIndex;
     private final DBService<BodyType> bodyTypeDBService;
     private final DBService<Brand> brandDBService;
     private final DBService<Color> colorDBService;
@@ -45,6 +47,9 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
     private final DBService<Operation> operationDBService;
     private final DBService<Purpose> purposeDBService;
     private final DBService<Vehicle> vehicleDBService;
+    private final RecordChangeLog changeLog;
+    private final long[] createdIds = new long[RecordChangeLog.IDS_PER_ENTRY];
+    private int createdCount;
     private final long localThreadId;
     private final String fileName;
     private final ScheduledExecutorService localScheduledExecutorService;
@@ -53,7 +58,7 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
     private int localLastProcessedCounter = 0;
 
     RegistrationPersist(@NonNull @Nonnull DBService<Registration> registrationDBService,
-                        @NonNull @Nonnull DBService<AdministrativeObject> administrativeObjectDBService,
+                        @NonNull @Nonnull AdminObjIndex adminObjIndex,
                         @NonNull @Nonnull DBService<BodyType> bodyTypeDBService,
                         @NonNull @Nonnull DBService<Brand> brandDBService,
                         @NonNull @Nonnull DBService<Color> colorDBService,
@@ -63,9 +68,10 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
                         @NonNull @Nonnull DBService<Model> modelDBService,
                         @NonNull @Nonnull DBService<Operation> operationDBService,
                         @NonNull @Nonnull DBService<Purpose> purposeDBService,
-                        @NonNull @Nonnull DBService<Vehicle> vehicleDBService, String fileName) {
+                        @NonNull @Nonnull DBService<Vehicle> vehicleDBService,
+                        @NonNull @Nonnull RecordChangeLog changeLog, String fileName) {
         this.registrationDBService = registrationDBService;
-        this.administrativeObjectDBService = administrativeObjectDBService;
+        this.adminObjIndex = adminObjIndex;
         this.bodyTypeDBService = bodyTypeDBService;
         this.brandDBService = brandDBService;
         this.colorDBService = colorDBService;
@@ -76,6 +82,7 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
         this.operationDBService = operationDBService;
         this.purposeDBService = purposeDBService;
         this.vehicleDBService = vehicleDBService;
+        this.changeLog = changeLog;
         this.fileName = fileName;
         this.localThreadId = Thread.currentThread().getId();
         this.localScheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
@@ -96,6 +103,10 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
         }
     }
 
+    int getPersisted() {
+        return localPersistentCounter;
+    }
+
     private static void logGlobalStatistics() {
         final LocalDateTime timeNow = LocalDateTime.now();
         final String formattedTime = timeNow.format(DateTimeFormatter.ISO_DATE_TIME);
@@ -170,7 +181,7 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
                                                         .registrationDate(record.getDate())//non NULLABLE
                                                         .build();
                 if (!registrationDBService.exists(registration)) {
-                    registrationDBService.create(registration);
+                    registrationDBService.create(registration).map(Registration::getId).ifPresent(this::logCreated);
                     globalPersistentCounter.incrementAndGet();
                     localPersistentCounter++;
                 }
@@ -185,10 +196,33 @@ public class RegistrationPersist implements Persist<RegistrationCsvRecord> {
         localProcessedCounter++;
     }
 
+    private void logCreated(long id) {
+        createdIds[createdCount++] = id;
+        if (createdCount == createdIds.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Logs ids of created records to {@link RecordChangeLog}, every full chunk is logged right away and the rest by this call at the end of the file.
+     */
+    void flush() {
+        if (createdCount == 0) {
+            return;
+        }
+        try {
+            changeLog.inserted(Arrays.copyOf(createdIds, createdCount));
+        } catch (RuntimeException ex) {
+            log.error("flush: File: {}, problem with logging {} created records, mirrors miss them", fileName, createdCount, ex);
+        } finally {
+            createdCount = 0;
+        }
+    }
+
     private Optional<AdministrativeObject> getAdministrativeObject(@NonNull @Nonnull RegistrationCsvRecord record) {
         AdministrativeObject adminObject = record.getAdminObject();
         Optional<Long> adminObjId = Optional.ofNullable(adminObject.getAdminObjId());
-        return adminObjId.isPresent() ? administrativeObjectDBService.get(adminObjId.get()) : Optional.empty();
+        return adminObjId.isPresent() ? adminObjIndex.get(adminObjId.get()) : Optional.empty();
     }
 
     private Optional<Operation> getOperation(@NonNull @Nonnull RegistrationCsvRecord record) {
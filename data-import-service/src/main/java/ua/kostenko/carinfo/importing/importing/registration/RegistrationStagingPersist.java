@@ -0,0 +1,198 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
+import ua.kostenko.carinfo.importing.importing.Persist;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Buffers valid records as COPY csv rows of one staging batch; {@link #publish()} moves the batch into the target table.
+ * Records are validated the same way as in {@link RegistrationPersist}, dictionary values are resolved by the database.
+ * Rows without a body type are skipped, carinfo.record requires it and {@link RegistrationPersist} fails on them row by row.
+ * Every row gets a fingerprint of its values, only rows accepted by the fingerprint filter are staged.
+ */
+@Slf4j
+class RegistrationStagingPersist implements Persist<RegistrationCsvRecord> {
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024 * 1024;
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+    private final RegistrationStagingRepository repository;
+    private final String fileName;
+    private final String table;
+    private final String batchId;
+    private final int bufferSize;
+    private final Buffer buffer;
+    private final LongConsumer fingerprints;
+    private final LongPredicate filter;
+    private final StringBuilder row = new StringBuilder(512);
+    private long processed;
+    private long staged;
+    private boolean failed;
+
+    RegistrationStagingPersist(@NonNull @Nonnull RegistrationStagingRepository repository, @NonNull @Nonnull String fileName, @NonNull @Nonnull String table) {
+        this(repository, fileName, table, DEFAULT_BUFFER_SIZE);
+    }
+
+    RegistrationStagingPersist(@NonNull @Nonnull RegistrationStagingRepository repository, @NonNull @Nonnull String fileName, @NonNull @Nonnull String table,
+                               int bufferSize) {
+        this(repository, fileName, table, bufferSize, fingerprint -> {
+        }, fingerprint -> true);
+    }
+
+    RegistrationStagingPersist(@NonNull @Nonnull RegistrationStagingRepository repository, @NonNull @Nonnull String fileName, @NonNull @Nonnull String table,
+                               int bufferSize, @NonNull @Nonnull LongConsumer fingerprints, @NonNull @Nonnull LongPredicate filter) {
+        this.repository = repository;
+        this.fileName = fileName;
+        this.table = table;
+        this.batchId = UUID.randomUUID().toString();
+        this.bufferSize = bufferSize;
+        this.buffer = new Buffer(Math.min(bufferSize, DEFAULT_BUFFER_SIZE) + 1024);
+        this.fingerprints = fingerprints;
+        this.filter = filter;
+    }
+
+    static long getFingerprint(@NonNull @Nonnull CharSequence values) {
+        return FINGERPRINT.hashString(values, StandardCharsets.UTF_8).asLong();
+    }
+
+    String getBatchId() {
+        return batchId;
+    }
+
+    @Override
+    public void persist(@NonNull @Nonnull RegistrationCsvRecord record) {
+        processed++;
+        if (failed) {
+            return;
+        }
+        Date registrationDate = record.getDate();
+        String brandName = record.getBrand().getBrandName();
+        String modelName = record.getModel().getModelName();
+        if (Objects.isNull(record.getOperationCode()) || StringUtils.isBlank(record.getOperationName())
+                || Objects.isNull(record.getDepartmentCode()) || StringUtils.isBlank(brandName) || StringUtils.isBlank(modelName)
+                || StringUtils.isBlank(record.getVehicleColor()) || StringUtils.isBlank(record.getVehicleKind())
+                || StringUtils.isBlank(record.getVehiclePurpose()) || StringUtils.isBlank(record.getVehicleBodyType()) || Objects.isNull(record.getVehicleMakeYear())
+                || Objects.isNull(registrationDate) || StringUtils.isBlank(record.getPersonType())) {
+            log.warn("Registration record is not valid. Record = {}", record);
+            return;
+        }
+        row.setLength(0);
+        appendText(batchId);
+        int valuesStart = row.length();
+        appendNumber(record.getAdministrativeObject());
+        appendNumber(record.getOperationCode());
+        appendText(record.getOperationName());
+        appendNumber(record.getDepartmentCode());
+        appendText(record.getVehicleKind());
+        appendText(record.getVehicleColor());
+        appendText(record.getVehicleBodyType().trim());
+        appendText(record.getVehiclePurpose());
+        appendText(brandName);
+        appendText(modelName);
+        appendText(record.getFuelType().getFuelTypeName());
+        appendNumber(record.getVehicleEngineCapacity());
+        appendNumber(record.getVehicleOwnWeight());
+        appendNumber(record.getVehicleTotalWeight());
+        appendNumber(record.getVehicleMakeYear());
+        appendText(registrationDate.toString());
+        appendText(record.getVehicleRegistrationNumber());
+        appendText(record.getPersonType());
+        long fingerprint = getFingerprint(row.subSequence(valuesStart, row.length()));
+        fingerprints.accept(fingerprint);
+        if (!filter.test(fingerprint)) {
+            return;
+        }
+        appendNumber(fingerprint);
+        row.setCharAt(row.length() - 1, '\n');
+        byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+        staged++;
+        if (buffer.size() >= bufferSize) {
+            try {
+                flush();
+            } catch (RuntimeException ex) {
+                log.error("persist: Problem with copying rows of file {} to staging batch {}", fileName, batchId, ex);
+                buffer.reset();
+                failed = true;
+            }
+        }
+    }
+
+    int publish() {
+        return publish(new long[0]);
+    }
+
+    /**
+     * Publishes the batch and deletes records with the removed fingerprints from the target table in the same transaction.
+     */
+    int publish(@NonNull @Nonnull long[] removed) {
+        if (failed) {
+            repository.discard(batchId);
+            throw new IllegalStateException(String.format("Staging batch %s of file %s is not complete", batchId, fileName));
+        }
+        try {
+            flush();
+            int inserted = removed.length == 0 ? repository.publish(batchId, table) : repository.publish(batchId, table, removed);
+            log.info("publish: File: {}, processed: {}, staged: {}, inserted: {}", fileName, processed, staged, inserted);
+            return inserted;
+        } catch (RuntimeException ex) {
+            log.error("publish: Problem with publishing staging batch {} of file {}", batchId, fileName, ex);
+            repository.discard(batchId);
+            throw ex;
+        }
+    }
+
+    private void flush() {
+        if (buffer.size() > 0) {
+            long copied = repository.copy(buffer.getBytes(), buffer.size());
+            log.debug("flush: File: {}, copied {} rows to staging batch {}", fileName, copied, batchId);
+            buffer.reset();
+        }
+    }
+
+    private void appendNumber(@Nullable Long value) {
+        if (Objects.nonNull(value)) {
+            row.append(value);
+        }
+        row.append(DELIMITER);
+    }
+
+    private void appendText(@Nullable String value) {
+        if (Objects.nonNull(value)) {
+            row.append(QUOTE);
+            for (int i = 0; i < value.length(); i++) {
+                char current = value.charAt(i);
+                if (current == QUOTE) {
+                    row.append(QUOTE);
+                }
+                row.append(current);
+            }
+            row.append(QUOTE);
+        }
+        row.append(DELIMITER);
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+        private Buffer(int size) {
+            super(size);
+        }
+
+        private byte[] getBytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ua.kostenko.carinfo.importing.importing.ConcurrencyLimiter;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+/**
+ * Set-based write path: raw rows are loaded into unlogged carinfo.record_staging with COPY,
+ * dictionaries and records are resolved by joins in a few statements per batch.
+ */
+@Slf4j
+@Repository
+class RegistrationStagingRepository {
+    static final String[] COLUMNS = {"batch_id", "admin_obj_id", "op_code", "op_name", "dep_code", "kind_name", "color_name", "body_type_name",
+                                     "purpose_name", "brand_name", "model_name", "fuel_type_name", "engine_capacity", "own_weight", "total_weight",
+                                     "make_year", "registration_date", "registration_number", "person_type", "row_fingerprint"};
+    private static final String BATCH_PARAM = "batch";
+    private static final String COPY_SQL = "copy carinfo.record_staging (" + String.join(", ", COLUMNS) + ") from stdin with (format csv)";
+    private static final String[] DICTIONARY_SQL = {
+            "insert into carinfo.brand (brand_name) select distinct brand_name from carinfo.record_staging where batch_id = :batch on conflict do nothing;",
+            "insert into carinfo.model (model_name) select distinct model_name from carinfo.record_staging where batch_id = :batch on conflict do nothing;",
+            "insert into carinfo.color (color_name) select distinct color_name from carinfo.record_staging where batch_id = :batch on conflict do nothing;",
+            "insert into carinfo.kind (kind_name) select distinct kind_name from carinfo.record_staging where batch_id = :batch on conflict do nothing;",
+            "insert into carinfo.purpose (purpose_name) select distinct purpose_name from carinfo.record_staging where batch_id = :batch on conflict do nothing;",
+            "insert into carinfo.body_type (body_type_name) select distinct body_type_name from carinfo.record_staging " +
+                    "where batch_id = :batch and body_type_name is not null on conflict do nothing;",
+            "insert into carinfo.fuel_type (fuel_type_name) select distinct fuel_type_name from carinfo.record_staging " +
+                    "where batch_id = :batch and fuel_type_name is not null on conflict do nothing;",
+            "insert into carinfo.operation (op_code, op_name) select distinct on (op_code) op_code, op_name from carinfo.record_staging " +
+                    "where batch_id = :batch order by op_code on conflict do nothing;",
+            "insert into carinfo.department (dep_code) select distinct dep_code from carinfo.record_staging where batch_id = :batch on conflict do nothing;",
+            "insert into carinfo.vehicle (brand_id, model_id) " +
+                    "select distinct b.brand_id, m.model_id from carinfo.record_staging s " +
+                    "join carinfo.brand b on b.brand_name = s.brand_name " +
+                    "join carinfo.model m on m.model_name = s.model_name " +
+                    "where s.batch_id = :batch " +
+                    "and not exists (select 1 from carinfo.vehicle v where v.brand_id = b.brand_id and v.model_id = m.model_id);"
+    };
+    private static final String RECORD_SQL = "insert into carinfo.%1$s (admin_obj_id, op_code, dep_code, kind_id, vehicle_id, color_id, body_type_id, " +
+            "purpose_id, fuel_type_id, own_weight, total_weight, engine_capacity, make_year, registration_date, registration_number, person_type, row_fingerprint) " +
+            "select distinct ao.admin_obj_id, o.op_code, d.dep_code, k.kind_id, v.vehicle_id, c.color_id, bt.body_type_id, " +
+            "p.purpose_id, ft.fuel_type_id, s.own_weight, s.total_weight, s.engine_capacity, s.make_year, s.registration_date, s.registration_number, s.person_type, " +
+            "s.row_fingerprint " +
+            "from carinfo.record_staging s " +
+            "join carinfo.operation o on o.op_code = s.op_code " +
+            "join carinfo.department d on d.dep_code = s.dep_code " +
+            "join carinfo.kind k on k.kind_name = s.kind_name " +
+            "join carinfo.color c on c.color_name = s.color_name " +
+            "join carinfo.purpose p on p.purpose_name = s.purpose_name " +
+            "join carinfo.brand b on b.brand_name = s.brand_name " +
+            "join carinfo.model m on m.model_name = s.model_name " +
+            "join (select brand_id, model_id, min(vehicle_id) as vehicle_id from carinfo.vehicle group by brand_id, model_id) v " +
+            "on v.brand_id = b.brand_id and v.model_id = m.model_id " +
+            "left join carinfo.admin_object ao on ao.admin_obj_id = s.admin_obj_id " +
+            "left join carinfo.body_type bt on bt.body_type_name = s.body_type_name " +
+            "left join carinfo.fuel_type ft on ft.fuel_type_name = s.fuel_type_name " +
+            "where s.batch_id = :batch " +
+            "and not exists (select 1 from carinfo.%1$s r " +
+            "where r.vehicle_id = v.vehicle_id and r.registration_date = s.registration_date " +
+            "and r.op_code = o.op_code and r.dep_code = d.dep_code and r.kind_id = k.kind_id " +
+            "and r.color_id = c.color_id and r.purpose_id = p.purpose_id and r.make_year = s.make_year and r.person_type = s.person_type " +
+            "and r.admin_obj_id is not distinct from ao.admin_obj_id and r.body_type_id is not distinct from bt.body_type_id " +
+            "and r.fuel_type_id is not distinct from ft.fuel_type_id and r.engine_capacity is not distinct from s.engine_capacity " +
+            "and r.own_weight is not distinct from s.own_weight and r.total_weight is not distinct from s.total_weight " +
+            "and r.registration_number is not distinct from s.registration_number);";
+    private static final String YEARS_SQL = "select distinct extract(year from registration_date)::int from carinfo.record_staging where batch_id = :batch;";
+    private static final String DELETE_SQL = "delete from carinfo.record_staging where batch_id = :batch;";
+    private static final String REMOVE_SQL = "delete from carinfo.%s where row_fingerprint = any(?);";
+    private static final String REMOVED_YEARS_SQL = "select distinct extract(year from registration_date)::int from carinfo.%s where row_fingerprint = any(?);";
+    private static final String YEAR_LOCK_SQL = "select pg_advisory_xact_lock(hashtext(?));";
+    private static final int REMOVE_CHUNK_SIZE = 10000;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final RecordPartitionManager partitionManager;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final RecordChangeLog changeLog;
+
+    @Autowired
+    RegistrationStagingRepository(@NonNull @Nonnull NamedParameterJdbcTemplate jdbcTemplate, @NonNull @Nonnull RecordPartitionManager partitionManager,
+                                  @NonNull @Nonnull ConcurrencyLimiter concurrencyLimiter, @NonNull @Nonnull RecordChangeLog changeLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionManager = partitionManager;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Copies are limited by {@link ConcurrencyLimiter}, publishing is serialized per year by advisory locks anyway.
+     */
+    long copy(@NonNull @Nonnull byte[] csvRows, int length) {
+        Long copied = concurrencyLimiter.call(() -> jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new ByteArrayInputStream(csvRows, 0, length));
+            } catch (IOException ex) {
+                throw new SQLException("Problem with copying rows to staging table", ex);
+            }
+        }));
+        return Objects.isNull(copied) ? 0 : copied;
+    }
+
+    /**
+     * Moves the batch into the target table, carinfo.record or a data version table of {@link RecordPartitionManager}.
+     * Changes of carinfo.record are logged to {@link RecordChangeLog}.
+     */
+    @Transactional
+    public int publish(@NonNull @Nonnull String batchId, @NonNull @Nonnull String table) {
+        return publish(batchId, table, new long[0]);
+    }
+
+    /**
+     * Deletes records with the removed fingerprints and moves the batch into the table in one transaction.
+     * Dictionaries are upserted first without a lock. Batches touching the same years of the table are serialized by an advisory lock
+     * per year, because the not-exists dedup of a batch doesn't see records of concurrent ones. {@link RecordChangeLog#LOCK_SQL} is taken
+     * last, only for logging the collected ids before commit.
+     */
+    @Transactional
+    public int publish(@NonNull @Nonnull String batchId, @NonNull @Nonnull String table, @NonNull @Nonnull long[] removed) {
+        SqlParameterSource params = new MapSqlParameterSource(BATCH_PARAM, batchId);
+        for (String sql : DICTIONARY_SQL) {
+            jdbcTemplate.update(sql, params);
+        }
+        List<Integer> years = jdbcTemplate.queryForList(YEARS_SQL, params, Integer.class);
+        long start = System.nanoTime();
+        lockYears(table, years, removed);
+        long lockWaitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        boolean live = RecordPartitionManager.isLiveTable(table);
+        if (live) {
+            jdbcTemplate.getJdbcTemplate().execute(RecordChangeLog.COLLECT_TABLE_SQL);
+        }
+        int deleted = remove(table, removed, live);
+        years.forEach(year -> partitionManager.ensurePartition(table, year));
+        String recordSql = String.format(RECORD_SQL, table);
+        int inserted = jdbcTemplate.update(live ? RecordChangeLog.collected(RecordChangeLog.INSERT, recordSql) : recordSql, params);
+        int staged = jdbcTemplate.update(DELETE_SQL, params);
+        if (live) {
+            changeLog.logCollected();
+        }
+        log.info("publish: Batch: {}, table: {}, staged rows: {}, inserted records: {}, deleted records: {}, years: {}, lock wait: {} ms",
+                 batchId, table, staged, inserted, deleted, years, lockWaitMillis);
+        return inserted;
+    }
+
+    /**
+     * Takes the locks of the batch years and of the years of removed records in ascending order, so concurrent batches can't deadlock.
+     */
+    private void lockYears(@NonNull @Nonnull String table, @NonNull @Nonnull List<Integer> years, @NonNull @Nonnull long[] removed) {
+        SortedSet<Integer> locked = new TreeSet<>(years);
+        String removedYearsSql = String.format(REMOVED_YEARS_SQL, table);
+        forEachChunk(removed, chunk -> locked.addAll(jdbcTemplate.getJdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(removedYearsSql);
+            statement.setArray(1, connection.createArrayOf("bigint", chunk));
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getInt(1))));
+        locked.forEach(year -> jdbcTemplate.getJdbcTemplate().queryForList(YEAR_LOCK_SQL, "carinfo." + RecordPartitionManager.getPartitionName(table, year)));
+    }
+
+    void discard(@NonNull @Nonnull String batchId) {
+        jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource(BATCH_PARAM, batchId));
+    }
+
+    private int remove(@NonNull @Nonnull String table, @NonNull @Nonnull long[] removed, boolean live) {
+        String removeSql = String.format(REMOVE_SQL, table);
+        String sql = live ? RecordChangeLog.collected(RecordChangeLog.DELETE, removeSql) : removeSql;
+        int[] deleted = {0};
+        forEachChunk(removed, chunk -> deleted[0] += jdbcTemplate.getJdbcTemplate().update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("bigint", chunk));
+            return statement;
+        }));
+        return deleted[0];
+    }
+
+    private static void forEachChunk(@NonNull @Nonnull long[] fingerprints, @NonNull @Nonnull Consumer<Long[]> action) {
+        for (int from = 0; from < fingerprints.length; from += REMOVE_CHUNK_SIZE) {
+            action.accept(LongStream.of(Arrays.copyOfRange(fingerprints, from, Math.min(fingerprints.length, from + REMOVE_CHUNK_SIZE))).boxed().toArray(Long[]::new));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import lombok.NonNull;
+import ua.kostenko.carinfo.importing.json.registration.ResourceDataPackage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Import order of data package resources: newest year first, so recent registrations are published early,
+ * and the largest archives first inside a year, so long tasks don't start last.
+ */
+final class ResourceOrder {
+    private static final Pattern YEAR = Pattern.compile("(20\\d{2})(?!\\d)");
+    static final Comparator<ResourceDataPackage> NEWEST_LARGEST_FIRST =
+            Comparator.comparing(ResourceOrder::getYear, Comparator.nullsLast(Comparator.reverseOrder()))
+                      .thenComparing(ResourceDataPackage::getBytes, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private ResourceOrder() {
+    }
+
+    /**
+     * @return the latest year mentioned in the resource name or file name (e.g. tz_opendata_z01012019_po31122019.zip), null if none.
+     */
+    @Nullable
+    static Integer getYear(@NonNull @Nonnull ResourceDataPackage resource) {
+        Integer year = null;
+        for (String text : new String[]{resource.getName(), Objects.isNull(resource.getPath()) ? null : FileProcessingTask.getFileName(resource.getPath())}) {
+            if (Objects.isNull(text)) {
+                continue;
+            }
+            Matcher matcher = YEAR.matcher(text);
+            while (matcher.find()) {
+                int found = Integer.parseInt(matcher.group(1));
+                if (found <= LocalDate.now().getYear() && (Objects.isNull(year) || found > year)) {
+                    year = found;
+                }
+            }
+        }
+        return year;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
+import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -11,14 +12,15 @@ import java.util.Objects;
 import java.util.stream.Stream;
 
 @Slf4j
+@Component
 public class ArchiveUtils {
 
-    public synchronized static File extractZipArchive(@NonNull @Nonnull File archiveFile, @NonNull @Nonnull File destinationDirectory) {
+    public File extractZipArchive(@NonNull @Nonnull File archiveFile, @NonNull @Nonnull File destinationDirectory) {
         try {
             log.info("extractZipArchive: Extracting zip archive...");
             log.info("extractZipArchive: Archive file: {}", archiveFile.getAbsolutePath());
             log.info("extractZipArchive: Destination directory: {}", destinationDirectory.getAbsolutePath());
-            ZipFile zipFile = new ZipFile(archiveFile);
+            ZipFile zipFile = openArchive(archiveFile);
             zipFile.extractAll(destinationDirectory.getAbsolutePath());
             log.info("extractZipArchive: All files was extracted to: {}", destinationDirectory.getAbsolutePath());
             log.info("extractZipArchive: All extracted files in folder {} [", destinationDirectory.getAbsolutePath());
@@ -30,4 +32,11 @@ public class ArchiveUtils {
             return null;
         }
     }
+
+    /**
+     * Every extraction gets its own zip4j instance, nothing is shared between concurrent extractions.
+     */
+    ZipFile openArchive(@NonNull @Nonnull File archiveFile) throws ZipException {
+        return new ZipFile(archiveFile);
+    }
 }
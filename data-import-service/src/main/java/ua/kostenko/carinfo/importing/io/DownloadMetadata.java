@@ -0,0 +1,76 @@
+package ua.kostenko.carinfo.importing.io;
+
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.util.Objects;
+import java.util.Properties;
+
+@Slf4j
+@Data
+class DownloadMetadata {
+    private static final String URL = "url";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String LENGTH = "length";
+    private static final String SEGMENTS = "segments";
+    private static final String SHA_256 = "sha256";
+    private static final String COMPLETE = "complete";
+    private String url;
+    private String etag;
+    private String lastModified;
+    private long length = -1;
+    private int segments;
+    private String sha256;
+    private boolean complete;
+
+    static DownloadMetadata load(@NonNull @Nonnull File metadataFile) {
+        DownloadMetadata metadata = new DownloadMetadata();
+        if (!metadataFile.exists()) {
+            return metadata;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(metadataFile)) {
+            properties.load(inputStream);
+            metadata.setUrl(properties.getProperty(URL));
+            metadata.setEtag(properties.getProperty(ETAG));
+            metadata.setLastModified(properties.getProperty(LAST_MODIFIED));
+            metadata.setLength(Long.parseLong(properties.getProperty(LENGTH, "-1")));
+            metadata.setSegments(Integer.parseInt(properties.getProperty(SEGMENTS, "0")));
+            metadata.setSha256(properties.getProperty(SHA_256));
+            metadata.setComplete(Boolean.parseBoolean(properties.getProperty(COMPLETE)));
+        } catch (IOException | NumberFormatException e) {
+            log.warn("load: Problem with reading download metadata: " + metadataFile.getAbsolutePath(), e);
+            return new DownloadMetadata();
+        }
+        return metadata;
+    }
+
+    void save(@NonNull @Nonnull File metadataFile) throws IOException {
+        Properties properties = new Properties();
+        setProperty(properties, URL, url);
+        setProperty(properties, ETAG, etag);
+        setProperty(properties, LAST_MODIFIED, lastModified);
+        properties.setProperty(LENGTH, String.valueOf(length));
+        properties.setProperty(SEGMENTS, String.valueOf(segments));
+        setProperty(properties, SHA_256, sha256);
+        properties.setProperty(COMPLETE, String.valueOf(complete));
+        try (OutputStream outputStream = new FileOutputStream(metadataFile)) {
+            properties.store(outputStream, null);
+        }
+    }
+
+    boolean isSameResource(@NonNull @Nonnull DownloadMetadata other) {
+        return Objects.equals(url, other.url) && Objects.equals(etag, other.etag) && Objects.equals(lastModified, other.lastModified)
+                && length == other.length;
+    }
+
+    private static void setProperty(Properties properties, String key, String value) {
+        if (Objects.nonNull(value)) {
+            properties.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ua.kostenko.carinfo.importing.io;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class DownloadOptions {
+    @Builder.Default
+    private int segments = 4;
+    @Builder.Default
+    private long minSegmentSize = 8 * 1024 * 1024;
+    @Builder.Default
+    private int maxRetries = 3;
+    @Builder.Default
+    private long retryBackoffMillis = 1000;
+    @Builder.Default
+    private int connectTimeoutMillis = 30_000;
+    @Builder.Default
+    private int readTimeoutMillis = 60_000;
+}
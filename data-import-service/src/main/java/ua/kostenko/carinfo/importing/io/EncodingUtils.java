@@ -3,6 +3,7 @@ package ua.kostenko.carinfo.importing.io;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.mozilla.universalchardet.UniversalDetector;
+import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -10,10 +11,11 @@ import java.io.File;
 import java.io.IOException;
 
 @Slf4j
+@Component
 public class EncodingUtils {
 
     @Nullable
-    public synchronized static String getEncoding(@NonNull @Nonnull File textFile) {
+    public String getEncoding(@NonNull @Nonnull File textFile) {
         String encoding = null;
         try {
             log.debug("getEncoding: Trying to distinguish encoding of file: {}", textFile.getAbsolutePath());
@@ -1,36 +1,362 @@
 package ua.kostenko.carinfo.importing.io;
 
-import com.google.common.base.Preconditions;
+import com.google.common.io.BaseEncoding;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
 
 import javax.annotation.Nonnull;
-import java.io.File;
-import java.io.IOException;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
+@Component
 public class FileDownloader {
+    private static final String METADATA_SUFFIX = ".download";
+    private static final String PART_SUFFIX = ".part";
+    private static final String SHA_256 = "SHA-256";
+    private static final String SHA_256_PREFIX = "sha256:";
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes \\d+-\\d+/(\\d+)");
+    private static final Pattern SHA_256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final DownloadOptions options;
 
-    public synchronized static File downloadFile(@NonNull @Nonnull String downloadUrl, @NonNull @Nonnull String pathToFileForSave) {
-        Path targetPath = null;
+    public FileDownloader() {
+        this(DownloadOptions.builder().build());
+    }
+
+    @Autowired
+    public FileDownloader(@NonNull @Nonnull ApplicationProperties properties) {
+        this(DownloadOptions.builder()
+                            .segments(properties.APP_DOWNLOAD_SEGMENTS)
+                            .minSegmentSize(properties.APP_DOWNLOAD_MIN_SEGMENT_SIZE)
+                            .maxRetries(properties.APP_DOWNLOAD_MAX_RETRIES)
+                            .retryBackoffMillis(properties.APP_DOWNLOAD_RETRY_BACKOFF_MILLIS)
+                            .connectTimeoutMillis(properties.APP_DOWNLOAD_CONNECT_TIMEOUT_MILLIS)
+                            .readTimeoutMillis(properties.APP_DOWNLOAD_READ_TIMEOUT_MILLIS)
+                            .build());
+    }
+
+    public FileDownloader(@NonNull @Nonnull DownloadOptions options) {
+        this.options = options;
+    }
+
+    @Nullable
+    public File downloadFile(@NonNull @Nonnull String downloadUrl, @NonNull @Nonnull String pathToFileForSave) {
+        return downloadFile(downloadUrl, pathToFileForSave, null);
+    }
+
+    @Nullable
+    public File downloadFile(@NonNull @Nonnull String downloadUrl, @NonNull @Nonnull String pathToFileForSave, @Nullable String expectedHash) {
+        File targetFile = new File(pathToFileForSave);
+        File metadataFile = new File(pathToFileForSave + METADATA_SUFFIX);
         try {
             log.info("downloadFile: Downloading archive from URL: {}", downloadUrl);
+            log.info("downloadFile: Saving archive to: {}", targetFile.getAbsolutePath());
             URL url = new URL(downloadUrl);
-
-            targetPath = new File(pathToFileForSave).toPath();
-            log.info("downloadFile: Saving archive to directory: {}", targetPath.toAbsolutePath().toString());
-
-            Files.copy(url.openStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-            log.info("downloadFile: Finished downloading archive from: " + downloadUrl);
+            String expectedSha256 = getExpectedSha256(expectedHash);
+            DownloadMetadata stored = DownloadMetadata.load(metadataFile);
+            boolean reusable = isReusable(targetFile, stored, downloadUrl, expectedSha256);
+            Probe probe = withRetries("probe " + downloadUrl, () -> probe(url, reusable ? stored : null, targetFile));
+            if (probe.isNotModified()) {
+                log.info("downloadFile: Archive is not modified since last download: {}", targetFile.getAbsolutePath());
+                return targetFile;
+            }
+            DownloadMetadata current = probe.getMetadata();
+            current.setUrl(downloadUrl);
+            List<File> parts;
+            if (probe.isRangeSupported()) {
+                current.setSegments(stored.isSameResource(current) && !stored.isComplete() && stored.getSegments() > 0 ? stored.getSegments() : getSegmentsNumber(current.getLength()));
+                if (!stored.isSameResource(current) || stored.getSegments() != current.getSegments()) {
+                    deleteParts(targetFile, Math.max(stored.getSegments(), options.getSegments()));
+                }
+                current.save(metadataFile);
+                parts = downloadSegments(url, targetFile, current);
+            } else {
+                current.setSegments(1);
+                current.save(metadataFile);
+                parts = Collections.singletonList(getPartFile(targetFile, 0));
+            }
+            String sha256 = mergeParts(parts, targetFile);
+            if (Objects.nonNull(expectedSha256) && !expectedSha256.equals(sha256)) {
+                deleteQuietly(targetFile, metadataFile);
+                throw new IOException(String.format("Checksum mismatch, expected: %s, actual: %s", expectedSha256, sha256));
+            }
+            current.setSha256(sha256);
+            current.setComplete(true);
+            current.save(metadataFile);
+            log.info("downloadFile: Archive downloaded from: {}, path to archive: {}, sha256: {}", downloadUrl, targetFile.getAbsolutePath(), sha256);
+            return targetFile;
         } catch (IOException e) {
             log.error(String.format("Error occurred with downloading archive from: %s", downloadUrl), e);
+            return null;
         }
-        Preconditions.checkNotNull(targetPath, String.format("Error occurred in downloading archive from: %s, path to archive is null", downloadUrl));
-        log.info("downloadFile: Archive downloaded from: {}, path to archive: {}", downloadUrl, targetPath.toAbsolutePath().toString());
-        return targetPath.toFile();
+    }
+
+    private boolean isReusable(File targetFile, DownloadMetadata stored, String downloadUrl, String expectedSha256) throws IOException {
+        if (!targetFile.exists() || !stored.isComplete() || !downloadUrl.equals(stored.getUrl()) || Objects.isNull(stored.getSha256())) {
+            return false;
+        }
+        if (Objects.nonNull(expectedSha256) && !expectedSha256.equals(stored.getSha256())) {
+            return false;
+        }
+        boolean valid = stored.getSha256().equals(getSha256(targetFile));
+        if (!valid) {
+            log.warn("isReusable: Local copy doesn't match stored checksum: {}", targetFile.getAbsolutePath());
+        }
+        return valid;
+    }
+
+    private Probe probe(URL url, @Nullable DownloadMetadata stored, File targetFile) throws IOException {
+        HttpURLConnection connection = openConnection(url);
+        connection.setRequestProperty("Range", "bytes=0-0");
+        if (Objects.nonNull(stored)) {
+            if (Objects.nonNull(stored.getEtag())) {
+                connection.setRequestProperty("If-None-Match", stored.getEtag());
+            }
+            if (Objects.nonNull(stored.getLastModified())) {
+                connection.setRequestProperty("If-Modified-Since", stored.getLastModified());
+            }
+        }
+        try {
+            int responseCode = checkResponseCode(connection);
+            DownloadMetadata metadata = new DownloadMetadata();
+            metadata.setEtag(connection.getHeaderField("ETag"));
+            metadata.setLastModified(connection.getHeaderField("Last-Modified"));
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return new Probe(true, false, metadata);
+            }
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                Matcher matcher = CONTENT_RANGE.matcher(StringUtils.defaultString(connection.getHeaderField("Content-Range")));
+                if (matcher.matches()) {
+                    metadata.setLength(Long.parseLong(matcher.group(1)));
+                    return new Probe(false, true, metadata);
+                }
+                connection.disconnect();
+                connection = openConnection(url);
+                checkResponseCode(connection);
+            }
+            metadata.setLength(connection.getContentLengthLong());
+            log.info("probe: Server doesn't support ranges, downloading in one connection: {}", url);
+            try (InputStream inputStream = connection.getInputStream();
+                 OutputStream outputStream = new FileOutputStream(getPartFile(targetFile, 0))) {
+                copy(inputStream, outputStream);
+            }
+            return new Probe(false, false, metadata);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private List<File> downloadSegments(URL url, File targetFile, DownloadMetadata metadata) throws IOException {
+        int segments = metadata.getSegments();
+        long segmentSize = (metadata.getLength() + segments - 1) / segments;
+        log.info("downloadSegments: Downloading {} bytes in {} segments from: {}", metadata.getLength(), segments, url);
+        List<File> parts = new ArrayList<>();
+        List<Future<Void>> futures = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(segments);
+        try {
+            for (int i = 0; i < segments; i++) {
+                File part = getPartFile(targetFile, i);
+                long start = i * segmentSize;
+                long end = Math.min(metadata.getLength(), start + segmentSize) - 1;
+                parts.add(part);
+                futures.add(executorService.submit(() -> withRetries("segment " + part.getName(), () -> downloadSegment(url, part, start, end, metadata))));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download was interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        return parts;
+    }
+
+    private Void downloadSegment(URL url, File part, long start, long end, DownloadMetadata metadata) throws IOException {
+        long segmentLength = end - start + 1;
+        long downloaded = part.exists() ? part.length() : 0;
+        if (downloaded > segmentLength) {
+            deleteQuietly(part);
+            downloaded = 0;
+        }
+        if (downloaded == segmentLength) {
+            return null;
+        }
+        HttpURLConnection connection = openConnection(url);
+        connection.setRequestProperty("Range", String.format("bytes=%d-%d", start + downloaded, end));
+        String validator = StringUtils.defaultIfBlank(metadata.getEtag(), metadata.getLastModified());
+        if (Objects.nonNull(validator)) {
+            connection.setRequestProperty("If-Range", validator);
+        }
+        try {
+            if (checkResponseCode(connection) != HttpURLConnection.HTTP_PARTIAL) {
+                throw new NonRetryableException(String.format("Resource %s was changed during download", url));
+            }
+            try (InputStream inputStream = connection.getInputStream();
+                 OutputStream outputStream = new FileOutputStream(part, true)) {
+                copy(inputStream, outputStream);
+            }
+        } finally {
+            connection.disconnect();
+        }
+        if (part.length() != segmentLength) {
+            throw new EOFException(String.format("Segment %s is incomplete: %d of %d bytes", part.getName(), part.length(), segmentLength));
+        }
+        return null;
+    }
+
+    private String mergeParts(List<File> parts, File targetFile) throws IOException {
+        MessageDigest digest = getDigest();
+        try (OutputStream outputStream = new FileOutputStream(targetFile)) {
+            for (File part : parts) {
+                try (InputStream inputStream = new DigestInputStream(new FileInputStream(part), digest)) {
+                    copy(inputStream, outputStream);
+                }
+            }
+        }
+        parts.forEach(this::deleteQuietly);
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    private String getSha256(File file) throws IOException {
+        MessageDigest digest = getDigest();
+        try (InputStream inputStream = new DigestInputStream(new FileInputStream(file), digest)) {
+            copy(inputStream, null);
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    private <T> T withRetries(String description, IOAction<T> action) throws IOException {
+        IOException lastException = null;
+        for (int attempt = 0; attempt <= options.getMaxRetries(); attempt++) {
+            if (attempt > 0) {
+                long backoff = options.getRetryBackoffMillis() << Math.min(attempt - 1, 16);
+                log.warn("withRetries: Retrying {} in {} ms, attempt {} of {}", description, backoff, attempt, options.getMaxRetries());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download was interrupted");
+                }
+            }
+            try {
+                return action.call();
+            } catch (NonRetryableException e) {
+                throw e;
+            } catch (IOException e) {
+                log.warn("withRetries: Problem with {}: {}", description, e.getMessage());
+                lastException = e;
+            }
+        }
+        throw Objects.requireNonNull(lastException);
+    }
+
+    private HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(options.getConnectTimeoutMillis());
+        connection.setReadTimeout(options.getReadTimeoutMillis());
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        return connection;
+    }
+
+    private int checkResponseCode(HttpURLConnection connection) throws IOException {
+        int responseCode = connection.getResponseCode();
+        if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            String message = String.format("Server responded with %d for %s", responseCode, connection.getURL());
+            boolean retryable = responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR || responseCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT || responseCode == 429;
+            throw retryable ? new IOException(message) : new NonRetryableException(message);
+        }
+        return responseCode;
+    }
+
+    private int getSegmentsNumber(long length) {
+        long segments = (length + options.getMinSegmentSize() - 1) / Math.max(1, options.getMinSegmentSize());
+        return (int) Math.max(1, Math.min(options.getSegments(), segments));
+    }
+
+    private File getPartFile(File targetFile, int index) {
+        return new File(targetFile.getAbsolutePath() + PART_SUFFIX + index);
+    }
+
+    private void deleteParts(File targetFile, int segments) {
+        for (int i = 0; i < segments; i++) {
+            deleteQuietly(getPartFile(targetFile, i));
+        }
+    }
+
+    private void deleteQuietly(File... files) {
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                log.warn("deleteQuietly: Problem with deletion of file: {}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    @Nullable
+    private static String getExpectedSha256(@Nullable String expectedHash) {
+        if (StringUtils.isBlank(expectedHash)) {
+            return null;
+        }
+        String hash = StringUtils.removeStartIgnoreCase(expectedHash.trim(), SHA_256_PREFIX).toLowerCase();
+        return SHA_256_HEX.matcher(hash).matches() ? hash : null;
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void copy(InputStream inputStream, @Nullable OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (Objects.nonNull(outputStream)) {
+                outputStream.write(buffer, 0, read);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOAction<T> {
+        T call() throws IOException;
+    }
+
+    private static class NonRetryableException extends IOException {
+        NonRetryableException(String message) {
+            super(message);
+        }
+    }
+
+    @lombok.Value
+    private static class Probe {
+        private final boolean notModified;
+        private final boolean rangeSupported;
+        private final DownloadMetadata metadata;
     }
 }
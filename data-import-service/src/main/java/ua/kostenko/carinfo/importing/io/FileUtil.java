@@ -3,54 +3,77 @@ package ua.kostenko.carinfo.importing.io;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Objects;
 
 @Slf4j
+@Component
 public class FileUtil {
     private static final String SYSTEM_TMP_FOLDER_PROPERTY = "java.io.tmpdir";
-    private static final String SUB_DIRECTORY = "/registration";
+    private static final String SUB_DIRECTORY = "registration";
+    private static final String DOWNLOADS_DIRECTORY = "downloads";
+    private final EncodingUtils encodingUtils;
+    private final File rootDirectory;
+
+    @Autowired
+    public FileUtil(@NonNull @Nonnull EncodingUtils encodingUtils) {
+        this(encodingUtils, new File(System.getProperty(SYSTEM_TMP_FOLDER_PROPERTY), SUB_DIRECTORY));
+    }
+
+    public FileUtil(@NonNull @Nonnull EncodingUtils encodingUtils, @NonNull @Nonnull File rootDirectory) {
+        this.encodingUtils = encodingUtils;
+        this.rootDirectory = rootDirectory;
+    }
 
     @Nullable
-    public synchronized static File getTempDirectory() {
-        String tempDirPath = System.getProperty(SYSTEM_TMP_FOLDER_PROPERTY);
-        File tempDirectory = new File(tempDirPath);
-        if (tempDirectory.exists()) {
-            File directory = createDirectory(tempDirectory.getAbsolutePath() + SUB_DIRECTORY);
-            if (Objects.nonNull(directory)) {
-                log.info("getTempDirectory: Temp directory path: {}", directory.getAbsolutePath());
-                return directory;
-            } else {
-                log.warn("getTempDirectory: Was the problem with creating temp directory");
-                return null;
-            }
-        } else {
-            log.warn("getTempDirectory: Temp directory {} doesn't exist", tempDirectory.getAbsolutePath());
+    public File getTempDirectory() {
+        try {
+            Path directory = Files.createDirectories(rootDirectory.toPath());
+            log.info("getTempDirectory: Temp directory path: {}", directory.toAbsolutePath());
+            return directory.toFile();
+        } catch (IOException e) {
+            log.warn("getTempDirectory: Was the problem with creating temp directory: " + rootDirectory.getAbsolutePath(), e);
             return null;
         }
     }
 
     @Nullable
-    private synchronized static File createDirectory(@NonNull @Nonnull String filePath) {
-        log.info("createDirectory: Creating directory by path: " + filePath);
-        File directory = new File(filePath);
-        if (directory.exists()) {
-            log.info("createDirectory: Directory by path {} already exists", filePath);
-            return directory;
-        } else {
-            log.warn("createDirectory: Directory by path {} doesn't exist", filePath);
-            log.info("createDirectory: Trying to create directory: {}", filePath);
-            boolean isCreated = directory.mkdir();
-            log.info("createDirectory: Directory is created: {}", isCreated);
-            return isCreated ? directory : null;
+    public File getDownloadDirectory() {
+        try {
+            Path directory = Files.createDirectories(rootDirectory.toPath().resolve(DOWNLOADS_DIRECTORY));
+            log.info("getDownloadDirectory: Download directory path: {}", directory.toAbsolutePath());
+            return directory.toFile();
+        } catch (IOException e) {
+            log.warn("getDownloadDirectory: Was the problem with creating download directory in: " + rootDirectory.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    @Nullable
+    public File createWorkingDirectory(@NonNull @Nonnull String prefix) {
+        File tempDirectory = getTempDirectory();
+        if (Objects.isNull(tempDirectory)) {
+            return null;
+        }
+        try {
+            Path directory = Files.createTempDirectory(tempDirectory.toPath(), prefix.replaceAll("[^A-Za-z0-9_.-]", "_") + "-");
+            log.info("createWorkingDirectory: Working directory path: {}", directory.toAbsolutePath());
+            return directory.toFile();
+        } catch (IOException e) {
+            log.warn("createWorkingDirectory: Was the problem with creating working directory in: " + tempDirectory.getAbsolutePath(), e);
+            return null;
         }
     }
 
-    public synchronized static void deleteFiles(File... files) {
+    public void deleteFiles(File... files) {
         for (File file : files) {
             try {
                 String fileForDeletion = file.getAbsolutePath();
@@ -64,9 +87,9 @@ public class FileUtil {
     }
 
     @Nullable
-    public synchronized static String getTextFromFile(@NonNull @Nonnull File file) {
+    public String getTextFromFile(@NonNull @Nonnull File file) {
         if (file.exists()) {
-            String encoding = EncodingUtils.getEncoding(file);
+            String encoding = encodingUtils.getEncoding(file);
             String resultString = null;
             try {
                 resultString = FileUtils.readFileToString(file, encoding);
@@ -14,4 +14,6 @@ public class ResourceDataPackage {
     private String format;
     private String encoding;
     private String path;
+    private String hash;
+    private Long bytes;
 }
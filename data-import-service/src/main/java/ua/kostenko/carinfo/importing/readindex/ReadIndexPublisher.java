@@ -0,0 +1,224 @@
+package ua.kostenko.carinfo.importing.readindex;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.kostenko.carinfo.common.readindex.ReadIndex;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
+import ua.kostenko.carinfo.common.readindex.ReadIndexEntry;
+import ua.kostenko.carinfo.common.readindex.ReadIndexGeneration;
+import ua.kostenko.carinfo.common.readindex.ReadIndexRow;
+import ua.kostenko.carinfo.common.readindex.ReadIndexWriter;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Publishes a read index file of the current data, rest-service maps it and answers lookups by plate and dictionary
+ * listings from it instead of the database. The file is written from one repeatable read transaction, so plates point to
+ * the same row numbers the rows are written with, and is named by the {@link ReadIndexGeneration} read in that transaction:
+ * live writes within a data version get a file of their own.
+ */
+@Slf4j
+@Component
+public class ReadIndexPublisher {
+    private static final int FETCH_SIZE = 10000;
+    private static final String PERSON_TYPES_SQL = "select distinct person_type from carinfo.record where person_type is not null order by person_type";
+    private static final String PLATES_SQL = "select row, registration_number from (select registration_number, row_number() over (order by id) - 1 as row " +
+            "from carinfo.record) r where registration_number is not null order by registration_number collate \"C\", row";
+    private static final String ROWS_SQL = "select r.id, v.brand_id, v.model_id, r.color_id, r.kind_id, r.fuel_type_id, r.purpose_id, r.body_type_id, " +
+            "r.person_type, r.op_code, r.dep_code, r.admin_obj_id, r.engine_capacity, r.make_year, r.own_weight, r.total_weight, r.registration_date " +
+            "from carinfo.record r left join carinfo.vehicle v on v.vehicle_id = r.vehicle_id order by r.id";
+    private static final Map<ReadIndexDictionary, String> DICTIONARY_SQL = ImmutableMap.<ReadIndexDictionary, String>builder()
+            .put(ReadIndexDictionary.BRAND, "select brand_id, brand_name from carinfo.brand order by brand_id")
+            .put(ReadIndexDictionary.MODEL, "select model_id, model_name from carinfo.model order by model_id")
+            .put(ReadIndexDictionary.COLOR, "select color_id, color_name from carinfo.color order by color_id")
+            .put(ReadIndexDictionary.KIND, "select kind_id, kind_name from carinfo.kind order by kind_id")
+            .put(ReadIndexDictionary.FUEL_TYPE, "select fuel_type_id, fuel_type_name from carinfo.fuel_type order by fuel_type_id")
+            .put(ReadIndexDictionary.PURPOSE, "select purpose_id, purpose_name from carinfo.purpose order by purpose_id")
+            .put(ReadIndexDictionary.BODY_TYPE, "select body_type_id, body_type_name from carinfo.body_type order by body_type_id")
+            .put(ReadIndexDictionary.OPERATION, "select op_code, op_name from carinfo.operation order by op_code")
+            .put(ReadIndexDictionary.DEPARTMENT, "select dep_code, dep_addr, dep_email from carinfo.department order by dep_code")
+            .put(ReadIndexDictionary.ADMIN_OBJECT, "select admin_obj_id, admin_obj_name, admin_obj_type from carinfo.admin_object order by admin_obj_id")
+            .build();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final ApplicationProperties properties;
+
+    @Autowired
+    public ReadIndexPublisher(@NonNull @Nonnull JdbcTemplate jdbcTemplate,
+                              @NonNull @Nonnull PlatformTransactionManager transactionManager,
+                              @NonNull @Nonnull ApplicationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource(), "dataSource can't be null"));
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readTransaction.setReadOnly(true);
+        this.properties = properties;
+    }
+
+    /**
+     * Publishes the read index of the current data into the configured directory unless its generation is already there,
+     * and removes old index files beyond the configured number.
+     */
+    public void publishIfEnabled() {
+        if (StringUtils.isBlank(properties.APP_READ_INDEX_DIR)) {
+            return;
+        }
+        File directory = new File(properties.APP_READ_INDEX_DIR);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.warn("publishIfEnabled: Directory {} can't be created", directory.getAbsolutePath());
+            return;
+        }
+        try {
+            publish(directory);
+            removeOldFiles(directory);
+        } catch (IOException | RuntimeException ex) {
+            log.error("publishIfEnabled: Problem with publishing read index to {}", directory.getAbsolutePath(), ex);
+        }
+    }
+
+    private void publish(@NonNull @Nonnull File directory) throws IOException {
+        long started = System.nanoTime();
+        File temp = File.createTempFile("carinfo-", ".cri.tmp", directory);
+        try {
+            File file = readTransaction.execute(status -> {
+                ReadIndexGeneration generation = ReadIndexGeneration.read(jdbcTemplate);
+                if (Objects.isNull(generation.getDataVersion())) {
+                    log.info("publish: There is no current data version, read index is not published");
+                    return null;
+                }
+                File target = new File(directory, ReadIndex.getFileName(generation));
+                if (target.isFile()) {
+                    log.info("publish: Read index {} is already published", target.getName());
+                    return null;
+                }
+                try (ReadIndexWriter writer = new ReadIndexWriter(temp, generation)) {
+                    write(writer);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return target;
+            });
+            if (Objects.isNull(file)) {
+                return;
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            log.info("publish: Read index {} is published in {} ms, size: {}", file.getName(),
+                     Duration.ofNanos(System.nanoTime() - started).toMillis(), file.length());
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private void write(@NonNull @Nonnull ReadIndexWriter writer) throws IOException {
+        Map<String, Long> personTypes = getPersonTypes();
+        for (ReadIndexDictionary dictionary : ReadIndexDictionary.values()) {
+            if (dictionary == ReadIndexDictionary.PERSON_TYPE) {
+                List<ReadIndexEntry> entries = new ArrayList<>();
+                personTypes.forEach((name, id) -> entries.add(new ReadIndexEntry(id, Collections.singletonList(name))));
+                writer.writeDictionary(dictionary, entries);
+                continue;
+            }
+            int fieldCount = dictionary.getFieldCount();
+            writer.writeDictionary(dictionary, jdbcTemplate.query(DICTIONARY_SQL.get(dictionary), (resultSet, rowNum) -> {
+                List<String> fields = new ArrayList<>(fieldCount);
+                for (int i = 0; i < fieldCount; i++) {
+                    fields.add(resultSet.getString(i + 2));
+                }
+                return new ReadIndexEntry(resultSet.getLong(1), fields);
+            }));
+        }
+        jdbcTemplate.query(PLATES_SQL, resultSet -> {
+            try {
+                writer.addPlate(resultSet.getString(2), resultSet.getInt(1));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        jdbcTemplate.query(ROWS_SQL, resultSet -> {
+            try {
+                writer.addRow(getRow(resultSet, personTypes));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * Person types have no table of their own, the distinct values get ids in their sort order.
+     */
+    private Map<String, Long> getPersonTypes() {
+        Map<String, Long> personTypes = new LinkedHashMap<>();
+        jdbcTemplate.query(PERSON_TYPES_SQL, resultSet -> {
+            personTypes.put(resultSet.getString(1), personTypes.size() + 1L);
+        });
+        return personTypes;
+    }
+
+    private static ReadIndexRow getRow(@NonNull @Nonnull ResultSet resultSet, @NonNull @Nonnull Map<String, Long> personTypes) throws SQLException {
+        String personType = resultSet.getString("person_type");
+        Date registrationDate = resultSet.getDate("registration_date");
+        return ReadIndexRow.builder()
+                           .id(resultSet.getLong("id"))
+                           .brandId(getLong(resultSet, "brand_id"))
+                           .modelId(getLong(resultSet, "model_id"))
+                           .colorId(getLong(resultSet, "color_id"))
+                           .kindId(getLong(resultSet, "kind_id"))
+                           .fuelTypeId(getLong(resultSet, "fuel_type_id"))
+                           .purposeId(getLong(resultSet, "purpose_id"))
+                           .bodyTypeId(getLong(resultSet, "body_type_id"))
+                           .personTypeId(Objects.isNull(personType) ? null : personTypes.get(personType))
+                           .operationCode(getLong(resultSet, "op_code"))
+                           .departmentCode(getLong(resultSet, "dep_code"))
+                           .adminObjId(getLong(resultSet, "admin_obj_id"))
+                           .engineCapacity(getInteger(resultSet, "engine_capacity"))
+                           .makeYear(getInteger(resultSet, "make_year"))
+                           .ownWeight(getInteger(resultSet, "own_weight"))
+                           .totalWeight(getInteger(resultSet, "total_weight"))
+                           .registrationDate(Objects.isNull(registrationDate) ? null : registrationDate.toLocalDate())
+                           .build();
+    }
+
+    private static Long getLong(ResultSet resultSet, String column) throws SQLException {
+        long value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Integer getInteger(ResultSet resultSet, String column) throws SQLException {
+        int value = resultSet.getInt(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private void removeOldFiles(@NonNull @Nonnull File directory) {
+        File[] files = directory.listFiles((dir, name) -> ReadIndex.isIndexFile(name));
+        if (Objects.isNull(files) || files.length <= properties.APP_READ_INDEX_KEEP) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = Math.max(1, properties.APP_READ_INDEX_KEEP); i < files.length; i++) {
+            if (files[i].delete()) {
+                log.info("removeOldFiles: Read index {} is removed", files[i].getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ua.kostenko.carinfo.importing.snapshot;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One table section of a snapshot file: compressed COPY data of the listed columns.
+ */
+@Value
+@Builder
+public class SnapshotEntry {
+    private final String table;
+    private final List<String> columns;
+    private final long offset;
+    private final long compressedLength;
+    private final long rawLength;
+    private final long checksum;
+}
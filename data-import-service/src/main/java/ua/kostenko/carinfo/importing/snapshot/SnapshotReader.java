@@ -0,0 +1,205 @@
+package ua.kostenko.carinfo.importing.snapshot;
+
+import com.google.common.io.ByteStreams;
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads the index of a snapshot file written by {@link SnapshotWriter}. Sections are opened independently, so they can be
+ * restored in parallel; a section stream fails with {@link IOException} when its length or checksum doesn't match the index.
+ */
+public class SnapshotReader {
+    private final File file;
+    private final Integer dataVersion;
+    private final Instant created;
+    private final List<SnapshotEntry> entries;
+
+    public SnapshotReader(@NonNull @Nonnull File file) throws IOException {
+        this.file = file;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+            if (length < SnapshotWriter.HEADER_SIZE + SnapshotWriter.TRAILER_SIZE) {
+                throw new IOException(String.format("Snapshot %s is truncated", file.getName()));
+            }
+            checkMagic(input);
+            int format = input.readInt();
+            if (format != SnapshotWriter.FORMAT_VERSION) {
+                throw new IOException(String.format("Snapshot %s has unsupported format %d", file.getName(), format));
+            }
+            int version = input.readInt();
+            this.dataVersion = version == SnapshotWriter.NO_VERSION ? null : version;
+            this.created = Instant.ofEpochMilli(input.readLong());
+
+            input.seek(length - SnapshotWriter.TRAILER_SIZE);
+            long indexOffset = input.readLong();
+            long indexChecksum = input.readLong();
+            checkMagic(input);
+            long indexEnd = length - SnapshotWriter.TRAILER_SIZE;
+            if (indexOffset < SnapshotWriter.HEADER_SIZE || indexOffset > indexEnd) {
+                throw new IOException(String.format("Snapshot %s has invalid index offset %d", file.getName(), indexOffset));
+            }
+            byte[] index = new byte[(int) (indexEnd - indexOffset)];
+            input.seek(indexOffset);
+            input.readFully(index);
+            CRC32 checksum = new CRC32();
+            checksum.update(index);
+            if (checksum.getValue() != indexChecksum) {
+                throw new IOException(String.format("Snapshot %s has corrupted index", file.getName()));
+            }
+            this.entries = Collections.unmodifiableList(readIndex(new DataInputStream(new ByteArrayInputStream(index)), indexOffset));
+        }
+    }
+
+    @Nullable
+    public Integer getDataVersion() {
+        return dataVersion;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    public List<SnapshotEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Opens the uncompressed content of a section, the checksum is verified when the stream is read to the end.
+     */
+    public InputStream open(@NonNull @Nonnull SnapshotEntry entry) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            input.getChannel().position(entry.getOffset());
+        } catch (IOException ex) {
+            input.close();
+            throw ex;
+        }
+        InputStream compressed = ByteStreams.limit(new BufferedInputStream(input, SnapshotWriter.BUFFER_SIZE), entry.getCompressedLength());
+        return new SectionInputStream(compressed, entry);
+    }
+
+    private void checkMagic(@NonNull @Nonnull RandomAccessFile input) throws IOException {
+        byte[] magic = new byte[SnapshotWriter.MAGIC.length];
+        input.readFully(magic);
+        if (!Arrays.equals(magic, SnapshotWriter.MAGIC)) {
+            throw new IOException(String.format("File %s is not a snapshot", file.getName()));
+        }
+    }
+
+    private List<SnapshotEntry> readIndex(@NonNull @Nonnull DataInputStream index, long indexOffset) throws IOException {
+        int count = index.readInt();
+        List<SnapshotEntry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String table = index.readUTF();
+            int columnCount = index.readInt();
+            List<String> columns = new ArrayList<>(columnCount);
+            for (int column = 0; column < columnCount; column++) {
+                columns.add(index.readUTF());
+            }
+            SnapshotEntry entry = SnapshotEntry.builder()
+                                               .table(table)
+                                               .columns(Collections.unmodifiableList(columns))
+                                               .offset(index.readLong())
+                                               .compressedLength(index.readLong())
+                                               .rawLength(index.readLong())
+                                               .checksum(index.readLong())
+                                               .build();
+            if (entry.getOffset() < SnapshotWriter.HEADER_SIZE || entry.getOffset() + entry.getCompressedLength() > indexOffset) {
+                throw new IOException(String.format("Snapshot %s has invalid section of table %s", file.getName(), table));
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private static class SectionInputStream extends FilterInputStream {
+        private final SnapshotEntry entry;
+        private final Inflater inflater;
+        private final CRC32 checksum;
+        private long read;
+        private boolean verified;
+
+        private SectionInputStream(InputStream compressed, SnapshotEntry entry) {
+            this(compressed, entry, new Inflater(), new CRC32());
+        }
+
+        private SectionInputStream(InputStream compressed, SnapshotEntry entry, Inflater inflater, CRC32 checksum) {
+            super(new CheckedInputStream(new InflaterInputStream(compressed, inflater, SnapshotWriter.BUFFER_SIZE), checksum));
+            this.entry = entry;
+            this.inflater = inflater;
+            this.checksum = checksum;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value < 0) {
+                verify();
+            } else {
+                read++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count < 0) {
+                verify();
+            } else {
+                read += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(count, SnapshotWriter.BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < count) {
+                int current = read(buffer, 0, (int) Math.min(buffer.length, count - skipped));
+                if (current < 0) {
+                    break;
+                }
+                skipped += current;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inflater.end();
+            }
+        }
+
+        private void verify() throws IOException {
+            if (verified) {
+                return;
+            }
+            if (read != entry.getRawLength() || checksum.getValue() != entry.getChecksum()) {
+                throw new IOException(String.format("Snapshot section of table %s is corrupted", entry.getTable()));
+            }
+            verified = true;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package ua.kostenko.carinfo.importing.snapshot;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+import ua.kostenko.carinfo.importing.importing.ImportScheduler;
+import ua.kostenko.carinfo.importing.importing.ImportStatistics;
+import ua.kostenko.carinfo.importing.importing.registration.RecordChangeLog;
+import ua.kostenko.carinfo.importing.importing.registration.RecordPartitionManager;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Exports carinfo tables into a snapshot file and restores them, so a new environment doesn't have to run the whole import.
+ * Export reads all tables in one repeatable read transaction with binary COPY, restore copies tables of one foreign key
+ * level in parallel, every partition of carinfo.record being a table of its own. A failed restore leaves the restored tables empty.
+ */
+@Slf4j
+@Component
+public class SnapshotService {
+    private static final String SCHEMA = "carinfo";
+    private static final String RECORD_TABLE = "record";
+    private static final String SNAPSHOT_PREFIX = "carinfo-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final Pattern EXCLUDED_TABLES = Pattern.compile("record_v\\d+(_y\\d+)?|record_staging|record_change|data_generation|import_run|import_work");
+    private static final Pattern RECORD_PARTITION = Pattern.compile("record_y(\\d{4})");
+    private static final String TABLES_SQL = "select c.relname from pg_class c join pg_namespace n on n.oid = c.relnamespace " +
+            "where n.nspname = ? and c.relkind = 'r' and c.relpersistence = 'p' order by c.relname";
+    private static final String COLUMNS_SQL = "select attname from pg_attribute where attrelid = ?::regclass and attnum > 0 and not attisdropped order by attnum";
+    private static final String DEPENDENCIES_SQL = "select c.relname as child, p.relname as parent from pg_constraint k " +
+            "join pg_class c on c.oid = k.conrelid join pg_class p on p.oid = k.confrelid join pg_namespace n on n.oid = c.relnamespace " +
+            "where k.contype = 'f' and n.nspname = ?";
+    private static final String SEQUENCES_SQL = "select table_name, column_name, pg_get_serial_sequence(table_schema || '.' || table_name, column_name) " +
+            "from information_schema.columns where table_schema = ? and column_default like 'nextval%'";
+    private static final String CURRENT_VERSION_SQL = "select max(version) from carinfo.data_version where status = 'CURRENT'";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final ImportScheduler importScheduler;
+    private final RecordPartitionManager partitionManager;
+    private final RecordChangeLog changeLog;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final ApplicationProperties properties;
+
+    @Autowired
+    public SnapshotService(@NonNull @Nonnull JdbcTemplate jdbcTemplate,
+                           @NonNull @Nonnull PlatformTransactionManager transactionManager,
+                           @NonNull @Nonnull ImportScheduler importScheduler,
+                           @NonNull @Nonnull RecordPartitionManager partitionManager,
+                           @NonNull @Nonnull RecordChangeLog changeLog,
+                           @NonNull @Nonnull CacheInvalidationPublisher cacheInvalidationPublisher,
+                           @NonNull @Nonnull ApplicationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.importScheduler = importScheduler;
+        this.partitionManager = partitionManager;
+        this.changeLog = changeLog;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
+        this.properties = properties;
+    }
+
+    /**
+     * Restores the configured snapshot when carinfo.record is empty.
+     *
+     * @return true if the database was restored, import can be skipped then.
+     */
+    public boolean restoreIfEmpty() {
+        if (StringUtils.isBlank(properties.APP_SNAPSHOT_RESTORE_FILE)) {
+            return false;
+        }
+        File file = new File(properties.APP_SNAPSHOT_RESTORE_FILE);
+        if (!file.isFile()) {
+            log.warn("restoreIfEmpty: Snapshot {} doesn't exist", file.getAbsolutePath());
+            return false;
+        }
+        partitionManager.ensurePartitioned();
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("select exists (select 1 from carinfo.record)", Boolean.class))) {
+            log.info("restoreIfEmpty: Database already has records, snapshot {} is not restored", file.getName());
+            return false;
+        }
+        try {
+            restore(file);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.error("restoreIfEmpty: Problem with restoring snapshot {}", file.getAbsolutePath(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * Exports a snapshot into the configured directory and removes old snapshots beyond the configured number.
+     */
+    public void exportIfEnabled() {
+        if (StringUtils.isBlank(properties.APP_SNAPSHOT_EXPORT_DIR)) {
+            return;
+        }
+        File directory = new File(properties.APP_SNAPSHOT_EXPORT_DIR);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.warn("exportIfEnabled: Directory {} can't be created", directory.getAbsolutePath());
+            return;
+        }
+        try {
+            export(directory);
+            removeOldSnapshots(directory);
+        } catch (IOException | RuntimeException ex) {
+            log.error("exportIfEnabled: Problem with exporting snapshot to {}", directory.getAbsolutePath(), ex);
+        }
+    }
+
+    public File export(@NonNull @Nonnull File directory) throws IOException {
+        long started = System.nanoTime();
+        File temp = File.createTempFile(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX + ".tmp", directory);
+        try {
+            Integer version = snapshotTransaction.execute(status -> {
+                Integer current = jdbcTemplate.queryForObject(CURRENT_VERSION_SQL, Integer.class);
+                try (SnapshotWriter writer = new SnapshotWriter(temp, current)) {
+                    for (String table : getTables()) {
+                        List<String> columns = getColumns(table);
+                        String sql = String.format("copy %s.%s (%s) to stdout with (format binary)", SCHEMA, table, String.join(", ", columns));
+                        long bytes = writer.write(table, columns, outputStream -> copy(manager -> manager.copyOut(sql, outputStream)));
+                        log.debug("export: Table {} is exported, bytes: {}", table, bytes);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return current;
+            });
+            File file = new File(directory, String.format("%sv%s-%d%s", SNAPSHOT_PREFIX, Objects.isNull(version) ? "0" : version, System.currentTimeMillis(),
+                                                          SNAPSHOT_SUFFIX));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            log.info("export: Snapshot {} of data version {} is exported in {} ms, size: {}", file.getName(), version,
+                     Duration.ofNanos(System.nanoTime() - started).toMillis(), file.length());
+            return file;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Replaces the content of all snapshot tables. Tables referenced by foreign keys are restored before the referencing ones.
+     */
+    public void restore(@NonNull @Nonnull File file) throws IOException {
+        long started = System.nanoTime();
+        SnapshotReader reader = new SnapshotReader(file);
+        log.info("restore: Restoring snapshot {} of data version {} created at {}, tables: {}", file.getName(), reader.getDataVersion(),
+                 reader.getCreated(), reader.getEntries().size());
+        partitionManager.ensurePartitioned();
+        for (SnapshotEntry entry : reader.getEntries()) {
+            Matcher partition = RECORD_PARTITION.matcher(entry.getTable());
+            if (partition.matches()) {
+                partitionManager.ensurePartition(Integer.parseInt(partition.group(1)));
+            }
+        }
+        Set<String> tables = reader.getEntries().stream().map(SnapshotEntry::getTable).collect(Collectors.toCollection(TreeSet::new));
+        tables.add(RECORD_TABLE);
+        truncate(tables);
+
+        int threads = properties.APP_SNAPSHOT_RESTORE_THREADS > 0 ? properties.APP_SNAPSHOT_RESTORE_THREADS : Runtime.getRuntime().availableProcessors();
+        long rows = 0;
+        try {
+            for (List<SnapshotEntry> level : getLevels(reader.getEntries())) {
+                List<Callable<Long>> tasks = level.stream()
+                                                  .map(entry -> (Callable<Long>) () -> restore(reader, entry))
+                                                  .collect(Collectors.toList());
+                ImportStatistics statistics = importScheduler.execute("snapshot-restore", threads, tasks, Duration.ofHours(properties.APP_IMPORT_TIMEOUT_HOURS));
+                if (!statistics.isCompleted()) {
+                    throw new IllegalStateException(String.format("Snapshot %s is not restored, failed tables: %d, timed out: %d", file.getName(),
+                                                                  statistics.getFailedTasks(), statistics.getTimedOutTasks()));
+                }
+                rows += statistics.getRecords();
+            }
+        } catch (RuntimeException ex) {
+            // copies run on separate connections, so the tables are emptied again instead of a rollback and the import starts from scratch
+            log.warn("restore: Snapshot {} is not restored, restored tables are truncated", file.getName());
+            truncate(tables);
+            throw ex;
+        }
+        resetSequences();
+        tables.forEach(table -> jdbcTemplate.execute(String.format("analyze %s.%s", SCHEMA, table)));
+        changeLog.reset(reader.getDataVersion());
+        cacheInvalidationPublisher.dataChanged(reader.getDataVersion());
+        log.info("restore: Snapshot {} is restored in {} ms, rows: {}", file.getName(), Duration.ofNanos(System.nanoTime() - started).toMillis(), rows);
+    }
+
+    private void truncate(@NonNull @Nonnull Set<String> tables) {
+        jdbcTemplate.execute(tables.stream().map(table -> SCHEMA + "." + table).collect(Collectors.joining(", ", "truncate table ", " cascade")));
+    }
+
+    private long restore(@NonNull @Nonnull SnapshotReader reader, @NonNull @Nonnull SnapshotEntry entry) throws IOException {
+        String sql = String.format("copy %s.%s (%s) from stdin with (format binary)", SCHEMA, entry.getTable(), String.join(", ", entry.getColumns()));
+        try (InputStream inputStream = reader.open(entry)) {
+            long rows = copy(manager -> manager.copyIn(sql, inputStream));
+            log.debug("restore: Table {} is restored, rows: {}", entry.getTable(), rows);
+            return rows;
+        }
+    }
+
+    /**
+     * Groups entries into levels, a table comes after every table of the snapshot it references.
+     */
+    private List<List<SnapshotEntry>> getLevels(@NonNull @Nonnull List<SnapshotEntry> entries) {
+        Map<String, SnapshotEntry> byTable = entries.stream().collect(Collectors.toMap(SnapshotEntry::getTable, entry -> entry, (first, second) -> first,
+                                                                                      LinkedHashMap::new));
+        Map<String, Set<String>> parents = new HashMap<>();
+        jdbcTemplate.query(DEPENDENCIES_SQL, resultSet -> {
+            String child = resultSet.getString("child");
+            String parent = resultSet.getString("parent");
+            if (!child.equals(parent) && byTable.containsKey(child) && byTable.containsKey(parent)) {
+                parents.computeIfAbsent(child, key -> new HashSet<>()).add(parent);
+            }
+        }, SCHEMA);
+        List<List<SnapshotEntry>> levels = new ArrayList<>();
+        Set<String> restored = new HashSet<>();
+        while (restored.size() < byTable.size()) {
+            List<SnapshotEntry> level = byTable.values().stream()
+                                               .filter(entry -> !restored.contains(entry.getTable()))
+                                               .filter(entry -> restored.containsAll(parents.getOrDefault(entry.getTable(), Collections.emptySet())))
+                                               .collect(Collectors.toList());
+            if (level.isEmpty()) {
+                throw new IllegalStateException("Foreign keys of snapshot tables have a cycle");
+            }
+            level.forEach(entry -> restored.add(entry.getTable()));
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    private void resetSequences() {
+        jdbcTemplate.query(SEQUENCES_SQL, resultSet -> {
+            String sequence = resultSet.getString(3);
+            if (Objects.nonNull(sequence)) {
+                String table = resultSet.getString(1);
+                String column = resultSet.getString(2);
+                jdbcTemplate.queryForList(String.format("select setval('%s', coalesce(max(%s), 0) + 1, false) from %s.%s", sequence, column, SCHEMA, table));
+            }
+        }, SCHEMA);
+    }
+
+    private List<String> getTables() {
+        return jdbcTemplate.queryForList(TABLES_SQL, String.class, SCHEMA)
+                           .stream()
+                           .filter(table -> !EXCLUDED_TABLES.matcher(table).matches())
+                           .collect(Collectors.toList());
+    }
+
+    private List<String> getColumns(@NonNull @Nonnull String table) {
+        return jdbcTemplate.queryForList(COLUMNS_SQL, String.class, SCHEMA + "." + table);
+    }
+
+    private long copy(@NonNull @Nonnull CopyOperation operation) throws IOException {
+        try {
+            Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return operation.copy(connection.unwrap(PGConnection.class).getCopyAPI());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            return Objects.isNull(rows) ? 0 : rows;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void removeOldSnapshots(@NonNull @Nonnull File directory) {
+        File[] snapshots = directory.listFiles((dir, name) -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX));
+        if (Objects.isNull(snapshots) || snapshots.length <= properties.APP_SNAPSHOT_KEEP) {
+            return;
+        }
+        Arrays.sort(snapshots, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = Math.max(1, properties.APP_SNAPSHOT_KEEP); i < snapshots.length; i++) {
+            if (snapshots[i].delete()) {
+                log.info("removeOldSnapshots: Snapshot {} is removed", snapshots[i].getName());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface CopyOperation {
+        long copy(CopyManager manager) throws SQLException, IOException;
+    }
+}
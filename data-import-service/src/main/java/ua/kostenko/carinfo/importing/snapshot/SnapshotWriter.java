@@ -0,0 +1,109 @@
+package ua.kostenko.carinfo.importing.snapshot;
+
+import com.google.common.io.CountingOutputStream;
+import lombok.NonNull;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a snapshot file: header, deflated table sections one after another, index of sections and a trailer pointing to it.
+ * Every section and the index carry a CRC32, so {@link SnapshotReader} detects truncated or damaged files.
+ */
+public class SnapshotWriter implements Closeable {
+    static final byte[] MAGIC = "CARSNAP1".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 4 + 4 + 8;
+    static final int TRAILER_SIZE = 8 + 8 + MAGIC.length;
+    static final int NO_VERSION = -1;
+    static final int BUFFER_SIZE = 64 * 1024;
+    private final CountingOutputStream file;
+    private final DataOutputStream output;
+    private final List<SnapshotEntry> entries = new ArrayList<>();
+
+    public SnapshotWriter(@NonNull @Nonnull File file, @Nullable Integer dataVersion) throws IOException {
+        this.file = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        this.output = new DataOutputStream(this.file);
+        output.write(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(Objects.isNull(dataVersion) ? NO_VERSION : dataVersion);
+        output.writeLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Appends one table section, the section content is written by the given writer.
+     *
+     * @return number of uncompressed bytes of the section.
+     */
+    public long write(@NonNull @Nonnull String table, @NonNull @Nonnull List<String> columns, @NonNull @Nonnull SectionWriter writer) throws IOException {
+        output.flush();
+        long offset = file.getCount();
+        CRC32 checksum = new CRC32();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        CountingOutputStream section;
+        try {
+            section = new CountingOutputStream(new CheckedOutputStream(new DeflaterOutputStream(new CloseShieldOutputStream(file), deflater, BUFFER_SIZE),
+                                                                       checksum));
+            writer.write(section);
+            section.close();
+        } finally {
+            deflater.end();
+        }
+        entries.add(SnapshotEntry.builder()
+                                 .table(table)
+                                 .columns(new ArrayList<>(columns))
+                                 .offset(offset)
+                                 .compressedLength(file.getCount() - offset)
+                                 .rawLength(section.getCount())
+                                 .checksum(checksum.getValue())
+                                 .build());
+        return section.getCount();
+    }
+
+    public List<SnapshotEntry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.flush();
+        long indexOffset = file.getCount();
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        index.writeInt(entries.size());
+        for (SnapshotEntry entry : entries) {
+            index.writeUTF(entry.getTable());
+            index.writeInt(entry.getColumns().size());
+            for (String column : entry.getColumns()) {
+                index.writeUTF(column);
+            }
+            index.writeLong(entry.getOffset());
+            index.writeLong(entry.getCompressedLength());
+            index.writeLong(entry.getRawLength());
+            index.writeLong(entry.getChecksum());
+        }
+        index.flush();
+        CRC32 checksum = new CRC32();
+        checksum.update(indexBytes.toByteArray());
+        indexBytes.writeTo(output);
+        output.writeLong(indexOffset);
+        output.writeLong(checksum.getValue());
+        output.write(MAGIC);
+        output.close();
+    }
+
+    @FunctionalInterface
+    public interface SectionWriter {
+        void write(@Nonnull OutputStream outputStream) throws IOException;
+    }
+}
@@ -0,0 +1,110 @@
+package ua.kostenko.carinfo.importing.csv.reader;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.kostenko.carinfo.importing.csv.reader.bytes.ByteCsvRow;
+import ua.kostenko.carinfo.importing.csv.reader.bytes.ByteCsvTokenizer;
+import ua.kostenko.carinfo.importing.csv.reader.bytes.ByteSliceDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ByteCsvTokenizerTest {
+    private static final String CONTENT = "PERSON;REG_ADDR_KOATUU;OPER_NAME;BRAND;MODEL\r\n"
+            + "P;3210600000;\"Перереєстрація ТЗ; по договору\";VOLKSWAGEN;JETTA\r\n"
+            + "\r\n"
+            + "J;;\"Реєстрація \"\"нового\"\" ТЗ\";СІРИЙ;\r\n"
+            + "P;8000000000;\"Багаторядкова\nназва\";BMW;X5";
+    private static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sameRowsAsCommonsCsv() throws IOException {
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, WINDOWS_1251)) {
+            File file = temporaryFolder.newFile();
+            Files.write(file.toPath(), CONTENT.getBytes(charset));
+            List<List<String>> expected = readWithCommons();
+            for (boolean mapped : Arrays.asList(false, true)) {
+                for (int windowSize : Arrays.asList(16, 64, ByteCsvTokenizer.DEFAULT_DIRECT_WINDOW_SIZE)) {
+                    Assert.assertEquals(charset + " mapped " + mapped + " window " + windowSize, expected, readWithTokenizer(file, charset, mapped, windowSize));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void headersAreResolved() throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), ("﻿" + CONTENT).getBytes(StandardCharsets.UTF_8));
+        try (ByteCsvTokenizer tokenizer = new ByteCsvTokenizer(file, StandardCharsets.UTF_8, ';', false, 32)) {
+            Assert.assertTrue(tokenizer.next());
+            ByteCsvRow row = tokenizer.getRow();
+            Assert.assertEquals("P", row.get("PERSON"));
+            Assert.assertEquals("JETTA", row.get("MODEL"));
+            Assert.assertNull(row.get("UNKNOWN"));
+        }
+    }
+
+    @Test
+    public void dictionaryResolvesSlicesWithoutDecoding() throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), "BRAND;YEAR\nbmw ;2008\n BMW;\"2010\"\nСІРИЙ; x\n;\n".getBytes(WINDOWS_1251));
+        ByteSliceDictionary dictionary = new ByteSliceDictionary(value -> value == null || value.trim().isEmpty() ? "—" : value.trim().toUpperCase());
+        List<String> brands = new ArrayList<>();
+        List<Long> years = new ArrayList<>();
+        try (ByteCsvTokenizer tokenizer = new ByteCsvTokenizer(file, WINDOWS_1251, ';', false, 16)) {
+            while (tokenizer.next()) {
+                brands.add(tokenizer.getRow().get("BRAND", dictionary));
+                years.add(tokenizer.getRow().getLong("YEAR"));
+            }
+        }
+        Assert.assertEquals(Arrays.asList("BMW", "BMW", "СІРИЙ", "—"), brands);
+        Assert.assertSame(brands.get(0), brands.get(1));
+        Assert.assertEquals(3, dictionary.size());
+        Assert.assertEquals(Arrays.asList(2008L, 2010L, null, null), years);
+    }
+
+    @Test
+    public void unsupportedCharsetIsDetected() {
+        Assert.assertTrue(ByteCsvTokenizer.isSupported(WINDOWS_1251, ';'));
+        Assert.assertFalse(ByteCsvTokenizer.isSupported(StandardCharsets.UTF_16, ';'));
+        Assert.assertFalse(ByteCsvTokenizer.isSupported(StandardCharsets.UTF_8, '"'));
+    }
+
+    private List<List<String>> readWithCommons() throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        for (CSVRecord record : CSVFormat.DEFAULT.withDelimiter(';').parse(new StringReader(CONTENT))) {
+            List<String> row = new ArrayList<>();
+            record.forEach(row::add);
+            rows.add(row);
+        }
+        return rows.subList(1, rows.size());
+    }
+
+    private List<List<String>> readWithTokenizer(File file, Charset charset, boolean mapped, int windowSize) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (ByteCsvTokenizer tokenizer = new ByteCsvTokenizer(file, charset, ';', mapped, windowSize)) {
+            while (tokenizer.next()) {
+                ByteCsvRow row = tokenizer.getRow();
+                List<String> values = new ArrayList<>();
+                for (int i = 0; i < row.getFieldCount(); i++) {
+                    values.add(row.getString(i));
+                }
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,65 @@
+package ua.kostenko.carinfo.importing.csv.reader;
+
+import ua.kostenko.carinfo.importing.csv.mappers.CsvMapper;
+import ua.kostenko.carinfo.importing.csv.mappers.registration.RegistrationCsvMapper;
+import ua.kostenko.carinfo.importing.csv.reader.options.ReaderOptions;
+import ua.kostenko.carinfo.importing.csv.structure.headers.registration.UpperCaseRegistrationHeaders;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manual benchmark of csv engines on a generated registration file: run main(rows, charset).
+ */
+public class CsvReaderBenchmark {
+    private static final String HEADER = "PERSON;REG_ADDR_KOATUU;OPER_CODE;OPER_NAME;D_REG;DEP_CODE;DEP;BRAND;MODEL;MAKE_YEAR;COLOR;KIND;BODY;PURPOSE;FUEL;CAPACITY;OWN_WEIGHT;TOTAL_WEIGHT;N_REG_NEW";
+    private static final String[] BRANDS = {"VOLKSWAGEN", "BMW", "ВАЗ", "DAEWOO", "TOYOTA", "RENAULT", "SKODA"};
+    private static final String[] COLORS = {"СІРИЙ", "ЧОРНИЙ", "БІЛИЙ", "ЧЕРВОНИЙ", "СИНІЙ"};
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Charset charset = Charset.forName(args.length > 1 ? args[1] : "UTF-8");
+        File file = File.createTempFile("registrations", ".csv");
+        file.deleteOnExit();
+        generate(file, rows, charset);
+        System.out.printf("File: %s, rows: %d, size: %d MB%n", file, rows, file.length() / 1024 / 1024);
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (CsvEngine engine : CsvEngine.values()) {
+                run(engine, file, charset, "parse", row -> getLong(row.get("MAKE_YEAR")));
+                RegistrationCsvMapper mapper = new RegistrationCsvMapper(new UpperCaseRegistrationHeaders());
+                run(engine, file, charset, "mapper", row -> mapper.map(row).getVehicleMakeYear());
+            }
+        }
+    }
+
+    private static void run(CsvEngine engine, File file, Charset charset, String mode, CsvMapper<Long> mapper) {
+        AtomicLong checksum = new AtomicLong();
+        long before = System.nanoTime();
+        new CsvReader<Long>(engine).readCsvFile(new ReaderOptions(';', charset.name(), file), mapper, checksum::addAndGet);
+        long millis = (System.nanoTime() - before) / 1_000_000;
+        System.out.printf("%-8s %-7s %6d ms, checksum %d%n", engine.getName(), mode, millis, checksum.get());
+    }
+
+    private static long getLong(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private static void generate(File file, int rows, Charset charset) throws IOException {
+        Random random = new Random(1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), charset)) {
+            writer.write(HEADER);
+            writer.write("\r\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(String.format("P;%d;315;\"Перереєстрація ТЗ на нов. власн. по договору укладеному в ТСЦ\";08.02.2019;12293;\"ТСЦ 8044\";%s;MODEL%d;%d;%s;ЛЕГКОВИЙ;СЕДАН-B;ЗАГАЛЬНИЙ;БЕНЗИН;%d;1275;1680;АІ%04dНР\r\n",
+                                           3210600000L + random.nextInt(1000), BRANDS[random.nextInt(BRANDS.length)], random.nextInt(50),
+                                           1990 + random.nextInt(30), COLORS[random.nextInt(COLORS.length)], 1000 + random.nextInt(2000), random.nextInt(10000)));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrencyLimiterTest {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void limitGrowsWhileLatencyIsStableAndHalfOfItIsUsed() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 8, 2.0);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.acquire();
+            limiter.release(10 * MILLIS, true);
+            limiter.release(10 * MILLIS, true);
+        }
+        Assert.assertEquals(5, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void maximumDoesNotDependOnWorkers() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.APP_IMPORT_WORKERS = 2;
+        properties.APP_IMPORT_LIMIT_INITIAL = 2;
+        properties.APP_IMPORT_LIMIT_MAX = 16;
+        Assert.assertEquals(16, new ConcurrencyLimiter(properties).getMaxLimit());
+        properties.APP_IMPORT_LIMIT_MAX = 0;
+        Assert.assertEquals(Runtime.getRuntime().availableProcessors() * ConcurrencyLimiter.MAX_LIMIT_PER_CORE, new ConcurrencyLimiter(properties).getMaxLimit());
+    }
+
+    @Test
+    public void limitShrinksOnSlowWritesAndErrors() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 2, 8, 2.0);
+        limiter.acquire();
+        limiter.release(10 * MILLIS, true);
+        limiter.acquire();
+        limiter.release(50 * MILLIS, true);
+        Assert.assertEquals(7, limiter.getLimit());
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.release(10 * MILLIS, false);
+        }
+        Assert.assertEquals(2, limiter.getLimit());
+        Assert.assertEquals(21, limiter.getRejected());
+    }
+
+    @Test
+    public void writesInFlightNeverExceedLimit() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 2, 2, 2.0);
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(40);
+        for (int i = 0; i < 40; i++) {
+            executor.submit(() -> {
+                limiter.run(() -> {
+                    max.accumulateAndGet(current.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    current.decrementAndGet();
+                });
+                done.countDown();
+            });
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(max.get() <= 2);
+    }
+}
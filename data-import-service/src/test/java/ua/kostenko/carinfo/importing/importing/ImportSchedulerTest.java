@@ -0,0 +1,70 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ImportSchedulerTest {
+    private final ImportScheduler scheduler = new ImportScheduler();
+
+    @Test
+    public void executorIsCreatedForEveryRun() {
+        List<Callable<Long>> tasks = Arrays.asList(() -> 10L, () -> 20L, () -> {
+            throw new IllegalStateException("broken file");
+        });
+        ImportStatistics first = scheduler.execute("test", 2, tasks, Duration.ofSeconds(10));
+        ImportStatistics second = scheduler.execute("test", 2, tasks, Duration.ofSeconds(10));
+
+        Assert.assertEquals(30, first.getRecords());
+        Assert.assertEquals(1, first.getFailedTasks());
+        Assert.assertFalse(first.isCompleted());
+        Assert.assertEquals(first.getRecords(), second.getRecords());
+    }
+
+    @Test
+    public void unfinishedTasksAreCancelledAfterTimeout() {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        List<Callable<Long>> tasks = Arrays.asList(() -> 1L, () -> {
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException ex) {
+                interrupted.set(true);
+            }
+            return 1L;
+        });
+        ImportStatistics statistics = scheduler.execute("test", 2, tasks, Duration.ofMillis(200));
+
+        Assert.assertEquals(1, statistics.getTimedOutTasks());
+        Assert.assertEquals(1, statistics.getRecords());
+        Assert.assertTrue(statistics.getWallTime().toMillis() < TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @Test
+    public void overlappingRunIsSkipped() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> scheduler.runExclusively("first", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        first.start();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assert.assertFalse(scheduler.runExclusively("second", () -> Assert.fail("Overlapping run must not start")));
+        release.countDown();
+        first.join();
+        Assert.assertTrue(scheduler.runExclusively("third", () -> {
+        }));
+    }
+}
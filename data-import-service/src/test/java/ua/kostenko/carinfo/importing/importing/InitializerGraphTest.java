@@ -0,0 +1,108 @@
+package ua.kostenko.carinfo.importing.importing;
+
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class InitializerGraphTest {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final InitializerGraph graph = new InitializerGraph();
+
+    @Test
+    public void independentInitializersRunConcurrentlyAndDependentRunsLast() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Initializer first = new First(bothStarted);
+        Initializer second = new Second(bothStarted);
+        Initializer dependent = new Dependent();
+
+        int failed = graph.run(Arrays.asList(dependent, first, second), Initializer::init, Duration.ofSeconds(10));
+
+        Assert.assertEquals(0, failed);
+        Assert.assertEquals(Sets.newHashSet("prefetch", "first", "second"), Sets.newHashSet(events.subList(0, 3)));
+        Assert.assertEquals("dependent", events.get(3));
+    }
+
+    @Test
+    public void dependentIsSkippedWhenDependencyFails() {
+        Initializer first = new First(new CountDownLatch(0)) {
+            @Override
+            public void init() {
+                throw new IllegalStateException("no data");
+            }
+        };
+        Initializer second = new Second(new CountDownLatch(0));
+
+        int failed = graph.run(Arrays.asList(first, second, new Dependent()), Initializer::init, Duration.ofSeconds(10));
+
+        Assert.assertEquals(2, failed);
+        Assert.assertFalse(events.contains("dependent"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingDependencyIsRejected() {
+        graph.run(Collections.singletonList(new Dependent()), Initializer::init, Duration.ofSeconds(10));
+    }
+
+    private class First implements Initializer {
+        private final CountDownLatch bothStarted;
+
+        private First(CountDownLatch bothStarted) {
+            this.bothStarted = bothStarted;
+        }
+
+        @Override
+        public void init() {
+            awaitOther(bothStarted);
+            events.add("first");
+        }
+    }
+
+    private class Second implements Initializer {
+        private final CountDownLatch bothStarted;
+
+        private Second(CountDownLatch bothStarted) {
+            this.bothStarted = bothStarted;
+        }
+
+        @Override
+        public void init() {
+            awaitOther(bothStarted);
+            events.add("second");
+        }
+    }
+
+    private class Dependent implements Initializer {
+        @Override
+        public void init() {
+            events.add("dependent");
+        }
+
+        @Override
+        public Set<Class<? extends Initializer>> getDependencies() {
+            return Sets.newHashSet(First.class, Second.class);
+        }
+
+        @Override
+        public void prefetch() {
+            events.add("prefetch");
+        }
+    }
+
+    private static void awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        try {
+            Assert.assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
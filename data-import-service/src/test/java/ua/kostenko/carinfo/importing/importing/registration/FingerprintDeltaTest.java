@@ -0,0 +1,70 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public class FingerprintDeltaTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void spilledRunsAreMergedIntoDistinctSortedFingerprints() throws IOException {
+        File sorted = folder.newFile();
+        long[] values = new Random(7).longs(1000, -50, 50).toArray();
+        long written;
+        try (FingerprintSorter sorter = new FingerprintSorter(folder.getRoot(), 64)) {
+            for (long value : values) {
+                sorter.add(value);
+            }
+            written = sorter.sortTo(sorted);
+        }
+
+        Assert.assertEquals(100, written);
+        try (FingerprintReader reader = new FingerprintReader(sorted)) {
+            for (long expected = -50; expected < 50; expected++) {
+                Assert.assertEquals(expected, reader.next());
+            }
+            Assert.assertFalse(reader.hasNext());
+        }
+        Assert.assertArrayEquals(new String[]{sorted.getName()}, folder.getRoot().list());
+    }
+
+    @Test
+    public void deltaContainsOnlyInsertedAndRemovedFingerprints() throws IOException {
+        File previous = write(1, 3, 5, 7, 9);
+        File current = write(0, 3, 4, 5, 9, 11);
+        FingerprintDelta delta;
+        try (FingerprintReader previousReader = new FingerprintReader(previous); FingerprintReader currentReader = new FingerprintReader(current)) {
+            delta = FingerprintDelta.of(previousReader, currentReader);
+        }
+
+        Assert.assertArrayEquals(new long[]{0, 4, 11}, delta.getInserted());
+        Assert.assertArrayEquals(new long[]{1, 7}, delta.getRemoved());
+        Assert.assertTrue(delta.isInserted(4));
+        Assert.assertFalse(delta.isInserted(5));
+    }
+
+    @Test
+    public void sameFingerprintsGiveEmptyDelta() throws IOException {
+        try (FingerprintReader previous = new FingerprintReader(write(-2, 8)); FingerprintReader current = new FingerprintReader(write(-2, 8))) {
+            Assert.assertTrue(FingerprintDelta.of(previous, current).isEmpty());
+        }
+    }
+
+    private File write(long... fingerprints) throws IOException {
+        File file = folder.newFile();
+        try (FingerprintSorter sorter = new FingerprintSorter(folder.getRoot(), 4)) {
+            for (long fingerprint : fingerprints) {
+                sorter.add(fingerprint);
+            }
+            sorter.sortTo(file);
+        }
+        return file;
+    }
+}
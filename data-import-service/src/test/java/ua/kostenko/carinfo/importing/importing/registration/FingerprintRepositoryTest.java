@@ -0,0 +1,152 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
+import ua.kostenko.carinfo.importing.importing.ConcurrencyLimiter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Delta imports against stored baselines: rows removed from one file are deleted only if no other file still has them.
+ */
+public class FingerprintRepositoryTest {
+    private static final String RESOURCE = "https://example.com/tz_opendata_z01012019_po01012020.zip";
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private RegistrationStagingRepository stagingRepository;
+    private FingerprintRepository fingerprintRepository;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.APP_IMPORT_LIMIT_INITIAL = 2;
+        properties.APP_IMPORT_LIMIT_MIN = 1;
+        properties.APP_IMPORT_LIMIT_MAX = 2;
+        properties.APP_IMPORT_LIMIT_LATENCY_TOLERANCE = 2.0;
+        context = new AnnotationConfigApplicationContext();
+        context.register(RegistrationStagingRepositoryTest.TransactionConfiguration.class, RecordPartitionManager.class, RecordChangeLog.class,
+                         RegistrationStagingRepository.class, FingerprintRepository.class);
+        context.registerBean(JdbcTemplate.class, () -> jdbcTemplate);
+        context.registerBean(NamedParameterJdbcTemplate.class, () -> new NamedParameterJdbcTemplate(jdbcTemplate));
+        context.registerBean(PlatformTransactionManager.class, () -> new DataSourceTransactionManager(database.getDataSource()));
+        context.registerBean(ConcurrencyLimiter.class, () -> new ConcurrencyLimiter(properties));
+        context.refresh();
+        context.getBean(RecordPartitionManager.class).ensurePartitioned();
+        stagingRepository = context.getBean(RegistrationStagingRepository.class);
+        fingerprintRepository = context.getBean(FingerprintRepository.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void deltaKeepsRowsOfOtherFiles() throws IOException {
+        Assert.assertEquals(2, importFile("a.csv", "AA0001AA", "AA0002AA"));
+        Assert.assertEquals(1, importFile("b.csv", "AA0002AA", "AA0003AA"));
+        Assert.assertTrue(fingerprintRepository.isCurrent(RESOURCE, "hash"));
+        Assert.assertFalse(fingerprintRepository.isCurrent(RESOURCE, "other"));
+
+        Assert.assertEquals(1, importFile("a.csv", "AA0001AA", "AA0004AA"));
+        Assert.assertEquals(Arrays.asList("AA0001AA", "AA0002AA", "AA0003AA", "AA0004AA"), getPlates());
+
+        Assert.assertEquals(0, importFile("b.csv", "AA0003AA"));
+        Assert.assertEquals(Arrays.asList("AA0001AA", "AA0003AA", "AA0004AA"), getPlates());
+        Assert.assertEquals(Arrays.asList(RecordChangeLog.INSERT, RecordChangeLog.INSERT, RecordChangeLog.INSERT, RecordChangeLog.DELETE),
+                            jdbcTemplate.queryForList("select operation from carinfo.record_change order by seq", String.class));
+    }
+
+    @Test
+    public void baselinesOfRetiredVersionsAreIgnored() throws IOException {
+        importFile("a.csv", "AA0001AA");
+        importFile("b.csv", "AA0001AA");
+        long[] removed = {getFingerprint("AA0001AA")};
+        Assert.assertEquals(0, fingerprintRepository.retainUnshared(RESOURCE, "a.csv", removed).length);
+
+        jdbcTemplate.update("insert into carinfo.data_version (version, status) values (1, 'RETIRED')");
+        jdbcTemplate.update("update carinfo.import_fingerprint set version = 1 where file_name = 'b.csv'");
+        Assert.assertArrayEquals(removed, fingerprintRepository.retainUnshared(RESOURCE, "a.csv", removed));
+        Assert.assertFalse(fingerprintRepository.load(RESOURCE, "b.csv", folder.newFile()));
+    }
+
+    /**
+     * Imports the file the way {@link FileProcessingTask} does in delta mode.
+     */
+    private int importFile(String fileName, String... plates) throws IOException {
+        File previous = folder.newFile();
+        File current = folder.newFile();
+        try (FingerprintSorter sorter = new FingerprintSorter(folder.getRoot(), 16)) {
+            if (!fingerprintRepository.load(RESOURCE, fileName, previous)) {
+                RegistrationStagingPersist persist = new RegistrationStagingPersist(stagingRepository, fileName, "record",
+                                                                                    RegistrationStagingPersist.DEFAULT_BUFFER_SIZE, sorter::add, fingerprint -> true);
+                Arrays.stream(plates).forEach(plate -> persist.persist(getRecord(plate)));
+                int inserted = persist.publish();
+                fingerprintRepository.save(RESOURCE, fileName, "hash", null, current, sorter.sortTo(current));
+                return inserted;
+            }
+            RegistrationStagingPersist fingerprints = new RegistrationStagingPersist(stagingRepository, fileName, "record",
+                                                                                     RegistrationStagingPersist.DEFAULT_BUFFER_SIZE, sorter::add, fingerprint -> false);
+            Arrays.stream(plates).forEach(plate -> fingerprints.persist(getRecord(plate)));
+            long rows = sorter.sortTo(current);
+            FingerprintDelta delta;
+            try (FingerprintReader previousReader = new FingerprintReader(previous); FingerprintReader currentReader = new FingerprintReader(current)) {
+                delta = FingerprintDelta.of(previousReader, currentReader);
+            }
+            RegistrationStagingPersist persist = new RegistrationStagingPersist(stagingRepository, fileName, "record",
+                                                                                RegistrationStagingPersist.DEFAULT_BUFFER_SIZE, fingerprint -> {
+            }, delta::isInserted);
+            Arrays.stream(plates).forEach(plate -> persist.persist(getRecord(plate)));
+            int inserted = persist.publish(fingerprintRepository.retainUnshared(RESOURCE, fileName, delta.getRemoved()));
+            fingerprintRepository.save(RESOURCE, fileName, "hash", null, current, rows);
+            return inserted;
+        }
+    }
+
+    private List<String> getPlates() {
+        return jdbcTemplate.queryForList("select registration_number from carinfo.record order by 1", String.class);
+    }
+
+    private long getFingerprint(String plate) {
+        return jdbcTemplate.queryForObject("select row_fingerprint from carinfo.record where registration_number = ?", Long.class, plate);
+    }
+
+    private static RegistrationCsvRecord getRecord(String plate) {
+        return RegistrationCsvRecord.builder()
+                                    .personType("P")
+                                    .operationCode(100L)
+                                    .operationName("REGISTRATION")
+                                    .registrationDate("2019-02-19")
+                                    .departmentCode(12345L)
+                                    .vehicleBrand("BMW")
+                                    .vehicleModel("X5")
+                                    .vehicleMakeYear(2010L)
+                                    .vehicleColor("BLACK")
+                                    .vehicleKind("CAR")
+                                    .vehicleBodyType("SEDAN")
+                                    .vehiclePurpose("COMMON")
+                                    .vehicleEngineCapacity(1598L)
+                                    .vehicleRegistrationNumber(plate)
+                                    .build();
+    }
+}
@@ -0,0 +1,104 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class ImportWorkLoopTest {
+    private static final String OWNER = "node-1";
+    private static final Duration LEASE = Duration.ofSeconds(30);
+    private static final Duration ITEM_TIMEOUT = Duration.ofHours(1);
+    private final List<String> processed = new ArrayList<>();
+    private final List<String> completed = new ArrayList<>();
+    private ImportWorkRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = Mockito.mock(ImportWorkRepository.class);
+    }
+
+    @Test
+    public void claimedWorkIsProcessedUntilRunHasNoOpenItems() {
+        Mockito.when(repository.claim(1, OWNER, LEASE, 3))
+               .thenReturn(Optional.of(getWork(10, "a.zip", 1)), Optional.of(getWork(11, "b.zip", 1)), Optional.empty());
+        Mockito.when(repository.getProgress(1)).thenReturn(ImportRun.builder().runId(1).done(2).build());
+
+        long records = new ImportWorkLoop(repository, 1, OWNER, LEASE, 3, Duration.ZERO, ITEM_TIMEOUT, work -> {
+            processed.add(work.getResource());
+            return 5;
+        }, work -> completed.add(work.getResource())).call();
+
+        Assert.assertEquals(2, processed.size());
+        Assert.assertEquals(10, records);
+        Assert.assertEquals(processed, completed);
+        Mockito.verify(repository).complete(10, OWNER);
+        Mockito.verify(repository).complete(11, OWNER);
+        Mockito.verify(repository).expire(1, 3);
+    }
+
+    @Test
+    public void failedWorkIsReturnedWithItsAttempt() {
+        Mockito.when(repository.claim(1, OWNER, LEASE, 3)).thenReturn(Optional.of(getWork(10, "a.zip", 2)), Optional.empty());
+        Mockito.when(repository.getProgress(1)).thenReturn(ImportRun.builder().runId(1).pending(1).build(), ImportRun.builder().runId(1).failed(1).build());
+
+        new ImportWorkLoop(repository, 1, OWNER, LEASE, 3, Duration.ZERO, ITEM_TIMEOUT, work -> {
+            throw new IllegalStateException("download failed");
+        }, work -> completed.add(work.getResource())).call();
+
+        Mockito.verify(repository).fail(10, OWNER, 2, 3);
+        Mockito.verify(repository, Mockito.never()).complete(Mockito.anyLong(), Mockito.anyString());
+        Assert.assertTrue(completed.isEmpty());
+        Mockito.verify(repository, Mockito.times(2)).getProgress(1);
+    }
+
+    @Test
+    public void errorFailsWorkAndStopsLoop() {
+        Mockito.when(repository.claim(1, OWNER, LEASE, 3)).thenReturn(Optional.of(getWork(10, "a.zip", 1)));
+
+        ImportWorkLoop loop = new ImportWorkLoop(repository, 1, OWNER, LEASE, 3, Duration.ZERO, ITEM_TIMEOUT, work -> {
+            throw new OutOfMemoryError("heap");
+        }, work -> completed.add(work.getResource()));
+        try {
+            loop.call();
+            Assert.fail("Error must not be swallowed by the loop");
+        } catch (OutOfMemoryError ex) {
+            Mockito.verify(repository).fail(10, OWNER, 1, 3);
+            Assert.assertFalse(loop.getLeasedWork().isPresent());
+        }
+    }
+
+    @Test
+    public void leaseIsExtendedOnlyForHeldWorkWithinItemTimeout() {
+        Mockito.when(repository.claim(1, OWNER, LEASE, 3)).thenReturn(Optional.of(getWork(10, "a.zip", 1)), Optional.empty());
+        Mockito.when(repository.getProgress(1)).thenReturn(ImportRun.builder().runId(1).done(1).build());
+        List<Optional<ImportWork>> leased = new ArrayList<>();
+        ImportWorkLoop[] loops = new ImportWorkLoop[2];
+        loops[0] = new ImportWorkLoop(repository, 1, OWNER, LEASE, 3, Duration.ZERO, ITEM_TIMEOUT, work -> {
+            leased.add(loops[0].getLeasedWork());
+            return 1;
+        }, work -> completed.add(work.getResource()));
+        loops[1] = new ImportWorkLoop(repository, 1, OWNER, LEASE, 3, Duration.ZERO, Duration.ZERO, work -> {
+            leased.add(loops[1].getLeasedWork());
+            return 1;
+        }, work -> completed.add(work.getResource()));
+
+        Assert.assertFalse(loops[0].getLeasedWork().isPresent());
+        loops[0].call();
+        Mockito.when(repository.claim(1, OWNER, LEASE, 3)).thenReturn(Optional.of(getWork(11, "b.zip", 1)), Optional.empty());
+        loops[1].call();
+
+        Assert.assertEquals(10, leased.get(0).map(ImportWork::getId).orElse(0L).longValue());
+        Assert.assertFalse("Hung work must be left to expire", leased.get(1).isPresent());
+        Assert.assertFalse(loops[0].getLeasedWork().isPresent());
+    }
+
+    private ImportWork getWork(long id, String resource, int attempts) {
+        return ImportWork.builder().id(id).runId(1).resource(resource).attempts(attempts).build();
+    }
+}
@@ -0,0 +1,147 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+import ua.kostenko.carinfo.importing.importing.WriteMode;
+import ua.kostenko.carinfo.importing.json.registration.ResourceDataPackage;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Work queue SQL against one PostgreSQL shared by several nodes, every node has its own connection pool and repository.
+ */
+public class ImportWorkRepositoryTest {
+    private static final Duration LEASE = Duration.ofSeconds(60);
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    private JdbcTemplate jdbcTemplate;
+    private int runId;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        runId = createNode().openRun(WriteMode.ROWS, () -> null).getRunId();
+    }
+
+    @Test
+    public void everyItemIsProcessedOnceByConcurrentNodes() throws Exception {
+        addWork(20);
+        Map<String, Integer> processed = new ConcurrentHashMap<>();
+        List<ImportWorkLoop> loops = new ArrayList<>();
+        for (int node = 0; node < 3; node++) {
+            ImportWorkRepository repository = createNode();
+            for (int worker = 0; worker < 2; worker++) {
+                loops.add(new ImportWorkLoop(repository, runId, "node-" + node + "#" + worker, LEASE, 3, Duration.ofMillis(50), Duration.ofHours(1), work -> {
+                    processed.merge(work.getResource(), 1, Integer::sum);
+                    return 1;
+                }, work -> {
+                }));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(loops.size());
+        long records = 0;
+        try {
+            for (Future<Long> future : executor.invokeAll(loops)) {
+                records += future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(20, records);
+        Assert.assertEquals(20, processed.size());
+        Assert.assertTrue(processed.values().stream().allMatch(count -> count == 1));
+        ImportRun progress = createNode().getProgress(runId);
+        Assert.assertEquals(20, progress.getDone());
+        Assert.assertEquals(0, progress.getOpen());
+    }
+
+    @Test
+    public void heartbeatExtendsOnlyGivenItemsOfTheirOwners() {
+        addWork(2);
+        ImportWorkRepository repository = createNode();
+        ImportWork first = repository.claim(runId, "node-a#0", Duration.ofSeconds(1), 3).orElseThrow(IllegalStateException::new);
+        ImportWork second = repository.claim(runId, "node-a#1", Duration.ofSeconds(1), 3).orElseThrow(IllegalStateException::new);
+
+        Assert.assertEquals(0, repository.heartbeat(Collections.emptyMap(), LEASE));
+        Assert.assertEquals(0, repository.heartbeat(Collections.singletonMap(first.getId(), "node-a#1"), LEASE));
+        Assert.assertEquals(1, repository.heartbeat(Collections.singletonMap(first.getId(), "node-a#0"), LEASE));
+        Assert.assertTrue(getLeaseSeconds(first.getId()) > 30);
+        Assert.assertTrue(getLeaseSeconds(second.getId()) <= 1);
+    }
+
+    @Test
+    public void expiredItemIsTakenOverAndLateFinishOfFormerOwnerIsIgnored() {
+        addWork(1);
+        ImportWorkRepository nodeA = createNode();
+        ImportWorkRepository nodeB = createNode();
+        ImportWork work = nodeA.claim(runId, "node-a#0", LEASE, 3).orElseThrow(IllegalStateException::new);
+        Assert.assertFalse(nodeB.claim(runId, "node-b#0", LEASE, 3).isPresent());
+        expireLease(work.getId());
+
+        ImportWork takenOver = nodeB.claim(runId, "node-b#0", LEASE, 3).orElseThrow(IllegalStateException::new);
+        Assert.assertEquals(work.getId(), takenOver.getId());
+        Assert.assertEquals(2, takenOver.getAttempts());
+        Assert.assertEquals(0, nodeA.heartbeat(Collections.singletonMap(work.getId(), "node-a#0"), LEASE));
+        nodeA.complete(work.getId(), "node-a#0");
+        Assert.assertEquals(ImportWorkRepository.CLAIMED, getStatus(work.getId()));
+        nodeB.complete(takenOver.getId(), "node-b#0");
+        Assert.assertEquals(ImportWorkRepository.DONE, getStatus(work.getId()));
+    }
+
+    @Test
+    public void itemIsFailedAfterLastAttempt() {
+        addWork(1);
+        ImportWorkRepository repository = createNode();
+        ImportWork failed = repository.claim(runId, "node-a#0", LEASE, 2).orElseThrow(IllegalStateException::new);
+        repository.fail(failed.getId(), "node-a#0", failed.getAttempts(), 2);
+        Assert.assertEquals(ImportWorkRepository.PENDING, getStatus(failed.getId()));
+        ImportWork expired = repository.claim(runId, "node-a#0", LEASE, 2).orElseThrow(IllegalStateException::new);
+        Assert.assertEquals(failed.getId(), expired.getId());
+        Assert.assertEquals(0, repository.expire(runId, 2));
+        expireLease(expired.getId());
+
+        Assert.assertEquals(1, repository.expire(runId, 2));
+        Assert.assertEquals(ImportWorkRepository.FAILED, getStatus(expired.getId()));
+        Assert.assertFalse(repository.claim(runId, "node-a#0", LEASE, 2).isPresent());
+        ImportRun progress = repository.getProgress(runId);
+        Assert.assertEquals(1, progress.getFailed());
+        Assert.assertEquals(0, progress.getOpen());
+    }
+
+    private ImportWorkRepository createNode() {
+        return new ImportWorkRepository(new NamedParameterJdbcTemplate(database.getDataSource()));
+    }
+
+    private void addWork(int count) {
+        List<ResourceDataPackage> resources = IntStream.range(0, count)
+                                                       .mapToObj(index -> {
+                                                           ResourceDataPackage resource = new ResourceDataPackage();
+                                                           resource.setPath("https://data.gov.ua/tz_opendata_z01012019_po01012020_" + index + ".zip");
+                                                           return resource;
+                                                       })
+                                                       .collect(Collectors.toList());
+        createNode().addWork(runId, resources);
+    }
+
+    private void expireLease(long id) {
+        jdbcTemplate.update("update carinfo.import_work set lease_until = now() - interval '1 second' where id = ?", id);
+    }
+
+    private double getLeaseSeconds(long id) {
+        return jdbcTemplate.queryForObject("select extract(epoch from lease_until - now()) from carinfo.import_work where id = ?", Double.class, id);
+    }
+
+    private String getStatus(long id) {
+        return jdbcTemplate.queryForObject("select status from carinfo.import_work where id = ?", String.class, id);
+    }
+}
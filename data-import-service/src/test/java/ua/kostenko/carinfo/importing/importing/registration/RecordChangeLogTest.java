@@ -0,0 +1,61 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class RecordChangeLogTest {
+    private static final String COPY_SQL = "insert into carinfo.record (op_code, dep_code, kind_id, vehicle_id, color_id, body_type_id, purpose_id, " +
+            "fuel_type_id, engine_capacity, make_year, own_weight, total_weight, registration_date, registration_number, person_type) " +
+            "select r.op_code, r.dep_code, r.kind_id, r.vehicle_id, r.color_id, r.body_type_id, r.purpose_id, r.fuel_type_id, r.engine_capacity, " +
+            "r.make_year, r.own_weight, r.total_weight, r.registration_date, 'CP' || n, r.person_type " +
+            "from carinfo.record r cross join generate_series(1, %d) n where r.registration_number = 'AA0001AA'";
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+
+    @Test
+    public void largeBatchIsLoggedInBoundedEntries() {
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        RecordChangeLog changeLog = new RecordChangeLog(jdbcTemplate);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database.getDataSource()));
+        database.insertRegistration("AA0001AA", "BMW", "X5", "BLACK", 2010, "2019-03-01", 3000);
+        int records = RecordChangeLog.IDS_PER_ENTRY * 2 + 1;
+
+        List<Integer> changed = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(RecordChangeLog.COLLECT_TABLE_SQL);
+            int inserted = jdbcTemplate.update(RecordChangeLog.collected(RecordChangeLog.INSERT, String.format(COPY_SQL, records)));
+            int deleted = jdbcTemplate.update(RecordChangeLog.collected(RecordChangeLog.DELETE, "delete from carinfo.record where registration_number = 'AA0001AA'"));
+            int none = jdbcTemplate.update(RecordChangeLog.collected(RecordChangeLog.DELETE, "delete from carinfo.record where registration_number = 'none'"));
+            changeLog.logCollected();
+            return Arrays.asList(inserted, deleted, none);
+        });
+
+        Assert.assertEquals(Arrays.asList(records, 1, 0), changed);
+        Assert.assertEquals(Arrays.asList("INSERT:" + RecordChangeLog.IDS_PER_ENTRY, "INSERT:" + RecordChangeLog.IDS_PER_ENTRY, "INSERT:1", "DELETE:1"),
+                            jdbcTemplate.queryForList("select operation || ':' || cardinality(record_ids) from carinfo.record_change order by seq", String.class));
+        Assert.assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject("select bool_and(record_ids[cardinality(record_ids)] < next_first) from " +
+                                                                              "(select record_ids, lead(record_ids[1], 1, 9223372036854775807) over (order by seq) next_first " +
+                                                                              "from carinfo.record_change where operation = 'INSERT') entries", Boolean.class));
+        Assert.assertEquals(Long.valueOf(records), jdbcTemplate.queryForObject("select count(distinct id) from carinfo.record_change, unnest(record_ids) id " +
+                                                                                       "where operation = 'INSERT'", Long.class));
+    }
+
+    @Test
+    public void recordsOfRowsModeAreLoggedWithTheirIds() {
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        long first = database.insertRegistration("AA0001AA", "BMW", "X5", "BLACK", 2010, "2019-03-01", 3000);
+        long second = database.insertRegistration("AA0002AA", "BMW", "X5", "BLACK", 2010, "2019-03-01", 3000);
+
+        new RecordChangeLog(jdbcTemplate).inserted(new long[]{first, second});
+
+        Assert.assertEquals(Arrays.asList(first, second), jdbcTemplate.queryForList("select unnest(record_ids) from carinfo.record_change " +
+                                                                                            "where operation = 'INSERT'", Long.class));
+    }
+}
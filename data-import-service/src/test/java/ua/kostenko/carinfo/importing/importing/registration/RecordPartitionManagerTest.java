@@ -0,0 +1,172 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conversion of the hibernate heap table to yearly partitions and publication of data versions on top of it.
+ */
+public class RecordPartitionManagerTest {
+    private static final String INSERT_VERSION_SQL = "insert into carinfo.%s (op_code, dep_code, kind_id, vehicle_id, color_id, body_type_id, purpose_id, " +
+            "fuel_type_id, engine_capacity, make_year, own_weight, total_weight, registration_date, registration_number, person_type) " +
+            "select op_code, dep_code, kind_id, vehicle_id, color_id, body_type_id, purpose_id, fuel_type_id, engine_capacity, make_year, own_weight, " +
+            "total_weight, make_date(?, 6, 1), ?, person_type from carinfo.record order by id limit 1";
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private RecordPartitionManager partitionManager;
+    private DataVersionManager versionManager;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        database.insertRegistration("AA0001AA", "BMW", "X5", "BLACK", 2010, "2018-03-01", 3000);
+        database.insertRegistration("AA0002AA", "BMW", "X3", "WHITE", 2015, "2019-01-01", 2000);
+        database.insertRegistration("AA0003AA", "AUDI", "A4", "BLACK", 2016, "2019-12-31", 1800);
+        database.insertRegistration("AA0004AA", "AUDI", "A6", "RED", 2018, "2020-06-15", 2500);
+        context = new AnnotationConfigApplicationContext();
+        context.register(TransactionConfiguration.class, RecordPartitionManager.class, RecordChangeLog.class, DataVersionManager.class);
+        context.registerBean(JdbcTemplate.class, () -> jdbcTemplate);
+        context.registerBean(PlatformTransactionManager.class, () -> new DataSourceTransactionManager(database.getDataSource()));
+        context.registerBean(CacheInvalidationPublisher.class, () -> Mockito.mock(CacheInvalidationPublisher.class));
+        context.refresh();
+        partitionManager = context.getBean(RecordPartitionManager.class);
+        versionManager = context.getBean(DataVersionManager.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void populatedHeapTableIsConverted() {
+        List<String> indexes = getIndexes();
+        List<String> foreignKeys = getForeignKeys();
+        Assert.assertEquals("r", getRelationKind("record"));
+
+        partitionManager.ensurePartitioned();
+
+        Assert.assertEquals("p", getRelationKind("record"));
+        Assert.assertEquals(Arrays.asList("record_y2018", "record_y2019", "record_y2020"), getPartitions("record"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 1L), Arrays.asList(count("record_y2018"), count("record_y2019"), count("record_y2020")));
+        Assert.assertNull(getRelationKind("record_heap"));
+        Assert.assertEquals(indexes, getIndexes());
+        Assert.assertEquals(foreignKeys, getForeignKeys());
+        Assert.assertEquals(Arrays.asList("id", "registration_date"),
+                            jdbcTemplate.queryForList("select a.attname::text from pg_index i join pg_attribute a on a.attrelid = i.indrelid " +
+                                                              "and a.attnum = any(i.indkey) where i.indrelid = 'carinfo.record'::regclass " +
+                                                              "and i.indisprimary order by a.attnum", String.class));
+        Assert.assertEquals("carinfo.record_id_seq", jdbcTemplate.queryForObject("select pg_get_serial_sequence('carinfo.record', 'id')", String.class));
+        Assert.assertEquals(Arrays.asList("AA0001AA:BMW:X5", "AA0002AA:BMW:X3", "AA0003AA:AUDI:A4", "AA0004AA:AUDI:A6"), getView());
+
+        long id = database.insertRegistration("AA0005AA", "SKODA", "OCTAVIA", "WHITE", 2019, "2019-05-05", 1400);
+        Assert.assertTrue("New records must keep using the sequence of the heap table",
+                          id > jdbcTemplate.queryForObject("select max(id) from carinfo.record where registration_number <> 'AA0005AA'", Long.class));
+        Assert.assertEquals(3L, count("record_y2019"));
+        partitionManager.ensurePartitioned();
+        Assert.assertEquals(5L, count("record"));
+    }
+
+    @Test
+    public void versionIsPublishedOnTopOfConvertedTable() {
+        partitionManager.ensurePartitioned();
+        int version = versionManager.begin();
+        String table = versionManager.getTable(version);
+        partitionManager.ensurePartition(table, 2019);
+        jdbcTemplate.update(String.format(INSERT_VERSION_SQL, table), 2019, "BB0001BB");
+        versionManager.publishYear(version, 2019);
+
+        Assert.assertEquals(Collections.singletonList("BB0001BB"), getPlates(2019));
+        Assert.assertEquals(Collections.singletonList(Arrays.asList(version, RecordChangeLog.REPLACE, 2019)), getChanges());
+
+        partitionManager.ensurePartition(table, 2019);
+        partitionManager.ensurePartition(table, 2021);
+        jdbcTemplate.update(String.format(INSERT_VERSION_SQL, table), 2019, "BB0002BB");
+        jdbcTemplate.update(String.format(INSERT_VERSION_SQL, table), 2021, "BB0003BB");
+        versionManager.publish(version);
+
+        Assert.assertNull(getRelationKind(table));
+        Assert.assertEquals(Arrays.asList("record_y2018", "record_y2019", "record_y2020", "record_y2021"), getPartitions("record"));
+        Assert.assertEquals(Collections.singletonList("AA0001AA"), getPlates(2018));
+        Assert.assertEquals(Arrays.asList("BB0001BB", "BB0002BB"), getPlates(2019));
+        Assert.assertEquals(Collections.singletonList("AA0004AA"), getPlates(2020));
+        Assert.assertEquals(Collections.singletonList("BB0003BB"), getPlates(2021));
+        Assert.assertEquals(getIndexes().size() + 1, getIndexes("record_y2021").size());
+        Assert.assertEquals(5, getView().size());
+        Assert.assertEquals(Arrays.asList(Arrays.asList(version, RecordChangeLog.REPLACE, 2019),
+                                          Arrays.asList(version, RecordChangeLog.REPLACE, 2019),
+                                          Arrays.asList(version, RecordChangeLog.REPLACE, 2021)), getChanges());
+        Assert.assertEquals(Arrays.asList("CURRENT", "3"),
+                            jdbcTemplate.queryForObject("select array[status, records::text] from carinfo.data_version where version = ?",
+                                                        (rs, rowNum) -> Arrays.asList((String[]) rs.getArray(1).getArray()), version));
+
+        database.insertRegistration("AA0005AA", "SKODA", "OCTAVIA", "WHITE", 2019, "2021-05-05", 1400);
+        Assert.assertEquals(Arrays.asList("AA0005AA", "BB0003BB"), getPlates(2021));
+    }
+
+    private String getRelationKind(String table) {
+        List<String> kinds = jdbcTemplate.queryForList("select c.relkind::text from pg_class c join pg_namespace n on n.oid = c.relnamespace " +
+                                                               "where n.nspname = 'carinfo' and c.relname = ?", String.class, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private List<String> getPartitions(String table) {
+        return jdbcTemplate.queryForList("select c.relname::text from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                                                 "where i.inhparent = ?::regclass order by 1", String.class, "carinfo." + table);
+    }
+
+    private List<String> getIndexes() {
+        return jdbcTemplate.queryForList("select indexname::text from pg_indexes where schemaname = 'carinfo' and tablename = 'record' " +
+                                                 "and indexname <> 'record_pkey' order by 1", String.class);
+    }
+
+    private List<String> getIndexes(String partition) {
+        return jdbcTemplate.queryForList("select indexname::text from pg_indexes where schemaname = 'carinfo' and tablename = ?", String.class, partition);
+    }
+
+    private List<String> getForeignKeys() {
+        return jdbcTemplate.queryForList("select conname || ' ' || pg_get_constraintdef(oid) from pg_constraint " +
+                                                 "where conrelid = 'carinfo.record'::regclass and contype = 'f' order by 1", String.class);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from carinfo." + table, Long.class);
+    }
+
+    private List<String> getPlates(int year) {
+        return jdbcTemplate.queryForList("select registration_number from carinfo.record where extract(year from registration_date) = ? order by 1",
+                                         String.class, year);
+    }
+
+    private List<String> getView() {
+        return jdbcTemplate.queryForList("select registration_number || ':' || brand_name || ':' || model_name from carinfo.record_view order by 1", String.class);
+    }
+
+    private List<List<Object>> getChanges() {
+        return jdbcTemplate.query("select version, operation, year from carinfo.record_change order by seq",
+                                  (rs, rowNum) -> Arrays.asList(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfiguration {
+    }
+}
@@ -0,0 +1,102 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RegistrationStagingPersistTest {
+    private final List<String> copies = new ArrayList<>();
+    private RegistrationStagingRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = Mockito.mock(RegistrationStagingRepository.class);
+        Mockito.when(repository.copy(Mockito.any(byte[].class), Mockito.anyInt())).thenAnswer(invocation -> {
+            byte[] bytes = invocation.getArgument(0);
+            int length = invocation.getArgument(1);
+            copies.add(new String(Arrays.copyOf(bytes, length), StandardCharsets.UTF_8));
+            return 1L;
+        });
+        Mockito.when(repository.publish(Mockito.anyString(), Mockito.anyString())).thenReturn(1);
+    }
+
+    @Test
+    public void validRecordsAreCopiedAsCsvRows() {
+        RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "test.csv", "record");
+        persist.persist(getRecord().vehicleModel("MODEL \"X\"").build());
+        persist.persist(getRecord().personType(null).build());
+        Assert.assertEquals(1, persist.publish());
+
+        String batchId = persist.getBatchId();
+        Assert.assertEquals(1, copies.size());
+        String values = "8000000000,100,\"REGISTRATION\",12345,\"CAR\",\"BLACK\",\"SEDAN\",\"COMMON\",\"BRAND\",\"MODEL \"\"X\"\"\",\"—\"," +
+                "1598,,,2010,\"2019-02-19\",\"AA1234BB\",\"P\",";
+        Assert.assertEquals("\"" + batchId + "\"," + values + RegistrationStagingPersist.getFingerprint(values) + "\n", copies.get(0));
+        Mockito.verify(repository).publish(batchId, "record");
+    }
+
+    @Test
+    public void fullBufferIsFlushedBeforePublish() {
+        RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "test.csv", "record", 64);
+        persist.persist(getRecord().build());
+        persist.persist(getRecord().build());
+        Assert.assertEquals(2, copies.size());
+        persist.publish();
+        Assert.assertEquals(2, copies.size());
+    }
+
+    @Test
+    public void batchIsDiscardedWhenPublishFails() {
+        Mockito.when(repository.publish(Mockito.anyString(), Mockito.anyString())).thenThrow(new IllegalStateException("publish failed"));
+        RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "test.csv", "record");
+        persist.persist(getRecord().build());
+        try {
+            persist.publish();
+            Assert.fail("Failed batch must not be reported as published");
+        } catch (IllegalStateException ex) {
+            Mockito.verify(repository).discard(persist.getBatchId());
+        }
+    }
+
+    @Test
+    public void onlyRowsAcceptedByFingerprintFilterAreStaged() {
+        List<Long> fingerprints = new ArrayList<>();
+        RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "test.csv", "record", 1024, fingerprints::add,
+                                                                            fingerprint -> fingerprints.size() == 1);
+        persist.persist(getRecord().build());
+        persist.persist(getRecord().vehicleRegistrationNumber("AA0000BB").build());
+        persist.publish();
+
+        Assert.assertEquals(2, fingerprints.size());
+        Assert.assertNotEquals(fingerprints.get(0), fingerprints.get(1));
+        Assert.assertEquals(1, copies.size());
+        Assert.assertTrue(copies.get(0).contains("AA1234BB"));
+        Assert.assertFalse(copies.get(0).contains("AA0000BB"));
+    }
+
+    private RegistrationCsvRecord.RegistrationCsvRecordBuilder getRecord() {
+        return RegistrationCsvRecord.builder()
+                                    .personType("P")
+                                    .administrativeObject(8000000000L)
+                                    .operationCode(100L)
+                                    .operationName("REGISTRATION")
+                                    .registrationDate("19.02.2019")
+                                    .departmentCode(12345L)
+                                    .vehicleBrand("BRAND")
+                                    .vehicleModel("MODEL")
+                                    .vehicleMakeYear(2010L)
+                                    .vehicleColor("BLACK")
+                                    .vehicleKind("CAR")
+                                    .vehicleBodyType("SEDAN")
+                                    .vehiclePurpose("COMMON")
+                                    .vehicleEngineCapacity(1598L)
+                                    .vehicleRegistrationNumber("AA1234BB");
+    }
+}
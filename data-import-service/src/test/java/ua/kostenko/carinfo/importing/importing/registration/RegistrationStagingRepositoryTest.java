@@ -0,0 +1,171 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+import ua.kostenko.carinfo.importing.csv.pojo.RegistrationCsvRecord;
+import ua.kostenko.carinfo.importing.importing.ConcurrencyLimiter;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * COPY, dictionary resolution and publication of staging batches against a real carinfo schema.
+ */
+public class RegistrationStagingRepositoryTest {
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private RegistrationStagingRepository repository;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.APP_IMPORT_LIMIT_INITIAL = 2;
+        properties.APP_IMPORT_LIMIT_MIN = 1;
+        properties.APP_IMPORT_LIMIT_MAX = 2;
+        properties.APP_IMPORT_LIMIT_LATENCY_TOLERANCE = 2.0;
+        context = new AnnotationConfigApplicationContext();
+        context.register(TransactionConfiguration.class, RecordPartitionManager.class, RecordChangeLog.class, RegistrationStagingRepository.class);
+        context.registerBean(JdbcTemplate.class, () -> jdbcTemplate);
+        context.registerBean(NamedParameterJdbcTemplate.class, () -> new NamedParameterJdbcTemplate(jdbcTemplate));
+        context.registerBean(PlatformTransactionManager.class, () -> new DataSourceTransactionManager(database.getDataSource()));
+        context.registerBean(ConcurrencyLimiter.class, () -> new ConcurrencyLimiter(properties));
+        context.refresh();
+        context.getBean(RecordPartitionManager.class).ensurePartitioned();
+        repository = context.getBean(RegistrationStagingRepository.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void batchIsPublishedWithItsDictionaries() {
+        RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "data.csv", "record", 1);
+        persist.persist(getRecord("AA0001AA", "BMW", "X5", "19.02.2019").vehicleFuelType("BENZYN").build());
+        persist.persist(getRecord("AA0002AA", "AUDI", "A4 \"AVANT\"", "2020-05-01").build());
+        persist.persist(getRecord("AA0003AA", "AUDI", "A4", "2020-05-01").personType(null).build());
+        persist.persist(getRecord("AA0004AA", "AUDI", "A4", "2020-05-01").vehicleBodyType(" ").build());
+        Assert.assertEquals(2L, count("carinfo.record_staging"));
+
+        Assert.assertEquals(2, persist.publish());
+        Assert.assertEquals(0L, count("carinfo.record_staging"));
+        Assert.assertEquals(Arrays.asList("AA0001AA:BMW:X5:SEDAN:BENZYN:2019-02-19:12345:REGISTRATION",
+                                          "AA0002AA:AUDI:A4 \"AVANT\":SEDAN:—:2020-05-01:12345:REGISTRATION"), getView());
+        Assert.assertEquals(Arrays.asList("AUDI", "BMW"), jdbcTemplate.queryForList("select brand_name from carinfo.brand order by 1", String.class));
+        Assert.assertEquals(2L, count("carinfo.vehicle"));
+        Assert.assertEquals(Arrays.asList("record_y2019", "record_y2020"),
+                            jdbcTemplate.queryForList("select c.relname::text from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                                                              "where i.inhparent = 'carinfo.record'::regclass order by 1", String.class));
+        Assert.assertEquals(Collections.singletonList(RecordChangeLog.INSERT + ":2"),
+                            jdbcTemplate.queryForList("select operation || ':' || cardinality(record_ids) from carinfo.record_change order by seq", String.class));
+    }
+
+    @Test
+    public void rerunOfBatchDoesNotDuplicateRecords() {
+        for (int run = 0; run < 2; run++) {
+            RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "data.csv", "record");
+            persist.persist(getRecord("AA0001AA", "BMW", "X5", "19.02.2019").build());
+            persist.persist(getRecord("AA0001AA", "BMW", "X5", "19.02.2019").build());
+            persist.persist(getRecord("AA0002AA", "BMW", "X5", "19.02.2019").build());
+            Assert.assertEquals(run == 0 ? 2 : 0, persist.publish());
+        }
+        Assert.assertEquals(2L, count("carinfo.record"));
+        Assert.assertEquals(1L, count("carinfo.brand"));
+        Assert.assertEquals(1L, count("carinfo.vehicle"));
+    }
+
+    @Test
+    public void removedFingerprintsDeleteOnlyMatchingRecords() {
+        RegistrationStagingPersist persist = new RegistrationStagingPersist(repository, "data.csv", "record");
+        persist.persist(getRecord("AA0001AA", "BMW", "X5", "19.02.2019").build());
+        persist.persist(getRecord("AA0002AA", "BMW", "X5", "19.02.2019").build());
+        persist.persist(getRecord("AA0003AA", "AUDI", "A4", "2020-05-01").build());
+        persist.publish();
+        long removed = getFingerprint("AA0002AA");
+
+        RegistrationStagingPersist delta = new RegistrationStagingPersist(repository, "data.csv", "record");
+        delta.persist(getRecord("AA0004AA", "AUDI", "A6", "2020-06-01").build());
+        Assert.assertEquals(1, delta.publish(new long[]{removed, 42L}));
+
+        Assert.assertEquals(Arrays.asList("AA0001AA", "AA0003AA", "AA0004AA"),
+                            jdbcTemplate.queryForList("select registration_number from carinfo.record order by 1", String.class));
+        Assert.assertEquals(Arrays.asList(RecordChangeLog.INSERT, RecordChangeLog.DELETE, RecordChangeLog.INSERT),
+                            jdbcTemplate.queryForList("select operation from carinfo.record_change order by seq", String.class));
+    }
+
+    @Test
+    public void batchesOfOtherYearsAreNotBlocked() throws Exception {
+        try (Connection connection = database.getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            connection.createStatement().execute("select pg_advisory_xact_lock(hashtext('carinfo.record_y2019'))");
+            RegistrationStagingPersist otherYear = new RegistrationStagingPersist(repository, "2020.csv", "record");
+            otherYear.persist(getRecord("AA0001AA", "BMW", "X5", "2020-05-01").build());
+            Assert.assertEquals(Integer.valueOf(1), CompletableFuture.supplyAsync(otherYear::publish).get(10, TimeUnit.SECONDS));
+
+            RegistrationStagingPersist sameYear = new RegistrationStagingPersist(repository, "2019.csv", "record");
+            sameYear.persist(getRecord("AA0002AA", "BMW", "X5", "19.02.2019").build());
+            CompletableFuture<Integer> blocked = CompletableFuture.supplyAsync(sameYear::publish);
+            Thread.sleep(500);
+            Assert.assertFalse(blocked.isDone());
+            connection.rollback();
+            Assert.assertEquals(Integer.valueOf(1), blocked.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private long getFingerprint(String plate) {
+        return jdbcTemplate.queryForObject("select row_fingerprint from carinfo.record where registration_number = ?", Long.class, plate);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    private List<String> getView() {
+        return jdbcTemplate.queryForList("select concat_ws(':', registration_number, brand_name, model_name, body_type_name, fuel_type_name, " +
+                                                 "registration_date, dep_code, op_name) from carinfo.record_view order by 1",
+                                         String.class);
+    }
+
+    private static RegistrationCsvRecord.RegistrationCsvRecordBuilder getRecord(String plate, String brand, String model, String registrationDate) {
+        return RegistrationCsvRecord.builder()
+                                    .personType("P")
+                                    .operationCode(100L)
+                                    .operationName("REGISTRATION")
+                                    .registrationDate(registrationDate)
+                                    .departmentCode(12345L)
+                                    .vehicleBrand(brand)
+                                    .vehicleModel(model)
+                                    .vehicleMakeYear(2010L)
+                                    .vehicleColor("BLACK")
+                                    .vehicleKind("CAR")
+                                    .vehicleBodyType("SEDAN")
+                                    .vehiclePurpose("COMMON")
+                                    .vehicleEngineCapacity(1598L)
+                                    .vehicleRegistrationNumber(plate);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfiguration {
+    }
+}
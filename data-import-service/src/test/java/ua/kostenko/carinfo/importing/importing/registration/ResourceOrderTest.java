@@ -0,0 +1,39 @@
+package ua.kostenko.carinfo.importing.importing.registration;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ua.kostenko.carinfo.importing.json.registration.ResourceDataPackage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ResourceOrderTest {
+
+    @Test
+    public void yearIsTakenFromResourceNameOrFileName() {
+        Assert.assertEquals(Integer.valueOf(2019), ResourceOrder.getYear(getResource("tz_opendata_z01012019_po31122019.zip", null)));
+        Assert.assertEquals(Integer.valueOf(2017), ResourceOrder.getYear(getResource("https://data.gov.ua/files/reestr_2017.zip", null)));
+        Assert.assertNull(ResourceOrder.getYear(getResource("https://data.gov.ua/files/reestr.zip", null)));
+    }
+
+    @Test
+    public void newestYearsAndLargestFilesGoFirst() {
+        List<ResourceDataPackage> resources = Arrays.asList(getResource("reestr.zip", 900L),
+                                                            getResource("tz_2017.zip", 100L),
+                                                            getResource("tz_2019_part1.zip", 10L),
+                                                            getResource("tz_2019_part2.zip", 50L));
+        List<String> ordered = resources.stream()
+                                        .sorted(ResourceOrder.NEWEST_LARGEST_FIRST)
+                                        .map(ResourceDataPackage::getPath)
+                                        .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("tz_2019_part2.zip", "tz_2019_part1.zip", "tz_2017.zip", "reestr.zip"), ordered);
+    }
+
+    private ResourceDataPackage getResource(String path, Long bytes) {
+        ResourceDataPackage resource = new ResourceDataPackage();
+        resource.setPath(path);
+        resource.setBytes(bytes);
+        return resource;
+    }
+}
@@ -0,0 +1,159 @@
+package ua.kostenko.carinfo.importing.io;
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class FileDownloaderTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final String ETAG = "\"fixture-v1\"";
+    private static final int FIXTURE_SIZE = 256 * 1024;
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private final byte[] fixture = new byte[FIXTURE_SIZE];
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private final AtomicInteger brokenResponses = new AtomicInteger();
+    private volatile boolean rangesSupported = true;
+    private HttpServer server;
+    private FileDownloader fileDownloader;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(fixture);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/archive.zip", this::handle);
+        server.start();
+        fileDownloader = new FileDownloader(DownloadOptions.builder()
+                                                           .segments(4)
+                                                           .minSegmentSize(32 * 1024)
+                                                           .maxRetries(3)
+                                                           .retryBackoffMillis(10)
+                                                           .connectTimeoutMillis(5000)
+                                                           .readTimeoutMillis(5000)
+                                                           .build());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void segmentedDownloadIsVerified() throws IOException {
+        File file = fileDownloader.downloadFile(getUrl(), getTarget(), "sha256:" + getFixtureSha256());
+        Assert.assertNotNull(file);
+        Assert.assertArrayEquals(fixture, Files.readAllBytes(file.toPath()));
+        Assert.assertEquals(5, ranges.size());
+        Assert.assertTrue(ranges.contains("bytes=196608-262143"));
+    }
+
+    @Test
+    public void brokenSegmentIsResumed() throws IOException {
+        brokenResponses.set(1);
+        File file = fileDownloader.downloadFile(getUrl(), getTarget());
+        Assert.assertNotNull(file);
+        Assert.assertArrayEquals(fixture, Files.readAllBytes(file.toPath()));
+        Assert.assertTrue(ranges.stream().anyMatch(range -> range.matches("bytes=\\d*[1-9]\\d*-\\d+") && !isSegmentStart(range)));
+    }
+
+    @Test
+    public void unchangedArchiveIsNotDownloadedAgain() throws IOException {
+        Assert.assertNotNull(fileDownloader.downloadFile(getUrl(), getTarget()));
+        ranges.clear();
+        File file = fileDownloader.downloadFile(getUrl(), getTarget());
+        Assert.assertNotNull(file);
+        Assert.assertEquals(1, notModifiedResponses.get());
+        Assert.assertEquals(1, ranges.size());
+        Assert.assertArrayEquals(fixture, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void serverWithoutRangesIsSupported() throws IOException {
+        rangesSupported = false;
+        File file = fileDownloader.downloadFile(getUrl(), getTarget());
+        Assert.assertNotNull(file);
+        Assert.assertArrayEquals(fixture, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void checksumMismatchIsRejected() {
+        File file = fileDownloader.downloadFile(getUrl(), getTarget(), Hashing.sha256().hashBytes(new byte[1]).toString());
+        Assert.assertNull(file);
+        Assert.assertFalse(new File(getTarget()).exists());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                ranges.add(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            Matcher matcher = RANGE.matcher(String.valueOf(range));
+            if (!rangesSupported || !matcher.matches()) {
+                exchange.sendResponseHeaders(200, fixture.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(fixture);
+                }
+                return;
+            }
+            ranges.add(range);
+            int start = Integer.parseInt(matcher.group(1));
+            int end = Math.min(Integer.parseInt(matcher.group(2)), fixture.length - 1);
+            int length = end - start + 1;
+            exchange.getResponseHeaders().add("Content-Range", String.format("bytes %d-%d/%d", start, end, fixture.length));
+            exchange.sendResponseHeaders(206, length);
+            OutputStream outputStream = exchange.getResponseBody();
+            if (length > 1 && brokenResponses.getAndDecrement() > 0) {
+                outputStream.write(fixture, start, length / 2);
+                outputStream.flush();
+                return;
+            }
+            outputStream.write(fixture, start, length);
+            outputStream.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean isSegmentStart(String range) {
+        Matcher matcher = RANGE.matcher(range);
+        return matcher.matches() && Integer.parseInt(matcher.group(1)) % (64 * 1024) == 0;
+    }
+
+    private String getFixtureSha256() {
+        return Hashing.sha256().hashBytes(fixture).toString();
+    }
+
+    private String getUrl() {
+        return String.format("http://localhost:%d/archive.zip", server.getAddress().getPort());
+    }
+
+    private String getTarget() {
+        return new File(temporaryFolder.getRoot(), "archive.zip").getAbsolutePath();
+    }
+}
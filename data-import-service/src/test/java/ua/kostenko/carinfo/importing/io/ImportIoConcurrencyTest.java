@@ -0,0 +1,122 @@
+package ua.kostenko.carinfo.importing.io;
+
+import com.sun.net.httpserver.HttpServer;
+import net.lingala.zip4j.core.ZipFile;
+import net.lingala.zip4j.exception.ZipException;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ImportIoConcurrencyTest {
+    private static final int TASKS = 2;
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private final CyclicBarrier barrier = new CyclicBarrier(TASKS);
+    private HttpServer server;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(TASKS));
+        server.createContext("/", exchange -> {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+                byte[] body = exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        executorService = Executors.newFixedThreadPool(TASKS);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void downloadsRunInParallel() throws Exception {
+        FileDownloader fileDownloader = new FileDownloader();
+        FileUtil fileUtil = new FileUtil(new EncodingUtils(), temporaryFolder.getRoot());
+        List<Future<File>> futures = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            String name = "archive" + i + ".zip";
+            File workingDirectory = fileUtil.createWorkingDirectory(name);
+            Assert.assertNotNull(workingDirectory);
+            String url = String.format("http://localhost:%d/%s", server.getAddress().getPort(), name);
+            futures.add(executorService.submit(() -> fileDownloader.downloadFile(url, new File(workingDirectory, name).getAbsolutePath())));
+        }
+        for (int i = 0; i < TASKS; i++) {
+            File file = futures.get(i).get(20, TimeUnit.SECONDS);
+            Assert.assertEquals("/archive" + i + ".zip", FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+        }
+        Assert.assertNotEquals(futures.get(0).get().getParentFile(), futures.get(1).get().getParentFile());
+    }
+
+    @Test
+    public void extractionsUseSeparateWorkingDirectories() throws Exception {
+        ArchiveUtils archiveUtils = new ArchiveUtils() {
+            @Override
+            ZipFile openArchive(File archiveFile) throws ZipException {
+                return new ZipFile(archiveFile) {
+                    @Override
+                    public void extractAll(String destPath) throws ZipException {
+                        try {
+                            // both extractions must be in progress at once to pass the barrier
+                            barrier.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                            throw new ZipException(e);
+                        }
+                        super.extractAll(destPath);
+                    }
+                };
+            }
+        };
+        FileUtil fileUtil = new FileUtil(new EncodingUtils(), temporaryFolder.getRoot());
+        List<Future<File>> futures = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            File workingDirectory = fileUtil.createWorkingDirectory("data");
+            Assert.assertNotNull(workingDirectory);
+            File archive = createArchive(new File(workingDirectory, "data.zip"), "row" + i);
+            futures.add(executorService.submit(() -> archiveUtils.extractZipArchive(archive, new File(workingDirectory, "data"))));
+        }
+        for (int i = 0; i < TASKS; i++) {
+            File directory = futures.get(i).get(20, TimeUnit.SECONDS);
+            Assert.assertEquals("row" + i, fileUtil.getTextFromFile(new File(directory, "data.csv")));
+        }
+    }
+
+    private File createArchive(File archive, String content) throws IOException {
+        try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(archive))) {
+            outputStream.putNextEntry(new ZipEntry("data.csv"));
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+            outputStream.closeEntry();
+        }
+        return archive;
+    }
+}
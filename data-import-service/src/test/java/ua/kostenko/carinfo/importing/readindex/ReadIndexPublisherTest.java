@@ -0,0 +1,83 @@
+package ua.kostenko.carinfo.importing.readindex;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+import ua.kostenko.carinfo.common.api.records.Department;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationListener;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
+import ua.kostenko.carinfo.common.readindex.ReadIndex;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
+import ua.kostenko.carinfo.common.readindex.ReadIndexGeneration;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Live writes within a data version must get a read index file of their own.
+ */
+public class ReadIndexPublisherTest {
+    @Rule
+    public PostgresTestDatabase database = new PostgresTestDatabase();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private JdbcTemplate jdbcTemplate;
+    private ReadIndexPublisher publisher;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        jdbcTemplate = database.getJdbcTemplate();
+        database.insertRegistration("AA0001AA", "BMW", "X5", "BLACK", 2010, "2019-03-01", 3000);
+        jdbcTemplate.update("insert into carinfo.data_version (status, published_at, records) values ('CURRENT', now(), 1)");
+        directory = temporaryFolder.newFolder();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.APP_READ_INDEX_DIR = directory.getAbsolutePath();
+        properties.APP_READ_INDEX_KEEP = 5;
+        publisher = new ReadIndexPublisher(jdbcTemplate, new DataSourceTransactionManager(database.getDataSource()), properties);
+    }
+
+    @Test
+    public void fileIsPublishedPerGeneration() throws IOException {
+        publisher.publishIfEnabled();
+        publisher.publishIfEnabled();
+        List<String> files = getFiles();
+        Assert.assertEquals(Collections.singletonList(ReadIndex.getFileName(ReadIndexGeneration.read(jdbcTemplate))), files);
+
+        database.insertRegistration("AA0002AA", "AUDI", "A4", "RED", 2015, "2019-05-01", 1800);
+        jdbcTemplate.update("insert into carinfo.record_change (version, operation, record_ids) values (1, 'INSERT', array[2])");
+        publisher.publishIfEnabled();
+        ReadIndexGeneration rows = ReadIndexGeneration.read(jdbcTemplate);
+        Assert.assertEquals(2, getFiles().size());
+        try (ReadIndex index = ReadIndex.open(new File(directory, ReadIndex.getFileName(rows)))) {
+            Assert.assertEquals(rows, index.getGeneration());
+            Assert.assertEquals(1, index.findByPlate("AA0002AA").size());
+        }
+
+        new CacheInvalidationPublisher(jdbcTemplate, Mockito.mock(CacheInvalidationListener.class)).entityChanged(Department.class);
+        jdbcTemplate.update("update carinfo.department set dep_addr = 'LVIV' where dep_code = 1");
+        publisher.publishIfEnabled();
+        ReadIndexGeneration departments = ReadIndexGeneration.read(jdbcTemplate);
+        Assert.assertEquals(rows.getChangeSeq(), departments.getChangeSeq());
+        Assert.assertEquals(rows.getEntityChanges() + 1, departments.getEntityChanges());
+        Assert.assertEquals(3, getFiles().size());
+        try (ReadIndex index = ReadIndex.open(new File(directory, ReadIndex.getFileName(departments)))) {
+            Assert.assertEquals("LVIV", index.getEntries(ReadIndexDictionary.DEPARTMENT).get(0).getField(0));
+        }
+    }
+
+    private List<String> getFiles() {
+        return Arrays.stream(directory.list((dir, name) -> ReadIndex.isIndexFile(name))).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,97 @@
+package ua.kostenko.carinfo.importing.snapshot;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class SnapshotFileTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sectionsAreReadBackIndependently() throws IOException {
+        byte[] brands = "brand rows".getBytes();
+        byte[] records = getRandomBytes(300 * 1024);
+        File file = temporaryFolder.newFile();
+        try (SnapshotWriter writer = new SnapshotWriter(file, 7)) {
+            writer.write("brand", Arrays.asList("brand_id", "brand_name"), outputStream -> outputStream.write(brands));
+            writer.write("record_y2019", Arrays.asList("id", "registration_date"), outputStream -> outputStream.write(records));
+            writer.write("color", Arrays.asList("color_id", "color_name"), outputStream -> {
+            });
+        }
+
+        SnapshotReader reader = new SnapshotReader(file);
+        Assert.assertEquals(Integer.valueOf(7), reader.getDataVersion());
+        List<SnapshotEntry> entries = reader.getEntries();
+        Assert.assertEquals(3, entries.size());
+        Assert.assertEquals("record_y2019", entries.get(1).getTable());
+        Assert.assertEquals(Arrays.asList("id", "registration_date"), entries.get(1).getColumns());
+        Assert.assertArrayEquals(records, read(reader, entries.get(1)));
+        Assert.assertArrayEquals(brands, read(reader, entries.get(0)));
+        Assert.assertEquals(0, read(reader, entries.get(2)).length);
+    }
+
+    @Test
+    public void snapshotWithoutVersionHasNullVersion() throws IOException {
+        File file = temporaryFolder.newFile();
+        new SnapshotWriter(file, null).close();
+        SnapshotReader reader = new SnapshotReader(file);
+        Assert.assertNull(reader.getDataVersion());
+        Assert.assertTrue(reader.getEntries().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void damagedSectionIsDetected() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (SnapshotWriter writer = new SnapshotWriter(file, 1)) {
+            writer.write("model", Arrays.asList("model_id", "model_name"), outputStream -> outputStream.write(getRandomBytes(64 * 1024)));
+        }
+        SnapshotReader reader = new SnapshotReader(file);
+        SnapshotEntry entry = reader.getEntries().get(0);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            long position = entry.getOffset() + entry.getCompressedLength() / 2;
+            output.seek(position);
+            int value = output.read();
+            output.seek(position);
+            output.write(value ^ 0xFF);
+        }
+        read(reader, entry);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (SnapshotWriter writer = new SnapshotWriter(file, 1)) {
+            writer.write("kind", Arrays.asList("kind_id", "kind_name"), outputStream -> outputStream.write(getRandomBytes(1024)));
+        }
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(output.length() - 3);
+        }
+        new SnapshotReader(file);
+    }
+
+    private static byte[] read(SnapshotReader reader, SnapshotEntry entry) throws IOException {
+        try (InputStream inputStream = reader.open(entry)) {
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+
+    private static byte[] getRandomBytes(int size) {
+        byte[] bytes = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) ('a' + random.nextInt(4));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,120 @@
+package ua.kostenko.carinfo.importing.snapshot;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ua.kostenko.carinfo.common.PostgresTestDatabase;
+import ua.kostenko.carinfo.common.cache.CacheInvalidationPublisher;
+import ua.kostenko.carinfo.importing.configuration.ApplicationProperties;
+import ua.kostenko.carinfo.importing.importing.ImportScheduler;
+import ua.kostenko.carinfo.importing.importing.registration.RecordChangeLog;
+import ua.kostenko.carinfo.importing.importing.registration.RecordPartitionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshots exported from one database are restored into another one with partitions, foreign keys and sequences.
+ */
+public class SnapshotServiceTest {
+    @Rule
+    public PostgresTestDatabase source = new PostgresTestDatabase();
+    @Rule
+    public PostgresTestDatabase target = new PostgresTestDatabase();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private AnnotationConfigApplicationContext sourceContext;
+    private AnnotationConfigApplicationContext targetContext;
+
+    @Before
+    public void setUp() {
+        source.insertRegistration("AA0001AA", "BMW", "X5", "BLACK", 2010, "2019-03-01", 3000);
+        source.insertRegistration("AA0002AA", "AUDI", "A4", "WHITE", 2016, "2020-06-15", 1800);
+        sourceContext = createContext(source);
+        sourceContext.getBean(RecordPartitionManager.class).ensurePartitioned();
+        targetContext = createContext(target);
+    }
+
+    @After
+    public void tearDown() {
+        sourceContext.close();
+        targetContext.close();
+    }
+
+    @Test
+    public void exportedSnapshotIsRestored() throws IOException {
+        File snapshot = sourceContext.getBean(SnapshotService.class).export(temporaryFolder.getRoot());
+
+        targetContext.getBean(SnapshotService.class).restore(snapshot);
+
+        JdbcTemplate jdbcTemplate = target.getJdbcTemplate();
+        Assert.assertEquals(Arrays.asList("record_y2019", "record_y2020"), getPartitions(jdbcTemplate));
+        Assert.assertEquals(getRecords(source.getJdbcTemplate()), getRecords(jdbcTemplate));
+        long id = target.insertRegistration("AA0003AA", "SKODA", "OCTAVIA", "RED", 2018, "2020-07-01", 1600);
+        Assert.assertTrue(id > jdbcTemplate.queryForObject("select max(id) from carinfo.record where registration_number <> 'AA0003AA'", Long.class));
+        Assert.assertEquals(Collections.singletonList("RESET"), jdbcTemplate.queryForList("select operation from carinfo.record_change", String.class));
+    }
+
+    @Test
+    public void failedRestoreLeavesTablesEmpty() throws IOException {
+        File snapshot = sourceContext.getBean(SnapshotService.class).export(temporaryFolder.getRoot());
+        JdbcTemplate jdbcTemplate = target.getJdbcTemplate();
+        targetContext.getBean(RecordPartitionManager.class).ensurePartitioned();
+        jdbcTemplate.execute("alter table carinfo.record add constraint record_plate_check check (registration_number <> 'AA0002AA')");
+
+        try {
+            targetContext.getBean(SnapshotService.class).restore(snapshot);
+            Assert.fail("Snapshot is restored despite the failed table");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals(0L, count(jdbcTemplate, "record"));
+            Assert.assertEquals(0L, count(jdbcTemplate, "vehicle"));
+            Assert.assertEquals(0L, count(jdbcTemplate, "brand"));
+        }
+    }
+
+    private static AnnotationConfigApplicationContext createContext(PostgresTestDatabase database) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.APP_SNAPSHOT_RESTORE_THREADS = 2;
+        properties.APP_IMPORT_TIMEOUT_HOURS = 1;
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(TransactionConfiguration.class, RecordPartitionManager.class, RecordChangeLog.class, ImportScheduler.class, SnapshotService.class);
+        context.registerBean(JdbcTemplate.class, database::getJdbcTemplate);
+        context.registerBean(PlatformTransactionManager.class, () -> new DataSourceTransactionManager(database.getDataSource()));
+        context.registerBean(CacheInvalidationPublisher.class, () -> Mockito.mock(CacheInvalidationPublisher.class));
+        context.registerBean(ApplicationProperties.class, () -> properties);
+        context.refresh();
+        return context;
+    }
+
+    private static List<String> getPartitions(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList("select c.relname::text from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                                                 "where i.inhparent = 'carinfo.record'::regclass order by 1", String.class);
+    }
+
+    private static List<String> getRecords(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList("select concat_ws(':', id, registration_number, brand_name, model_name, color_name, registration_date, dep_code) " +
+                                                 "from carinfo.record_view order by id", String.class);
+    }
+
+    private static long count(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForObject("select count(*) from carinfo." + table, Long.class);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfiguration {
+    }
+}
@@ -3,6 +3,7 @@ package ua.kostenko.carinfo.rest.configuration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
@@ -15,6 +16,7 @@ import java.util.Map;
 
 @Slf4j
 @Configuration
+@EnableCaching
 public class ApplicationConfiguration {
 
     @Bean
@@ -0,0 +1,48 @@
+package ua.kostenko.carinfo.rest.controllers.rest;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.kostenko.carinfo.rest.services.changes.RecordChangeService;
+import ua.kostenko.carinfo.rest.services.export.ExportFormat;
+
+import javax.annotation.Nonnull;
+
+@Slf4j
+@RestController
+@RequestMapping(value = "/api/changes", produces = ExportFormat.NDJSON_VALUE)
+public class ChangeRestApiController {
+    static final String LAST_SEQ_HEADER = "X-Changes-Last-Seq";
+    private final RecordChangeService changeService;
+
+    @Autowired
+    public ChangeRestApiController(@Nonnull @NonNull RecordChangeService changeService) {
+        this.changeService = changeService;
+    }
+
+    /**
+     * Changes after the since cursor as NDJSON. 410 Gone means the cursor is older than the retained log.
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> changes(@RequestParam(defaultValue = "0") long since,
+                                                         @RequestParam(defaultValue = "1000") int limit) {
+        log.info("Request came to /changes endpoint, since: {}, limit: {}", since, limit);
+        String lastSeq = String.valueOf(changeService.getLastSeq());
+        if (changeService.isExpired(since)) {
+            return ResponseEntity.status(HttpStatus.GONE).header(LAST_SEQ_HEADER, lastSeq).build();
+        }
+        StreamingResponseBody body = outputStream -> changeService.stream(since, limit, outputStream);
+        return ResponseEntity.ok()
+                             .header(HttpHeaders.CONTENT_TYPE, ExportFormat.NDJSON_VALUE)
+                             .header(LAST_SEQ_HEADER, lastSeq)
+                             .body(body);
+    }
+}
@@ -3,39 +3,67 @@ package ua.kostenko.carinfo.rest.controllers.rest;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.ResourceAssembler;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ua.kostenko.carinfo.common.api.records.Registration;
 import ua.kostenko.carinfo.rest.controllers.rest.common.DefaultApiController;
 import ua.kostenko.carinfo.rest.controllers.rest.common.Param;
+import ua.kostenko.carinfo.rest.controllers.rest.common.RegistrationFilter;
 import ua.kostenko.carinfo.rest.resources.assemblers.RegistrationAssembler;
 import ua.kostenko.carinfo.rest.resources.resources.RegistrationResource;
+import ua.kostenko.carinfo.rest.services.RegistrationLookupService;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumn;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumnStore;
 import ua.kostenko.carinfo.rest.services.common.SearchService;
+import ua.kostenko.carinfo.rest.services.export.ExportFormat;
+import ua.kostenko.carinfo.rest.services.export.RegistrationExportService;
 import ua.kostenko.carinfo.rest.utils.Translation;
 
 import javax.annotation.Nonnull;
+import javax.validation.Valid;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RestController
 @RequestMapping(value = "/api/registrations", produces = MediaTypes.HAL_JSON_UTF8_VALUE)
 public class RecordRestApiController extends DefaultApiController<Registration, String, RegistrationResource> {
+    private static final String FILTER_ATTRIBUTE = RegistrationFilter.class.getName();
+    private final RegistrationExportService exportService;
+    private final RegistrationLookupService lookupService;
+    private final RegistrationColumnStore columnStore;
 
     @Autowired
-    protected RecordRestApiController(@Nonnull @NonNull SearchService<Registration, String> searchService, @Nonnull @NonNull Translation translation) {
+    protected RecordRestApiController(@Nonnull @NonNull SearchService<Registration, String> searchService, @Nonnull @NonNull Translation translation,
+                                      @Nonnull @NonNull RegistrationExportService exportService,
+                                      @Nonnull @NonNull RegistrationLookupService lookupService,
+                                      @Nonnull @NonNull RegistrationColumnStore columnStore) {
         super(searchService, translation);
+        this.exportService = exportService;
+        this.lookupService = lookupService;
+        this.columnStore = columnStore;
     }
 
     @Override
     protected Map<String, Object> convertParamToMap(Registration params) {
+        RegistrationFilter filter = getRequestFilter();
         return mapBuilder()
                 .put(Registration.REGISTRATION_NUMBER, params.getRegistrationNumber())
                 .put(Registration.ADMIN_OBJ_NAME, params.getAdminObjName())
@@ -58,9 +86,47 @@ public class RecordRestApiController extends DefaultApiController<Registration,
                 .put(Registration.TOTAL_WEIGHT, params.getTotalWeight())
                 .put(Registration.PERSON_TYPE, params.getPersonType())
                 .put(Registration.REGISTRATION_DATE, params.getRegistrationDate())
+                .put(Registration.REGISTRATION_DATE_FROM, filter.getRegistrationDateFrom())
+                .put(Registration.REGISTRATION_DATE_TO, filter.getRegistrationDateTo())
+                .put(Registration.MAKE_YEAR_FROM, filter.getMakeYearFrom())
+                .put(Registration.MAKE_YEAR_TO, filter.getMakeYearTo())
+                .put(Registration.ENGINE_CAPACITY_MIN, filter.getEngineCapacityMin())
+                .put(Registration.ENGINE_CAPACITY_MAX, filter.getEngineCapacityMax())
+                .put(Registration.OWN_WEIGHT_MIN, filter.getOwnWeightMin())
+                .put(Registration.OWN_WEIGHT_MAX, filter.getOwnWeightMax())
+                .put(Registration.TOTAL_WEIGHT_MIN, filter.getTotalWeightMin())
+                .put(Registration.TOTAL_WEIGHT_MAX, filter.getTotalWeightMax())
+                .put(Registration.REGISTRATION_NUMBERS, filter.getRegistrationNumbers())
+                .put(Registration.BRANDS, filter.getBrandNames())
+                .put(Registration.MODELS, filter.getModelNames())
+                .put(Registration.COLORS, filter.getColorNames())
+                .put(Registration.KINDS, filter.getKindNames())
+                .put(Registration.BODY_TYPES, filter.getBodyTypeNames())
+                .put(Registration.PURPOSES, filter.getPurposeNames())
+                .put(Registration.FUEL_TYPES, filter.getFuelTypeNames())
+                .put(Registration.MAKE_YEARS, filter.getMakeYears())
+                .put(Registration.OPERATION_CODES, filter.getOperationCodes())
+                .put(Registration.DEPARTMENT_CODES, filter.getDepartmentCodes())
                 .build();
     }
 
+    /**
+     * Binds range and list filters of every request to this controller, malformed values are answered with 400.
+     */
+    @ModelAttribute
+    public void bindFilter(@Valid RegistrationFilter filter, BindingResult bindingResult) throws BindException {
+        if (bindingResult.hasErrors()) {
+            throw new BindException(bindingResult);
+        }
+        RequestContextHolder.currentRequestAttributes().setAttribute(FILTER_ATTRIBUTE, filter, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private RegistrationFilter getRequestFilter() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object filter = Objects.nonNull(attributes) ? attributes.getAttribute(FILTER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
+        return filter instanceof RegistrationFilter ? (RegistrationFilter) filter : new RegistrationFilter();
+    }
+
     @Override
     protected List<Param> getParams() {
         return buildParamsList(
@@ -84,7 +150,28 @@ public class RecordRestApiController extends DefaultApiController<Registration,
                 Registration.OWN_WEIGHT,
                 Registration.TOTAL_WEIGHT,
                 Registration.PERSON_TYPE,
-                Registration.REGISTRATION_DATE
+                Registration.REGISTRATION_DATE,
+                Registration.REGISTRATION_DATE_FROM,
+                Registration.REGISTRATION_DATE_TO,
+                Registration.MAKE_YEAR_FROM,
+                Registration.MAKE_YEAR_TO,
+                Registration.ENGINE_CAPACITY_MIN,
+                Registration.ENGINE_CAPACITY_MAX,
+                Registration.OWN_WEIGHT_MIN,
+                Registration.OWN_WEIGHT_MAX,
+                Registration.TOTAL_WEIGHT_MIN,
+                Registration.TOTAL_WEIGHT_MAX,
+                Registration.REGISTRATION_NUMBERS,
+                Registration.BRANDS,
+                Registration.MODELS,
+                Registration.COLORS,
+                Registration.KINDS,
+                Registration.BODY_TYPES,
+                Registration.PURPOSES,
+                Registration.FUEL_TYPES,
+                Registration.MAKE_YEARS,
+                Registration.OPERATION_CODES,
+                Registration.DEPARTMENT_CODES
         );
     }
 
@@ -109,4 +196,64 @@ public class RecordRestApiController extends DefaultApiController<Registration,
     public PagedResources<RegistrationResource> findByParams(PagedResourcesAssembler<Registration> assembler, Pageable pageable, Registration params) {
         return getFindByParamsResult(assembler, pageable, params);
     }
+
+    @GetMapping(value = {"find", "find/{indexField}"}, params = "view=compact", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<StreamingResponseBody> findCompact(Pageable pageable, @PathVariable(required = false) String indexField,
+                                                             @RequestParam(required = false) List<String> fields) {
+        log.info("Request came to /find/{indexField}?view=compact endpoint, indexField: {}", indexField);
+        List<String> projection = RegistrationExportService.getCompactFields(Objects.nonNull(fields) ? fields : Collections.emptyList());
+        Page<Registration> page = getFindPage(pageable, indexField);
+        StreamingResponseBody body = outputStream -> exportService.exportCompactPage(page, projection, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    @GetMapping(value = "findByParams", params = "view=compact", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<StreamingResponseBody> findByParamsCompact(Pageable pageable, Registration params,
+                                                                     @RequestParam(required = false) List<String> fields) {
+        log.info("Request came to /findByParams?view=compact endpoint, params: {}", params);
+        List<String> projection = RegistrationExportService.getCompactFields(Objects.nonNull(fields) ? fields : Collections.emptyList());
+        Map<String, Object> paramToMap = convertParamToMap(params);
+        StreamingResponseBody body = outputStream -> exportService.exportCompactPage(paramToMap, pageable, projection, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    @GetMapping(value = "export", produces = {ExportFormat.NDJSON_VALUE, ExportFormat.CSV_VALUE})
+    public ResponseEntity<StreamingResponseBody> export(Registration params,
+                                                        @RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        log.info("Request came to /export endpoint, format: {}, gzip: {}, params: {}", format, gzip, params);
+        ExportFormat exportFormat = ExportFormat.of(format);
+        Map<String, Object> paramToMap = convertParamToMap(params);
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                exportService.export(paramToMap, exportFormat, gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                exportService.export(paramToMap, exportFormat, outputStream);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                                                            .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                                                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=registrations." + exportFormat.getExtension());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @PostMapping(value = "lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public Map<String, List<Registration>> lookup(@RequestBody List<String> plates) {
+        log.info("Request came to /lookup endpoint, plates: {}", plates.size());
+        return lookupService.lookup(plates);
+    }
+
+    @GetMapping(value = "statistics", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<Map<String, Long>> statistics(@RequestParam String groupBy, Registration params) {
+        log.info("Request came to /statistics endpoint, groupBy: {}, params: {}", groupBy, params);
+        RegistrationColumn group = RegistrationColumn.of(groupBy);
+        return columnStore.countByParams(group, convertParamToMap(params))
+                          .map(ResponseEntity::ok)
+                          .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
 }
@@ -22,6 +22,7 @@ public class RestRootController {
         resourceSupport.add(linkTo(methodOn(AdminObjectRestApiController.class).index()).withRel("administrative"));
         resourceSupport.add(linkTo(methodOn(BodyTypeRestApiController.class).index()).withRel("bodies"));
         resourceSupport.add(linkTo(methodOn(BrandRestApiController.class).index()).withRel("brands"));
+        resourceSupport.add(linkTo(ChangeRestApiController.class).withRel("changes"));
         resourceSupport.add(linkTo(methodOn(ColorRestApiController.class).index()).withRel("colors"));
         resourceSupport.add(linkTo(methodOn(DepartmentRestApiController.class).index()).withRel("departments"));
         resourceSupport.add(linkTo(methodOn(FuelTypeRestApiController.class).index()).withRel("fuels"));
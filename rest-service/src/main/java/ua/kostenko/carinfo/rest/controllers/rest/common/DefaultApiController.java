@@ -9,10 +9,14 @@ import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.*;
 import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.BindException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
 import ua.kostenko.carinfo.rest.controllers.rest.RestRootController;
 import ua.kostenko.carinfo.rest.services.common.SearchService;
@@ -20,6 +24,8 @@ import ua.kostenko.carinfo.rest.utils.MapBuilder;
 import ua.kostenko.carinfo.rest.utils.Translation;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -31,6 +37,7 @@ import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 public abstract class DefaultApiController<T extends GenericRecord<I>, I, D extends ResourceSupport> implements RestApi<T, I, D> {
     private final SearchService<T, I> searchService;
     private final Translation translation;
+    private volatile TemplateVariables requestTemplateVariables;
 
     protected DefaultApiController(@NonNull @Nonnull SearchService<T, I> searchService, @NonNull @Nonnull Translation translation) {
         this.searchService = searchService;
@@ -166,13 +173,18 @@ public abstract class DefaultApiController<T extends GenericRecord<I>, I, D exte
 
     protected PagedResources<D> getFindResult(PagedResourcesAssembler<T> assembler, Pageable pageable, @PathVariable(required = false) String indexField) {
         log.info("Request came to /find/{indexField} endpoint, indexField: {}", indexField);
-        Page<T> findResult;
+        Page<T> findResult = getFindPage(pageable, indexField);
+        return getPageableResourceFind(assembler, findResult, indexField);
+    }
+
+    /**
+     * @return page of /find/{indexField}, all records when the index field is not given.
+     */
+    protected Page<T> getFindPage(Pageable pageable, @Nullable String indexField) {
         if (StringUtils.isBlank(indexField) || "{indexField}".equalsIgnoreCase(indexField)) {
-            findResult = searchService.getAll(pageable);
-        } else {
-            findResult = searchService.findForField(indexField, pageable);
+            return searchService.getAll(pageable);
         }
-        return getPageableResourceFind(assembler, findResult, indexField);
+        return searchService.findForField(indexField, pageable);
     }
 
     private PagedResources<D> getPageableResourceFind(@NonNull @Nonnull PagedResourcesAssembler<T> assembler, @NonNull @Nonnull Page<T> page, String indexField) {
@@ -202,13 +214,40 @@ public abstract class DefaultApiController<T extends GenericRecord<I>, I, D exte
         Map<String, Object> arguments = convertParamToMap(params);
         arguments.put("page", page.getPageable().getPageNumber());
         arguments.put("size", page.getPageable().getPageSize());
-        Link baseLinkWithParams = new Link(templateVariables, Link.REL_SELF).expand(arguments);
+        Link baseLinkWithParams = expandLink(templateVariables, arguments);
         PagedResources<D> resources = assembler.toResource(page, getResourceAssembler(), baseLinkWithParams);
         resources.add(getRootLink());
         return resources;
     }
 
+    /**
+     * Expands single values through the template, list values become repeated query parameters.
+     */
+    private static Link expandLink(@NonNull @Nonnull UriTemplate template, @NonNull @Nonnull Map<String, Object> arguments) {
+        Map<String, Object> singleValues = new HashMap<>();
+        Map<String, Collection<?>> listValues = new LinkedHashMap<>();
+        arguments.forEach((name, value) -> {
+            if (value instanceof Collection) {
+                listValues.put(name, (Collection<?>) value);
+            } else {
+                singleValues.put(name, value);
+            }
+        });
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(template.expand(singleValues).toASCIIString());
+        listValues.forEach((name, values) -> builder.queryParam(name, values.stream()
+                                                                            .map(value -> UriUtils.encodeQueryParam(String.valueOf(value), StandardCharsets.UTF_8))
+                                                                            .toArray()));
+        return new Link(builder.build(true).toUriString(), Link.REL_SELF);
+    }
+
     private TemplateVariables getRequestTemplateVariables() {
+        if (Objects.isNull(requestTemplateVariables)) {
+            requestTemplateVariables = buildRequestTemplateVariables();
+        }
+        return requestTemplateVariables;
+    }
+
+    private TemplateVariables buildRequestTemplateVariables() {
         List<TemplateVariable> variables = getParams().stream()
                                                       .map(param -> new TemplateVariable(param.getKey(), TemplateVariable.VariableType.REQUEST_PARAM, param.getValue()))
                                                       .collect(Collectors.toList());
@@ -231,6 +270,29 @@ public abstract class DefaultApiController<T extends GenericRecord<I>, I, D exte
         return MapBuilder.getBuilder();
     }
 
+    @ExceptionHandler(BindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public final Resource<Errors> handleBindException(BindException exception, WebRequest request) {
+        String message = exception.getFieldErrors()
+                                  .stream()
+                                  .map(error -> error.isBindingFailure()
+                                          ? String.format("Invalid value '%s' of parameter %s", error.getRejectedValue(), error.getField())
+                                          : String.format("Parameter %s %s", error.getField(), error.getDefaultMessage()))
+                                  .collect(Collectors.joining("; "));
+        Errors errors = new Errors(new Date(), message, request.getDescription(false), null, HttpStatus.BAD_REQUEST);
+        return new Resource<>(errors, linkTo(methodOn(getClassInstance()).index()).withRel("root"));
+    }
+
+    /**
+     * Request values the api can't answer, e.g. unsupported fields or too many items, are answered with 400.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public final Resource<Errors> handleIllegalArgumentException(IllegalArgumentException exception, WebRequest request) {
+        Errors errors = new Errors(new Date(), exception.getMessage(), request.getDescription(false), null, HttpStatus.BAD_REQUEST);
+        return new Resource<>(errors, linkTo(methodOn(getClassInstance()).index()).withRel("root"));
+    }
+
     @ExceptionHandler(Exception.class)
     public final Resource<Errors> handleAllExceptions(Exception exception, WebRequest request) {
         Errors errors = new Errors(new Date(), exception.getMessage(), request.getDescription(false), exception.getCause(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,45 @@
+package ua.kostenko.carinfo.rest.controllers.rest.common;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.PositiveOrZero;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Range and list filters of registration search, bound from request parameters of /api/registrations.
+ */
+@Data
+@NoArgsConstructor
+public class RegistrationFilter {
+    private Date registrationDateFrom;
+    private Date registrationDateTo;
+    @PositiveOrZero
+    private Long makeYearFrom;
+    @PositiveOrZero
+    private Long makeYearTo;
+    @PositiveOrZero
+    private Long engineCapacityMin;
+    @PositiveOrZero
+    private Long engineCapacityMax;
+    @PositiveOrZero
+    private Long ownWeightMin;
+    @PositiveOrZero
+    private Long ownWeightMax;
+    @PositiveOrZero
+    private Long totalWeightMin;
+    @PositiveOrZero
+    private Long totalWeightMax;
+    private List<String> registrationNumbers;
+    private List<String> brandNames;
+    private List<String> modelNames;
+    private List<String> colorNames;
+    private List<String> kindNames;
+    private List<String> bodyTypeNames;
+    private List<String> purposeNames;
+    private List<String> fuelTypeNames;
+    private List<Long> makeYears;
+    private List<Long> operationCodes;
+    private List<Long> departmentCodes;
+}
@@ -7,14 +7,24 @@ import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
 import ua.kostenko.carinfo.common.api.records.*;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
+import ua.kostenko.carinfo.common.readindex.ReadIndexEntry;
 import ua.kostenko.carinfo.rest.data.presentation.Auto;
 import ua.kostenko.carinfo.rest.data.presentation.CombinedInformation;
 import ua.kostenko.carinfo.rest.data.presentation.ServiceCenter;
 import ua.kostenko.carinfo.rest.data.presentation.VRegistration;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumn;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumnStore;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
 
 import javax.transaction.Transactional;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +38,8 @@ public class DBSearchService implements SearchService {
     private final DBService<FuelType> fuelTypeDBService;
     private final DBService<Kind> kindDBService;
     private final DBService<Vehicle> vehicleDBService;
+    private final RegistrationColumnStore columnStore;
+    private final ReadIndexService readIndexService;
 
     @Autowired
     public DBSearchService(DBService<Registration> registrationDBService,
@@ -41,22 +53,28 @@ public class DBSearchService implements SearchService {
                            DBService<Model> modelDBService,
                            DBService<Operation> operationDBService,
                            DBService<Purpose> purposeDBService,
-                           DBService<Vehicle> vehicleDBService) {
+                           DBService<Vehicle> vehicleDBService,
+                           RegistrationColumnStore columnStore,
+                           ReadIndexService readIndexService) {
         this.registrationDBService = registrationDBService;
         this.brandDBService = brandDBService;
         this.colorDBService = colorDBService;
         this.fuelTypeDBService = fuelTypeDBService;
         this.kindDBService = kindDBService;
         this.vehicleDBService = vehicleDBService;
+        this.columnStore = columnStore;
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public List<CombinedInformation> searchAllByRegistrationNumber(String number) {
-        ParamsHolderBuilder params = new ParamsHolderBuilder().param(Registration.REGISTRATION_NUMBER, number);
-        Page<Registration> registration = registrationDBService.getAll(params);
+        List<Registration> registrations = readIndexService.findByPlate(number).orElseGet(() -> {
+            ParamsHolderBuilder params = new ParamsHolderBuilder().param(Registration.REGISTRATION_NUMBER, number);
+            return registrationDBService.getAll(params).getContent();
+        });
 
-        if (registration.getContent().size() > 0) {
-            return registration.getContent().stream().map(record -> {
+        if (registrations.size() > 0) {
+            return registrations.stream().map(record -> {
                 Auto auto = Auto.map(record);
                 VRegistration vRegistration = VRegistration.map(record);
                 ServiceCenter serviceCenter = ServiceCenter.map(record);
@@ -68,7 +86,7 @@ public class DBSearchService implements SearchService {
 
     @Override
     public List<String> getAllBrands() {
-        return brandDBService.getAll().stream().map(Brand::getBrandName).collect(Collectors.toList());
+        return getNames(ReadIndexDictionary.BRAND, () -> brandDBService.getAll().stream().map(Brand::getBrandName).collect(Collectors.toList()));
     }
 
     @Override
@@ -82,17 +100,17 @@ public class DBSearchService implements SearchService {
 
     @Override
     public List<String> getAllColors() {
-        return colorDBService.getAll().stream().map(Color::getColorName).collect(Collectors.toList());
+        return getNames(ReadIndexDictionary.COLOR, () -> colorDBService.getAll().stream().map(Color::getColorName).collect(Collectors.toList()));
     }
 
     @Override
     public List<String> getAllFuelTypes() {
-        return fuelTypeDBService.getAll().stream().map(FuelType::getFuelTypeName).collect(Collectors.toList());
+        return getNames(ReadIndexDictionary.FUEL_TYPE, () -> fuelTypeDBService.getAll().stream().map(FuelType::getFuelTypeName).collect(Collectors.toList()));
     }
 
     @Override
     public List<String> getAllCarKinds() {
-        return kindDBService.getAll().stream().map(Kind::getKindName).collect(Collectors.toList());
+        return getNames(ReadIndexDictionary.KIND, () -> kindDBService.getAll().stream().map(Kind::getKindName).collect(Collectors.toList()));
     }
 
     @Override
@@ -102,46 +120,62 @@ public class DBSearchService implements SearchService {
 
     @Override
     public long countAllRegistrations() {
-        return 0;
+        return count(new EnumMap<>(RegistrationColumn.class), new ParamsHolderBuilder());
     }
 
     @Override
     public long countAllByBrand(String brand) {
-        return 0;
+        return count(values(RegistrationColumn.BRAND, brand), new ParamsHolderBuilder().param(Registration.BRAND, brand));
     }
 
     @Override
     public long countAllByCarBrandAndModel(String brand, String model) {
-        return 0;
+        Map<RegistrationColumn, Object> values = values(RegistrationColumn.BRAND, brand);
+        values.put(RegistrationColumn.MODEL, model);
+        return count(values, new ParamsHolderBuilder().param(Registration.BRAND, brand).param(Registration.MODEL, model));
     }
 
     @Override
     public long countAllByCarColor(String color) {
-        return 0;
+        return count(values(RegistrationColumn.COLOR, color), new ParamsHolderBuilder().param(Registration.COLOR, color));
     }
 
     @Override
     public long countAllByFuelType(String fuelType) {
-        return 0;
+        return count(values(RegistrationColumn.FUEL_TYPE, fuelType), new ParamsHolderBuilder().param(Registration.FUEL_TYPE, fuelType));
     }
 
     @Override
     public long countAllByCarKind(String carKind) {
-        return 0;
+        return count(values(RegistrationColumn.KIND, carKind), new ParamsHolderBuilder().param(Registration.KIND, carKind));
     }
 
     @Override
     public long countAllCarsByYear(int year) {
-        return 0;
+        return count(values(RegistrationColumn.MAKE_YEAR, year), new ParamsHolderBuilder().param(Registration.MAKE_YEAR, year));
     }
 
     @Override
     public long countAllCarsInRegion(String region) {
-        return 0;
+        return count(values(RegistrationColumn.ADMIN_OBJECT, region), new ParamsHolderBuilder().param(Registration.ADMIN_OBJ_NAME, region));
     }
 
-    private long countForTableByField(String field, String value) {
-        return 0;
+    private Map<RegistrationColumn, Object> values(RegistrationColumn column, Object value) {
+        Map<RegistrationColumn, Object> values = new EnumMap<>(RegistrationColumn.class);
+        values.put(column, value);
+        return values;
     }
 
+    /**
+     * Counts by in-memory registration columns, by the database while they are not loaded.
+     */
+    private long count(Map<RegistrationColumn, Object> values, ParamsHolderBuilder params) {
+        OptionalLong count = columnStore.count(values);
+        return count.isPresent() ? count.getAsLong() : registrationDBService.countAll(params);
+    }
+
+    private List<String> getNames(ReadIndexDictionary dictionary, Supplier<List<String>> fallback) {
+        Optional<List<ReadIndexEntry>> entries = readIndexService.getEntries(dictionary);
+        return entries.isPresent() ? entries.get().stream().map(entry -> entry.getField(0)).collect(Collectors.toList()) : fallback.get();
+    }
 }
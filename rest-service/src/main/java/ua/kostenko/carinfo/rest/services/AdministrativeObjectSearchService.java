@@ -5,19 +5,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.AdministrativeObject;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class AdministrativeObjectSearchService extends CommonSearchService<AdministrativeObject, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public AdministrativeObjectSearchService(DBService<AdministrativeObject> service) {
+    public AdministrativeObjectSearchService(DBService<AdministrativeObject> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return AdministrativeObject.ADMIN_OBJ_NAME;
     }
+
+    @Override
+    protected Optional<List<AdministrativeObject>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.ADMIN_OBJECT,
+                                           entry -> AdministrativeObject.builder()
+                                                                        .adminObjId(entry.getId())
+                                                                        .adminObjName(entry.getField(0))
+                                                                        .adminObjType(entry.getField(1))
+                                                                        .build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.BodyType;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class BodyTypeSearchService extends CommonSearchService<BodyType, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public BodyTypeSearchService(DBService<BodyType> service) {
+    public BodyTypeSearchService(DBService<BodyType> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return BodyType.BODY_TYPE_NAME;
     }
+
+    @Override
+    protected Optional<List<BodyType>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.BODY_TYPE, entry -> BodyType.builder().bodyTypeId(entry.getId()).bodyTypeName(entry.getField(0)).build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Brand;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class BrandSearchService extends CommonSearchService<Brand, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public BrandSearchService(DBService<Brand> service) {
+    public BrandSearchService(DBService<Brand> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Brand.BRAND_NAME;
     }
+
+    @Override
+    protected Optional<List<Brand>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.BRAND, entry -> Brand.builder().brandId(entry.getId()).brandName(entry.getField(0)).build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Color;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class ColorSearchService extends CommonSearchService<Color, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public ColorSearchService(DBService<Color> service) {
+    public ColorSearchService(DBService<Color> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Color.COLOR_NAME;
     }
+
+    @Override
+    protected Optional<List<Color>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.COLOR, entry -> Color.builder().colorId(entry.getId()).colorName(entry.getField(0)).build());
+    }
 }
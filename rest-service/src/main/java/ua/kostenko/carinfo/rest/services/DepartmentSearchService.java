@@ -5,19 +5,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Department;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class DepartmentSearchService extends CommonSearchService<Department, Long> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public DepartmentSearchService(DBService<Department> service) {
+    public DepartmentSearchService(DBService<Department> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Department.DEPARTMENT_CODE;
     }
+
+    @Override
+    protected Optional<List<Department>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.DEPARTMENT,
+                                           entry -> Department.builder()
+                                                              .departmentCode(entry.getId())
+                                                              .departmentAddress(entry.getField(0))
+                                                              .departmentEmail(entry.getField(1))
+                                                              .build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.FuelType;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class FuelTypeSearchService extends CommonSearchService<FuelType, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public FuelTypeSearchService(DBService<FuelType> service) {
+    public FuelTypeSearchService(DBService<FuelType> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return FuelType.FUEL_NAME;
     }
+
+    @Override
+    protected Optional<List<FuelType>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.FUEL_TYPE, entry -> FuelType.builder().fuelTypeId(entry.getId()).fuelTypeName(entry.getField(0)).build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Kind;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class KindSearchService extends CommonSearchService<Kind, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public KindSearchService(DBService<Kind> service) {
+    public KindSearchService(DBService<Kind> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Kind.KIND_NAME;
     }
+
+    @Override
+    protected Optional<List<Kind>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.KIND, entry -> Kind.builder().kindId(entry.getId()).kindName(entry.getField(0)).build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Model;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class ModelSearchService extends CommonSearchService<Model, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public ModelSearchService(DBService<Model> service) {
+    public ModelSearchService(DBService<Model> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Model.MODEL_NAME;
     }
+
+    @Override
+    protected Optional<List<Model>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.MODEL, entry -> Model.builder().modelId(entry.getId()).modelName(entry.getField(0)).build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Operation;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class OperationSearchService extends CommonSearchService<Operation, Long> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public OperationSearchService(DBService<Operation> service) {
+    public OperationSearchService(DBService<Operation> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Operation.OPERATION_CODE;
     }
+
+    @Override
+    protected Optional<List<Operation>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.OPERATION, entry -> Operation.builder().operationCode(entry.getId()).operationName(entry.getField(0)).build());
+    }
 }
@@ -5,19 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Purpose;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class PurposeSearchService extends CommonSearchService<Purpose, String> {
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public PurposeSearchService(DBService<Purpose> service) {
+    public PurposeSearchService(DBService<Purpose> service, ReadIndexService readIndexService) {
         super(service);
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Purpose.PURPOSE_NAME;
     }
+
+    @Override
+    protected Optional<List<Purpose>> getIndexedRecords() {
+        return readIndexService.getRecords(ReadIndexDictionary.PURPOSE, entry -> Purpose.builder().purposeId(entry.getId()).purposeName(entry.getField(0)).build());
+    }
 }
@@ -0,0 +1,71 @@
+package ua.kostenko.carinfo.rest.services;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.rest.services.common.SearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class RegistrationLookupService {
+    private final SearchService<Registration, String> searchService;
+    private final ReadIndexService readIndexService;
+    private final int maxPlates;
+
+    @Autowired
+    public RegistrationLookupService(@NonNull @Nonnull SearchService<Registration, String> searchService,
+                                     @NonNull @Nonnull ReadIndexService readIndexService,
+                                     @Value("${app.registrations.lookup.max-plates:1000}") int maxPlates) {
+        this.searchService = searchService;
+        this.readIndexService = readIndexService;
+        this.maxPlates = maxPlates;
+    }
+
+    public Map<String, List<Registration>> lookup(@NonNull @Nonnull List<String> plates) {
+        List<String> normalizedPlates = plates.stream()
+                                              .filter(StringUtils::isNotBlank)
+                                              .map(plate -> StringUtils.upperCase(plate.trim()))
+                                              .distinct()
+                                              .collect(Collectors.toList());
+        if (normalizedPlates.size() > maxPlates) {
+            throw new IllegalArgumentException(String.format("Too many plates in one request: %d, maximum is %d", normalizedPlates.size(), maxPlates));
+        }
+        Map<String, List<Registration>> result = new LinkedHashMap<>();
+        normalizedPlates.forEach(plate -> result.put(plate, new ArrayList<>()));
+        if (normalizedPlates.isEmpty() || lookupInReadIndex(result)) {
+            return result;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put(Registration.REGISTRATION_NUMBERS, normalizedPlates);
+        searchService.streamByParams(params, registration -> {
+            List<Registration> registrations = result.get(registration.getRegistrationNumber());
+            if (Objects.nonNull(registrations)) {
+                registrations.add(registration);
+            }
+        });
+        log.info("lookup: Resolved {} plates in one query", normalizedPlates.size());
+        return result;
+    }
+
+    private boolean lookupInReadIndex(@NonNull @Nonnull Map<String, List<Registration>> result) {
+        for (Map.Entry<String, List<Registration>> entry : result.entrySet()) {
+            Optional<List<Registration>> registrations = readIndexService.findByPlate(entry.getKey());
+            if (!registrations.isPresent()) {
+                result.values().forEach(List::clear);
+                return false;
+            }
+            entry.getValue().addAll(registrations.get());
+        }
+        log.info("lookup: Resolved {} plates from read index", result.size());
+        return true;
+    }
+}
@@ -1,23 +1,59 @@
 package ua.kostenko.carinfo.rest.services;
 
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import ua.kostenko.carinfo.common.api.records.Registration;
 import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumnStore;
 import ua.kostenko.carinfo.rest.services.common.CommonSearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import javax.annotation.Nonnull;
+import java.util.*;
 
 @Slf4j
 @Service
 public class RegistrationSearchService extends CommonSearchService<Registration, String> {
+    private final RegistrationColumnStore columnStore;
+    private final ReadIndexService readIndexService;
 
     @Autowired
-    public RegistrationSearchService(DBService<Registration> service) {
+    public RegistrationSearchService(DBService<Registration> service, RegistrationColumnStore columnStore, ReadIndexService readIndexService) {
         super(service);
+        this.columnStore = columnStore;
+        this.readIndexService = readIndexService;
     }
 
     @Override
     public String getFindForFieldParam() {
         return Registration.REGISTRATION_NUMBER;
     }
+
+    @Override
+    public Page<Registration> findForField(@Nonnull @NonNull String field, Pageable pageable) {
+        Optional<List<Registration>> registrations = readIndexService.findByPlate(field);
+        return registrations.isPresent() ? getPage(registrations.get(), pageable) : super.findForField(field, pageable);
+    }
+
+    @Override
+    public int countForField(@Nonnull @NonNull String field) {
+        Optional<List<Registration>> registrations = readIndexService.findByPlate(field);
+        return registrations.isPresent() ? registrations.get().size() : super.countForField(field);
+    }
+
+    @Override
+    public int countAll() {
+        OptionalLong count = columnStore.count(Collections.emptyMap());
+        return count.isPresent() ? Math.toIntExact(count.getAsLong()) : super.countAll();
+    }
+
+    @Override
+    public int countByParams(@Nonnull @NonNull Map<String, Object> params) {
+        OptionalLong count = columnStore.countByParams(params);
+        return count.isPresent() ? Math.toIntExact(count.getAsLong()) : super.countByParams(params);
+    }
 }
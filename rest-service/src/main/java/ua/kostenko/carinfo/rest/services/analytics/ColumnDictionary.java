@@ -0,0 +1,51 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Values of a dictionary column by dense code. Code 0 stands for null, several codes may share a name
+ * (administrative objects with the same name, for example).
+ */
+public class ColumnDictionary {
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, int[]> codes = new HashMap<>();
+
+    public ColumnDictionary() {
+        names.add(null);
+    }
+
+    int add(@NonNull @Nonnull String name) {
+        int code = names.size();
+        names.add(name);
+        int[] current = codes.get(name);
+        if (Objects.isNull(current)) {
+            codes.put(name, new int[]{code});
+        } else {
+            int[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = code;
+            codes.put(name, extended);
+        }
+        return code;
+    }
+
+    /**
+     * @return number of codes including the null code.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    @Nullable
+    public String getName(int code) {
+        return names.get(code);
+    }
+
+    public int[] getCodes(@Nullable String name) {
+        int[] result = Objects.isNull(name) ? null : codes.get(name);
+        return Objects.isNull(result) ? new int[0] : result.clone();
+    }
+}
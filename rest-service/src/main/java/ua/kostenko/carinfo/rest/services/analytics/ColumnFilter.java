@@ -0,0 +1,65 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Condition on one column: a set of accepted dictionary codes or an inclusive range of values.
+ */
+@Getter
+public class ColumnFilter {
+    private final RegistrationColumn column;
+    @Nullable
+    private final boolean[] accepted;
+    private final int min;
+    private final int max;
+
+    private ColumnFilter(@NonNull @Nonnull RegistrationColumn column, @Nullable boolean[] accepted, int min, int max) {
+        this.column = column;
+        this.accepted = accepted;
+        this.min = min;
+        this.max = max;
+    }
+
+    public static ColumnFilter codes(@NonNull @Nonnull RegistrationColumn column, int dictionarySize, @NonNull @Nonnull int[] codes) {
+        boolean[] accepted = new boolean[dictionarySize];
+        for (int code : codes) {
+            accepted[code] = true;
+        }
+        return new ColumnFilter(column, accepted, 0, dictionarySize - 1);
+    }
+
+    public static ColumnFilter range(@NonNull @Nonnull RegistrationColumn column, int min, int max) {
+        return new ColumnFilter(column, null, min, max);
+    }
+
+    public static ColumnFilter equal(@NonNull @Nonnull RegistrationColumn column, int value) {
+        return range(column, value, value);
+    }
+
+    /**
+     * @return true if no value can match.
+     */
+    boolean isEmpty() {
+        if (min > max) {
+            return true;
+        }
+        if (Objects.isNull(accepted)) {
+            return false;
+        }
+        for (boolean value : accepted) {
+            if (value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean test(int value) {
+        return value >= min && value <= max && (Objects.isNull(accepted) || accepted[value]);
+    }
+}
@@ -0,0 +1,307 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Column of non-negative ints kept in the narrowest primitive array for its maximal value. Filters and aggregations work
+ * on a block of rows at once through a selection vector (row numbers matching the filters so far), each implementation
+ * runs them as plain loops over its own array.
+ */
+abstract class PackedColumn {
+    static final int MAX_GROUPED_VALUE = Character.MAX_VALUE;
+
+    static PackedColumn forMaxValue(int maxValue, int capacity) {
+        if (maxValue <= 0xFF) {
+            return new ByteColumn(capacity);
+        }
+        if (maxValue <= Character.MAX_VALUE) {
+            return new CharColumn(capacity);
+        }
+        return new IntColumn(capacity);
+    }
+
+    abstract int get(int row);
+
+    abstract void set(int row, int value);
+
+    abstract void ensureCapacity(int capacity);
+
+    abstract void trim(int size);
+
+    abstract int getBytesPerRow();
+
+    /**
+     * Writes rows of [from, to) matching the filter into the selection.
+     *
+     * @return number of selected rows.
+     */
+    abstract int select(int from, int to, @NonNull @Nonnull ColumnFilter filter, @NonNull @Nonnull int[] selection);
+
+    /**
+     * Keeps the selected rows matching the filter at the beginning of the selection.
+     *
+     * @return number of rows left selected.
+     */
+    abstract int refine(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull ColumnFilter filter);
+
+    /**
+     * Adds selected rows to the counters indexed by value, the column must not have values above {@link #MAX_GROUPED_VALUE}.
+     */
+    abstract void accumulate(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull long[] counts);
+
+    static final class ByteColumn extends PackedColumn {
+        private byte[] values;
+
+        private ByteColumn(int capacity) {
+            values = new byte[capacity];
+        }
+
+        @Override
+        int get(int row) {
+            return values[row] & 0xFF;
+        }
+
+        @Override
+        void set(int row, int value) {
+            values[row] = (byte) value;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        int getBytesPerRow() {
+            return Byte.BYTES;
+        }
+
+        @Override
+        int select(int from, int to, @NonNull @Nonnull ColumnFilter filter, @NonNull @Nonnull int[] selection) {
+            byte[] column = values;
+            boolean[] accepted = filter.getAccepted();
+            int min = filter.getMin();
+            int max = filter.getMax();
+            int count = 0;
+            if (Objects.nonNull(accepted)) {
+                for (int row = from; row < to; row++) {
+                    selection[count] = row;
+                    count += accepted[column[row] & 0xFF] ? 1 : 0;
+                }
+            } else {
+                for (int row = from; row < to; row++) {
+                    int value = column[row] & 0xFF;
+                    selection[count] = row;
+                    count += value >= min && value <= max ? 1 : 0;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        int refine(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull ColumnFilter filter) {
+            byte[] column = values;
+            boolean[] accepted = filter.getAccepted();
+            int min = filter.getMin();
+            int max = filter.getMax();
+            int kept = 0;
+            if (Objects.nonNull(accepted)) {
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[kept] = row;
+                    kept += accepted[column[row] & 0xFF] ? 1 : 0;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    int value = column[row] & 0xFF;
+                    selection[kept] = row;
+                    kept += value >= min && value <= max ? 1 : 0;
+                }
+            }
+            return kept;
+        }
+
+        @Override
+        void accumulate(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull long[] counts) {
+            byte[] column = values;
+            for (int i = 0; i < count; i++) {
+                counts[column[selection[i]] & 0xFF]++;
+            }
+        }
+    }
+
+    static final class CharColumn extends PackedColumn {
+        private char[] values;
+
+        private CharColumn(int capacity) {
+            values = new char[capacity];
+        }
+
+        @Override
+        int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, int value) {
+            values[row] = (char) value;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        int getBytesPerRow() {
+            return Character.BYTES;
+        }
+
+        @Override
+        int select(int from, int to, @NonNull @Nonnull ColumnFilter filter, @NonNull @Nonnull int[] selection) {
+            char[] column = values;
+            boolean[] accepted = filter.getAccepted();
+            int min = filter.getMin();
+            int max = filter.getMax();
+            int count = 0;
+            if (Objects.nonNull(accepted)) {
+                for (int row = from; row < to; row++) {
+                    selection[count] = row;
+                    count += accepted[column[row]] ? 1 : 0;
+                }
+            } else {
+                for (int row = from; row < to; row++) {
+                    int value = column[row];
+                    selection[count] = row;
+                    count += value >= min && value <= max ? 1 : 0;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        int refine(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull ColumnFilter filter) {
+            char[] column = values;
+            boolean[] accepted = filter.getAccepted();
+            int min = filter.getMin();
+            int max = filter.getMax();
+            int kept = 0;
+            if (Objects.nonNull(accepted)) {
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[kept] = row;
+                    kept += accepted[column[row]] ? 1 : 0;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    int value = column[row];
+                    selection[kept] = row;
+                    kept += value >= min && value <= max ? 1 : 0;
+                }
+            }
+            return kept;
+        }
+
+        @Override
+        void accumulate(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull long[] counts) {
+            char[] column = values;
+            for (int i = 0; i < count; i++) {
+                counts[column[selection[i]]]++;
+            }
+        }
+    }
+
+    static final class IntColumn extends PackedColumn {
+        private int[] values;
+
+        private IntColumn(int capacity) {
+            values = new int[capacity];
+        }
+
+        @Override
+        int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, int value) {
+            values[row] = value;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        int getBytesPerRow() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        int select(int from, int to, @NonNull @Nonnull ColumnFilter filter, @NonNull @Nonnull int[] selection) {
+            int[] column = values;
+            boolean[] accepted = filter.getAccepted();
+            int min = filter.getMin();
+            int max = filter.getMax();
+            int count = 0;
+            for (int row = from; row < to; row++) {
+                int value = column[row];
+                selection[count] = row;
+                count += value >= min && value <= max && (Objects.isNull(accepted) || accepted[value]) ? 1 : 0;
+            }
+            return count;
+        }
+
+        @Override
+        int refine(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull ColumnFilter filter) {
+            int[] column = values;
+            boolean[] accepted = filter.getAccepted();
+            int min = filter.getMin();
+            int max = filter.getMax();
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                int value = column[row];
+                selection[kept] = row;
+                kept += value >= min && value <= max && (Objects.isNull(accepted) || accepted[value]) ? 1 : 0;
+            }
+            return kept;
+        }
+
+        @Override
+        void accumulate(@NonNull @Nonnull int[] selection, int count, @NonNull @Nonnull long[] counts) {
+            int[] column = values;
+            for (int i = 0; i < count; i++) {
+                counts[column[selection[i]]]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * One {@link RowBitmap} of rows per value of the low-cardinality columns of {@link RegistrationColumns}, registration dates
+ * are indexed by month (yyyymm). Combined filters and facet counts become bitmap and/or/cardinality operations instead
+ * of column scans. Built from loaded columns in one pass and immutable afterwards.
+ */
+public class RegistrationBitmapIndex {
+    public static final Set<RegistrationColumn> COLUMNS = Collections.unmodifiableSet(EnumSet.of(
+            RegistrationColumn.BRAND,
+            RegistrationColumn.MODEL,
+            RegistrationColumn.COLOR,
+            RegistrationColumn.KIND,
+            RegistrationColumn.FUEL_TYPE,
+            RegistrationColumn.PURPOSE,
+            RegistrationColumn.DEPARTMENT,
+            RegistrationColumn.MAKE_YEAR,
+            RegistrationColumn.REGISTRATION_DATE));
+    private final int size;
+    private final Map<RegistrationColumn, NavigableMap<Integer, RowBitmap>> bitmaps;
+
+    private RegistrationBitmapIndex(int size, @NonNull @Nonnull Map<RegistrationColumn, NavigableMap<Integer, RowBitmap>> bitmaps) {
+        this.size = size;
+        this.bitmaps = bitmaps;
+    }
+
+    public static RegistrationBitmapIndex build(@NonNull @Nonnull RegistrationColumns columns) {
+        Map<RegistrationColumn, NavigableMap<Integer, RowBitmap>> bitmaps = new EnumMap<>(RegistrationColumn.class);
+        for (RegistrationColumn column : COLUMNS) {
+            RowBitmap.Builder[] builders = new RowBitmap.Builder[256];
+            for (int row = 0; row < columns.size(); row++) {
+                int key = getKey(column, columns.get(column, row));
+                if (key <= 0) {
+                    continue;
+                }
+                if (key >= builders.length) {
+                    builders = Arrays.copyOf(builders, Math.max(key + 1, builders.length * 2));
+                }
+                if (Objects.isNull(builders[key])) {
+                    builders[key] = new RowBitmap.Builder();
+                }
+                builders[key].add(row);
+            }
+            NavigableMap<Integer, RowBitmap> values = new TreeMap<>();
+            for (int key = 1; key < builders.length; key++) {
+                if (Objects.nonNull(builders[key])) {
+                    values.put(key, builders[key].build());
+                }
+            }
+            bitmaps.put(column, Collections.unmodifiableNavigableMap(values));
+        }
+        return new RegistrationBitmapIndex(columns.size(), bitmaps);
+    }
+
+    public static boolean isIndexed(@NonNull @Nonnull RegistrationColumn column) {
+        return COLUMNS.contains(column);
+    }
+
+    /**
+     * @return key of a column value in the index: the value itself, the month (yyyymm) of a packed registration date.
+     */
+    public static int getKey(@NonNull @Nonnull RegistrationColumn column, int value) {
+        return column == RegistrationColumn.REGISTRATION_DATE ? value / 100 : value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getBytes() {
+        return bitmaps.values().stream().flatMap(values -> values.values().stream()).mapToLong(RowBitmap::getBytes).sum();
+    }
+
+    /**
+     * @return rows with any of the keys.
+     */
+    public RowBitmap select(@NonNull @Nonnull RegistrationColumn column, @NonNull @Nonnull int[] keys) {
+        NavigableMap<Integer, RowBitmap> values = getValues(column);
+        List<RowBitmap> selected = new ArrayList<>(keys.length);
+        for (int key : keys) {
+            RowBitmap bitmap = values.get(key);
+            if (Objects.nonNull(bitmap)) {
+                selected.add(bitmap);
+            }
+        }
+        return RowBitmap.or(selected);
+    }
+
+    /**
+     * @return rows with keys in the inclusive range.
+     */
+    public RowBitmap selectRange(@NonNull @Nonnull RegistrationColumn column, int fromKey, int toKey) {
+        if (fromKey > toKey) {
+            return RowBitmap.empty();
+        }
+        return RowBitmap.or(getValues(column).subMap(fromKey, true, toKey, true).values());
+    }
+
+    /**
+     * @return number of rows in all of the selections.
+     */
+    public long count(@NonNull @Nonnull List<RowBitmap> selections) {
+        if (selections.isEmpty()) {
+            return size;
+        }
+        List<RowBitmap> sorted = sortByCardinality(selections);
+        RowBitmap result = sorted.get(0);
+        for (int i = 1; i < sorted.size() - 1 && !result.isEmpty(); i++) {
+            result = result.and(sorted.get(i));
+        }
+        return sorted.size() == 1 ? result.getCardinality() : result.andCardinality(sorted.get(sorted.size() - 1));
+    }
+
+    /**
+     * @return number of rows in all of the selections by key of the group column, keys without rows are left out.
+     */
+    public Map<Integer, Long> countBy(@NonNull @Nonnull RegistrationColumn group, @NonNull @Nonnull List<RowBitmap> selections) {
+        RowBitmap filter = null;
+        for (RowBitmap selection : sortByCardinality(selections)) {
+            filter = Objects.isNull(filter) ? selection : filter.and(selection);
+        }
+        Map<Integer, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, RowBitmap> entry : getValues(group).entrySet()) {
+            long count = Objects.isNull(filter) ? entry.getValue().getCardinality() : filter.andCardinality(entry.getValue());
+            if (count > 0) {
+                result.put(entry.getKey(), count);
+            }
+        }
+        return result;
+    }
+
+    private NavigableMap<Integer, RowBitmap> getValues(RegistrationColumn column) {
+        NavigableMap<Integer, RowBitmap> values = bitmaps.get(column);
+        if (Objects.isNull(values)) {
+            throw new IllegalArgumentException("Column is not indexed: " + column);
+        }
+        return values;
+    }
+
+    private static List<RowBitmap> sortByCardinality(List<RowBitmap> selections) {
+        List<RowBitmap> sorted = new ArrayList<>(selections);
+        sorted.sort(Comparator.comparingLong(RowBitmap::getCardinality));
+        return sorted;
+    }
+}
@@ -0,0 +1,46 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+import java.util.stream.Stream;
+
+/**
+ * Columns of {@link RegistrationColumns}. Dictionary columns keep dense codes of dictionary values, code 0 is null;
+ * other columns keep values up to their maximal value, 0 is null as well. Dates are packed as yyyymmdd.
+ */
+@Getter
+public enum RegistrationColumn {
+    BRAND("brand", true, 0),
+    MODEL("model", true, 0),
+    COLOR("color", true, 0),
+    KIND("kind", true, 0),
+    FUEL_TYPE("fuel", true, 0),
+    PURPOSE("purpose", true, 0),
+    BODY_TYPE("body", true, 0),
+    DEPARTMENT("department", true, 0),
+    OPERATION("operation", true, 0),
+    ADMIN_OBJECT("region", true, 0),
+    MAKE_YEAR("year", false, Character.MAX_VALUE),
+    REGISTRATION_DATE("date", false, Integer.MAX_VALUE),
+    ENGINE_CAPACITY("capacity", false, Integer.MAX_VALUE),
+    OWN_WEIGHT("ownWeight", false, Integer.MAX_VALUE),
+    TOTAL_WEIGHT("totalWeight", false, Integer.MAX_VALUE);
+
+    private final String key;
+    private final boolean dictionary;
+    private final int maxValue;
+
+    RegistrationColumn(String key, boolean dictionary, int maxValue) {
+        this.key = key;
+        this.dictionary = dictionary;
+        this.maxValue = maxValue;
+    }
+
+    public static RegistrationColumn of(@Nullable String key) {
+        return Stream.of(values())
+                     .filter(value -> value.key.equalsIgnoreCase(key))
+                     .findFirst()
+                     .orElseThrow(() -> new IllegalArgumentException("Column is not supported: " + key));
+    }
+}
@@ -0,0 +1,516 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.cache.DataChangedEvent;
+import ua.kostenko.carinfo.common.collections.LongIntHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@link RegistrationColumns} of the current data and their {@link RegistrationBitmapIndex}: loaded when the application
+ * is ready and rebuilt in the background after {@link DataChangedEvent}s, readers keep using the previous columns and index
+ * until the new ones are built. Events coming within the reload delay are coalesced into one reload, events of the already
+ * loaded data version are skipped. Counts over indexed columns are answered by the index, other counts scan the columns.
+ */
+@Slf4j
+@Service
+public class RegistrationColumnStore {
+    private static final int FETCH_SIZE = 10000;
+    private static final String VERSION_SQL = "select max(version) from carinfo.data_version where status = 'CURRENT'";
+    private static final String COUNT_SQL = "select count(*) from carinfo.record";
+    private static final String VEHICLE_SQL = "select vehicle_id, brand_id, model_id from carinfo.vehicle";
+    private static final String RECORD_SQL = "select vehicle_id, kind_id, color_id, body_type_id, purpose_id, fuel_type_id, op_code, dep_code, " +
+            "admin_obj_id, make_year, registration_date, engine_capacity, own_weight, total_weight from carinfo.record";
+    private static final Map<RegistrationColumn, String> DICTIONARY_SQL = ImmutableMap.<RegistrationColumn, String>builder()
+            .put(RegistrationColumn.BRAND, "select brand_id, brand_name from carinfo.brand")
+            .put(RegistrationColumn.MODEL, "select model_id, model_name from carinfo.model")
+            .put(RegistrationColumn.COLOR, "select color_id, color_name from carinfo.color")
+            .put(RegistrationColumn.KIND, "select kind_id, kind_name from carinfo.kind")
+            .put(RegistrationColumn.FUEL_TYPE, "select fuel_type_id, fuel_type_name from carinfo.fuel_type")
+            .put(RegistrationColumn.PURPOSE, "select purpose_id, purpose_name from carinfo.purpose")
+            .put(RegistrationColumn.BODY_TYPE, "select body_type_id, body_type_name from carinfo.body_type")
+            .put(RegistrationColumn.DEPARTMENT, "select dep_code, dep_code::text from carinfo.department")
+            .put(RegistrationColumn.OPERATION, "select op_code, op_code::text from carinfo.operation")
+            .put(RegistrationColumn.ADMIN_OBJECT, "select admin_obj_id, admin_obj_name from carinfo.admin_object")
+            .build();
+    private static final Map<String, RegistrationColumn> PARAM_COLUMNS = ImmutableMap.<String, RegistrationColumn>builder()
+            .put(Registration.BRAND, RegistrationColumn.BRAND)
+            .put(Registration.BRANDS, RegistrationColumn.BRAND)
+            .put(Registration.MODEL, RegistrationColumn.MODEL)
+            .put(Registration.MODELS, RegistrationColumn.MODEL)
+            .put(Registration.COLOR, RegistrationColumn.COLOR)
+            .put(Registration.COLORS, RegistrationColumn.COLOR)
+            .put(Registration.KIND, RegistrationColumn.KIND)
+            .put(Registration.KINDS, RegistrationColumn.KIND)
+            .put(Registration.FUEL_TYPE, RegistrationColumn.FUEL_TYPE)
+            .put(Registration.FUEL_TYPES, RegistrationColumn.FUEL_TYPE)
+            .put(Registration.PURPOSE, RegistrationColumn.PURPOSE)
+            .put(Registration.PURPOSES, RegistrationColumn.PURPOSE)
+            .put(Registration.DEPARTMENT_CODE, RegistrationColumn.DEPARTMENT)
+            .put(Registration.DEPARTMENT_CODES, RegistrationColumn.DEPARTMENT)
+            .put(Registration.MAKE_YEAR, RegistrationColumn.MAKE_YEAR)
+            .put(Registration.MAKE_YEARS, RegistrationColumn.MAKE_YEAR)
+            .build();
+    private static final Map<String, RegistrationColumn> FILTER_COLUMNS = ImmutableMap.<String, RegistrationColumn>builder()
+            .putAll(PARAM_COLUMNS)
+            .put(Registration.BODY_TYPE, RegistrationColumn.BODY_TYPE)
+            .put(Registration.BODY_TYPES, RegistrationColumn.BODY_TYPE)
+            .put(Registration.OPERATION_CODE, RegistrationColumn.OPERATION)
+            .put(Registration.OPERATION_CODES, RegistrationColumn.OPERATION)
+            .put(Registration.ADMIN_OBJ_NAME, RegistrationColumn.ADMIN_OBJECT)
+            .put(Registration.REGISTRATION_DATE, RegistrationColumn.REGISTRATION_DATE)
+            .put(Registration.ENGINE_CAPACITY, RegistrationColumn.ENGINE_CAPACITY)
+            .put(Registration.OWN_WEIGHT, RegistrationColumn.OWN_WEIGHT)
+            .put(Registration.TOTAL_WEIGHT, RegistrationColumn.TOTAL_WEIGHT)
+            .build();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean bitmapEnabled;
+    private final Duration reloadDelay;
+    private final ScheduledExecutorService loader;
+    private final Set<Integer> requestedVersions = new HashSet<>();
+    private boolean fullReloadRequested;
+    @Nullable
+    private ScheduledFuture<?> pendingReload;
+    private volatile Loaded loaded;
+
+    @Autowired
+    public RegistrationColumnStore(@NonNull @Nonnull JdbcTemplate jdbcTemplate, @NonNull @Nonnull PlatformTransactionManager transactionManager,
+                                   @Value("${app.analytics.columnar.enabled:true}") boolean enabled,
+                                   @Value("${app.analytics.bitmap.enabled:true}") boolean bitmapEnabled,
+                                   @Value("${app.analytics.columnar.reload.delay.millis:10000}") long reloadDelayMillis) {
+        this.jdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource(), "dataSource can't be null"));
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.bitmapEnabled = bitmapEnabled;
+        this.reloadDelay = Duration.ofMillis(reloadDelayMillis);
+        this.loader = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("registration-columns-%d").setDaemon(true).build());
+    }
+
+    public Optional<RegistrationColumns> getColumns() {
+        return Optional.ofNullable(loaded).map(Loaded::getColumns);
+    }
+
+    /**
+     * @return number of registrations with the given column values, empty if the columns aren't loaded.
+     */
+    public OptionalLong count(@NonNull @Nonnull Map<RegistrationColumn, Object> values) {
+        Loaded current = loaded;
+        if (Objects.isNull(current)) {
+            return OptionalLong.empty();
+        }
+        if (isIndexed(current, values.keySet())) {
+            return OptionalLong.of(current.getIndex().count(getSelections(current, values)));
+        }
+        return OptionalLong.of(current.getColumns().count(getFilters(current.getColumns(), values)));
+    }
+
+    /**
+     * @return number of registrations with the given column values by value of the group column, most frequent first.
+     */
+    public Optional<Map<String, Long>> countBy(@NonNull @Nonnull RegistrationColumn group, @NonNull @Nonnull Map<RegistrationColumn, Object> values) {
+        Loaded current = loaded;
+        if (Objects.isNull(current)) {
+            return Optional.empty();
+        }
+        RegistrationColumns columns = current.getColumns();
+        if (RegistrationBitmapIndex.isIndexed(group) && isIndexed(current, values.keySet())) {
+            return Optional.of(getNames(columns, group, current.getIndex().countBy(group, getSelections(current, values))));
+        }
+        return Optional.of(getNames(columns, group, toCounts(columns.countBy(group, getFilters(columns, values)))));
+    }
+
+    /**
+     * Counts registrations by search params of the registration api, including range and list params, by value of the group column.
+     *
+     * @return number of registrations by value of the group column, most frequent first; empty if the columns aren't loaded.
+     * @throws IllegalArgumentException if some of the params can't be answered by the columns.
+     */
+    public Optional<Map<String, Long>> countByParams(@NonNull @Nonnull RegistrationColumn group, @NonNull @Nonnull Map<String, Object> params) {
+        Loaded current = loaded;
+        if (Objects.isNull(current)) {
+            return Optional.empty();
+        }
+        RegistrationColumns columns = current.getColumns();
+        List<ColumnFilter> filters = new ArrayList<>(params.size());
+        params.forEach((param, value) -> filters.add(getFilter(columns, param, value)));
+        List<RowBitmap> selections = RegistrationBitmapIndex.isIndexed(group) ? getParamSelections(current, params) : null;
+        if (Objects.nonNull(selections)) {
+            return Optional.of(getNames(columns, group, current.getIndex().countBy(group, selections)));
+        }
+        return Optional.of(getNames(columns, group, toCounts(columns.countBy(group, filters))));
+    }
+
+    private static Map<Integer, Long> toCounts(long[] byValue) {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (int value = 1; value < byValue.length; value++) {
+            if (byValue[value] > 0) {
+                counts.put(value, byValue[value]);
+            }
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> getNames(RegistrationColumns columns, RegistrationColumn group, Map<Integer, Long> counts) {
+        Map<String, Long> result = new HashMap<>();
+        counts.forEach((key, count) -> {
+            if (key > 0) {
+                result.merge(getName(columns, group, key), count, Long::sum);
+            }
+        });
+        return result.entrySet().stream()
+                     .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                     .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first, LinkedHashMap::new));
+    }
+
+    /**
+     * Counts registrations by search params of the registration api with the bitmap index.
+     *
+     * @return empty if the index isn't built or some of the params can't be answered by it.
+     */
+    public OptionalLong countByParams(@NonNull @Nonnull Map<String, Object> params) {
+        Loaded current = loaded;
+        List<RowBitmap> selections = Objects.isNull(current) ? null : getParamSelections(current, params);
+        return Objects.isNull(selections) ? OptionalLong.empty() : OptionalLong.of(current.getIndex().count(selections));
+    }
+
+    private static String getName(RegistrationColumns columns, RegistrationColumn group, int key) {
+        if (group.isDictionary()) {
+            return columns.getDictionary(group).getName(key);
+        }
+        if (group == RegistrationColumn.REGISTRATION_DATE) {
+            return String.format("%04d-%02d", key / 100, key % 100);
+        }
+        return String.valueOf(key);
+    }
+
+    private static boolean isIndexed(Loaded current, Collection<RegistrationColumn> columns) {
+        return Objects.nonNull(current.getIndex()) && columns.stream()
+                                                             .allMatch(column -> RegistrationBitmapIndex.isIndexed(column)
+                                                                     && column != RegistrationColumn.REGISTRATION_DATE);
+    }
+
+    private static List<RowBitmap> getSelections(Loaded current, Map<RegistrationColumn, Object> values) {
+        return values.entrySet().stream()
+                     .map(entry -> current.getIndex().select(entry.getKey(), getKeys(current.getColumns(), entry.getKey(), entry.getValue())))
+                     .collect(Collectors.toList());
+    }
+
+    private static int[] getKeys(RegistrationColumns columns, RegistrationColumn column, Object value) {
+        if (column.isDictionary()) {
+            return columns.getDictionary(column).getCodes(String.valueOf(value));
+        }
+        if (value instanceof Number) {
+            return new int[]{((Number) value).intValue()};
+        }
+        throw new IllegalArgumentException(String.format("Value %s can't be used for column %s", value, column));
+    }
+
+    /**
+     * @return selections of the bitmap index by search params, null if the index isn't built or can't answer some of the params.
+     */
+    @Nullable
+    private static List<RowBitmap> getParamSelections(Loaded current, Map<String, Object> params) {
+        if (Objects.isNull(current.getIndex())) {
+            return null;
+        }
+        List<RowBitmap> selections = new ArrayList<>(params.size());
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            RowBitmap selection = getSelection(current, entry.getKey(), entry.getValue());
+            if (Objects.isNull(selection)) {
+                return null;
+            }
+            selections.add(selection);
+        }
+        return selections;
+    }
+
+    @Nullable
+    private static RowBitmap getSelection(Loaded current, String param, Object value) {
+        RegistrationBitmapIndex index = current.getIndex();
+        RegistrationColumn column = PARAM_COLUMNS.get(param);
+        if (Objects.nonNull(column)) {
+            Collection<?> items = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+            if (items.isEmpty() || (!column.isDictionary() && !items.stream().allMatch(Number.class::isInstance))) {
+                return null;
+            }
+            int[] keys = items.stream().flatMapToInt(item -> Arrays.stream(getKeys(current.getColumns(), column, item))).toArray();
+            return index.select(column, keys);
+        }
+        switch (param) {
+            case Registration.MAKE_YEAR_FROM:
+                return value instanceof Number ? index.selectRange(RegistrationColumn.MAKE_YEAR, ((Number) value).intValue(), Integer.MAX_VALUE) : null;
+            case Registration.MAKE_YEAR_TO:
+                return value instanceof Number ? index.selectRange(RegistrationColumn.MAKE_YEAR, 1, ((Number) value).intValue()) : null;
+            case Registration.REGISTRATION_DATE_FROM: {
+                LocalDate date = toLocalDate(value);
+                return Objects.nonNull(date) && date.getDayOfMonth() == 1
+                        ? index.selectRange(RegistrationColumn.REGISTRATION_DATE, getMonthKey(date), Integer.MAX_VALUE) : null;
+            }
+            case Registration.REGISTRATION_DATE_TO: {
+                LocalDate date = toLocalDate(value);
+                return Objects.nonNull(date) && date.equals(date.with(TemporalAdjusters.lastDayOfMonth()))
+                        ? index.selectRange(RegistrationColumn.REGISTRATION_DATE, 1, getMonthKey(date)) : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.util.Date ? new Date(((java.util.Date) value).getTime()).toLocalDate() : null;
+    }
+
+    private static int getMonthKey(LocalDate date) {
+        return RegistrationBitmapIndex.getKey(RegistrationColumn.REGISTRATION_DATE, RegistrationColumns.packDate(date));
+    }
+
+    private static List<ColumnFilter> getFilters(RegistrationColumns columns, Map<RegistrationColumn, Object> values) {
+        return values.entrySet().stream()
+                     .map(entry -> columns.filter(entry.getKey(), entry.getValue()))
+                     .collect(Collectors.toList());
+    }
+
+    private static ColumnFilter getFilter(RegistrationColumns columns, String param, Object value) {
+        RegistrationColumn column = FILTER_COLUMNS.get(param);
+        if (Objects.nonNull(column)) {
+            return value instanceof Collection ? getFilter(columns, column, (Collection<?>) value) : columns.filter(column, value);
+        }
+        switch (param) {
+            case Registration.MAKE_YEAR_FROM:
+                return ColumnFilter.range(RegistrationColumn.MAKE_YEAR, getBound(param, value), Integer.MAX_VALUE);
+            case Registration.MAKE_YEAR_TO:
+                return ColumnFilter.range(RegistrationColumn.MAKE_YEAR, 1, getBound(param, value));
+            case Registration.ENGINE_CAPACITY_MIN:
+                return ColumnFilter.range(RegistrationColumn.ENGINE_CAPACITY, getBound(param, value), Integer.MAX_VALUE);
+            case Registration.ENGINE_CAPACITY_MAX:
+                return ColumnFilter.range(RegistrationColumn.ENGINE_CAPACITY, 1, getBound(param, value));
+            case Registration.OWN_WEIGHT_MIN:
+                return ColumnFilter.range(RegistrationColumn.OWN_WEIGHT, getBound(param, value), Integer.MAX_VALUE);
+            case Registration.OWN_WEIGHT_MAX:
+                return ColumnFilter.range(RegistrationColumn.OWN_WEIGHT, 1, getBound(param, value));
+            case Registration.TOTAL_WEIGHT_MIN:
+                return ColumnFilter.range(RegistrationColumn.TOTAL_WEIGHT, getBound(param, value), Integer.MAX_VALUE);
+            case Registration.TOTAL_WEIGHT_MAX:
+                return ColumnFilter.range(RegistrationColumn.TOTAL_WEIGHT, 1, getBound(param, value));
+            case Registration.REGISTRATION_DATE_FROM:
+                return ColumnFilter.range(RegistrationColumn.REGISTRATION_DATE, getDateBound(param, value), Integer.MAX_VALUE);
+            case Registration.REGISTRATION_DATE_TO:
+                return ColumnFilter.range(RegistrationColumn.REGISTRATION_DATE, 1, getDateBound(param, value));
+            default:
+                throw new IllegalArgumentException("Parameter is not supported by statistics: " + param);
+        }
+    }
+
+    private static ColumnFilter getFilter(RegistrationColumns columns, RegistrationColumn column, Collection<?> values) {
+        if (column.isDictionary()) {
+            int[] codes = values.stream().flatMapToInt(value -> Arrays.stream(columns.getDictionary(column).getCodes(String.valueOf(value)))).toArray();
+            return ColumnFilter.codes(column, columns.getDictionary(column).size(), codes);
+        }
+        if (column.getMaxValue() > Character.MAX_VALUE || !values.stream().allMatch(Number.class::isInstance)) {
+            throw new IllegalArgumentException(String.format("Values %s can't be used for column %s", values, column));
+        }
+        int[] accepted = values.stream()
+                               .mapToLong(value -> ((Number) value).longValue())
+                               .filter(value -> value > 0 && value <= column.getMaxValue())
+                               .mapToInt(Math::toIntExact)
+                               .toArray();
+        return ColumnFilter.codes(column, column.getMaxValue() + 1, accepted);
+    }
+
+    private static int getBound(String param, Object value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(String.format("Value %s can't be used for parameter %s", value, param));
+        }
+        return (int) Math.max(1, Math.min(((Number) value).longValue(), Integer.MAX_VALUE));
+    }
+
+    private static int getDateBound(String param, Object value) {
+        LocalDate date = toLocalDate(value);
+        if (Objects.isNull(date)) {
+            throw new IllegalArgumentException(String.format("Value %s can't be used for parameter %s", value, param));
+        }
+        return RegistrationColumns.packDate(date);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestReload(null, Duration.ZERO);
+    }
+
+    /**
+     * Schedules a reload unless the columns of the event's data version are already loaded. Events without a version
+     * (changes of rows within the current version) always reload.
+     */
+    @EventListener
+    public void onDataChanged(@NonNull @Nonnull DataChangedEvent event) {
+        Integer version = event.getVersion();
+        Loaded current = loaded;
+        if (Objects.nonNull(version) && Objects.nonNull(current) && version.equals(current.getColumns().getDataVersion())) {
+            log.info("onDataChanged: Registration columns of data version {} are already loaded", version);
+            return;
+        }
+        log.info("onDataChanged: Data version {} is changed, reloading registration columns in {} ms", version, reloadDelay.toMillis());
+        requestReload(version, reloadDelay);
+    }
+
+    @PreDestroy
+    public void stop() {
+        loader.shutdownNow();
+    }
+
+    private synchronized void requestReload(@Nullable Integer version, Duration delay) {
+        if (!enabled) {
+            return;
+        }
+        if (Objects.isNull(version)) {
+            fullReloadRequested = true;
+        } else {
+            requestedVersions.add(version);
+        }
+        if (Objects.nonNull(pendingReload)) {
+            pendingReload.cancel(false);
+        }
+        pendingReload = loader.schedule(this::reload, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void reload() {
+        boolean full;
+        Set<Integer> versions;
+        synchronized (this) {
+            full = fullReloadRequested;
+            versions = new HashSet<>(requestedVersions);
+            fullReloadRequested = false;
+            requestedVersions.clear();
+        }
+        if (!full && versions.isEmpty()) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            RegistrationColumns columns = transactionTemplate.execute(status -> isLoaded(full, versions) ? null : load());
+            if (Objects.isNull(columns)) {
+                return;
+            }
+            log.info("reload: Loaded {} registrations of data version {} in {} ms, bytes: {}", columns.size(), columns.getDataVersion(),
+                     Duration.ofNanos(System.nanoTime() - started).toMillis(), columns.getBytes());
+            RegistrationBitmapIndex index = null;
+            if (bitmapEnabled) {
+                started = System.nanoTime();
+                index = RegistrationBitmapIndex.build(columns);
+                log.info("reload: Built bitmap index in {} ms, bytes: {}", Duration.ofNanos(System.nanoTime() - started).toMillis(), index.getBytes());
+            }
+            loaded = new Loaded(columns, index);
+        } catch (RuntimeException ex) {
+            log.error("reload: Problem with loading registration columns", ex);
+        }
+    }
+
+    /**
+     * @return true if the loaded columns are of the current data version and only that version was published meanwhile.
+     */
+    private boolean isLoaded(boolean full, Set<Integer> versions) {
+        Loaded current = loaded;
+        if (full || Objects.isNull(current)) {
+            return false;
+        }
+        Integer version = jdbcTemplate.queryForObject(VERSION_SQL, Integer.class);
+        if (Objects.nonNull(version) && version.equals(current.getColumns().getDataVersion()) && versions.stream().allMatch(version::equals)) {
+            log.info("isLoaded: Registration columns of data version {} are already loaded", version);
+            return true;
+        }
+        return false;
+    }
+
+    private RegistrationColumns load() {
+        Integer version = jdbcTemplate.queryForObject(VERSION_SQL, Integer.class);
+        Map<RegistrationColumn, ColumnDictionary> dictionaries = new EnumMap<>(RegistrationColumn.class);
+        Map<RegistrationColumn, LongIntHashMap> codes = new EnumMap<>(RegistrationColumn.class);
+        DICTIONARY_SQL.forEach((column, sql) -> {
+            ColumnDictionary dictionary = new ColumnDictionary();
+            LongIntHashMap ids = new LongIntHashMap(0);
+            jdbcTemplate.query(sql, resultSet -> {
+                String name = resultSet.getString(2);
+                if (Objects.nonNull(name)) {
+                    ids.put(resultSet.getLong(1), dictionary.add(name));
+                }
+            });
+            dictionaries.put(column, dictionary);
+            codes.put(column, ids);
+        });
+        LongIntHashMap vehicleBrands = new LongIntHashMap(0);
+        LongIntHashMap vehicleModels = new LongIntHashMap(0);
+        jdbcTemplate.query(VEHICLE_SQL, resultSet -> {
+            long vehicleId = resultSet.getLong(1);
+            vehicleBrands.put(vehicleId, codes.get(RegistrationColumn.BRAND).get(resultSet.getLong(2)));
+            vehicleModels.put(vehicleId, codes.get(RegistrationColumn.MODEL).get(resultSet.getLong(3)));
+        });
+        Integer count = jdbcTemplate.queryForObject(COUNT_SQL, Integer.class);
+        RegistrationColumns.Builder builder = RegistrationColumns.builder(dictionaries, Objects.isNull(count) ? 0 : count);
+        LongIntHashMap kinds = codes.get(RegistrationColumn.KIND);
+        LongIntHashMap colors = codes.get(RegistrationColumn.COLOR);
+        LongIntHashMap bodyTypes = codes.get(RegistrationColumn.BODY_TYPE);
+        LongIntHashMap purposes = codes.get(RegistrationColumn.PURPOSE);
+        LongIntHashMap fuelTypes = codes.get(RegistrationColumn.FUEL_TYPE);
+        LongIntHashMap operations = codes.get(RegistrationColumn.OPERATION);
+        LongIntHashMap departments = codes.get(RegistrationColumn.DEPARTMENT);
+        LongIntHashMap adminObjects = codes.get(RegistrationColumn.ADMIN_OBJECT);
+        int[] row = new int[RegistrationColumn.values().length];
+        jdbcTemplate.query(RECORD_SQL, resultSet -> {
+            long vehicleId = resultSet.getLong(1);
+            row[RegistrationColumn.BRAND.ordinal()] = vehicleBrands.get(vehicleId);
+            row[RegistrationColumn.MODEL.ordinal()] = vehicleModels.get(vehicleId);
+            row[RegistrationColumn.KIND.ordinal()] = kinds.get(resultSet.getLong(2));
+            row[RegistrationColumn.COLOR.ordinal()] = colors.get(resultSet.getLong(3));
+            row[RegistrationColumn.BODY_TYPE.ordinal()] = bodyTypes.get(resultSet.getLong(4));
+            row[RegistrationColumn.PURPOSE.ordinal()] = purposes.get(resultSet.getLong(5));
+            row[RegistrationColumn.FUEL_TYPE.ordinal()] = fuelTypes.get(resultSet.getLong(6));
+            row[RegistrationColumn.OPERATION.ordinal()] = operations.get(resultSet.getLong(7));
+            row[RegistrationColumn.DEPARTMENT.ordinal()] = departments.get(resultSet.getLong(8));
+            row[RegistrationColumn.ADMIN_OBJECT.ordinal()] = adminObjects.get(resultSet.getLong(9));
+            row[RegistrationColumn.MAKE_YEAR.ordinal()] = resultSet.getInt(10);
+            Date registrationDate = resultSet.getDate(11);
+            row[RegistrationColumn.REGISTRATION_DATE.ordinal()] = Objects.isNull(registrationDate) ? 0 : RegistrationColumns.packDate(registrationDate.toLocalDate());
+            row[RegistrationColumn.ENGINE_CAPACITY.ordinal()] = resultSet.getInt(12);
+            row[RegistrationColumn.OWN_WEIGHT.ordinal()] = resultSet.getInt(13);
+            row[RegistrationColumn.TOTAL_WEIGHT.ordinal()] = resultSet.getInt(14);
+            builder.add(row);
+        });
+        return builder.build(version);
+    }
+
+    @lombok.Value
+    private static class Loaded {
+        RegistrationColumns columns;
+        @Nullable
+        RegistrationBitmapIndex index;
+    }
+}
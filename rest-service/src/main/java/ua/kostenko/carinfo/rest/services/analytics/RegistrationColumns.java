@@ -0,0 +1,174 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Registrations of one data version as primitive columns, dictionary values replaced by dense codes.
+ * Filtered counts and group-bys scan the columns block by block with a selection vector. Immutable once built,
+ * so queries run concurrently without locking.
+ */
+public class RegistrationColumns {
+    static final int BLOCK_SIZE = 1024;
+    private final int size;
+    @Nullable
+    private final Integer dataVersion;
+    private final Map<RegistrationColumn, PackedColumn> columns;
+    private final Map<RegistrationColumn, ColumnDictionary> dictionaries;
+
+    private RegistrationColumns(int size, @Nullable Integer dataVersion, @NonNull @Nonnull Map<RegistrationColumn, PackedColumn> columns,
+                                @NonNull @Nonnull Map<RegistrationColumn, ColumnDictionary> dictionaries) {
+        this.size = size;
+        this.dataVersion = dataVersion;
+        this.columns = columns;
+        this.dictionaries = dictionaries;
+    }
+
+    public static Builder builder(@NonNull @Nonnull Map<RegistrationColumn, ColumnDictionary> dictionaries, int capacity) {
+        return new Builder(dictionaries, capacity);
+    }
+
+    public static int packDate(@Nullable LocalDate date) {
+        return Objects.isNull(date) ? 0 : date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Nullable
+    public Integer getDataVersion() {
+        return dataVersion;
+    }
+
+    public long getBytes() {
+        return columns.values().stream().mapToLong(column -> (long) column.getBytesPerRow() * size).sum();
+    }
+
+    public ColumnDictionary getDictionary(@NonNull @Nonnull RegistrationColumn column) {
+        ColumnDictionary dictionary = dictionaries.get(column);
+        if (Objects.isNull(dictionary)) {
+            throw new IllegalArgumentException("Column is not a dictionary column: " + column);
+        }
+        return dictionary;
+    }
+
+    int get(@NonNull @Nonnull RegistrationColumn column, int row) {
+        return columns.get(column).get(row);
+    }
+
+    /**
+     * Filter by a value as returned by the registration api: names of dictionary values, numbers or dates.
+     */
+    public ColumnFilter filter(@NonNull @Nonnull RegistrationColumn column, @Nullable Object value) {
+        if (column.isDictionary()) {
+            ColumnDictionary dictionary = getDictionary(column);
+            return ColumnFilter.codes(column, dictionary.size(), dictionary.getCodes(Objects.isNull(value) ? null : String.valueOf(value)));
+        }
+        int packed;
+        if (value instanceof Date) {
+            packed = packDate(new java.sql.Date(((Date) value).getTime()).toLocalDate());
+        } else if (value instanceof LocalDate) {
+            packed = packDate((LocalDate) value);
+        } else if (value instanceof Number) {
+            packed = ((Number) value).intValue();
+        } else {
+            throw new IllegalArgumentException(String.format("Value %s can't be used for column %s", value, column));
+        }
+        return packed > 0 ? ColumnFilter.equal(column, packed) : ColumnFilter.range(column, 1, 0);
+    }
+
+    public long count(@NonNull @Nonnull List<ColumnFilter> filters) {
+        if (filters.isEmpty()) {
+            return size;
+        }
+        return scan(filters, null, null);
+    }
+
+    /**
+     * @return number of matching rows by value of the group column, indexed by dictionary code or value.
+     */
+    public long[] countBy(@NonNull @Nonnull RegistrationColumn group, @NonNull @Nonnull List<ColumnFilter> filters) {
+        int maxValue = group.isDictionary() ? getDictionary(group).size() - 1 : group.getMaxValue();
+        if (maxValue > PackedColumn.MAX_GROUPED_VALUE) {
+            throw new IllegalArgumentException("Column can't be grouped: " + group);
+        }
+        long[] counts = new long[maxValue + 1];
+        scan(filters, columns.get(group), counts);
+        return counts;
+    }
+
+    private long scan(@NonNull @Nonnull List<ColumnFilter> filters, @Nullable PackedColumn group, @Nullable long[] counts) {
+        if (filters.stream().anyMatch(ColumnFilter::isEmpty)) {
+            return 0;
+        }
+        PackedColumn[] filterColumns = filters.stream().map(filter -> columns.get(filter.getColumn())).toArray(PackedColumn[]::new);
+        int[] selection = new int[BLOCK_SIZE];
+        long total = 0;
+        for (int from = 0; from < size; from += BLOCK_SIZE) {
+            int to = Math.min(size, from + BLOCK_SIZE);
+            int count;
+            if (filterColumns.length == 0) {
+                count = to - from;
+                for (int i = 0; i < count; i++) {
+                    selection[i] = from + i;
+                }
+            } else {
+                count = filterColumns[0].select(from, to, filters.get(0), selection);
+                for (int i = 1; i < filterColumns.length && count > 0; i++) {
+                    count = filterColumns[i].refine(selection, count, filters.get(i));
+                }
+            }
+            if (Objects.nonNull(group) && count > 0) {
+                group.accumulate(selection, count, counts);
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    public static class Builder {
+        private final Map<RegistrationColumn, ColumnDictionary> dictionaries = new EnumMap<>(RegistrationColumn.class);
+        private final Map<RegistrationColumn, PackedColumn> columns = new EnumMap<>(RegistrationColumn.class);
+        private final RegistrationColumn[] order = RegistrationColumn.values();
+        private final PackedColumn[] packedColumns = new PackedColumn[order.length];
+        private final int[] maxValues = new int[order.length];
+        private int size;
+
+        private Builder(@NonNull @Nonnull Map<RegistrationColumn, ColumnDictionary> dictionaries, int capacity) {
+            this.dictionaries.putAll(dictionaries);
+            for (RegistrationColumn column : order) {
+                int maxValue = column.getMaxValue();
+                if (column.isDictionary()) {
+                    ColumnDictionary dictionary = this.dictionaries.computeIfAbsent(column, key -> new ColumnDictionary());
+                    maxValue = dictionary.size() - 1;
+                }
+                PackedColumn packed = PackedColumn.forMaxValue(maxValue, Math.max(capacity, 1));
+                columns.put(column, packed);
+                packedColumns[column.ordinal()] = packed;
+                maxValues[column.ordinal()] = maxValue;
+            }
+        }
+
+        /**
+         * Adds a row of values indexed by {@link RegistrationColumn#ordinal()}, values out of the column range are stored as null.
+         */
+        public void add(@NonNull @Nonnull int[] row) {
+            for (int i = 0; i < packedColumns.length; i++) {
+                int value = row[i];
+                packedColumns[i].ensureCapacity(size + 1);
+                packedColumns[i].set(size, value >= 0 && value <= maxValues[i] ? value : 0);
+            }
+            size++;
+        }
+
+        public RegistrationColumns build(@Nullable Integer dataVersion) {
+            columns.values().forEach(column -> column.trim(size));
+            return new RegistrationColumns(size, dataVersion, columns, dictionaries);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import lombok.NonNull;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Compressed set of row numbers in the layout of Roaring bitmaps: rows are split into chunks of 65536 by their high 16 bits,
+ * a chunk keeps its low 16 bits either as a sorted char array (up to {@link #MAX_ARRAY_CARDINALITY} rows) or as a
+ * 1024-word bitmap. Immutable, built through {@link Builder} from ascending row numbers.
+ */
+public final class RowBitmap {
+    static final int MAX_ARRAY_CARDINALITY = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final RowBitmap EMPTY = new RowBitmap(new char[0], new Object[0], 0);
+    private final char[] keys;
+    private final Object[] containers;
+    private final long cardinality;
+
+    private RowBitmap(@NonNull @Nonnull char[] keys, @NonNull @Nonnull Object[] containers, long cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    public static RowBitmap empty() {
+        return EMPTY;
+    }
+
+    public static RowBitmap of(@NonNull @Nonnull int... rows) {
+        Builder builder = new Builder();
+        for (int row : rows) {
+            builder.add(row);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return union of all bitmaps.
+     */
+    public static RowBitmap or(@NonNull @Nonnull Collection<RowBitmap> bitmaps) {
+        RowBitmap result = EMPTY;
+        for (RowBitmap bitmap : bitmaps) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public long getBytes() {
+        long bytes = keys.length * (long) Character.BYTES;
+        for (Object container : containers) {
+            bytes += container instanceof char[] ? ((char[]) container).length * (long) Character.BYTES : BITMAP_WORDS * (long) Long.BYTES;
+        }
+        return bytes;
+    }
+
+    public boolean contains(int row) {
+        int index = Arrays.binarySearch(keys, (char) (row >>> 16));
+        return index >= 0 && containerContains(containers[index], (char) row);
+    }
+
+    public RowBitmap and(@NonNull @Nonnull RowBitmap other) {
+        int length = Math.min(keys.length, other.keys.length);
+        char[] resultKeys = new char[length];
+        Object[] resultContainers = new Object[length];
+        int size = 0;
+        long resultCardinality = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object container = and(containers[i], other.containers[j]);
+                if (Objects.nonNull(container)) {
+                    resultKeys[size] = keys[i];
+                    resultContainers[size++] = container;
+                    resultCardinality += cardinality(container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return new RowBitmap(Arrays.copyOf(resultKeys, size), Arrays.copyOf(resultContainers, size), resultCardinality);
+    }
+
+    public RowBitmap or(@NonNull @Nonnull RowBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Object[] resultContainers = new Object[resultKeys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                resultKeys[size] = keys[i];
+                resultContainers[size++] = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                resultKeys[size] = other.keys[j];
+                resultContainers[size++] = other.containers[j++];
+            } else {
+                resultKeys[size] = keys[i];
+                resultContainers[size++] = or(containers[i++], other.containers[j++]);
+            }
+        }
+        long resultCardinality = 0;
+        for (int k = 0; k < size; k++) {
+            resultCardinality += cardinality(resultContainers[k]);
+        }
+        return new RowBitmap(Arrays.copyOf(resultKeys, size), Arrays.copyOf(resultContainers, size), resultCardinality);
+    }
+
+    /**
+     * @return cardinality of the intersection without building it.
+     */
+    public long andCardinality(@NonNull @Nonnull RowBitmap other) {
+        long result = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result += andCardinality(containers[i++], other.containers[j++]);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containerContains(Object container, char low) {
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, low) >= 0;
+        }
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    private static int cardinality(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int result = 0;
+        for (long word : (long[]) container) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    private static Object and(Object first, Object second) {
+        if (first instanceof char[] && second instanceof char[]) {
+            char[] left = (char[]) first;
+            char[] right = (char[]) second;
+            char[] result = new char[Math.min(left.length, right.length)];
+            int size = 0;
+            for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+                if (left[i] < right[j]) {
+                    i++;
+                } else if (left[i] > right[j]) {
+                    j++;
+                } else {
+                    result[size++] = left[i];
+                    i++;
+                    j++;
+                }
+            }
+            return size == 0 ? null : Arrays.copyOf(result, size);
+        }
+        if (first instanceof char[] || second instanceof char[]) {
+            char[] array = (char[]) (first instanceof char[] ? first : second);
+            long[] bitmap = (long[]) (first instanceof char[] ? second : first);
+            char[] result = new char[array.length];
+            int size = 0;
+            for (char low : array) {
+                result[size] = low;
+                size += (bitmap[low >>> 6] & (1L << low)) != 0 ? 1 : 0;
+            }
+            return size == 0 ? null : Arrays.copyOf(result, size);
+        }
+        long[] left = (long[]) first;
+        long[] right = (long[]) second;
+        long[] result = new long[BITMAP_WORDS];
+        int resultCardinality = 0;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+            result[i] = left[i] & right[i];
+            resultCardinality += Long.bitCount(result[i]);
+        }
+        if (resultCardinality == 0) {
+            return null;
+        }
+        return resultCardinality <= MAX_ARRAY_CARDINALITY ? toArray(result, resultCardinality) : result;
+    }
+
+    private static Object or(Object first, Object second) {
+        if (first instanceof char[] && second instanceof char[]) {
+            char[] left = (char[]) first;
+            char[] right = (char[]) second;
+            char[] result = new char[left.length + right.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < left.length || j < right.length) {
+                if (j == right.length || (i < left.length && left[i] < right[j])) {
+                    result[size++] = left[i++];
+                } else if (i == left.length || left[i] > right[j]) {
+                    result[size++] = right[j++];
+                } else {
+                    result[size++] = left[i++];
+                    j++;
+                }
+            }
+            return size <= MAX_ARRAY_CARDINALITY ? Arrays.copyOf(result, size) : toBitmap(result, size);
+        }
+        if (first instanceof char[] || second instanceof char[]) {
+            char[] array = (char[]) (first instanceof char[] ? first : second);
+            long[] result = ((long[]) (first instanceof char[] ? second : first)).clone();
+            for (char low : array) {
+                result[low >>> 6] |= 1L << low;
+            }
+            return result;
+        }
+        long[] left = (long[]) first;
+        long[] right = (long[]) second;
+        long[] result = new long[BITMAP_WORDS];
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+            result[i] = left[i] | right[i];
+        }
+        return result;
+    }
+
+    private static int andCardinality(Object first, Object second) {
+        if (first instanceof char[] && second instanceof char[]) {
+            char[] left = (char[]) first;
+            char[] right = (char[]) second;
+            int result = 0;
+            for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+                if (left[i] < right[j]) {
+                    i++;
+                } else if (left[i] > right[j]) {
+                    j++;
+                } else {
+                    result++;
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+        if (first instanceof char[] || second instanceof char[]) {
+            char[] array = (char[]) (first instanceof char[] ? first : second);
+            long[] bitmap = (long[]) (first instanceof char[] ? second : first);
+            int result = 0;
+            for (char low : array) {
+                result += (bitmap[low >>> 6] & (1L << low)) != 0 ? 1 : 0;
+            }
+            return result;
+        }
+        long[] left = (long[]) first;
+        long[] right = (long[]) second;
+        int result = 0;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+            result += Long.bitCount(left[i] & right[i]);
+        }
+        return result;
+    }
+
+    private static char[] toArray(long[] bitmap, int cardinality) {
+        char[] result = new char[cardinality];
+        int size = 0;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+            long word = bitmap[i];
+            while (word != 0) {
+                result[size++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    private static long[] toBitmap(char[] array, int size) {
+        long[] result = new long[BITMAP_WORDS];
+        for (int i = 0; i < size; i++) {
+            result[array[i] >>> 6] |= 1L << array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Collects rows added in ascending order, a chunk switches from array to bitmap once it exceeds
+     * {@link #MAX_ARRAY_CARDINALITY} rows.
+     */
+    public static class Builder {
+        private char[] keys = new char[4];
+        private Object[] containers = new Object[4];
+        private int size;
+        private long cardinality;
+        private int lastRow = -1;
+        private char[] array;
+        private int arraySize;
+        private long[] bitmap;
+
+        public void add(int row) {
+            if (row <= lastRow) {
+                throw new IllegalArgumentException(String.format("Rows must be added in ascending order, %d after %d", row, lastRow));
+            }
+            char key = (char) (row >>> 16);
+            if (lastRow < 0 || key != (char) (lastRow >>> 16)) {
+                flush();
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                    containers = Arrays.copyOf(containers, size * 2);
+                }
+                keys[size++] = key;
+                array = new char[4];
+            }
+            char low = (char) row;
+            if (Objects.nonNull(bitmap)) {
+                bitmap[low >>> 6] |= 1L << low;
+            } else if (arraySize < MAX_ARRAY_CARDINALITY) {
+                if (arraySize == array.length) {
+                    array = Arrays.copyOf(array, arraySize * 2);
+                }
+                array[arraySize++] = low;
+            } else {
+                bitmap = toBitmap(array, arraySize);
+                bitmap[low >>> 6] |= 1L << low;
+                array = null;
+                arraySize = 0;
+            }
+            cardinality++;
+            lastRow = row;
+        }
+
+        public RowBitmap build() {
+            flush();
+            return cardinality == 0 ? EMPTY : new RowBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), cardinality);
+        }
+
+        private void flush() {
+            if (Objects.nonNull(bitmap)) {
+                containers[size - 1] = bitmap;
+            } else if (arraySize > 0) {
+                containers[size - 1] = Arrays.copyOf(array, arraySize);
+            }
+            bitmap = null;
+            array = null;
+            arraySize = 0;
+        }
+    }
+}
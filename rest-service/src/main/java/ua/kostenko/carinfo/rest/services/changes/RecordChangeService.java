@@ -0,0 +1,123 @@
+package ua.kostenko.carinfo.rest.services.changes;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads carinfo.record_change written by the importer. Entries are ordered by seq, a consumer resumes with the seq of the
+ * last applied entry. INSERT and DELETE entries carry record ids, REPLACE means the year was reloaded, RESET means everything was.
+ */
+@Slf4j
+@Service
+public class RecordChangeService {
+    private static final String CHANGES_SQL = "select seq, version, operation, year, record_ids, created_at from carinfo.record_change " +
+            "where seq > ? order by seq limit ?";
+    private static final String OLDEST_SQL = "select min(seq) from carinfo.record_change";
+    private static final String LAST_SQL = "select coalesce(max(seq), 0) from carinfo.record_change";
+    private static final int FETCH_SIZE = 100;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxLimit;
+
+    @Autowired
+    public RecordChangeService(@NonNull @Nonnull JdbcTemplate jdbcTemplate, @NonNull @Nonnull PlatformTransactionManager transactionManager,
+                               @NonNull @Nonnull ObjectMapper objectMapper, @Value("${app.changes.max-limit:10000}") int maxLimit) {
+        this.jdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource(), "dataSource can't be null"));
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Cursor is expired when entries after it were purged, the consumer has to rebuild its mirror.
+     */
+    public boolean isExpired(long since) {
+        Long oldest = jdbcTemplate.queryForObject(OLDEST_SQL, Long.class);
+        return Objects.nonNull(oldest) && since < oldest - 1;
+    }
+
+    public long getLastSeq() {
+        Long last = jdbcTemplate.queryForObject(LAST_SQL, Long.class);
+        return Objects.isNull(last) ? 0 : last;
+    }
+
+    /**
+     * Writes entries after the given seq as NDJSON. The query runs in a read-only transaction, the driver fetches rows by
+     * {@link #FETCH_SIZE} only within a transaction and would read the whole result otherwise.
+     */
+    public long stream(long since, int limit, @NonNull @Nonnull OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        AtomicLong counter = new AtomicLong();
+        try {
+            transactionTemplate.execute(status -> {
+                jdbcTemplate.query(CHANGES_SQL, resultSet -> {
+                    try {
+                        writeChange(resultSet, generator);
+                        counter.incrementAndGet();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, since, Math.max(1, Math.min(limit, maxLimit)));
+                return null;
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        if (counter.get() > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+        log.info("stream: Streamed {} changes after seq {}", counter.get(), since);
+        return counter.get();
+    }
+
+    private void writeChange(ResultSet resultSet, JsonGenerator generator) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("seq", resultSet.getLong("seq"));
+        int version = resultSet.getInt("version");
+        if (!resultSet.wasNull()) {
+            generator.writeNumberField("version", version);
+        }
+        generator.writeStringField("operation", resultSet.getString("operation"));
+        int year = resultSet.getInt("year");
+        if (!resultSet.wasNull()) {
+            generator.writeNumberField("year", year);
+        }
+        Array ids = resultSet.getArray("record_ids");
+        if (Objects.nonNull(ids)) {
+            generator.writeArrayFieldStart("ids");
+            for (Long id : (Long[]) ids.getArray()) {
+                generator.writeNumber(id);
+            }
+            generator.writeEndArray();
+        }
+        Timestamp createdAt = resultSet.getTimestamp("created_at");
+        generator.writeStringField("createdAt", createdAt.toInstant().toString());
+        generator.writeEndObject();
+    }
+}
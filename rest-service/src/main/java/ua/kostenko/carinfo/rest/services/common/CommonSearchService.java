@@ -3,7 +3,9 @@ package ua.kostenko.carinfo.rest.services.common;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
 import ua.kostenko.carinfo.common.api.services.DBService;
@@ -11,8 +13,13 @@ import ua.kostenko.carinfo.common.api.services.DBService;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class CommonSearchService<T extends GenericRecord<I>, I> implements SearchService<T, I> {
@@ -22,18 +29,38 @@ public abstract class CommonSearchService<T extends GenericRecord<I>, I> impleme
         this.service = service;
     }
 
+    /**
+     * All records of the current data version when they are served from memory instead of the database.
+     * Used by getById, getAll, findForField and their counts, other searches always go to the database.
+     */
+    protected Optional<List<T>> getIndexedRecords() {
+        return Optional.empty();
+    }
+
     @Override
     public T getById(@NonNull @Nonnull Long id) {
+        Optional<List<T>> records = getIndexedRecords();
+        if (records.isPresent()) {
+            return records.get().stream().filter(record -> id.equals(record.getId())).findFirst().orElse(null);
+        }
         return service.get(id).orElseGet(null);
     }
 
     @Override
     public Page<T> getAll(Pageable pageable) {
+        Optional<List<T>> records = getIndexedRecords();
+        if (records.isPresent()) {
+            return getPage(records.get(), pageable);
+        }
         return service.getAll(getBuilder(pageable));
     }
 
     @Override
     public Page<T> findForField(@Nonnull @NonNull String field, Pageable pageable) {
+        Optional<List<T>> records = getIndexedRecords();
+        if (records.isPresent()) {
+            return getPage(filterByIndexField(records.get(), field), pageable);
+        }
         String findForFieldParam = getFindForFieldParam();
         ParamsHolderBuilder builder = getBuilder(pageable);
         builder.param(findForFieldParam, field);
@@ -59,19 +86,41 @@ public abstract class CommonSearchService<T extends GenericRecord<I>, I> impleme
                 builder.param(key, (Integer) value);
             } else if (value instanceof Date) {
                 builder.param(key, (Date) value);
+            } else if (value instanceof Collection) {
+                addCollectionToBuilder(key, (Collection<?>) value, builder);
             } else {
                 throw new IllegalArgumentException("Type of this value is not supported. Type = " + value.getClass().getSimpleName());
             }
         });
     }
 
+    private void addCollectionToBuilder(@NonNull @Nonnull String key, @NonNull @Nonnull Collection<?> values, @NonNull @Nonnull ParamsHolderBuilder builder) {
+        if (values.stream().allMatch(value -> value instanceof String)) {
+            List<String> strings = values.stream().map(String.class::cast).collect(Collectors.toList());
+            builder.stringParams(key, strings);
+        } else if (values.stream().allMatch(value -> value instanceof Long || value instanceof Integer)) {
+            List<Long> longs = values.stream().map(value -> ((Number) value).longValue()).collect(Collectors.toList());
+            builder.longParams(key, longs);
+        } else {
+            throw new IllegalArgumentException("Type of values in collection is not supported. Key = " + key);
+        }
+    }
+
     @Override
     public int countAll() {
+        Optional<List<T>> records = getIndexedRecords();
+        if (records.isPresent()) {
+            return records.get().size();
+        }
         return service.countAll();
     }
 
     @Override
     public int countForField(@Nonnull @NonNull String field) {
+        Optional<List<T>> records = getIndexedRecords();
+        if (records.isPresent()) {
+            return filterByIndexField(records.get(), field).size();
+        }
         String findForFieldParam = getFindForFieldParam();
         ParamsHolderBuilder builder = getBuilder(null);
         builder.param(findForFieldParam, field);
@@ -85,6 +134,35 @@ public abstract class CommonSearchService<T extends GenericRecord<I>, I> impleme
         return service.countAll(builder);
     }
 
+    @Override
+    public void findProjectionByParams(@Nonnull @NonNull Map<String, Object> params, Pageable pageable, @Nonnull @NonNull List<String> fields, @Nonnull @NonNull RowCallbackHandler handler) {
+        ParamsHolderBuilder builder = getBuilder(pageable);
+        if (Objects.nonNull(pageable)) {
+            builder.records(pageable.getPageSize());
+        }
+        addParamsToBuilder(params, builder);
+        service.streamProjection(builder, fields, handler);
+    }
+
+    @Override
+    public void streamByParams(@Nonnull @NonNull Map<String, Object> params, @Nonnull @NonNull Consumer<T> consumer) {
+        ParamsHolderBuilder builder = getBuilder(null);
+        addParamsToBuilder(params, builder);
+        service.stream(builder, consumer);
+    }
+
+    @Nonnull
+    protected Page<T> getPage(@NonNull @Nonnull List<T> records, @Nullable Pageable pageable) {
+        Pageable page = getBuilder(pageable).build().getPage();
+        int from = (int) Math.min(page.getOffset(), records.size());
+        int to = Math.min(from + page.getPageSize(), records.size());
+        return new PageImpl<>(records.subList(from, to), page, records.size());
+    }
+
+    private List<T> filterByIndexField(@NonNull @Nonnull List<T> records, @NonNull @Nonnull String field) {
+        return records.stream().filter(record -> field.equals(String.valueOf(record.getIndexField()))).collect(Collectors.toList());
+    }
+
     @Nonnull
     private ParamsHolderBuilder getBuilder(@Nullable Pageable pageable) {
         ParamsHolderBuilder builder = new ParamsHolderBuilder();
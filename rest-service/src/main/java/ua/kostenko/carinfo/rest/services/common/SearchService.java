@@ -3,10 +3,13 @@ package ua.kostenko.carinfo.rest.services.common;
 import lombok.NonNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import ua.kostenko.carinfo.common.api.records.GenericRecord;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface SearchService<T extends GenericRecord<I>, I> {
     T getById(Long id);
@@ -16,4 +19,6 @@ public interface SearchService<T extends GenericRecord<I>, I> {
     int countAll();
     int countForField(@NonNull @Nonnull String field);
     int countByParams(@NonNull @Nonnull Map<String, Object> params);
+    void findProjectionByParams(@NonNull @Nonnull Map<String, Object> params, Pageable pageable, @NonNull @Nonnull List<String> fields, @NonNull @Nonnull RowCallbackHandler handler);
+    void streamByParams(@NonNull @Nonnull Map<String, Object> params, @NonNull @Nonnull Consumer<T> consumer);
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ua.kostenko.carinfo.rest.services.export;
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+import java.util.stream.Stream;
+
+@Getter
+public enum ExportFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv");
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public static ExportFormat of(@Nullable String format) {
+        return Stream.of(values())
+                     .filter(value -> value.extension.equalsIgnoreCase(format))
+                     .findFirst()
+                     .orElseThrow(() -> new IllegalArgumentException("Export format is not supported: " + format));
+    }
+}
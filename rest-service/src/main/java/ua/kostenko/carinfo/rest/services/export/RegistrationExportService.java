@@ -0,0 +1,232 @@
+package ua.kostenko.carinfo.rest.services.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.rest.services.common.SearchService;
+import ua.kostenko.carinfo.rest.utils.ResultSetJsonWriter;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+public class RegistrationExportService {
+    private static final String[] CSV_HEADERS = {
+            Registration.REGISTRATION_NUMBER,
+            Registration.REGISTRATION_DATE,
+            Registration.BRAND,
+            Registration.MODEL,
+            Registration.MAKE_YEAR,
+            Registration.COLOR,
+            Registration.KIND,
+            Registration.BODY_TYPE,
+            Registration.PURPOSE,
+            Registration.FUEL_TYPE,
+            Registration.ENGINE_CAPACITY,
+            Registration.OWN_WEIGHT,
+            Registration.TOTAL_WEIGHT,
+            Registration.PERSON_TYPE,
+            Registration.OPERATION_CODE,
+            Registration.OPERATION_NAME,
+            Registration.DEPARTMENT_CODE,
+            Registration.DEPARTMENT_ADDRESS,
+            Registration.DEPARTMENT_EMAIL,
+            Registration.ADMIN_OBJ_NAME,
+            Registration.ADMIN_OBJ_TYPE
+    };
+    /**
+     * Fields of the compact view in the order of the projection columns of the registration repository.
+     */
+    private static final Map<String, Function<Registration, Object>> COMPACT_FIELDS = ImmutableMap.<String, Function<Registration, Object>>builder()
+            .put("id", Registration::getId)
+            .put(Registration.REGISTRATION_NUMBER, Registration::getRegistrationNumber)
+            .put(Registration.REGISTRATION_DATE, Registration::getRegistrationDate)
+            .put(Registration.BRAND, Registration::getBrandName)
+            .put(Registration.MODEL, Registration::getModelName)
+            .put(Registration.MAKE_YEAR, Registration::getMakeYear)
+            .put(Registration.COLOR, Registration::getColorName)
+            .put(Registration.KIND, Registration::getKindName)
+            .put(Registration.BODY_TYPE, Registration::getBodyTypeName)
+            .put(Registration.PURPOSE, Registration::getPurposeName)
+            .put(Registration.FUEL_TYPE, Registration::getFuelTypeName)
+            .put(Registration.ENGINE_CAPACITY, Registration::getEngineCapacity)
+            .put(Registration.OWN_WEIGHT, Registration::getOwnWeight)
+            .put(Registration.TOTAL_WEIGHT, Registration::getTotalWeight)
+            .put(Registration.PERSON_TYPE, Registration::getPersonType)
+            .put(Registration.OPERATION_CODE, Registration::getOperationCode)
+            .put(Registration.OPERATION_NAME, Registration::getOperationName)
+            .put(Registration.DEPARTMENT_CODE, Registration::getDepartmentCode)
+            .put(Registration.DEPARTMENT_ADDRESS, Registration::getDepartmentAddress)
+            .put(Registration.DEPARTMENT_EMAIL, Registration::getDepartmentEmail)
+            .put(Registration.ADMIN_OBJ_NAME, Registration::getAdminObjName)
+            .put(Registration.ADMIN_OBJ_TYPE, Registration::getAdminObjType)
+            .build();
+    private final SearchService<Registration, String> searchService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public RegistrationExportService(@NonNull @Nonnull SearchService<Registration, String> searchService, @NonNull @Nonnull ObjectMapper objectMapper) {
+        this.searchService = searchService;
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(@NonNull @Nonnull Map<String, Object> params, @NonNull @Nonnull ExportFormat format, @NonNull @Nonnull OutputStream outputStream) throws IOException {
+        log.info("export: Exporting registrations as {} with params: {}", format, params);
+        AtomicLong counter = new AtomicLong();
+        try {
+            if (format == ExportFormat.CSV) {
+                exportCsv(params, outputStream, counter);
+            } else {
+                exportNdjson(params, outputStream, counter);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        log.info("export: Exported {} registrations", counter.get());
+    }
+
+    /**
+     * Writes a page of the projection query, rows go from the ResultSet straight to the response.
+     */
+    public void exportCompactPage(@NonNull @Nonnull Map<String, Object> params, @NonNull @Nonnull Pageable pageable, @NonNull @Nonnull List<String> fields,
+                                  @NonNull @Nonnull OutputStream outputStream) throws IOException {
+        writeCompactPage(pageable.getPageNumber(), pageable.getPageSize(), outputStream,
+                         generator -> searchService.findProjectionByParams(params, pageable, fields, new ResultSetJsonWriter(generator)));
+    }
+
+    /**
+     * Writes a page found by the full search in the same compact shape, so the compact and full views of a search return
+     * the same registrations.
+     */
+    public void exportCompactPage(@NonNull @Nonnull Page<Registration> page, @NonNull @Nonnull List<String> fields,
+                                  @NonNull @Nonnull OutputStream outputStream) throws IOException {
+        List<String> projection = getCompactFields(fields);
+        writeCompactPage(page.getNumber(), page.getSize(), outputStream, generator -> {
+            try {
+                for (Registration registration : page.getContent()) {
+                    writeCompact(generator, registration, projection);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * @return requested compact fields, all fields when none are requested.
+     * @throws IllegalArgumentException if a field is not supported in the compact view.
+     */
+    public static List<String> getCompactFields(@NonNull @Nonnull List<String> fields) {
+        if (fields.isEmpty()) {
+            return new ArrayList<>(COMPACT_FIELDS.keySet());
+        }
+        fields.stream()
+              .filter(field -> !COMPACT_FIELDS.containsKey(field))
+              .findFirst()
+              .ifPresent(field -> {
+                  throw new IllegalArgumentException("Field is not supported in projection: " + field);
+              });
+        return fields;
+    }
+
+    private void writeCompactPage(int page, int size, @NonNull @Nonnull OutputStream outputStream, @NonNull @Nonnull Consumer<JsonGenerator> content) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.writeStartObject();
+        generator.writeNumberField("page", page);
+        generator.writeNumberField("size", size);
+        generator.writeArrayFieldStart("content");
+        try {
+            content.accept(generator);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private static void writeCompact(@NonNull @Nonnull JsonGenerator generator, @NonNull @Nonnull Registration registration,
+                                     @NonNull @Nonnull List<String> fields) throws IOException {
+        generator.writeStartObject();
+        for (String field : fields) {
+            Object value = COMPACT_FIELDS.get(field).apply(registration);
+            if (value instanceof Number) {
+                generator.writeNumberField(field, ((Number) value).longValue());
+            } else if (Objects.nonNull(value)) {
+                generator.writeStringField(field, value.toString());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void exportNdjson(Map<String, Object> params, OutputStream outputStream, AtomicLong counter) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        searchService.streamByParams(params, registration -> {
+            try {
+                generator.writeObject(registration);
+                counter.incrementAndGet();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        if (counter.get() > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    private void exportCsv(Map<String, Object> params, OutputStream outputStream, AtomicLong counter) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(CSV_HEADERS));
+        searchService.streamByParams(params, registration -> {
+            try {
+                printer.printRecord(registration.getRegistrationNumber(),
+                                    registration.getRegistrationDate(),
+                                    registration.getBrandName(),
+                                    registration.getModelName(),
+                                    registration.getMakeYear(),
+                                    registration.getColorName(),
+                                    registration.getKindName(),
+                                    registration.getBodyTypeName(),
+                                    registration.getPurposeName(),
+                                    registration.getFuelTypeName(),
+                                    registration.getEngineCapacity(),
+                                    registration.getOwnWeight(),
+                                    registration.getTotalWeight(),
+                                    registration.getPersonType(),
+                                    registration.getOperationCode(),
+                                    registration.getOperationName(),
+                                    registration.getDepartmentCode(),
+                                    registration.getDepartmentAddress(),
+                                    registration.getDepartmentEmail(),
+                                    registration.getAdminObjName(),
+                                    registration.getAdminObjType());
+                counter.incrementAndGet();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        printer.flush();
+    }
+}
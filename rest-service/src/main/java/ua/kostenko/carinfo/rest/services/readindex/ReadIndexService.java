@@ -0,0 +1,217 @@
+package ua.kostenko.carinfo.rest.services.readindex;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.cache.DataChangedEvent;
+import ua.kostenko.carinfo.common.cache.EntityChangedEvent;
+import ua.kostenko.carinfo.common.readindex.ReadIndex;
+import ua.kostenko.carinfo.common.readindex.ReadIndexDictionary;
+import ua.kostenko.carinfo.common.readindex.ReadIndexEntry;
+import ua.kostenko.carinfo.common.readindex.ReadIndexGeneration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maps the read index file of the current data published by data-import-service. The file is used only while its
+ * {@link ReadIndexGeneration} is the one of the database, so callers fall back to the database when the file is missing,
+ * stale or damaged. The generation is polled and checked on every {@link DataChangedEvent} and {@link EntityChangedEvent};
+ * dictionaries changed by an entity event are not served from the file until the next one is mapped.
+ */
+@Slf4j
+@Service
+public class ReadIndexService {
+    private static final Map<String, ReadIndexDictionary> ENTITY_DICTIONARIES = ImmutableMap.<String, ReadIndexDictionary>builder()
+            .put("AdministrativeObject", ReadIndexDictionary.ADMIN_OBJECT)
+            .put("BodyType", ReadIndexDictionary.BODY_TYPE)
+            .put("Brand", ReadIndexDictionary.BRAND)
+            .put("Color", ReadIndexDictionary.COLOR)
+            .put("Department", ReadIndexDictionary.DEPARTMENT)
+            .put("FuelType", ReadIndexDictionary.FUEL_TYPE)
+            .put("Kind", ReadIndexDictionary.KIND)
+            .put("Model", ReadIndexDictionary.MODEL)
+            .put("Operation", ReadIndexDictionary.OPERATION)
+            .put("Purpose", ReadIndexDictionary.PURPOSE)
+            .build();
+    private static final Set<String> ROW_ENTITIES = ImmutableSet.of("Registration", "Vehicle");
+    private final JdbcTemplate jdbcTemplate;
+    @Nullable
+    private final File directory;
+    private final int pollSeconds;
+    private final ScheduledExecutorService scheduler;
+    private volatile Loaded loaded;
+    private volatile ReadIndexGeneration damagedGeneration;
+
+    @Autowired
+    public ReadIndexService(@NonNull @Nonnull JdbcTemplate jdbcTemplate,
+                            @Value("${app.read-index.dir:}") String directory,
+                            @Value("${app.read-index.poll-seconds:30}") int pollSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = StringUtils.isBlank(directory) ? null : new File(directory);
+        this.pollSeconds = pollSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("read-index-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @return registrations with the plate, empty if there is no usable read index or entities were changed since it was mapped.
+     */
+    public Optional<List<Registration>> findByPlate(@NonNull @Nonnull String plate) {
+        Loaded current = loaded;
+        if (Objects.isNull(current) || !current.getChangedEntities().isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(current.getIndex().findByPlate(plate));
+        } catch (RuntimeException ex) {
+            log.error("findByPlate: Problem with reading read index {}", current.getIndex().getGeneration(), ex);
+            damagedGeneration = current.getIndex().getGeneration();
+            deactivate(current);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return entries of the dictionary, empty if there is no usable read index or the dictionary was changed since it was mapped.
+     */
+    public Optional<List<ReadIndexEntry>> getEntries(@NonNull @Nonnull ReadIndexDictionary dictionary) {
+        Loaded current = loaded;
+        return isUsable(current, dictionary) ? Optional.of(current.getIndex().getEntries(dictionary)) : Optional.empty();
+    }
+
+    /**
+     * @return records converted from the dictionary entries, converted once per read index; empty if there is no usable read index.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<List<T>> getRecords(@NonNull @Nonnull ReadIndexDictionary dictionary, @NonNull @Nonnull Function<ReadIndexEntry, T> converter) {
+        Loaded current = loaded;
+        if (!isUsable(current, dictionary)) {
+            return Optional.empty();
+        }
+        List<?> records = current.getRecords().computeIfAbsent(dictionary, key -> Collections.unmodifiableList(
+                current.getIndex().getEntries(key).stream().map(converter).collect(Collectors.toList())));
+        return Optional.of((List<T>) records);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (Objects.isNull(directory)) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, Math.max(1, pollSeconds), TimeUnit.SECONDS);
+    }
+
+    @EventListener
+    public void onDataChanged(@NonNull @Nonnull DataChangedEvent event) {
+        Loaded current = loaded;
+        if (Objects.nonNull(current) && (Objects.isNull(event.getVersion()) || !event.getVersion().equals(current.getIndex().getDataVersion()))) {
+            log.info("onDataChanged: Data version {} is changed, read index {} is not used anymore", event.getVersion(),
+                     current.getIndex().getGeneration());
+            deactivate(current);
+        }
+        if (Objects.nonNull(directory)) {
+            scheduler.execute(this::refresh);
+        }
+    }
+
+    @EventListener
+    public void onEntityChanged(@NonNull @Nonnull EntityChangedEvent event) {
+        Loaded current = loaded;
+        if (Objects.nonNull(current)) {
+            log.info("onEntityChanged: {} is changed, its dictionary is not served from read index {} anymore", event.getEntity(),
+                     current.getIndex().getGeneration());
+            current.getChangedEntities().add(Objects.toString(event.getEntity()));
+        }
+        if (Objects.nonNull(directory)) {
+            scheduler.execute(this::refresh);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        Loaded current = loaded;
+        if (Objects.nonNull(current)) {
+            deactivate(current);
+        }
+    }
+
+    private synchronized void refresh() {
+        try {
+            ReadIndexGeneration generation = ReadIndexGeneration.read(jdbcTemplate);
+            Loaded current = loaded;
+            if (Objects.nonNull(current) && current.getIndex().getGeneration().equals(generation)) {
+                return;
+            }
+            if (Objects.nonNull(current)) {
+                deactivate(current);
+            }
+            if (Objects.isNull(generation.getDataVersion()) || generation.equals(damagedGeneration)) {
+                return;
+            }
+            File file = new File(directory, ReadIndex.getFileName(generation));
+            if (!file.isFile()) {
+                log.debug("refresh: Read index {} is not published yet", file.getAbsolutePath());
+                return;
+            }
+            ReadIndex index = ReadIndex.open(file);
+            if (!index.getGeneration().equals(generation)) {
+                log.warn("refresh: Read index {} has generation {} instead of {}", file.getName(), index.getGeneration(), generation);
+                index.close();
+                return;
+            }
+            loaded = new Loaded(index, new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet());
+            log.info("refresh: Read index {} of {} is mapped, rows: {}, size: {}", file.getName(), generation, index.getRowCount(), index.getSize());
+        } catch (IOException | RuntimeException ex) {
+            log.error("refresh: Problem with loading read index", ex);
+        }
+    }
+
+    /**
+     * Changes of registrations and vehicles leave dictionaries usable, changes of unknown entities don't.
+     */
+    private static boolean isUsable(@Nullable Loaded current, @NonNull @Nonnull ReadIndexDictionary dictionary) {
+        return Objects.nonNull(current) && current.getChangedEntities().stream()
+                                                  .filter(entity -> !ROW_ENTITIES.contains(entity))
+                                                  .noneMatch(entity -> ENTITY_DICTIONARIES.getOrDefault(entity, dictionary) == dictionary);
+    }
+
+    private synchronized void deactivate(@NonNull @Nonnull Loaded expected) {
+        if (loaded != expected) {
+            return;
+        }
+        loaded = null;
+        try {
+            expected.getIndex().close();
+        } catch (IOException ex) {
+            log.warn("deactivate: Problem with closing read index", ex);
+        }
+    }
+
+    @lombok.Value
+    private static class Loaded {
+        ReadIndex index;
+        Map<ReadIndexDictionary, List<?>> records;
+        Set<String> changedEntities;
+    }
+}
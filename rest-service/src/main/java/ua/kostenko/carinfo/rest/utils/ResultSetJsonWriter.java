@@ -0,0 +1,75 @@
+package ua.kostenko.carinfo.rest.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.NonNull;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+public class ResultSetJsonWriter implements RowCallbackHandler {
+    private final JsonGenerator generator;
+    private String[] labels;
+    private int[] types;
+
+    public ResultSetJsonWriter(@NonNull @Nonnull JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void processRow(@Nonnull ResultSet resultSet) throws SQLException {
+        if (Objects.isNull(labels)) {
+            readMetaData(resultSet.getMetaData());
+        }
+        try {
+            generator.writeStartObject();
+            for (int i = 0; i < labels.length; i++) {
+                writeColumn(resultSet, i);
+            }
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void readMetaData(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        labels = new String[columnCount];
+        types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+            types[i] = metaData.getColumnType(i + 1);
+        }
+    }
+
+    private void writeColumn(ResultSet resultSet, int index) throws SQLException, IOException {
+        int column = index + 1;
+        switch (types[index]) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+                long longValue = resultSet.getLong(column);
+                if (!resultSet.wasNull()) {
+                    generator.writeNumberField(labels[index], longValue);
+                }
+                break;
+            case Types.DATE:
+                java.sql.Date date = resultSet.getDate(column);
+                if (Objects.nonNull(date)) {
+                    generator.writeStringField(labels[index], date.toString());
+                }
+                break;
+            default:
+                String value = resultSet.getString(column);
+                if (Objects.nonNull(value)) {
+                    generator.writeStringField(labels[index], value);
+                }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ua.kostenko.carinfo.rest.configuration;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import ua.kostenko.carinfo.common.api.ParamsHolder;
+import ua.kostenko.carinfo.common.api.ParamsHolderBuilder;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.database.repositories.DBRepository;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.sql.Date;
+import java.util.Collections;
+
+/**
+ * Registration regions of the rest ehcache.xml must be keyed by the search itself, not by its hash code.
+ */
+public class CacheKeyTest {
+    private CacheManager cacheManager;
+    private AnnotationConfigApplicationContext context;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private DBRepository<Registration, String> repository;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        cacheManager = Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider")
+                              .getCacheManager(getClass().getResource("/ehcache.xml").toURI(), getClass().getClassLoader());
+        jdbcTemplate = Mockito.mock(NamedParameterJdbcTemplate.class);
+        Mockito.when(jdbcTemplate.getJdbcTemplate()).thenReturn(new JdbcTemplate());
+        context = new AnnotationConfigApplicationContext();
+        context.register(CachingConfiguration.class);
+        context.registerBean(org.springframework.cache.CacheManager.class, () -> new JCacheCacheManager(cacheManager));
+        context.registerBean(NamedParameterJdbcTemplate.class, () -> jdbcTemplate);
+        context.scan("ua.kostenko.carinfo.common.database.repositories");
+        context.refresh();
+        ResolvableType type = ResolvableType.forClassWithGenerics(DBRepository.class, Registration.class, String.class);
+        repository = (DBRepository<Registration, String>) context.getBeanProvider(type).getObject();
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+        cacheManager.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void searchesWithSameHashCodeAreCachedSeparately() {
+        ParamsHolder first = new ParamsHolderBuilder().param(Registration.REGISTRATION_NUMBER, "Aa").build();
+        ParamsHolder second = new ParamsHolderBuilder().param(Registration.REGISTRATION_NUMBER, "BB").build();
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Mockito.when(jdbcTemplate.query(Mockito.anyString(), Mockito.any(SqlParameterSource.class), Mockito.any(RowMapper.class)))
+               .thenReturn(Collections.singletonList(registration("Aa")), Collections.singletonList(registration("BB")));
+
+        Assert.assertEquals("Aa", repository.findOne(first).getRegistrationNumber());
+        Assert.assertEquals("BB", repository.findOne(second).getRegistrationNumber());
+        Assert.assertEquals("Aa", repository.findOne(new ParamsHolderBuilder().param(Registration.REGISTRATION_NUMBER, "Aa").build()).getRegistrationNumber());
+        Mockito.verify(jdbcTemplate, Mockito.times(2)).query(Mockito.anyString(), Mockito.any(SqlParameterSource.class), Mockito.any(RowMapper.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void entitiesWithSameHashCodeAreCheckedSeparately() {
+        Registration first = registration("Aa");
+        Registration second = registration("BB");
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Mockito.when(jdbcTemplate.query(Mockito.anyString(), Mockito.any(SqlParameterSource.class), Mockito.any(RowMapper.class)))
+               .thenReturn(Collections.singletonList(1L), Collections.singletonList(0L));
+
+        Assert.assertTrue(repository.exist(first));
+        Assert.assertFalse(repository.exist(second));
+        Assert.assertTrue(repository.exist(registration("Aa")));
+    }
+
+    private static Registration registration(String plate) {
+        return Registration.builder()
+                           .registrationNumber(plate)
+                           .registrationDate(Date.valueOf("2019-03-01"))
+                           .brandName("BMW")
+                           .modelName("X5")
+                           .makeYear(2015L)
+                           .colorName("BLACK")
+                           .kindName("LEGKOVYI")
+                           .purposeName("ZAGALNYI")
+                           .personType("P")
+                           .operationCode(100L)
+                           .operationName("REGISTRATION")
+                           .departmentCode(1L)
+                           .build();
+    }
+
+    @Configuration
+    @EnableCaching(proxyTargetClass = true)
+    static class CachingConfiguration {
+    }
+}
@@ -0,0 +1,169 @@
+package ua.kostenko.carinfo.rest.controllers.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.HateoasPageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.PagedResourcesAssemblerArgumentResolver;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.rest.services.RegistrationLookupService;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumn;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumnStore;
+import ua.kostenko.carinfo.rest.services.common.SearchService;
+import ua.kostenko.carinfo.rest.services.export.RegistrationExportService;
+import ua.kostenko.carinfo.rest.utils.Translation;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RecordRestApiControllerTest {
+    private SearchService<Registration, String> searchService;
+    private RegistrationLookupService lookupService;
+    private RegistrationColumnStore columnStore;
+    private MockMvc mockMvc;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        searchService = Mockito.mock(SearchService.class);
+        Mockito.when(searchService.findByParams(Mockito.anyMap(), Mockito.any(Pageable.class)))
+               .thenReturn(new PageImpl<>(Collections.emptyList(), PageRequest.of(0, 10), 0));
+        lookupService = Mockito.mock(RegistrationLookupService.class);
+        columnStore = Mockito.mock(RegistrationColumnStore.class);
+        RecordRestApiController controller = new RecordRestApiController(searchService, Translation.builder().translations(Collections.emptyMap()).build(),
+                                                                         new RegistrationExportService(searchService, new ObjectMapper()),
+                                                                         lookupService,
+                                                                         columnStore);
+        HateoasPageableHandlerMethodArgumentResolver pageableResolver = new HateoasPageableHandlerMethodArgumentResolver();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                                 .setCustomArgumentResolvers(pageableResolver, new PagedResourcesAssemblerArgumentResolver(pageableResolver, null))
+                                 .build();
+    }
+
+    @Test
+    public void malformedFiltersAreRejected() throws Exception {
+        mockMvc.perform(get("/api/registrations/findByParams").accept(MediaTypes.HAL_JSON).param("makeYearFrom", "abc"))
+               .andExpect(status().isBadRequest())
+               .andExpect(content().string(containsString("makeYearFrom")));
+        mockMvc.perform(get("/api/registrations/findByParams").accept(MediaTypes.HAL_JSON).param("registrationDateFrom", "2019-13-01"))
+               .andExpect(status().isBadRequest())
+               .andExpect(content().string(containsString("registrationDateFrom")));
+        mockMvc.perform(get("/api/registrations/countByParams").accept(MediaTypes.HAL_JSON).param("engineCapacityMin", "-1"))
+               .andExpect(status().isBadRequest());
+        Mockito.verifyZeroInteractions(searchService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rangeAndListFiltersReachSearch() throws Exception {
+        mockMvc.perform(get("/api/registrations/findByParams").accept(MediaTypes.HAL_JSON).param("registrationDateFrom", "2019-01-01")
+                                                              .param("makeYearTo", "2018")
+                                                              .param("brandNames", "BMW", "AUDI")
+                                                              .param("colorNames", "RED,BLACK"))
+               .andExpect(status().isOk());
+        ArgumentCaptor<Map<String, Object>> params = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(searchService).findByParams(params.capture(), Mockito.any(Pageable.class));
+        Assert.assertEquals(Date.valueOf("2019-01-01"), params.getValue().get(Registration.REGISTRATION_DATE_FROM));
+        Assert.assertEquals(2018L, params.getValue().get(Registration.MAKE_YEAR_TO));
+        Assert.assertEquals(Arrays.asList("BMW", "AUDI"), params.getValue().get(Registration.BRANDS));
+        Assert.assertEquals(Arrays.asList("RED", "BLACK"), params.getValue().get(Registration.COLORS));
+    }
+
+    @Test
+    public void listFiltersAreRepeatedInLinks() throws Exception {
+        mockMvc.perform(get("/api/registrations/findByParams").accept(MediaTypes.HAL_JSON).param("brandNames", "BMW", "AUDI").param("makeYearFrom", "2015"))
+               .andExpect(status().isOk())
+               .andExpect(content().string(containsString("brandNames=BMW&brandNames=AUDI")))
+               .andExpect(content().string(containsString("makeYearFrom=2015")));
+    }
+
+    @Test
+    public void compactFindUsesSearchOfFullView() throws Exception {
+        Registration registration = Registration.builder()
+                                                .registrationNumber("AA0001AA")
+                                                .brandName("BMW")
+                                                .makeYear(2015L)
+                                                .kindName("LEGKOVYI")
+                                                .purposeName("ZAGALNYI")
+                                                .colorName("BLACK")
+                                                .personType("P")
+                                                .operationCode(100L)
+                                                .operationName("REGISTRATION")
+                                                .departmentCode(1L)
+                                                .registrationDate(Date.valueOf("2019-03-01"))
+                                                .modelName("X5")
+                                                .build();
+        Mockito.when(searchService.findForField(Mockito.eq("AA0001AA"), Mockito.any(Pageable.class)))
+               .thenReturn(new PageImpl<>(Collections.singletonList(registration), PageRequest.of(1, 5), 6));
+        MvcResult result = mockMvc.perform(get("/api/registrations/find/AA0001AA").param("view", "compact")
+                                                                                  .param("page", "1")
+                                                                                  .param("size", "5")
+                                                                                  .param("fields", Registration.REGISTRATION_NUMBER, Registration.MAKE_YEAR))
+                                  .andExpect(request().asyncStarted())
+                                  .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(content().json("{\"page\": 1, \"size\": 5, \"content\": [{\"registrationNumber\": \"AA0001AA\", \"makeYear\": 2015}]}", true));
+        Mockito.verify(searchService).findForField(Mockito.eq("AA0001AA"), Mockito.eq(PageRequest.of(1, 5)));
+        Mockito.verify(searchService, Mockito.never()).findProjectionByParams(Mockito.anyMap(), Mockito.any(), Mockito.anyList(), Mockito.any());
+    }
+
+    @Test
+    public void lookupPassesPlatesOfBody() throws Exception {
+        Mockito.when(lookupService.lookup(Arrays.asList("aa0001aa", "BB0002BB")))
+               .thenReturn(Collections.singletonMap("AA0001AA", Collections.emptyList()));
+        mockMvc.perform(post("/api/registrations/lookup").contentType(MediaType.APPLICATION_JSON).content("[\"aa0001aa\", \"BB0002BB\"]"))
+               .andExpect(status().isOk())
+               .andExpect(content().json("{\"AA0001AA\": []}"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statisticsPassRangeAndListFilters() throws Exception {
+        Mockito.when(columnStore.countByParams(Mockito.eq(RegistrationColumn.BRAND), Mockito.anyMap()))
+               .thenReturn(Optional.of(Collections.singletonMap("BMW", 2L)));
+        mockMvc.perform(get("/api/registrations/statistics").param("groupBy", "brand")
+                                                             .param("makeYearFrom", "2015")
+                                                             .param("colorNames", "RED", "BLACK")
+                                                             .param("kindName", "LEGKOVYI"))
+               .andExpect(status().isOk())
+               .andExpect(content().json("{\"BMW\": 2}"));
+        ArgumentCaptor<Map<String, Object>> params = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(columnStore).countByParams(Mockito.eq(RegistrationColumn.BRAND), params.capture());
+        Assert.assertEquals(2015L, params.getValue().get(Registration.MAKE_YEAR_FROM));
+        Assert.assertEquals(Arrays.asList("RED", "BLACK"), params.getValue().get(Registration.COLORS));
+        Assert.assertEquals("LEGKOVYI", params.getValue().get(Registration.KIND));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statisticsRejectParamsColumnsCanNotAnswer() throws Exception {
+        Mockito.when(columnStore.countByParams(Mockito.eq(RegistrationColumn.BRAND), Mockito.anyMap()))
+               .thenThrow(new IllegalArgumentException("Parameter is not supported by statistics: registrationNumber"));
+        mockMvc.perform(get("/api/registrations/statistics").accept(MediaType.APPLICATION_JSON).param("groupBy", "brand").param("registrationNumber", "AA0001AA"))
+               .andExpect(status().isBadRequest())
+               .andExpect(content().string(containsString("registrationNumber")));
+    }
+}
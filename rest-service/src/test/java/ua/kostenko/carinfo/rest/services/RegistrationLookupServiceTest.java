@@ -0,0 +1,109 @@
+package ua.kostenko.carinfo.rest.services;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.rest.services.common.SearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import java.sql.Date;
+import java.util.*;
+import java.util.function.Consumer;
+
+public class RegistrationLookupServiceTest {
+    private SearchService<Registration, String> searchService;
+    private ReadIndexService readIndexService;
+    private RegistrationLookupService lookupService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        searchService = Mockito.mock(SearchService.class);
+        readIndexService = Mockito.mock(ReadIndexService.class);
+        Mockito.when(readIndexService.findByPlate(Mockito.anyString())).thenReturn(Optional.empty());
+        lookupService = new RegistrationLookupService(searchService, readIndexService, 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void platesAreNormalizedAndResolvedInOneQuery() {
+        stream(registration("AA0001AA", 2015L), registration("BB0002BB", 2016L), registration("AA0001AA", 2019L));
+        Map<String, List<Registration>> result = lookupService.lookup(Arrays.asList(" aa0001aa", "AA0001AA ", "", null, "bb0002bb", "CC0003CC"));
+
+        Assert.assertEquals(Arrays.asList("AA0001AA", "BB0002BB", "CC0003CC"), new ArrayList<>(result.keySet()));
+        Assert.assertEquals(2, result.get("AA0001AA").size());
+        Assert.assertEquals(1, result.get("BB0002BB").size());
+        Assert.assertTrue(result.get("CC0003CC").isEmpty());
+        ArgumentCaptor<Map<String, Object>> params = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(searchService).streamByParams(params.capture(), Mockito.any(Consumer.class));
+        Assert.assertEquals(Arrays.asList("AA0001AA", "BB0002BB", "CC0003CC"), params.getValue().get(Registration.REGISTRATION_NUMBERS));
+    }
+
+    @Test
+    public void capIsAppliedAfterDeduplication() {
+        stream();
+        Assert.assertEquals(3, lookupService.lookup(Arrays.asList("AA1", "aa1", " AA1", "BB2", "CC3")).size());
+        try {
+            lookupService.lookup(Arrays.asList("AA1", "BB2", "CC3", "DD4"));
+            Assert.fail("More plates than allowed must be rejected");
+        } catch (IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("maximum is 3"));
+        }
+    }
+
+    @Test
+    public void emptyRequestDoesNotQuery() {
+        Assert.assertTrue(lookupService.lookup(Arrays.asList(" ", "")).isEmpty());
+        Mockito.verifyZeroInteractions(searchService);
+    }
+
+    @Test
+    public void readIndexAnswersWithoutDatabase() {
+        Mockito.when(readIndexService.findByPlate("AA0001AA")).thenReturn(Optional.of(Collections.singletonList(registration("AA0001AA", 2015L))));
+        Mockito.when(readIndexService.findByPlate("BB0002BB")).thenReturn(Optional.of(Collections.emptyList()));
+        Map<String, List<Registration>> result = lookupService.lookup(Arrays.asList("aa0001aa", "bb0002bb"));
+
+        Assert.assertEquals(1, result.get("AA0001AA").size());
+        Assert.assertTrue(result.get("BB0002BB").isEmpty());
+        Mockito.verifyZeroInteractions(searchService);
+    }
+
+    @Test
+    public void databaseIsUsedWhenReadIndexIsGoneMidway() {
+        Mockito.when(readIndexService.findByPlate("AA0001AA")).thenReturn(Optional.of(Collections.singletonList(registration("AA0001AA", 2015L))));
+        stream(registration("AA0001AA", 2015L), registration("BB0002BB", 2016L));
+        Map<String, List<Registration>> result = lookupService.lookup(Arrays.asList("AA0001AA", "BB0002BB"));
+
+        Assert.assertEquals("Rows found in read index must not be doubled", 1, result.get("AA0001AA").size());
+        Assert.assertEquals(1, result.get("BB0002BB").size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stream(Registration... registrations) {
+        Mockito.doAnswer(invocation -> {
+            Consumer<Registration> consumer = invocation.getArgument(1);
+            Arrays.stream(registrations).forEach(consumer);
+            return null;
+        }).when(searchService).streamByParams(Mockito.anyMap(), Mockito.any(Consumer.class));
+    }
+
+    private static Registration registration(String plate, long makeYear) {
+        return Registration.builder()
+                           .registrationNumber(plate)
+                           .registrationDate(Date.valueOf("2019-03-01"))
+                           .brandName("BMW")
+                           .modelName("X5")
+                           .makeYear(makeYear)
+                           .colorName("BLACK")
+                           .kindName("LEGKOVYI")
+                           .purposeName("ZAGALNYI")
+                           .personType("P")
+                           .operationCode(100L)
+                           .operationName("REGISTRATION")
+                           .departmentCode(1L)
+                           .build();
+    }
+}
@@ -0,0 +1,181 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.cache.DataChangedEvent;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reloads of the columns on data changes and statistics by search params, over a stubbed database.
+ */
+public class RegistrationColumnStoreTest {
+    private static final long RELOAD_DELAY_MILLIS = 200;
+    private static final List<Object[]> RECORDS = Arrays.asList(
+            record(10, 1, 2010, "2019-03-05", 3000),
+            record(10, 2, 2015, "2019-06-10", 2000),
+            record(20, 1, 2016, "2019-06-15", 1800),
+            record(20, 1, 2018, "2020-01-20", 2500));
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile Integer version = 5;
+    private RegistrationColumnStore store;
+
+    @Before
+    public void setUp() throws SQLException {
+        Statement statement = Mockito.mock(Statement.class);
+        Mockito.when(statement.executeQuery(Mockito.anyString())).thenAnswer(invocation -> resultSet(getRows(invocation.getArgument(0))));
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.createStatement()).thenReturn(statement);
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        store = new RegistrationColumnStore(new JdbcTemplate(dataSource), Mockito.mock(PlatformTransactionManager.class), true, true, RELOAD_DELAY_MILLIS);
+        store.onApplicationReady();
+        awaitReload(null);
+    }
+
+    @After
+    public void tearDown() {
+        store.stop();
+    }
+
+    @Test
+    public void eventsAreCoalescedAndLoadedVersionIsSkipped() throws InterruptedException {
+        RegistrationColumns initial = store.getColumns().orElseThrow(IllegalStateException::new);
+        Assert.assertEquals(Integer.valueOf(5), initial.getDataVersion());
+        Assert.assertEquals(1, loads.get());
+
+        store.onDataChanged(new DataChangedEvent(5));
+        version = 6;
+        store.onDataChanged(new DataChangedEvent(6));
+        store.onDataChanged(new DataChangedEvent(6));
+        store.onDataChanged(new DataChangedEvent(6));
+        RegistrationColumns published = awaitReload(initial);
+        Thread.sleep(RELOAD_DELAY_MILLIS * 3);
+        Assert.assertEquals(Integer.valueOf(6), published.getDataVersion());
+        Assert.assertEquals("Events within the reload delay must be loaded once", 2, loads.get());
+
+        store.onDataChanged(new DataChangedEvent(6));
+        Thread.sleep(RELOAD_DELAY_MILLIS * 3);
+        Assert.assertEquals(2, loads.get());
+
+        store.onDataChanged(new DataChangedEvent(null));
+        RegistrationColumns rows = awaitReload(published);
+        Assert.assertEquals("Changes without a version must always reload", 3, loads.get());
+
+        store.onDataChanged(new DataChangedEvent(7));
+        awaitReload(rows);
+        Assert.assertEquals("Years of a version being loaded change data before it is current", 4, loads.get());
+    }
+
+    @Test
+    public void statisticsHonourRangeAndListParams() {
+        Map<String, Object> params = new HashMap<>();
+        params.put(Registration.MAKE_YEAR_FROM, 2015L);
+        params.put(Registration.COLORS, Collections.singletonList("BLACK"));
+        Assert.assertEquals(Collections.singletonMap("AUDI", 2L), countByBrand(params));
+
+        params.clear();
+        params.put(Registration.COLORS, Arrays.asList("BLACK", "RED"));
+        params.put(Registration.MAKE_YEAR_TO, 2015L);
+        Assert.assertEquals(Collections.singletonMap("BMW", 2L), countByBrand(params));
+
+        params.clear();
+        params.put(Registration.REGISTRATION_DATE_FROM, java.sql.Date.valueOf("2019-06-12"));
+        Assert.assertEquals(Collections.singletonMap("AUDI", 2L), countByBrand(params));
+        params.put(Registration.ENGINE_CAPACITY_MAX, 2000L);
+        Assert.assertEquals(Collections.singletonMap("AUDI", 1L), countByBrand(params));
+
+        params.clear();
+        params.put(Registration.MAKE_YEARS, Arrays.asList(2010L, 2016L));
+        Map<String, Long> byColor = store.countByParams(RegistrationColumn.COLOR, params).orElseThrow(IllegalStateException::new);
+        Assert.assertEquals(Collections.singletonMap("BLACK", 2L), byColor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedParamsAreRejected() {
+        store.countByParams(RegistrationColumn.BRAND, Collections.singletonMap(Registration.REGISTRATION_NUMBER, "AA0001AA"));
+    }
+
+    private Map<String, Long> countByBrand(Map<String, Object> params) {
+        return store.countByParams(RegistrationColumn.BRAND, params).orElseThrow(IllegalStateException::new);
+    }
+
+    private RegistrationColumns awaitReload(RegistrationColumns previous) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Optional<RegistrationColumns> columns = store.getColumns();
+            if (columns.isPresent() && columns.get() != previous) {
+                return columns.get();
+            }
+            Thread.yield();
+        }
+        throw new AssertionError("Registration columns are not reloaded");
+    }
+
+    private List<Object[]> getRows(String sql) {
+        if (sql.contains("carinfo.data_version")) {
+            return Collections.singletonList(new Object[]{version});
+        }
+        if (sql.startsWith("select count(*)")) {
+            return Collections.singletonList(new Object[]{RECORDS.size()});
+        }
+        if (sql.contains("from carinfo.record")) {
+            loads.incrementAndGet();
+            return RECORDS;
+        }
+        if (sql.contains("from carinfo.vehicle")) {
+            return Arrays.asList(new Object[]{10, 1, 1}, new Object[]{20, 2, 2});
+        }
+        if (sql.contains("from carinfo.brand")) {
+            return Arrays.asList(new Object[]{1, "BMW"}, new Object[]{2, "AUDI"});
+        }
+        if (sql.contains("from carinfo.model")) {
+            return Arrays.asList(new Object[]{1, "X5"}, new Object[]{2, "A4"});
+        }
+        if (sql.contains("from carinfo.color")) {
+            return Arrays.asList(new Object[]{1, "BLACK"}, new Object[]{2, "RED"});
+        }
+        return Collections.emptyList();
+    }
+
+    private static Object[] record(int vehicleId, int colorId, int makeYear, String registrationDate, int engineCapacity) {
+        return new Object[]{vehicleId, null, colorId, null, null, null, null, null, null, makeYear, java.sql.Date.valueOf(registrationDate),
+                engineCapacity, null, null};
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) throws SQLException {
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metaData.getColumnCount()).thenReturn(1);
+        Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+        AtomicInteger row = new AtomicInteger(-1);
+        Mockito.when(resultSet.next()).thenAnswer(invocation -> row.incrementAndGet() < rows.size());
+        Mockito.when(resultSet.getLong(Mockito.anyInt())).thenAnswer(invocation -> {
+            Object value = getValue(rows, row, invocation);
+            return Objects.isNull(value) ? 0L : ((Number) value).longValue();
+        });
+        Mockito.when(resultSet.getInt(Mockito.anyInt())).thenAnswer(invocation -> {
+            Object value = getValue(rows, row, invocation);
+            return Objects.isNull(value) ? 0 : ((Number) value).intValue();
+        });
+        Mockito.when(resultSet.getString(Mockito.anyInt())).thenAnswer(invocation -> Objects.toString(getValue(rows, row, invocation), null));
+        Mockito.when(resultSet.getDate(Mockito.anyInt())).thenAnswer(invocation -> getValue(rows, row, invocation));
+        Mockito.when(resultSet.wasNull()).thenReturn(false);
+        return resultSet;
+    }
+
+    private static Object getValue(List<Object[]> rows, AtomicInteger row, InvocationOnMock invocation) {
+        return rows.get(row.get())[(int) invocation.getArgument(0) - 1];
+    }
+}
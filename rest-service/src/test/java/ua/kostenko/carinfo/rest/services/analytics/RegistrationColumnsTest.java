@@ -0,0 +1,87 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class RegistrationColumnsTest {
+    private static final int ROWS = 3000;
+    private RegistrationColumns columns;
+    private int bmw;
+    private int audi;
+
+    @Before
+    public void setUp() {
+        ColumnDictionary brands = new ColumnDictionary();
+        bmw = brands.add("BMW");
+        audi = brands.add("AUDI");
+        Map<RegistrationColumn, ColumnDictionary> dictionaries = new EnumMap<>(RegistrationColumn.class);
+        dictionaries.put(RegistrationColumn.BRAND, brands);
+        RegistrationColumns.Builder builder = RegistrationColumns.builder(dictionaries, 16);
+        for (int i = 0; i < ROWS; i++) {
+            int[] row = new int[RegistrationColumn.values().length];
+            row[RegistrationColumn.BRAND.ordinal()] = i % 3 == 0 ? bmw : audi;
+            row[RegistrationColumn.MAKE_YEAR.ordinal()] = 2000 + i % 10;
+            row[RegistrationColumn.REGISTRATION_DATE.ordinal()] = RegistrationColumns.packDate(LocalDate.of(2019, 1, 1 + i % 28));
+            row[RegistrationColumn.OWN_WEIGHT.ordinal()] = i * 1000;
+            builder.add(row);
+        }
+        columns = builder.build(5);
+    }
+
+    @Test
+    public void countsWithFilters() {
+        Assert.assertEquals(ROWS, columns.size());
+        Assert.assertEquals(Integer.valueOf(5), columns.getDataVersion());
+        Assert.assertEquals(ROWS, columns.count(Collections.emptyList()));
+        Assert.assertEquals(1000, columns.count(Collections.singletonList(columns.filter(RegistrationColumn.BRAND, "BMW"))));
+        Assert.assertEquals(200, columns.count(Arrays.asList(columns.filter(RegistrationColumn.BRAND, "AUDI"),
+                                                             columns.filter(RegistrationColumn.MAKE_YEAR, 2001))));
+        Assert.assertEquals(1, columns.count(Collections.singletonList(columns.filter(RegistrationColumn.OWN_WEIGHT, 2999000))));
+        Assert.assertEquals(108, columns.count(Collections.singletonList(columns.filter(RegistrationColumn.REGISTRATION_DATE, LocalDate.of(2019, 1, 3)))));
+    }
+
+    @Test
+    public void unknownValuesMatchNothing() {
+        Assert.assertEquals(0, columns.count(Collections.singletonList(columns.filter(RegistrationColumn.BRAND, "TESLA"))));
+        Assert.assertEquals(0, columns.count(Collections.singletonList(columns.filter(RegistrationColumn.COLOR, "RED"))));
+    }
+
+    @Test
+    public void countsByGroup() {
+        long[] byBrand = columns.countBy(RegistrationColumn.BRAND, Collections.singletonList(columns.filter(RegistrationColumn.MAKE_YEAR, 2003)));
+        Assert.assertEquals(3, byBrand.length);
+        Assert.assertEquals(0, byBrand[0]);
+        Assert.assertEquals(100, byBrand[bmw]);
+        Assert.assertEquals(200, byBrand[audi]);
+        long[] byYear = columns.countBy(RegistrationColumn.MAKE_YEAR, Collections.emptyList());
+        Assert.assertEquals(300, byYear[2009]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wideColumnsCantBeGrouped() {
+        columns.countBy(RegistrationColumn.OWN_WEIGHT, Collections.emptyList());
+    }
+
+    @Test
+    public void bitmapIndexCountsMatchScans() {
+        RegistrationBitmapIndex index = RegistrationBitmapIndex.build(columns);
+        RowBitmap year2001 = index.select(RegistrationColumn.MAKE_YEAR, new int[]{2001});
+        RowBitmap audiRows = index.select(RegistrationColumn.BRAND, new int[]{audi});
+        Assert.assertEquals(200, index.count(Arrays.asList(audiRows, year2001)));
+        Assert.assertEquals(ROWS, index.count(Collections.emptyList()));
+        Assert.assertEquals(1200, index.count(Collections.singletonList(index.selectRange(RegistrationColumn.MAKE_YEAR, 2002, 2005))));
+        Assert.assertEquals(ROWS, index.count(Collections.singletonList(index.selectRange(RegistrationColumn.REGISTRATION_DATE, 201901, 201901))));
+
+        Map<Integer, Long> byBrand = index.countBy(RegistrationColumn.BRAND, Collections.singletonList(index.select(RegistrationColumn.MAKE_YEAR, new int[]{2003})));
+        long[] scanned = columns.countBy(RegistrationColumn.BRAND, Collections.singletonList(columns.filter(RegistrationColumn.MAKE_YEAR, 2003)));
+        Assert.assertEquals(Long.valueOf(scanned[bmw]), byBrand.get(bmw));
+        Assert.assertEquals(Long.valueOf(scanned[audi]), byBrand.get(audi));
+    }
+}
@@ -0,0 +1,60 @@
+package ua.kostenko.carinfo.rest.services.analytics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+public class RowBitmapTest {
+    private static final int ROWS = 400_000;
+
+    @Test
+    public void operationsMatchBitSet() {
+        Random random = new Random(42);
+        // dense, sparse and mixed chunks to cover array and bitmap containers
+        double[][] densities = {{0.5, 0.001}, {0.001, 0.02}, {0.3, 0.3}, {0.0, 0.9}};
+        for (double[] density : densities) {
+            BitSet firstRows = new BitSet();
+            BitSet secondRows = new BitSet();
+            RowBitmap first = build(random, density[0], firstRows);
+            RowBitmap second = build(random, density[1], secondRows);
+            Assert.assertEquals(firstRows.cardinality(), first.getCardinality());
+
+            BitSet and = (BitSet) firstRows.clone();
+            and.and(secondRows);
+            BitSet or = (BitSet) firstRows.clone();
+            or.or(secondRows);
+            assertEquals(and, first.and(second));
+            assertEquals(or, first.or(second));
+            assertEquals(or, RowBitmap.or(Arrays.asList(second, RowBitmap.empty(), first)));
+            Assert.assertEquals(and.cardinality(), first.andCardinality(second));
+            Assert.assertEquals(and.cardinality(), second.andCardinality(first));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowsMustBeAscending() {
+        RowBitmap.of(5, 70000, 3);
+    }
+
+    private static RowBitmap build(Random random, double density, BitSet rows) {
+        RowBitmap.Builder builder = new RowBitmap.Builder();
+        for (int row = 0; row < ROWS; row++) {
+            double chunkDensity = (row >>> 16) % 2 == 0 ? density : density / 10;
+            if (random.nextDouble() < chunkDensity) {
+                builder.add(row);
+                rows.set(row);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void assertEquals(BitSet expected, RowBitmap actual) {
+        Assert.assertEquals(expected.cardinality(), actual.getCardinality());
+        for (int row = 0; row < ROWS; row++) {
+            Assert.assertEquals(expected.get(row), actual.contains(row));
+        }
+    }
+}
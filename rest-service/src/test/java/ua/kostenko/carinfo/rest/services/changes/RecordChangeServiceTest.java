@@ -0,0 +1,62 @@
+package ua.kostenko.carinfo.rest.services.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+public class RecordChangeServiceTest {
+
+    /**
+     * pgjdbc uses a cursor only when auto-commit is off, the changes must be read in a read-only transaction.
+     */
+    @Test
+    public void changesAreStreamedInReadOnlyTransaction() throws Exception {
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Array ids = Mockito.mock(Array.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.getAutoCommit()).thenReturn(true);
+        Mockito.when(connection.prepareStatement(Mockito.anyString())).thenReturn(statement);
+        Mockito.when(statement.executeQuery()).thenReturn(resultSet);
+        Mockito.when(resultSet.next()).thenReturn(true, true, false);
+        Mockito.when(resultSet.getLong("seq")).thenReturn(5L, 6L);
+        Mockito.when(resultSet.getInt("version")).thenReturn(3);
+        Mockito.when(resultSet.getString("operation")).thenReturn("INSERT");
+        Mockito.when(resultSet.wasNull()).thenReturn(false, true, false, true);
+        Mockito.when(resultSet.getArray("record_ids")).thenReturn(ids);
+        Mockito.when(ids.getArray()).thenReturn((Object) new Long[]{1L, 2L}, (Object) new Long[]{3L});
+        Mockito.when(resultSet.getTimestamp("created_at")).thenReturn(Timestamp.valueOf("2019-03-01 10:00:00"));
+
+        RecordChangeService service = new RecordChangeService(new JdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource), new ObjectMapper(), 100);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Assert.assertEquals(2, service.stream(4, 1000, outputStream));
+
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assert.assertEquals(2, lines.length);
+        Assert.assertTrue(lines[0], lines[0].startsWith("{\"seq\":5,\"version\":3,\"operation\":\"INSERT\",\"ids\":[1,2]"));
+        Assert.assertTrue(lines[1], lines[1].startsWith("{\"seq\":6,\"version\":3,\"operation\":\"INSERT\",\"ids\":[3]"));
+        InOrder inOrder = Mockito.inOrder(connection, statement);
+        inOrder.verify(connection).setReadOnly(true);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).prepareStatement(Mockito.anyString());
+        inOrder.verify(statement).setFetchSize(100);
+        inOrder.verify(statement).setObject(1, 4L);
+        inOrder.verify(statement).setObject(2, 100);
+        inOrder.verify(connection).commit();
+    }
+}
@@ -0,0 +1,224 @@
+package ua.kostenko.carinfo.rest.services.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ua.kostenko.carinfo.common.api.records.Registration;
+import ua.kostenko.carinfo.common.api.services.DBService;
+import ua.kostenko.carinfo.rest.services.RegistrationSearchService;
+import ua.kostenko.carinfo.rest.services.analytics.RegistrationColumnStore;
+import ua.kostenko.carinfo.rest.services.common.SearchService;
+import ua.kostenko.carinfo.rest.services.readindex.ReadIndexService;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.*;
+import java.util.function.Consumer;
+
+public class RegistrationExportServiceTest {
+    private SearchService<Registration, String> searchService;
+    private RegistrationExportService exportService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        searchService = Mockito.mock(SearchService.class);
+        exportService = new RegistrationExportService(searchService, new ObjectMapper());
+    }
+
+    @Test
+    public void ndjsonHasOneRegistrationPerLine() throws IOException {
+        stream(registration("AA0001AA", "BMW", "KYIV"), registration("AA0002AA", "AUDI", "LVIV"));
+        String output = export(ExportFormat.NDJSON);
+        String[] lines = output.split("\n", -1);
+        Assert.assertEquals(3, lines.length);
+        Assert.assertEquals("", lines[2]);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode first = objectMapper.readTree(lines[0]);
+        Assert.assertEquals("AA0001AA", first.get(Registration.REGISTRATION_NUMBER).asText());
+        Assert.assertEquals("BMW", first.get(Registration.BRAND).asText());
+        Assert.assertEquals("AA0002AA", objectMapper.readTree(lines[1]).get(Registration.REGISTRATION_NUMBER).asText());
+    }
+
+    @Test
+    public void emptyExportWritesNothing() throws IOException {
+        stream();
+        Assert.assertEquals("", export(ExportFormat.NDJSON));
+        String csv = export(ExportFormat.CSV);
+        Assert.assertTrue(csv.startsWith(Registration.REGISTRATION_NUMBER + "," + Registration.REGISTRATION_DATE + ","));
+        Assert.assertEquals(1, csv.split("\r\n").length);
+    }
+
+    @Test
+    public void csvValuesAreEscaped() throws IOException {
+        String address = "Kyiv, \"Central\" office\nfloor 2";
+        stream(registration("AA0001AA", "BMW", address), registration("AA0002AA", "MERCEDES-BENZ", "LVIV"));
+        String output = export(ExportFormat.CSV);
+        Assert.assertTrue(output.contains("\"Kyiv, \"\"Central\"\" office\nfloor 2\""));
+        List<CSVRecord> records = CSVParser.parse(new StringReader(output), CSVFormat.DEFAULT.withFirstRecordAsHeader()).getRecords();
+        Assert.assertEquals(2, records.size());
+        Assert.assertEquals("AA0001AA", records.get(0).get(Registration.REGISTRATION_NUMBER));
+        Assert.assertEquals(address, records.get(0).get(Registration.DEPARTMENT_ADDRESS));
+        Assert.assertEquals("2019-03-01", records.get(0).get(Registration.REGISTRATION_DATE));
+        Assert.assertEquals("MERCEDES-BENZ", records.get(1).get(Registration.BRAND));
+    }
+
+    @Test
+    public void compactPageKeepsRequestedFieldsInOrder() throws IOException {
+        Registration registration = registration("AA0001AA", "BMW", null);
+        registration.setId(7L);
+        Page<Registration> page = new PageImpl<>(Collections.singletonList(registration), PageRequest.of(2, 5), 11);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportCompactPage(page, Arrays.asList(Registration.MAKE_YEAR, Registration.REGISTRATION_NUMBER, Registration.DEPARTMENT_ADDRESS), outputStream);
+        Assert.assertEquals("{\"page\":2,\"size\":5,\"content\":[{\"makeYear\":2015,\"registrationNumber\":\"AA0001AA\"}]}",
+                            new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+
+        outputStream = new ByteArrayOutputStream();
+        exportService.exportCompactPage(page, Collections.emptyList(), outputStream);
+        JsonNode content = new ObjectMapper().readTree(outputStream.toByteArray()).get("content").get(0);
+        List<String> names = new ArrayList<>();
+        content.fieldNames().forEachRemaining(names::add);
+        Assert.assertEquals(Arrays.asList("id", Registration.REGISTRATION_NUMBER, Registration.REGISTRATION_DATE, Registration.BRAND), names.subList(0, 4));
+        Assert.assertEquals("2019-03-01", content.get(Registration.REGISTRATION_DATE).asText());
+        Assert.assertFalse(content.has(Registration.DEPARTMENT_ADDRESS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void compactProjectionPageIsWrappedWithPaging() throws IOException {
+        Mockito.doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(3);
+            ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metaData.getColumnCount()).thenReturn(1);
+            Mockito.when(metaData.getColumnLabel(1)).thenReturn(Registration.REGISTRATION_NUMBER);
+            Mockito.when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+            ResultSet resultSet = Mockito.mock(ResultSet.class);
+            Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+            Mockito.when(resultSet.getString(1)).thenReturn("AA0001AA", "AA0002AA");
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(searchService).findProjectionByParams(Mockito.anyMap(), Mockito.any(Pageable.class), Mockito.anyList(), Mockito.any(RowCallbackHandler.class));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        List<String> fields = Collections.singletonList(Registration.REGISTRATION_NUMBER);
+        exportService.exportCompactPage(Collections.emptyMap(), PageRequest.of(1, 2), fields, outputStream);
+        Assert.assertEquals("{\"page\":1,\"size\":2,\"content\":[{\"registrationNumber\":\"AA0001AA\"},{\"registrationNumber\":\"AA0002AA\"}]}",
+                            new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        Mockito.verify(searchService).findProjectionByParams(Mockito.anyMap(), Mockito.eq(PageRequest.of(1, 2)), Mockito.eq(fields), Mockito.any(RowCallbackHandler.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCompactFieldIsRejected() {
+        RegistrationExportService.getCompactFields(Arrays.asList(Registration.BRAND, "password"));
+    }
+
+    /**
+     * Goes through the search service and repository down to JDBC: one unpaged query with the streaming fetch size, every
+     * row of the cursor is exported.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportStreamsRowsOfCursor() throws Exception {
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.prepareStatement(Mockito.anyString())).thenReturn(statement);
+        Mockito.when(connection.createArrayOf(Mockito.anyString(), Mockito.any(Object[].class))).thenReturn(Mockito.mock(Array.class));
+        Mockito.when(statement.getConnection()).thenReturn(connection);
+        Mockito.when(statement.executeQuery()).thenReturn(resultSet);
+        Mockito.when(resultSet.next()).thenReturn(true, true, true, false);
+        Mockito.when(resultSet.getString(Mockito.anyString())).thenReturn("VALUE");
+        Mockito.when(resultSet.getString("registration_number")).thenReturn("AA0001AA", "AA0002AA", "AA0003AA");
+        Mockito.when(resultSet.getString("dep_addr")).thenReturn("Kyiv, \"Central\"");
+        Mockito.when(resultSet.getDate("registration_date")).thenReturn(Date.valueOf("2019-03-01"));
+        Mockito.when(resultSet.getLong(Mockito.anyString())).thenReturn(2019L);
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(NamedParameterJdbcTemplate.class, () -> new NamedParameterJdbcTemplate(dataSource));
+            context.scan("ua.kostenko.carinfo.common.database.repositories", "ua.kostenko.carinfo.common.api.services");
+            context.refresh();
+            ResolvableType type = ResolvableType.forClassWithGenerics(DBService.class, Registration.class);
+            DBService<Registration> dbService = (DBService<Registration>) context.getBeanProvider(type).getObject();
+            RegistrationSearchService registrationSearchService = new RegistrationSearchService(dbService, Mockito.mock(RegistrationColumnStore.class),
+                                                                                                Mockito.mock(ReadIndexService.class));
+            exportService = new RegistrationExportService(registrationSearchService, new ObjectMapper());
+            Map<String, Object> params = new HashMap<>();
+            params.put(Registration.BRANDS, Arrays.asList("BMW", "AUDI"));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            exportService.export(params, ExportFormat.CSV, outputStream);
+
+            List<CSVRecord> records = CSVParser.parse(new StringReader(new String(outputStream.toByteArray(), StandardCharsets.UTF_8)),
+                                                      CSVFormat.DEFAULT.withFirstRecordAsHeader()).getRecords();
+            Assert.assertEquals(3, records.size());
+            Assert.assertEquals("AA0003AA", records.get(2).get(Registration.REGISTRATION_NUMBER));
+            Assert.assertEquals("Kyiv, \"Central\"", records.get(2).get(Registration.DEPARTMENT_ADDRESS));
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            Mockito.verify(connection).prepareStatement(sql.capture());
+            Assert.assertTrue(sql.getValue(), sql.getValue().contains("brand_name = any(?)"));
+            Assert.assertFalse(sql.getValue(), sql.getValue().contains("limit"));
+            Mockito.verify(connection).createArrayOf("varchar", new Object[]{"BMW", "AUDI"});
+            Mockito.verify(statement).setFetchSize(1000);
+            Mockito.verify(resultSet).close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stream(Registration... registrations) {
+        Mockito.doAnswer(invocation -> {
+            Consumer<Registration> consumer = invocation.getArgument(1);
+            Arrays.stream(registrations).forEach(consumer);
+            return null;
+        }).when(searchService).streamByParams(Mockito.anyMap(), Mockito.any(Consumer.class));
+    }
+
+    private String export(ExportFormat format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.export(Collections.emptyMap(), format, outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Registration registration(String plate, String brand, String departmentAddress) {
+        return Registration.builder()
+                           .registrationNumber(plate)
+                           .registrationDate(Date.valueOf("2019-03-01"))
+                           .brandName(brand)
+                           .modelName("MODEL")
+                           .makeYear(2015L)
+                           .colorName("BLACK")
+                           .kindName("LEGKOVYI")
+                           .purposeName("ZAGALNYI")
+                           .personType("P")
+                           .operationCode(100L)
+                           .operationName("REGISTRATION")
+                           .departmentCode(1L)
+                           .departmentAddress(departmentAddress)
+                           .build();
+    }
+}
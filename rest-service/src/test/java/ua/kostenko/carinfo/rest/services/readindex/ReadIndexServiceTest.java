@@ -0,0 +1,127 @@
+package ua.kostenko.carinfo.rest.services.readindex;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import ua.kostenko.carinfo.common.cache.DataChangedEvent;
+import ua.kostenko.carinfo.common.cache.EntityChangedEvent;
+import ua.kostenko.carinfo.common.readindex.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Read index files are mapped only for the generation of the database and changed dictionaries are not served from them.
+ */
+public class ReadIndexServiceTest {
+    private static final ReadIndexGeneration LOADED = new ReadIndexGeneration(5, 10, 0);
+    private static final ReadIndexGeneration ROWS_IMPORTED = new ReadIndexGeneration(5, 11, 0);
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private JdbcTemplate jdbcTemplate;
+    private ReadIndexService service;
+    private File directory;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder();
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        Mockito.when(jdbcTemplate.queryForObject(Mockito.anyString(), Mockito.any(RowMapper.class))).thenReturn(LOADED);
+        service = new ReadIndexService(jdbcTemplate, directory.getAbsolutePath(), 30);
+        writeIndex(ReadIndex.getFileName(LOADED), LOADED);
+        service.onDataChanged(new DataChangedEvent(5));
+        await(() -> service.getEntries(ReadIndexDictionary.BRAND).isPresent());
+    }
+
+    @After
+    public void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void changedDictionaryIsNotServed() {
+        Assert.assertEquals(1, service.findByPlate("AA0001AA").map(List::size).orElse(0).intValue());
+
+        service.onEntityChanged(new EntityChangedEvent("Brand"));
+
+        Assert.assertFalse(service.getEntries(ReadIndexDictionary.BRAND).isPresent());
+        Assert.assertFalse(service.getRecords(ReadIndexDictionary.BRAND, ReadIndexEntry::getId).isPresent());
+        Assert.assertEquals("BLACK", service.getEntries(ReadIndexDictionary.COLOR).map(entries -> entries.get(0).getField(0)).orElse(null));
+        Assert.assertFalse("Rows of a changed dictionary are stale", service.findByPlate("AA0001AA").isPresent());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void staleFileIsNotMapped() throws IOException, InterruptedException {
+        Mockito.when(jdbcTemplate.queryForObject(Mockito.anyString(), Mockito.any(RowMapper.class))).thenReturn(ROWS_IMPORTED);
+        Files.copy(new File(directory, ReadIndex.getFileName(LOADED)).toPath(), new File(directory, ReadIndex.getFileName(ROWS_IMPORTED)).toPath());
+
+        service.onDataChanged(new DataChangedEvent(null));
+        Mockito.verify(jdbcTemplate, Mockito.timeout(TimeUnit.SECONDS.toMillis(10)).times(2)).queryForObject(Mockito.anyString(), Mockito.any(RowMapper.class));
+        Thread.sleep(200);
+        Assert.assertFalse(service.getEntries(ReadIndexDictionary.COLOR).isPresent());
+        Assert.assertFalse(service.findByPlate("AA0001AA").isPresent());
+
+        writeIndex(ReadIndex.getFileName(ROWS_IMPORTED), ROWS_IMPORTED);
+        service.onDataChanged(new DataChangedEvent(5));
+        await(() -> service.findByPlate("AA0001AA").isPresent());
+    }
+
+    private void writeIndex(String name, ReadIndexGeneration generation) throws IOException {
+        File file = new File(directory, name);
+        Files.deleteIfExists(file.toPath());
+        try (ReadIndexWriter writer = new ReadIndexWriter(file, generation)) {
+            writer.writeDictionary(ReadIndexDictionary.BRAND, entry(1, "BMW"));
+            writer.writeDictionary(ReadIndexDictionary.MODEL, entry(1, "X5"));
+            writer.writeDictionary(ReadIndexDictionary.COLOR, entry(1, "BLACK"));
+            writer.writeDictionary(ReadIndexDictionary.KIND, entry(1, "LEGKOVYI"));
+            writer.writeDictionary(ReadIndexDictionary.PURPOSE, entry(1, "ZAGALNYI"));
+            writer.writeDictionary(ReadIndexDictionary.PERSON_TYPE, entry(1, "P"));
+            writer.writeDictionary(ReadIndexDictionary.OPERATION, entry(100, "REGISTRATION"));
+            writer.writeDictionary(ReadIndexDictionary.DEPARTMENT, entry(1, "KYIV", "kyiv@example.com"));
+            writer.addPlate("AA0001AA", 0);
+            writer.addRow(ReadIndexRow.builder()
+                                      .id(1)
+                                      .brandId(1L)
+                                      .modelId(1L)
+                                      .colorId(1L)
+                                      .kindId(1L)
+                                      .purposeId(1L)
+                                      .personTypeId(1L)
+                                      .operationCode(100L)
+                                      .departmentCode(1L)
+                                      .makeYear(2010)
+                                      .registrationDate(LocalDate.of(2019, 3, 1))
+                                      .build());
+        }
+    }
+
+    private static List<ReadIndexEntry> entry(long id, String... fields) {
+        return Collections.singletonList(new ReadIndexEntry(id, Arrays.asList(fields)));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.yield();
+        }
+        throw new AssertionError("Read index is not mapped");
+    }
+}
@@ -0,0 +1,46 @@
+package ua.kostenko.carinfo.rest.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.StringWriter;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+public class ResultSetJsonWriterTest {
+
+    @Test
+    public void columnsAreWrittenByTypeAndNullsAreOmitted() throws Exception {
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metaData.getColumnCount()).thenReturn(3);
+        Mockito.when(metaData.getColumnLabel(1)).thenReturn("makeYear");
+        Mockito.when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        Mockito.when(metaData.getColumnLabel(2)).thenReturn("registrationDate");
+        Mockito.when(metaData.getColumnType(2)).thenReturn(Types.DATE);
+        Mockito.when(metaData.getColumnLabel(3)).thenReturn("brandName");
+        Mockito.when(metaData.getColumnType(3)).thenReturn(Types.VARCHAR);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+        Mockito.when(resultSet.getLong(1)).thenReturn(2015L, 0L);
+        Mockito.when(resultSet.wasNull()).thenReturn(false, true);
+        Mockito.when(resultSet.getDate(2)).thenReturn(Date.valueOf("2019-03-01"), (Date) null);
+        Mockito.when(resultSet.getString(3)).thenReturn("BMW", "AUDI");
+
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(writer);
+        ResultSetJsonWriter jsonWriter = new ResultSetJsonWriter(generator);
+        generator.writeStartArray();
+        jsonWriter.processRow(resultSet);
+        jsonWriter.processRow(resultSet);
+        generator.writeEndArray();
+        generator.close();
+
+        Assert.assertEquals("[{\"makeYear\":2015,\"registrationDate\":\"2019-03-01\",\"brandName\":\"BMW\"},{\"brandName\":\"AUDI\"}]", writer.toString());
+        Mockito.verify(resultSet, Mockito.times(1)).getMetaData();
+    }
+}